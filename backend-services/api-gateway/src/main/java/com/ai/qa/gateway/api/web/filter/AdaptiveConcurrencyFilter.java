@@ -0,0 +1,182 @@
+package com.ai.qa.gateway.api.web.filter;
+
+import com.ai.qa.gateway.infrastructure.concurrency.AdaptiveConcurrencyLimiter;
+import com.ai.qa.gateway.infrastructure.concurrency.GradientLimit;
+import com.ai.qa.gateway.infrastructure.concurrency.RequestPriority;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.net.URI;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按下游服务的自适应并发限制与分级降载。
+ * <p>
+ * 令牌桶只能限制单个客户端的速率，下游 (例如 qa-service) 自身饱和时请求仍会在 Netty 中排队，
+ * 所有人的尾延迟一起变差。这里为每个下游实例池维护一个根据 RTT 自动调整的并发上限，
+ * 超出时立即返回 503 + Retry-After；并且按优先级分配份额，
+ * 重量级的 /api/qa 生成请求先被拒绝，登录/注册和历史读取最后被拒绝。
+ * <p>
+ * 上限按路由的目标 URI 区分 (lb://qa-service 即 qa-service 的所有实例)，而不是按路由：
+ * qa_history_route 和 qa_service_route 打到同一组实例，必须共享同一个上限，优先级份额才有意义。
+ * <p>
+ * 排在默认的 RequestRateLimiter 之后 (先扣客户端自己的配额)，
+ * 在 NettyWriteResponseFilter 之后，因此 RTT 统计的是到收到下游响应头为止的时间。
+ */
+@Component
+@ConditionalOnProperty(name = "gateway.concurrency.enabled", havingValue = "true", matchIfMissing = true)
+public class AdaptiveConcurrencyFilter implements GlobalFilter, Ordered {
+
+    /**
+     * 路由上的过滤器 (含 RequestRateLimiter) 按声明顺序取 1,2,3...，这里排在它们之后
+     */
+    static final int ORDER = 100;
+
+    private final MeterRegistry meterRegistry;
+    private final CompiledPathMatcher criticalPaths;
+    private final CompiledPathMatcher sheddablePaths;
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final String retryAfterSeconds;
+
+    private final ConcurrentHashMap<String, PoolLimiter> limiters = new ConcurrentHashMap<>();
+
+    public AdaptiveConcurrencyFilter(MeterRegistry meterRegistry,
+                                     @Value("${gateway.concurrency.critical-paths:/api/user/login,/api/user/register}") List<String> criticalPaths,
+                                     @Value("${gateway.concurrency.sheddable-paths:/api/qa/**}") List<String> sheddablePaths,
+                                     @Value("${gateway.concurrency.initial-limit:50}") int initialLimit,
+                                     @Value("${gateway.concurrency.min-limit:10}") int minLimit,
+                                     @Value("${gateway.concurrency.max-limit:500}") int maxLimit,
+                                     @Value("${gateway.concurrency.retry-after-seconds:1}") int retryAfterSeconds) {
+        this.meterRegistry = meterRegistry;
+        this.criticalPaths = new CompiledPathMatcher(criticalPaths);
+        this.sheddablePaths = new CompiledPathMatcher(sheddablePaths);
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.retryAfterSeconds = String.valueOf(retryAfterSeconds);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (route == null) {
+            return chain.filter(exchange);
+        }
+        PoolLimiter poolLimiter = limiterFor(poolOf(route));
+        RequestPriority priority = classify(exchange);
+        int inflightAtStart = poolLimiter.limiter.tryAcquire(priority);
+        if (inflightAtStart < 0) {
+            poolLimiter.rejected.get(priority).increment();
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            response.getHeaders().set("Retry-After", retryAfterSeconds);
+            return response.setComplete();
+        }
+
+        long start = System.nanoTime();
+        return chain.filter(exchange).doFinally(signal -> {
+            HttpStatusCode status = exchange.getResponse().getStatusCode();
+            boolean dropped = signal == SignalType.ON_ERROR
+                    || (status != null && (status.value() == 503 || status.value() == 504));
+            poolLimiter.limiter.release(System.nanoTime() - start, inflightAtStart, dropped);
+        });
+    }
+
+    /**
+     * 登录/注册为 CRITICAL；sheddable-paths 下的非 GET 请求 (生成类调用) 为 SHEDDABLE；其余 (含历史读取) 为 NORMAL。
+     * 按客户端请求的原始路径匹配，与路由上的 StripPrefix 等改写无关
+     */
+    RequestPriority classify(ServerWebExchange exchange) {
+        ServerHttpRequest request = exchange.getRequest();
+        PathContainer path = originalPath(exchange);
+        if (criticalPaths.matches(path)) {
+            return RequestPriority.CRITICAL;
+        }
+        if (request.getMethod() != HttpMethod.GET && sheddablePaths.matches(path)) {
+            return RequestPriority.SHEDDABLE;
+        }
+        return RequestPriority.NORMAL;
+    }
+
+    /**
+     * 改写路径的过滤器 (StripPrefix、RewritePath 等) 排在本过滤器之前，改写前把原始 URL 依次记录在
+     * GATEWAY_ORIGINAL_REQUEST_URL_ATTR 中，第一个即客户端请求的 URL；没有改写时就是当前路径
+     */
+    static PathContainer originalPath(ServerWebExchange exchange) {
+        Set<URI> originals = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ORIGINAL_REQUEST_URL_ATTR);
+        if (originals != null && !originals.isEmpty()) {
+            return PathContainer.parsePath(originals.iterator().next().getRawPath());
+        }
+        return exchange.getRequest().getPath().pathWithinApplication();
+    }
+
+    /**
+     * 路由目标所在的实例池：lb://service-id 为服务名，其他 URI 为 host:port
+     */
+    static String poolOf(Route route) {
+        URI uri = route.getUri();
+        String authority = uri.getAuthority();
+        return authority != null ? authority : route.getId();
+    }
+
+    private PoolLimiter limiterFor(String pool) {
+        PoolLimiter poolLimiter = limiters.get(pool);
+        if (poolLimiter == null) {
+            poolLimiter = limiters.computeIfAbsent(pool, this::createLimiter);
+        }
+        return poolLimiter;
+    }
+
+    private PoolLimiter createLimiter(String pool) {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(new GradientLimit(initialLimit, minLimit, maxLimit));
+        Gauge.builder("gateway.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .tag("service", pool).register(meterRegistry);
+        Gauge.builder("gateway.concurrency.inflight", limiter, AdaptiveConcurrencyLimiter::getInflight)
+                .tag("service", pool).register(meterRegistry);
+        Map<RequestPriority, Counter> rejected = new EnumMap<>(RequestPriority.class);
+        for (RequestPriority priority : RequestPriority.values()) {
+            rejected.put(priority, Counter.builder("gateway.concurrency.rejected")
+                    .tag("service", pool).tag("priority", priority.name().toLowerCase()).register(meterRegistry));
+        }
+        return new PoolLimiter(limiter, rejected);
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    private static final class PoolLimiter {
+        final AdaptiveConcurrencyLimiter limiter;
+        final Map<RequestPriority, Counter> rejected;
+
+        PoolLimiter(AdaptiveConcurrencyLimiter limiter, Map<RequestPriority, Counter> rejected) {
+            this.limiter = limiter;
+            this.rejected = rejected;
+        }
+    }
+}
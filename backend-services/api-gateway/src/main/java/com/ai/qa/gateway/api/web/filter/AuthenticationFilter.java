@@ -1,11 +1,15 @@
 package com.ai.qa.gateway.api.web.filter;
 
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
+import com.ai.qa.gateway.infrastructure.metrics.GatewayMetrics;
+import com.ai.qa.gateway.infrastructure.security.JwtTokenVerifier;
+import com.ai.qa.gateway.infrastructure.security.VerifiedToken;
+import io.jsonwebtoken.JwtException;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cloud.context.config.annotation.RefreshScope;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.core.Ordered;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.server.reactive.ServerHttpRequest;
@@ -15,46 +19,83 @@ import reactor.core.publisher.Mono;
 
 import java.util.List;
 
-//@Component
-//@RefreshScope // 为了动态刷新JWT密钥
+/**
+ * JWT 鉴权过滤器 (gateway.auth.enabled=true 时启用)
+ * 密钥的动态刷新由 {@link JwtTokenVerifier} 负责，过滤器本身不需要 @RefreshScope
+ */
+@Component
+@ConditionalOnProperty(name = "gateway.auth.enabled", havingValue = "true")
 public class AuthenticationFilter implements GlobalFilter, Ordered {
 
-    @Value("${jwt.secret}")
-    private String jwtSecret;
+    /**
+     * 校验通过后的用户ID，放在 exchange attribute 中供后续过滤器 (如限流 KeyResolver) 使用
+     */
+    public static final String USER_ID_ATTR = AuthenticationFilter.class.getName() + ".userId";
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final JwtTokenVerifier tokenVerifier;
+    private final GatewayMetrics metrics;
+    private final CompiledPathMatcher whiteList;
+
+    public AuthenticationFilter(JwtTokenVerifier tokenVerifier, GatewayMetrics metrics,
+                                @Value("${gateway.auth.whitelist:/api/user/register,/api/user/login}") List<String> whiteList) {
+        this.tokenVerifier = tokenVerifier;
+        this.metrics = metrics;
+        // 定义白名单路径，这些路径不需要JWT验证
+        this.whiteList = new CompiledPathMatcher(whiteList);
+    }
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
         ServerHttpRequest request = exchange.getRequest();
 
-        // 定义白名单路径，这些路径不需要JWT验证
-        List<String> whiteList = List.of("/api/user/register", "/api/user/login");
-        if (whiteList.contains(request.getURI().getPath())) {
+        if (whiteList.matches(request.getPath().pathWithinApplication())) {
+            metrics.authWhitelisted();
             return chain.filter(exchange); // 放行
         }
 
+        long start = System.nanoTime();
         String authHeader = request.getHeaders().getFirst("Authorization");
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
-            return exchange.getResponse().setComplete();
+        if (authHeader == null || !authHeader.startsWith(BEARER_PREFIX)) {
+            return reject(exchange, start);
         }
 
-        String token = authHeader.substring(7);
+        VerifiedToken token;
         try {
-            Claims claims = Jwts.parserBuilder()
-                    .setSigningKey(jwtSecret.getBytes())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            token = tokenVerifier.verify(authHeader.substring(BEARER_PREFIX.length()));
+        } catch (JwtException | IllegalArgumentException e) {
+            return reject(exchange, start);
+        }
+        metrics.authSucceeded();
+        recordStage(exchange, start);
+
+        // 验证通过，可以将用户信息放入请求头，传递给下游服务 (覆盖客户端自己伪造的同名请求头)
+        exchange.getAttributes().put(USER_ID_ATTR, token.getSubject());
+        ServerHttpRequest mutatedRequest = request.mutate()
+                .headers(headers -> {
+                    headers.set("X-User-Id", token.getSubject());
+                    if (token.getUsername() != null) {
+                        headers.set("X-User-Name", token.getUsername());
+                    } else {
+                        headers.remove("X-User-Name");
+                    }
+                })
+                .build();
+        return chain.filter(exchange.mutate().request(mutatedRequest).build());
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, long start) {
+        metrics.authFailed();
+        recordStage(exchange, start);
+        exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+        return exchange.getResponse().setComplete();
+    }
 
-            // 验证通过，可以将用户信息放入请求头，传递给下游服务
-            ServerHttpRequest mutatedRequest = request.mutate()
-                    .header("X-User-Id", claims.getSubject())
-                    .header("X-User-Name", claims.get("username", String.class))
-                    .build();
-            return chain.filter(exchange.mutate().request(mutatedRequest).build());
-        } catch (Exception e) {
-            exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
-            return exchange.getResponse().setComplete();
+    private void recordStage(ServerWebExchange exchange, long start) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (route != null) {
+            metrics.route(route.getId()).authStage(System.nanoTime() - start);
         }
     }
 
@@ -63,4 +104,4 @@ public class AuthenticationFilter implements GlobalFilter, Ordered {
         // 鉴权过滤器应在日志过滤器之后，在路由之前，优先级要高
         return -100;
     }
-}
\ No newline at end of file
+}
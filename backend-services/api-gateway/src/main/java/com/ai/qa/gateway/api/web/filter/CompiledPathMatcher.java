@@ -0,0 +1,49 @@
+package com.ai.qa.gateway.api.web.filter;
+
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 启动时预编译的路径集合 (如免鉴权白名单)。
+ * 不含通配符的路径放进 HashSet 做 O(1) 精确匹配，其余编译成 {@link PathPattern}，
+ * 请求路径直接使用已经解析好的 {@link PathContainer}，不再每个请求新建 List 线性扫描。
+ */
+final class CompiledPathMatcher {
+
+    private final Set<String> exactPaths = new HashSet<>();
+    private final PathPattern[] patterns;
+
+    CompiledPathMatcher(List<String> paths) {
+        List<PathPattern> compiled = new ArrayList<>();
+        for (String path : paths) {
+            String trimmed = path.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (trimmed.indexOf('*') < 0 && trimmed.indexOf('{') < 0) {
+                exactPaths.add(trimmed);
+            } else {
+                compiled.add(PathPatternParser.defaultInstance.parse(trimmed));
+            }
+        }
+        this.patterns = compiled.toArray(new PathPattern[0]);
+    }
+
+    boolean matches(PathContainer path) {
+        if (exactPaths.contains(path.value())) {
+            return true;
+        }
+        for (PathPattern pattern : patterns) {
+            if (pattern.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,398 @@
+package com.ai.qa.gateway.api.web.filter;
+
+import com.ai.qa.gateway.infrastructure.cache.CachedResponse;
+import com.ai.qa.gateway.infrastructure.cache.ResponseCacheStore;
+import com.ai.qa.gateway.infrastructure.metrics.GatewayMetrics;
+import com.ai.qa.gateway.infrastructure.ratelimit.ClientKeyResolver;
+import com.ai.qa.gateway.infrastructure.ratelimit.QuotaKey;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 按路由开启的响应缓存，用于 GET /api/user/{userId} 这类被频繁重复调用的幂等接口。
+ * <pre>
+ * filters:
+ *   - ResponseCache=30s
+ * </pre>
+ * <ul>
+ *     <li>key 为 路由 + 路径 + 查询参数 + {@link ClientKeyResolver} 解析出的调用方 (已认证用户，否则客户端 IP)</li>
+ *     <li>未经鉴权却携带 Authorization / X-User-Id 的请求不缓存：下游可能按这些未经校验的身份返回不同内容</li>
+ *     <li>只缓存 200 且没有 Set-Cookie / no-store 的响应，单个响应体不超过 max-body-bytes</li>
+ *     <li>条目过期后若带有 ETag / Last-Modified，回源时改发条件请求，下游返回 304 时直接复用缓存的响应体</li>
+ *     <li>同一个 key 的并发未命中只有一个请求回源，其余请求等待它的结果</li>
+ *     <li>客户端自己的 If-None-Match 与缓存的 ETag 一致时直接返回 304</li>
+ *     <li>同一路由上的 POST/PUT/PATCH/DELETE 在响应提交前清除该路径及其上级路径的缓存
+ *     (POST /api/user/42/nickname 清除 GET /api/user/42)</li>
+ * </ul>
+ * 命中情况以 gateway.cache.requests 指标发布。
+ * <p>
+ * 分两步执行：这里的过滤器排在 NettyWriteResponseFilter 之前，只负责计算 key 并装上响应装饰器
+ * (装饰后的 response 必须在 NettyWriteResponseFilter 之前放进 exchange，否则它写出时看不到)；
+ * 查找缓存由 {@link ResponseCacheLookupFilter} 在 RequestRateLimiter 之后进行，命中缓存的请求同样扣减限流配额。
+ * 缓存 key 使用 StripPrefix 之前的路径。
+ */
+@Component
+public class ResponseCacheGatewayFilterFactory extends AbstractGatewayFilterFactory<ResponseCacheGatewayFilterFactory.Config> {
+
+    /**
+     * 本次请求的缓存上下文 ({@link CachingResponse})，由查找阶段读取
+     */
+    static final String CACHING_RESPONSE_ATTR = ResponseCacheGatewayFilterFactory.class.getName() + ".response";
+
+    private static final String CACHE_STATUS_HEADER = "X-Cache";
+    private static final String USER_ID_HEADER = "X-User-Id";
+    private static final String RATE_LIMIT_HEADER_PREFIX = "x-ratelimit-";
+    private static final Set<HttpMethod> MUTATING_METHODS =
+            Set.of(HttpMethod.POST, HttpMethod.PUT, HttpMethod.PATCH, HttpMethod.DELETE);
+
+    /**
+     * 不随缓存条目保存的响应头：逐跳头由网关自己生成，Content-Length 在写出时重新设置，
+     * X-RateLimit-* 由限流过滤器按每个请求写入
+     */
+    private static final List<String> UNCACHED_HEADERS = List.of(HttpHeaders.CONNECTION, HttpHeaders.TRANSFER_ENCODING,
+            HttpHeaders.CONTENT_LENGTH, HttpHeaders.DATE, CACHE_STATUS_HEADER);
+
+    private final ResponseCacheStore store;
+    private final GatewayMetrics metrics;
+    private final KeyResolver clientKeyResolver;
+
+    public ResponseCacheGatewayFilterFactory(ResponseCacheStore store, GatewayMetrics metrics,
+                                             KeyResolver clientKeyResolver) {
+        super(Config.class);
+        this.store = store;
+        this.metrics = metrics;
+        this.clientKeyResolver = clientKeyResolver;
+        metrics.bindResponseCache(store);
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return Collections.singletonList("ttl");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        GatewayMetrics.CacheMeters meters = metrics.responseCache(config.getRouteId());
+        long ttlNanos = config.getTtl().toNanos();
+        return new OrderedGatewayFilter((exchange, chain) -> prepare(exchange, chain, config, ttlNanos, meters),
+                NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private Mono<Void> prepare(ServerWebExchange exchange, GatewayFilterChain chain, Config config,
+                               long ttlNanos, GatewayMetrics.CacheMeters meters) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (MUTATING_METHODS.contains(request.getMethod())) {
+            meters.invalidated();
+            String path = request.getURI().getRawPath();
+            // 响应提交之前清除：客户端收到修改结果后再读，一定不会读到旧的缓存
+            exchange.getResponse().beforeCommit(() -> Mono.fromRunnable(() -> store.invalidate(config.getRouteId(), path)));
+            return chain.filter(exchange);
+        }
+        if (!isCacheable(exchange)) {
+            meters.bypass();
+            return chain.filter(exchange);
+        }
+        return clientKeyResolver.resolve(exchange).flatMap(client -> {
+            CachingResponse response = new CachingResponse(exchange.getResponse(), request,
+                    cacheKey(config.getRouteId(), QuotaKey.principalId(client), request), ttlNanos, meters);
+            exchange.getAttributes().put(CACHING_RESPONSE_ATTR, response);
+            return chain.filter(exchange.mutate().response(response).build())
+                    .doFinally(signal -> response.abandon());
+        });
+    }
+
+    /**
+     * 查找阶段，由 {@link ResponseCacheLookupFilter} 在限流之后调用：命中时直接写出缓存的响应，
+     * 未命中时成为 leader 回源或等待同一个 key 的 leader
+     */
+    Mono<Void> lookup(ServerWebExchange exchange, GatewayFilterChain chain) {
+        CachingResponse response = exchange.getAttribute(CACHING_RESPONSE_ATTR);
+        if (response == null) {
+            return chain.filter(exchange);
+        }
+        List<String> ifNoneMatch = response.ifNoneMatch;
+        GatewayMetrics.CacheMeters meters = response.meters;
+        CachedResponse cached = store.get(response.key);
+        if (cached != null && cached.isFresh(store.now())) {
+            meters.hit();
+            return writeCached(exchange.getResponse(), ifNoneMatch, cached, "HIT");
+        }
+
+        ResponseCacheStore.Flight flight = store.join(response.key);
+        if (!flight.isLeader()) {
+            meters.coalesced();
+            // leader 没有拿到可缓存的结果时，各自回源
+            return flight.result().flatMap(result -> result.isPresent()
+                    ? writeCached(exchange.getResponse(), ifNoneMatch, result.get(), "COALESCED")
+                    : chain.filter(exchange));
+        }
+
+        CachedResponse stale = cached != null && cached.hasValidators() ? cached : null;
+        response.lead(flight, stale);
+        if (stale == null) {
+            return chain.filter(exchange);
+        }
+        ServerHttpRequest conditional = exchange.getRequest().mutate()
+                .headers(headers -> {
+                    headers.remove(HttpHeaders.IF_NONE_MATCH);
+                    headers.remove(HttpHeaders.IF_MODIFIED_SINCE);
+                    if (stale.getETag() != null) {
+                        headers.setIfNoneMatch(stale.getETag());
+                    } else {
+                        headers.setIfModifiedSince(stale.getLastModified());
+                    }
+                })
+                .build();
+        return chain.filter(exchange.mutate().request(conditional).build());
+    }
+
+    private static boolean isCacheable(ServerWebExchange exchange) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (request.getMethod() != HttpMethod.GET) {
+            return false;
+        }
+        HttpHeaders headers = request.getHeaders();
+        // 携带凭证或用户ID却没有经过鉴权时，响应可能因人而异，不能按 IP 缓存
+        if (exchange.getAttribute(AuthenticationFilter.USER_ID_ATTR) == null
+                && (headers.containsKey(HttpHeaders.AUTHORIZATION) || headers.containsKey(USER_ID_HEADER))) {
+            return false;
+        }
+        String cacheControl = headers.getCacheControl();
+        return cacheControl == null || !containsDirective(cacheControl, "no-cache", "no-store");
+    }
+
+    private static String cacheKey(String routeId, String principal, ServerHttpRequest request) {
+        String query = request.getURI().getRawQuery();
+        StringBuilder key = new StringBuilder(ResponseCacheStore.resource(routeId, request.getURI().getRawPath()))
+                .append('\n').append(principal);
+        if (query != null) {
+            key.append('?').append(query);
+        }
+        return key.toString();
+    }
+
+    private static boolean containsDirective(String cacheControl, String... directives) {
+        String value = cacheControl.toLowerCase(Locale.ROOT);
+        for (String directive : directives) {
+            if (value.contains(directive)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param ifNoneMatch 客户端自己发来的 If-None-Match
+     */
+    private static Mono<Void> writeCached(ServerHttpResponse response, List<String> ifNoneMatch,
+                                          CachedResponse cached, String cacheStatus) {
+        HttpHeaders headers = response.getHeaders();
+        headers.putAll(cached.getHeaders());
+        headers.remove(HttpHeaders.TRANSFER_ENCODING);
+        headers.set(CACHE_STATUS_HEADER, cacheStatus);
+        headers.set(HttpHeaders.AGE, String.valueOf(
+                Math.max(0L, (System.currentTimeMillis() - cached.getStoredAtMillis()) / 1000)));
+
+        if (cached.getETag() != null && (ifNoneMatch.contains(cached.getETag()) || ifNoneMatch.contains("*"))) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            return response.setComplete();
+        }
+        response.setStatusCode(HttpStatusCode.valueOf(cached.getStatus()));
+        headers.setContentLength(cached.getBody().length);
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(cached.getBody())));
+    }
+
+    /**
+     * 可缓存请求的响应装饰器。查找阶段确定本请求是 leader 之后才开始工作：边转发边复制响应体，
+     * 完整结束后写入缓存并唤醒 follower；重新验证得到 304 时改为输出缓存的响应体。
+     * 命中缓存和 follower 的请求不会调用 {@link #lead}，装饰器只是原样转发。
+     */
+    private final class CachingResponse extends ServerHttpResponseDecorator {
+
+        /**
+         * 创建时复制：request.mutate() 修改的是同一份请求头，发条件请求之后原请求里也会带上缓存的 ETag
+         */
+        private final List<String> ifNoneMatch;
+        private final String key;
+        private final long ttlNanos;
+        private final GatewayMetrics.CacheMeters meters;
+        private ResponseCacheStore.Flight flight;
+        private CachedResponse stale;
+
+        CachingResponse(ServerHttpResponse delegate, ServerHttpRequest request, String key, long ttlNanos,
+                        GatewayMetrics.CacheMeters meters) {
+            super(delegate);
+            this.ifNoneMatch = request.getHeaders().getIfNoneMatch();
+            this.key = key;
+            this.ttlNanos = ttlNanos;
+            this.meters = meters;
+        }
+
+        void lead(ResponseCacheStore.Flight flight, CachedResponse stale) {
+            this.flight = flight;
+            this.stale = stale;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            if (flight == null) {
+                return super.writeWith(body);
+            }
+            HttpStatusCode status = getStatusCode();
+            if (stale != null && status != null && status.value() == HttpStatus.NOT_MODIFIED.value()) {
+                meters.revalidated();
+                CachedResponse refreshed = stale.refresh(System.currentTimeMillis(), store.now() + ttlNanos);
+                flight.complete(refreshed);
+                return Flux.from(body).doOnNext(DataBufferUtils::release)
+                        .then(Mono.defer(() -> writeCached(getDelegate(), ifNoneMatch, refreshed, "REVALIDATED")));
+            }
+
+            meters.miss();
+            getHeaders().set(CACHE_STATUS_HEADER, "MISS");
+            if (!isStorable(status)) {
+                flight.complete(null);
+                return super.writeWith(body);
+            }
+            BodyCapture capture = new BodyCapture(store.getMaxBodyBytes());
+            long freshUntil = store.now() + ttlNanos;
+            return super.writeWith(Flux.from(body)
+                    .doOnNext(capture::append)
+                    .doOnComplete(() -> flight.complete(capture.isComplete()
+                            ? new CachedResponse(status.value(), storedHeaders(), capture.toByteArray(),
+                            System.currentTimeMillis(), freshUntil)
+                            : null)));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            if (flight == null) {
+                return super.writeAndFlushWith(body);
+            }
+            // 流式响应不缓存
+            meters.miss();
+            flight.complete(null);
+            return super.writeAndFlushWith(body);
+        }
+
+        /**
+         * 请求结束时 (包括出错、被取消) 仍未产生结果，释放等待中的 follower
+         */
+        void abandon() {
+            if (flight != null) {
+                flight.complete(null);
+            }
+        }
+
+        private boolean isStorable(HttpStatusCode status) {
+            if (status == null || status.value() != HttpStatus.OK.value()) {
+                return false;
+            }
+            HttpHeaders headers = getHeaders();
+            if (headers.containsKey(HttpHeaders.SET_COOKIE)) {
+                return false;
+            }
+            long contentLength = headers.getContentLength();
+            if (contentLength > store.getMaxBodyBytes()) {
+                return false;
+            }
+            String cacheControl = headers.getCacheControl();
+            return cacheControl == null || !containsDirective(cacheControl, "no-store", "no-cache");
+        }
+
+        private HttpHeaders storedHeaders() {
+            HttpHeaders headers = new HttpHeaders();
+            headers.putAll(getHeaders());
+            UNCACHED_HEADERS.forEach(headers::remove);
+            headers.keySet().removeIf(name -> name.toLowerCase(Locale.ROOT).startsWith(RATE_LIMIT_HEADER_PREFIX));
+            return headers;
+        }
+    }
+
+    /**
+     * 复制响应体而不改变原 buffer 的读位置；超过上限后放弃复制
+     */
+    private static final class BodyCapture {
+
+        private final int limit;
+        private ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        BodyCapture(int limit) {
+            this.limit = limit;
+        }
+
+        void append(DataBuffer buffer) {
+            if (bytes == null) {
+                return;
+            }
+            int length = buffer.readableByteCount();
+            if (bytes.size() + length > limit) {
+                bytes = null;
+                return;
+            }
+            byte[] chunk = new byte[length];
+            int position = buffer.readPosition();
+            buffer.read(chunk);
+            buffer.readPosition(position);
+            bytes.write(chunk, 0, length);
+        }
+
+        boolean isComplete() {
+            return bytes != null;
+        }
+
+        byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+    }
+
+    public static class Config implements HasRouteId {
+
+        private String routeId;
+        private Duration ttl = Duration.ofSeconds(30);
+
+        @Override
+        public void setRouteId(String routeId) {
+            this.routeId = routeId;
+        }
+
+        @Override
+        public String getRouteId() {
+            return routeId;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+    }
+}
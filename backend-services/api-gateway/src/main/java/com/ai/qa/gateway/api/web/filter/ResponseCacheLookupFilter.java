@@ -0,0 +1,35 @@
+package com.ai.qa.gateway.api.web.filter;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * 响应缓存的查找阶段，只处理 {@link ResponseCacheGatewayFilterFactory} 标记为可缓存的请求。
+ * <p>
+ * 排在路由过滤器 (含 RequestRateLimiter) 之后：命中缓存同样扣减调用方的限流配额，被限流的请求拿不到缓存。
+ * 排在 {@link AdaptiveConcurrencyFilter} 之前：命中缓存的请求不访问下游，不占用下游的并发名额，
+ * 也不会把几乎为 0 的耗时混进下游的 RTT 统计；未命中的请求照常经过并发限制。
+ */
+@Component
+public class ResponseCacheLookupFilter implements GlobalFilter, Ordered {
+
+    private final ResponseCacheGatewayFilterFactory factory;
+
+    public ResponseCacheLookupFilter(ResponseCacheGatewayFilterFactory factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        return factory.lookup(exchange, chain);
+    }
+
+    @Override
+    public int getOrder() {
+        return AdaptiveConcurrencyFilter.ORDER - 1;
+    }
+}
@@ -0,0 +1,196 @@
+package com.ai.qa.gateway.api.web.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * 流式响应透传，用于 qa-service 逐 token 输出的回答。
+ * <pre>
+ * filters:
+ *   - StreamingResponse=30s,10m
+ * </pre>
+ * <ul>
+ *     <li>不论下游的 Content-Type 是否属于 streaming-media-types，每个数据块都立即 flush，网关不做任何聚合</li>
+ *     <li>逐块向下游请求数据 (prefetch 1)，客户端读得慢时 Netty 停止从下游连接读取，背压一直传到 qa-service</li>
+ *     <li>idleTimeout: 两个数据块 (以及响应头到第一个数据块) 之间的最长间隔，超时后中断响应，与总时长无关；
+ *     客户端长时间不读取导致下游被背压暂停时同样会触发</li>
+ *     <li>maxDuration: 整个响应体的最长持续时间，到达后正常结束响应</li>
+ *     <li>客户端断开时取消订阅，下游连接随之关闭，qa-service 可以据此停止生成</li>
+ * </ul>
+ * 首字节耗时和结束原因以 gateway.stream.* 指标发布。
+ */
+@Component
+public class StreamingResponseGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<StreamingResponseGatewayFilterFactory.Config> {
+
+    private final MeterRegistry meterRegistry;
+
+    public StreamingResponseGatewayFilterFactory(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return Arrays.asList("idleTimeout", "maxDuration");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        StreamMeters meters = new StreamMeters(config.getRouteId());
+        // 与 ResponseCache 一样，装饰后的 response 必须在 NettyWriteResponseFilter 之前放进 exchange
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            StreamingResponse response = new StreamingResponse(exchange.getResponse(), config, meters);
+            return chain.filter(exchange.mutate().response(response).build());
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private static final class StreamingResponse extends ServerHttpResponseDecorator {
+
+        private final Config config;
+        private final StreamMeters meters;
+        private final long start = System.nanoTime();
+
+        StreamingResponse(ServerHttpResponse delegate, Config config, StreamMeters meters) {
+            super(delegate);
+            this.config = config;
+            this.meters = meters;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            return super.writeAndFlushWith(stream(Flux.from(body)).map(Mono::just));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            return super.writeAndFlushWith(stream(Flux.from(body).concatMap(Flux::from, 1)).map(Mono::just));
+        }
+
+        private Flux<DataBuffer> stream(Flux<? extends DataBuffer> body) {
+            long maxDurationNanos = config.getMaxDuration().toNanos();
+            return Flux.<DataBuffer>from(body)
+                    .limitRate(1)
+                    .timeout(config.getIdleTimeout())
+                    .take(config.getMaxDuration())
+                    .doOnNext(new FirstChunk(meters, start))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                    .doOnComplete(() -> meters.completed(System.nanoTime() - start >= maxDurationNanos))
+                    .doOnError(meters::failed)
+                    .doOnCancel(meters.cancelled::increment);
+        }
+    }
+
+    /**
+     * 收到第一个数据块时记录首字节耗时
+     */
+    private static final class FirstChunk implements Consumer<DataBuffer> {
+
+        private final StreamMeters meters;
+        private final long start;
+        private boolean seen;
+
+        FirstChunk(StreamMeters meters, long start) {
+            this.meters = meters;
+            this.start = start;
+        }
+
+        @Override
+        public void accept(DataBuffer buffer) {
+            if (!seen) {
+                seen = true;
+                meters.firstByte.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private final class StreamMeters {
+
+        final Timer firstByte;
+        final Counter completed;
+        final Counter maxDuration;
+        final Counter idleTimeout;
+        final Counter cancelled;
+        final Counter failed;
+
+        StreamMeters(String routeId) {
+            this.firstByte = Timer.builder("gateway.stream.first.byte")
+                    .description("从请求进入网关路由到第一个数据块写出的耗时，包含下游生成首个 token 的时间")
+                    .tag("route", routeId)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry);
+            this.completed = outcome(routeId, "completed");
+            this.maxDuration = outcome(routeId, "max_duration");
+            this.idleTimeout = outcome(routeId, "idle_timeout");
+            this.cancelled = outcome(routeId, "cancelled");
+            this.failed = outcome(routeId, "error");
+        }
+
+        private Counter outcome(String routeId, String outcome) {
+            return Counter.builder("gateway.stream.responses").tag("route", routeId).tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
+
+        void completed(boolean reachedMaxDuration) {
+            (reachedMaxDuration ? maxDuration : completed).increment();
+        }
+
+        void failed(Throwable error) {
+            (error instanceof TimeoutException ? idleTimeout : failed).increment();
+        }
+    }
+
+    public static class Config implements HasRouteId {
+
+        private String routeId;
+        private Duration idleTimeout = Duration.ofSeconds(30);
+        private Duration maxDuration = Duration.ofMinutes(10);
+
+        @Override
+        public void setRouteId(String routeId) {
+            this.routeId = routeId;
+        }
+
+        @Override
+        public String getRouteId() {
+            return routeId;
+        }
+
+        public Duration getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        public void setIdleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+        }
+
+        public Duration getMaxDuration() {
+            return maxDuration;
+        }
+
+        public void setMaxDuration(Duration maxDuration) {
+            this.maxDuration = maxDuration;
+        }
+    }
+}
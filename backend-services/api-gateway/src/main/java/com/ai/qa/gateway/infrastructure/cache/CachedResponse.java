@@ -0,0 +1,82 @@
+package com.ai.qa.gateway.infrastructure.cache;
+
+import org.springframework.http.HttpHeaders;
+
+/**
+ * 缓存下来的一次完整响应 (状态码、响应头、响应体)，不可变。
+ * <p>
+ * freshUntil 使用 {@link ResponseCacheStore#now()} 的时钟；过期后条目仍然保留一段时间，
+ * 只要带有 ETag / Last-Modified，就可以向下游发条件请求，收到 304 时直接复用响应体。
+ */
+public final class CachedResponse {
+
+    private final int status;
+    private final HttpHeaders headers;
+    private final byte[] body;
+    private final long storedAtMillis;
+    private final long freshUntil;
+
+    public CachedResponse(int status, HttpHeaders headers, byte[] body, long storedAtMillis, long freshUntil) {
+        this.status = status;
+        this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+        this.body = body;
+        this.storedAtMillis = storedAtMillis;
+        this.freshUntil = freshUntil;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public String getETag() {
+        return headers.getETag();
+    }
+
+    public long getLastModified() {
+        return headers.getLastModified();
+    }
+
+    public long getStoredAtMillis() {
+        return storedAtMillis;
+    }
+
+    public boolean isFresh(long now) {
+        return now < freshUntil;
+    }
+
+    /**
+     * 是否可以向下游做条件请求
+     */
+    public boolean hasValidators() {
+        return getETag() != null || getLastModified() > 0;
+    }
+
+    /**
+     * 下游返回 304 后，以同样的内容开始新的有效期
+     */
+    public CachedResponse refresh(long storedAtMillis, long freshUntil) {
+        return new CachedResponse(status, headers, body, storedAtMillis, freshUntil);
+    }
+
+    /**
+     * 在缓存中占用的大致字节数
+     */
+    int weight() {
+        int weight = body.length + 64;
+        for (var header : headers.entrySet()) {
+            weight += header.getKey().length();
+            for (String value : header.getValue()) {
+                weight += value.length();
+            }
+        }
+        return weight;
+    }
+}
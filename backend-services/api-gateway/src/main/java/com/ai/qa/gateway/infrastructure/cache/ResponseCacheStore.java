@@ -0,0 +1,194 @@
+package com.ai.qa.gateway.infrastructure.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 网关响应缓存的存储，以及同一个 key 的并发回源合并 (singleflight)。
+ * <p>
+ * 条目按响应大小计重，总重量受 max-weight-bytes 限制；每个路由自己的 TTL 只决定"新鲜"时间，
+ * 过期条目最多再保留 max-entry-age，用于条件请求重新验证。
+ * <p>
+ * key 以资源 (路由 + 路径，见 {@link #resource}) 开头，另外按资源维护一份 key 索引：
+ * 修改类请求可以清除同一资源在所有用户、所有查询参数下的条目，而不用扫描整个缓存。
+ * 索引随条目的淘汰一起清理，大小不超过缓存本身。
+ */
+@Component
+public class ResponseCacheStore {
+
+    private final Cache<String, CachedResponse> cache;
+    private final int maxBodyBytes;
+    private final long epoch = System.nanoTime();
+    private final ConcurrentHashMap<String, Flight> flights = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<String>> keysByResource = new ConcurrentHashMap<>();
+
+    public ResponseCacheStore(@Value("${gateway.response-cache.max-weight-bytes:67108864}") long maxWeightBytes,
+                              @Value("${gateway.response-cache.max-body-bytes:262144}") int maxBodyBytes,
+                              @Value("${gateway.response-cache.max-entry-age:10m}") Duration maxEntryAge) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((String key, CachedResponse value) -> key.length() * 2 + value.weight())
+                .expireAfterWrite(maxEntryAge)
+                .removalListener((RemovalListener<String, CachedResponse>) removal -> {
+                    if (removal.getCause() != RemovalCause.REPLACED) {
+                        unindex(removal.getKey());
+                    }
+                })
+                .recordStats()
+                .build();
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    /**
+     * 资源标识：路由 + 不含查询参数的路径。缓存 key 必须以它加换行开头
+     */
+    public static String resource(String routeId, String path) {
+        return routeId + '\n' + path;
+    }
+
+    /**
+     * 缓存内部时钟 (纳秒)
+     */
+    public long now() {
+        return System.nanoTime() - epoch;
+    }
+
+    public CachedResponse get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * 单个响应体超过这个大小就不缓存
+     */
+    public int getMaxBodyBytes() {
+        return maxBodyBytes;
+    }
+
+    /**
+     * 加入 key 对应的回源：没有在途请求时调用方成为 leader 负责回源，否则作为 follower 等待 leader 的结果
+     */
+    public Flight join(String key) {
+        Flight created = new Flight(key, Sinks.one(), true);
+        Flight existing = flights.putIfAbsent(key, created);
+        return existing == null ? created : new Flight(key, existing.sink, false);
+    }
+
+    /**
+     * 清除 path 及其所有上级路径上的缓存条目 (如 /api/user/42/nickname 清除 /api/user/42 和 /api/user)，
+     * 包括不同用户、不同查询参数的条目；正在回源的同一资源的结果也不再写入缓存
+     *
+     * @return 清除的条目数
+     */
+    public int invalidate(String routeId, String path) {
+        Set<String> resources = new HashSet<>();
+        for (String current = path; !current.isEmpty(); current = current.substring(0, current.lastIndexOf('/'))) {
+            resources.add(resource(routeId, current));
+        }
+        // 先标记在途回源再删除条目，与 Flight.complete 中先写入再检查标记的顺序相对
+        for (Flight flight : flights.values()) {
+            if (resources.contains(resourceOf(flight.key))) {
+                flight.invalidated = true;
+            }
+        }
+        int removed = 0;
+        for (String resource : resources) {
+            Set<String> keys = keysByResource.remove(resource);
+            if (keys != null) {
+                removed += keys.size();
+                cache.invalidateAll(keys);
+            }
+        }
+        return removed;
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public long evictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    private void index(String key) {
+        keysByResource.compute(resourceOf(key), (resource, keys) -> {
+            Set<String> indexed = keys != null ? keys : ConcurrentHashMap.newKeySet();
+            indexed.add(key);
+            return indexed;
+        });
+    }
+
+    private void unindex(String key) {
+        keysByResource.computeIfPresent(resourceOf(key), (resource, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    private static String resourceOf(String key) {
+        return key.substring(0, key.indexOf('\n', key.indexOf('\n') + 1));
+    }
+
+    public final class Flight {
+
+        private final String key;
+        private final Sinks.One<CachedResponse> sink;
+        private final boolean leader;
+        /**
+         * 回源期间同一资源被修改过，结果不再写入缓存
+         */
+        private volatile boolean invalidated;
+
+        private Flight(String key, Sinks.One<CachedResponse> sink, boolean leader) {
+            this.key = key;
+            this.sink = sink;
+            this.leader = leader;
+        }
+
+        public boolean isLeader() {
+            return leader;
+        }
+
+        /**
+         * leader 的回源结果；响应不可缓存或 leader 失败/被取消时为空
+         */
+        public Mono<Optional<CachedResponse>> result() {
+            return sink.asMono().map(Optional::of).defaultIfEmpty(Optional.empty());
+        }
+
+        /**
+         * 由 leader 调用：先写入缓存再唤醒 follower，之后到达的请求直接命中缓存。可重复调用，只有第一次生效
+         *
+         * @param response 可缓存的响应，null 表示没有可共享的结果
+         */
+        public void complete(CachedResponse response) {
+            if (!leader || flights.get(key) != this) {
+                return;
+            }
+            if (response != null && !invalidated) {
+                index(key);
+                cache.put(key, response);
+                if (invalidated) {
+                    cache.invalidate(key);
+                }
+            }
+            flights.remove(key, this);
+            if (response != null && !invalidated) {
+                sink.tryEmitValue(response);
+            } else {
+                sink.tryEmitEmpty();
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.ai.qa.gateway.infrastructure.concurrency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单个下游实例池的并发限制器 (该服务的所有路由共享)：在途请求数不超过 {@link GradientLimit} 估计出的上限乘以优先级份额。
+ */
+public final class AdaptiveConcurrencyLimiter {
+
+    private final GradientLimit limit;
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    public AdaptiveConcurrencyLimiter(GradientLimit limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * 尝试占用一个并发名额
+     *
+     * @return 占用成功时返回占用前的在途请求数 (用于 RTT 采样)，失败返回 -1
+     */
+    public int tryAcquire(RequestPriority priority) {
+        int allowed = Math.max(1, (int) (limit.getLimit() * priority.getShare()));
+        for (;;) {
+            int current = inflight.get();
+            if (current >= allowed) {
+                return -1;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return current;
+            }
+        }
+    }
+
+    public void release(long rttNanos, int inflightAtStart, boolean dropped) {
+        inflight.decrementAndGet();
+        limit.onSample(rttNanos, inflightAtStart + 1, dropped);
+    }
+
+    public int getLimit() {
+        return limit.getLimit();
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+}
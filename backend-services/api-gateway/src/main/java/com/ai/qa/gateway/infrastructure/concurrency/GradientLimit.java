@@ -0,0 +1,65 @@
+package com.ai.qa.gateway.infrastructure.concurrency;
+
+/**
+ * 基于 RTT 梯度的自适应并发上限估计 (思路同 Netflix concurrency-limits 的 Gradient2)。
+ * <p>
+ * 维护一个长期 RTT 均值作为"不排队时"的基线，与最新 RTT 的比值即为梯度：
+ * 下游开始排队时 RTT 变长、梯度小于 1，上限随之收缩；RTT 恢复后梯度回到 1，
+ * 上限再按 sqrt(limit) 的排队余量逐步增长。
+ */
+public final class GradientLimit {
+
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final int LONG_WINDOW = 600;
+
+    private final int minLimit;
+    private final int maxLimit;
+
+    private double estimatedLimit;
+    private double longRtt;
+    private volatile int limit;
+
+    public GradientLimit(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.estimatedLimit = initialLimit;
+        this.limit = initialLimit;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * 记录一次请求的 RTT
+     *
+     * @param rttNanos 请求耗时
+     * @param inflight 请求开始时的在途请求数
+     * @param dropped  请求是否超时/失败 (视为过载信号)
+     */
+    public synchronized void onSample(long rttNanos, int inflight, boolean dropped) {
+        double shortRtt = rttNanos;
+        if (longRtt == 0) {
+            longRtt = shortRtt;
+        } else {
+            longRtt += (shortRtt - longRtt) / LONG_WINDOW;
+        }
+        // 基线明显高于当前 RTT 时 (下游刚从拥塞中恢复)，让基线更快地回落
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        // 并发远没用满时 RTT 不能说明上限是否合适，避免上限无限增长
+        if (!dropped && inflight < estimatedLimit / 2) {
+            return;
+        }
+
+        double gradient = dropped ? 0.5 : Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+        double queueSize = Math.sqrt(estimatedLimit);
+        double newLimit = estimatedLimit * gradient + queueSize;
+        newLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+}
@@ -0,0 +1,33 @@
+package com.ai.qa.gateway.infrastructure.concurrency;
+
+/**
+ * 过载时的请求优先级：每个级别最多只能使用并发上限的一部分，
+ * 因此并发逼近上限时低优先级请求先被拒绝，高优先级请求仍有余量。
+ */
+public enum RequestPriority {
+
+    /**
+     * 登录/注册等入口请求，最后才会被拒绝
+     */
+    CRITICAL(1.0),
+
+    /**
+     * 普通请求，如历史记录读取
+     */
+    NORMAL(0.9),
+
+    /**
+     * 重量级请求，如 /api/qa 的 LLM 生成调用，最先被拒绝
+     */
+    SHEDDABLE(0.75);
+
+    private final double share;
+
+    RequestPriority(double share) {
+        this.share = share;
+    }
+
+    public double getShare() {
+        return share;
+    }
+}
@@ -0,0 +1,77 @@
+package com.ai.qa.gateway.infrastructure.config;
+
+import com.ai.qa.gateway.infrastructure.config.InMemoryRateLimiterConfig.RateLimiterConfig;
+import com.ai.qa.gateway.infrastructure.metrics.GatewayMetrics;
+import com.ai.qa.gateway.infrastructure.ratelimit.ClusterRateLimiter;
+import com.ai.qa.gateway.infrastructure.ratelimit.EmbeddedTokenLeaseCoordinator;
+import com.ai.qa.gateway.infrastructure.ratelimit.LeasePolicy;
+import com.ai.qa.gateway.infrastructure.ratelimit.RedisTokenLeaseCoordinator;
+import com.ai.qa.gateway.infrastructure.ratelimit.TokenBucketStore;
+import com.ai.qa.gateway.infrastructure.ratelimit.TokenLeaseCoordinator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+
+import java.time.Duration;
+
+/**
+ * 集群限流配置 (gateway.rate-limiter.mode=cluster)
+ * 多个网关副本共享 defaultReplenishRate/defaultBurstCapacity，而不是每个副本各自一份
+ */
+@Configuration
+@ConditionalOnProperty(name = "gateway.rate-limiter.mode", havingValue = "cluster")
+public class ClusterRateLimiterConfig {
+
+    /**
+     * 进程内协调者，用于单机部署和测试
+     */
+    @Bean
+    @ConditionalOnProperty(name = "gateway.rate-limiter.cluster.coordinator", havingValue = "embedded", matchIfMissing = true)
+    public TokenLeaseCoordinator embeddedTokenLeaseCoordinator(
+            @Value("${gateway.rate-limiter.max-buckets:65536}") int maxBuckets,
+            @Value("${gateway.rate-limiter.idle-ttl:60s}") Duration idleTtl) {
+        return new EmbeddedTokenLeaseCoordinator(maxBuckets, idleTtl);
+    }
+
+    /**
+     * 多副本共享的 Redis 协调者
+     */
+    @Bean
+    @ConditionalOnProperty(name = "gateway.rate-limiter.cluster.coordinator", havingValue = "redis")
+    public TokenLeaseCoordinator redisTokenLeaseCoordinator(
+            ReactiveStringRedisTemplate redisTemplate,
+            @Value("${gateway.rate-limiter.cluster.key-prefix:gateway:rate:}") String keyPrefix) {
+        return new RedisTokenLeaseCoordinator(redisTemplate, keyPrefix);
+    }
+
+    @Bean
+    @Primary
+    public ClusterRateLimiter clusterRateLimiter(
+            TokenBucketStore rateLimiterBucketStore,
+            TokenLeaseCoordinator tokenLeaseCoordinator,
+            ConfigurationService configurationService,
+            GatewayMetrics gatewayMetrics,
+            @Value("${gateway.rate-limiter.default-replenish-rate:5.0}") double defaultReplenishRate,
+            @Value("${gateway.rate-limiter.default-burst-capacity:100}") int defaultBurstCapacity,
+            @Value("${gateway.rate-limiter.user.replenish-rate:0}") double userReplenishRate,
+            @Value("${gateway.rate-limiter.user.burst-capacity:0}") int userBurstCapacity,
+            @Value("${gateway.rate-limiter.global.replenish-rate:0}") double globalReplenishRate,
+            @Value("${gateway.rate-limiter.global.burst-capacity:0}") int globalBurstCapacity,
+            @Value("${gateway.rate-limiter.max-buckets:65536}") int maxBuckets,
+            @Value("${gateway.rate-limiter.cluster.lease-ttl:1s}") Duration leaseTtl,
+            @Value("${gateway.rate-limiter.cluster.lease-fraction:0.1}") double leaseFraction,
+            @Value("${gateway.rate-limiter.cluster.timeout:50ms}") Duration coordinatorTimeout) {
+        // 本地租约余额同样有界，租约过期后即可回收
+        TokenBucketStore leases = new TokenBucketStore(new LeasePolicy(leaseTtl), maxBuckets, leaseTtl);
+        gatewayMetrics.bindBucketStore("lease", leases);
+        RateLimiterConfig defaults = InMemoryRateLimiterConfig.defaults(defaultReplenishRate, defaultBurstCapacity,
+                userReplenishRate, userBurstCapacity);
+        return new ClusterRateLimiter(rateLimiterBucketStore, leases, tokenLeaseCoordinator, defaults,
+                new RateLimiterConfig(globalReplenishRate, globalBurstCapacity),
+                configurationService, gatewayMetrics, leaseFraction, coordinatorTimeout);
+    }
+}
@@ -1,107 +1,95 @@
 package com.ai.qa.gateway.infrastructure.config;
 
-import com.google.common.util.concurrent.RateLimiter;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.ai.qa.gateway.api.web.filter.AuthenticationFilter;
+import com.ai.qa.gateway.infrastructure.metrics.GatewayMetrics;
+import com.ai.qa.gateway.infrastructure.ratelimit.ClientKeyResolver;
+import com.ai.qa.gateway.infrastructure.ratelimit.GcraPolicy;
+import com.ai.qa.gateway.infrastructure.ratelimit.InMemoryRateLimiter;
+import com.ai.qa.gateway.infrastructure.ratelimit.TokenBucketStore;
+import com.ai.qa.gateway.infrastructure.ratelimit.TrustedProxies;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.support.ConfigurationService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
-import reactor.core.publisher.Mono;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.time.Duration;
+import java.util.List;
 
 @Configuration
 public class InMemoryRateLimiterConfig {
+    /**
+     * 分层限流的 key：已认证用户 + 客户端 IP (受信任代理之后取 X-Forwarded-For 中的真实地址)
+     */
+    @Bean
+    public KeyResolver clientKeyResolver(@Value("${gateway.rate-limiter.trusted-proxies:}") List<String> trustedProxies) {
+        return new ClientKeyResolver(new TrustedProxies(trustedProxies), AuthenticationFilter.USER_ID_ATTR);
+    }
 
-    private static final Logger log = LoggerFactory.getLogger(InMemoryRateLimiterConfig.class);
-    // ipKeyResolver Bean 保持不变
+    /**
+     * 限流桶存储：有界、空闲过期，容量和过期时间可在配置中调整
+     */
     @Bean
-    public KeyResolver ipKeyResolver() {
-        return exchange -> Mono.just(exchange.getRequest().getRemoteAddress().getAddress().getHostAddress());
+    public TokenBucketStore rateLimiterBucketStore(
+            @Value("${gateway.rate-limiter.max-buckets:65536}") int maxBuckets,
+            @Value("${gateway.rate-limiter.idle-ttl:60s}") Duration idleTtl,
+            GatewayMetrics gatewayMetrics) {
+        TokenBucketStore store = new TokenBucketStore(GcraPolicy.INSTANCE, maxBuckets, idleTtl);
+        gatewayMetrics.bindBucketStore("local", store);
+        return store;
     }
 
     /**
-     * 自定义的内存限流器 Bean (完整版)
+     * 自定义的内存限流器 Bean (完整版)，一次判定依次检查 IP、用户、路由、全局四层配额
+     * 路由可以通过 in-memory-rate-limiter.replenish-rate / burst-capacity / user-* / route-* / requested-tokens 覆盖默认值
+     * 多副本部署时改用 gateway.rate-limiter.mode=cluster，见 {@link ClusterRateLimiterConfig}
      */
     @Bean
     @Primary
-    public org.springframework.cloud.gateway.filter.ratelimit.RateLimiter<InMemoryRateLimiterConfig.RateLimiterConfig> inMemoryRateLimiter() {
-
-        // 定义默认的限流速率
-        final double defaultReplenishRate = 5.0; // 每秒生成的令牌数
-        final int defaultBurstCapacity = 100;     // 令牌桶总容量
-
-        return new org.springframework.cloud.gateway.filter.ratelimit.RateLimiter<RateLimiterConfig>() {
-
-            private final ConcurrentHashMap<String, RateLimiter> limiters = new ConcurrentHashMap<>();
-            private final ConcurrentHashMap<String, RateLimiterConfig> configs = new ConcurrentHashMap<>();
-
-            @Override
-            public Mono<Response> isAllowed(String routeId, String id) {
-                // routeId 是当前请求匹配的路由ID
-                // id 是 KeyResolver 解析出的 key (IP地址)
-                // 获取当前路由的配置，如果不存在则使用默认配置
-                RateLimiterConfig config = configs.getOrDefault(routeId, new RateLimiterConfig(defaultReplenishRate, defaultBurstCapacity));
-
-                // 根据 IP 地址获取或创建 Guava RateLimiter
-                RateLimiter limiter = limiters.computeIfAbsent(id, k -> {
-                    // 使用配置的速率来创建限流器
-                    RateLimiter newLimiter = RateLimiter.create(config.getReplenishRate());
-                    // 预热 Guava RateLimiter (可选，但更好)，让令牌桶初始时就是满的
-                    newLimiter.tryAcquire(config.getBurstCapacity());
-                    return newLimiter;
-                });
-
-                // 尝试获取一个令牌
-                boolean allowed = limiter.tryAcquire();
-
-                if (allowed) {
-                    log.info("Request ALLOWED. Route: {}, Key: {}", routeId, id);
-                    return Mono.just(new Response(true, new HashMap<>()));
-                } else {
-                    log.warn("Request DENIED (Rate Limited). Route: {}, Key: {}", routeId, id);
-                    // 当被限流时，可以返回一些有用的头信息
-                    HashMap<String, String> headers = new HashMap<>();
-                    headers.put("X-RateLimit-Remaining", "0");
-                    headers.put("X-RateLimit-Burst-Capacity", String.valueOf(config.getBurstCapacity()));
-                    headers.put("X-RateLimit-Replenish-Rate", String.valueOf(config.getReplenishRate()));
-                    return Mono.just(new Response(false, headers));
-                }
-            }
-
-            // =======================================================
-            // 补全缺失的方法
-            // =======================================================
-            @Override
-            public Map<String, RateLimiterConfig> getConfig() {
-                // 返回当前所有路由的配置信息
-                return this.configs;
-            }
-            // =======================================================
-
-            @Override
-            public Class<RateLimiterConfig> getConfigClass() {
-                return RateLimiterConfig.class;
-            }
+    @ConditionalOnProperty(name = "gateway.rate-limiter.mode", havingValue = "local", matchIfMissing = true)
+    public InMemoryRateLimiter inMemoryRateLimiter(
+            TokenBucketStore rateLimiterBucketStore,
+            ConfigurationService configurationService,
+            GatewayMetrics gatewayMetrics,
+            @Value("${gateway.rate-limiter.default-replenish-rate:5.0}") double defaultReplenishRate,
+            @Value("${gateway.rate-limiter.default-burst-capacity:100}") int defaultBurstCapacity,
+            @Value("${gateway.rate-limiter.user.replenish-rate:0}") double userReplenishRate,
+            @Value("${gateway.rate-limiter.user.burst-capacity:0}") int userBurstCapacity,
+            @Value("${gateway.rate-limiter.global.replenish-rate:0}") double globalReplenishRate,
+            @Value("${gateway.rate-limiter.global.burst-capacity:0}") int globalBurstCapacity) {
+        return new InMemoryRateLimiter(rateLimiterBucketStore,
+                defaults(defaultReplenishRate, defaultBurstCapacity, userReplenishRate, userBurstCapacity),
+                new RateLimiterConfig(globalReplenishRate, globalBurstCapacity),
+                configurationService, gatewayMetrics);
+    }
 
-            @Override
-            public RateLimiterConfig newConfig() {
-                // 提供一个默认的空配置对象
-                return new RateLimiterConfig();
-            }
-        };
+    /**
+     * 定义默认的限流速率: 每秒生成的令牌数 / 令牌桶总容量；某一层速率为 0 表示该层不限流
+     */
+    static RateLimiterConfig defaults(double replenishRate, int burstCapacity,
+                                      double userReplenishRate, int userBurstCapacity) {
+        RateLimiterConfig defaults = new RateLimiterConfig(replenishRate, burstCapacity);
+        defaults.setUserReplenishRate(userReplenishRate);
+        defaults.setUserBurstCapacity(userBurstCapacity);
+        defaults.setRequestedTokens(1);
+        return defaults;
     }
 
     /**
      * 配置类，用于存储限流参数
-     * 现在它不再是空的了，包含了速率和容量
+     * replenishRate/burstCapacity 作用于单个客户端 IP，user* 作用于单个已认证用户，route* 作用于整个路由；
+     * requestedTokens 是该路由每个请求消耗的令牌数，在所有层级上相同
      */
     public static class RateLimiterConfig {
         private double replenishRate;
         private int burstCapacity;
+        private double userReplenishRate;
+        private int userBurstCapacity;
+        private double routeReplenishRate;
+        private int routeBurstCapacity;
+        private int requestedTokens;
 
         public RateLimiterConfig() {
         }
@@ -124,5 +112,35 @@ public class InMemoryRateLimiterConfig {
         public void setBurstCapacity(int burstCapacity) {
             this.burstCapacity = burstCapacity;
         }
+        public double getUserReplenishRate() {
+            return userReplenishRate;
+        }
+        public void setUserReplenishRate(double userReplenishRate) {
+            this.userReplenishRate = userReplenishRate;
+        }
+        public int getUserBurstCapacity() {
+            return userBurstCapacity;
+        }
+        public void setUserBurstCapacity(int userBurstCapacity) {
+            this.userBurstCapacity = userBurstCapacity;
+        }
+        public double getRouteReplenishRate() {
+            return routeReplenishRate;
+        }
+        public void setRouteReplenishRate(double routeReplenishRate) {
+            this.routeReplenishRate = routeReplenishRate;
+        }
+        public int getRouteBurstCapacity() {
+            return routeBurstCapacity;
+        }
+        public void setRouteBurstCapacity(int routeBurstCapacity) {
+            this.routeBurstCapacity = routeBurstCapacity;
+        }
+        public int getRequestedTokens() {
+            return requestedTokens;
+        }
+        public void setRequestedTokens(int requestedTokens) {
+            this.requestedTokens = requestedTokens;
+        }
     }
 }
\ No newline at end of file
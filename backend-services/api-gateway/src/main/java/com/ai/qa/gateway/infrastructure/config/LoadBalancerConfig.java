@@ -0,0 +1,24 @@
+package com.ai.qa.gateway.infrastructure.config;
+
+import com.ai.qa.gateway.infrastructure.loadbalancer.InstanceStatsRegistry;
+import com.ai.qa.gateway.infrastructure.loadbalancer.LoadBalancerStatsFilter;
+import com.ai.qa.gateway.infrastructure.loadbalancer.PeakEwmaLoadBalancerConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * lb:// 路由的负载均衡策略
+ * peak-ewma (默认): 按响应时间和在途请求数二选一；round-robin: 使用 Spring Cloud LoadBalancer 默认的轮询
+ */
+@Configuration
+@ConditionalOnProperty(name = "gateway.loadbalancer.strategy", havingValue = "peak-ewma", matchIfMissing = true)
+@LoadBalancerClients(defaultConfiguration = PeakEwmaLoadBalancerConfiguration.class)
+public class LoadBalancerConfig {
+
+    @Bean
+    public LoadBalancerStatsFilter loadBalancerStatsFilter(InstanceStatsRegistry instanceStatsRegistry) {
+        return new LoadBalancerStatsFilter(instanceStatsRegistry);
+    }
+}
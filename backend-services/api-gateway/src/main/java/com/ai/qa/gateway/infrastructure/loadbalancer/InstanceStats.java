@@ -0,0 +1,93 @@
+package com.ai.qa.gateway.infrastructure.loadbalancer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单个下游实例的负载信息：在途请求数 + 带峰值敏感的 EWMA 响应时间 (Peak EWMA)。
+ * <p>
+ * 新样本高于当前均值时直接取新样本 (对变慢立即反应)，低于均值时按时间衰减平滑 (对恢复逐渐信任)；
+ * 读取分数时也按距上次采样的时间衰减，避免一个曾经很慢、因此不再被选中的实例永远得不到流量。
+ */
+public final class InstanceStats {
+
+    /**
+     * 还没有任何响应时间样本时，每个在途请求计的惩罚分 (纳秒)
+     */
+    private static final double UNKNOWN_PENALTY_NANOS = 1_000_000_000d;
+
+    private final String serviceId;
+    private final String instance;
+    private final double decayNanos;
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    private volatile double ewmaNanos;
+    private volatile long lastSampleNanos = System.nanoTime();
+    private volatile long lastSelectedNanos = System.nanoTime();
+
+    InstanceStats(String serviceId, String instance, long decayNanos) {
+        this.serviceId = serviceId;
+        this.instance = instance;
+        this.decayNanos = decayNanos;
+    }
+
+    void requestStarted() {
+        inflight.incrementAndGet();
+    }
+
+    void requestFinished(long rttNanos) {
+        inflight.decrementAndGet();
+        observe(rttNanos);
+    }
+
+    synchronized void observe(long rttNanos) {
+        long now = System.nanoTime();
+        double ewma = ewmaNanos;
+        if (rttNanos > ewma) {
+            ewmaNanos = rttNanos;
+        } else {
+            double w = Math.exp(-(now - lastSampleNanos) / decayNanos);
+            ewmaNanos = ewma * w + rttNanos * (1 - w);
+        }
+        lastSampleNanos = now;
+    }
+
+    /**
+     * 负载分数，越小越好：衰减后的 EWMA * (在途请求数 + 1)
+     */
+    public double score() {
+        int pending = inflight.get();
+        double ewma = decayedEwma();
+        if (ewma == 0d) {
+            return pending == 0 ? 0d : UNKNOWN_PENALTY_NANOS + pending;
+        }
+        return ewma * (pending + 1);
+    }
+
+    public double decayedEwma() {
+        double ewma = ewmaNanos;
+        if (ewma == 0d) {
+            return 0d;
+        }
+        return ewma * Math.exp(-(System.nanoTime() - lastSampleNanos) / decayNanos);
+    }
+
+    public int inflight() {
+        return inflight.get();
+    }
+
+    void markSelected() {
+        lastSelectedNanos = System.nanoTime();
+    }
+
+    long lastSelectedNanos() {
+        return lastSelectedNanos;
+    }
+
+    public String getServiceId() {
+        return serviceId;
+    }
+
+    public String getInstance() {
+        return instance;
+    }
+}
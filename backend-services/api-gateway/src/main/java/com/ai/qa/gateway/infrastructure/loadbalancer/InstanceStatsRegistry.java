@@ -0,0 +1,83 @@
+package com.ai.qa.gateway.infrastructure.loadbalancer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 所有下游实例的负载统计，由 {@link LoadBalancerStatsFilter} 写入，{@link PeakEwmaLoadBalancer} 读取。
+ * 每个实例的分数、EWMA 和在途请求数以 gateway.lb.instance.* 指标发布。
+ */
+@Component
+public class InstanceStatsRegistry {
+
+    private final MeterRegistry meterRegistry;
+    private final long decayNanos;
+    private final long retainNanos;
+    private final ConcurrentHashMap<String, Entry> stats = new ConcurrentHashMap<>();
+
+    public InstanceStatsRegistry(MeterRegistry meterRegistry,
+                                 @Value("${gateway.loadbalancer.ewma-decay:10s}") Duration decay,
+                                 @Value("${gateway.loadbalancer.stats-retention:10m}") Duration retention) {
+        this.meterRegistry = meterRegistry;
+        this.decayNanos = decay.toNanos();
+        this.retainNanos = retention.toNanos();
+    }
+
+    public InstanceStats get(ServiceInstance instance) {
+        String key = key(instance);
+        Entry entry = stats.get(key);
+        if (entry == null) {
+            entry = stats.computeIfAbsent(key, k -> register(instance.getServiceId(), instance.getHost() + ":" + instance.getPort()));
+        }
+        return entry.stats;
+    }
+
+    /**
+     * 清理长时间没有被选中的实例 (通常是已经下线的实例) 及其指标
+     */
+    public void expireStale() {
+        long now = System.nanoTime();
+        stats.values().removeIf(entry -> {
+            boolean stale = now - entry.stats.lastSelectedNanos() > retainNanos && entry.stats.inflight() == 0;
+            if (stale) {
+                entry.meters.forEach(meterRegistry::remove);
+            }
+            return stale;
+        });
+    }
+
+    private Entry register(String serviceId, String instance) {
+        InstanceStats instanceStats = new InstanceStats(serviceId, instance, decayNanos);
+        List<Meter> meters = new ArrayList<>(3);
+        meters.add(Gauge.builder("gateway.lb.instance.score", instanceStats, InstanceStats::score)
+                .tag("service", serviceId).tag("instance", instance).register(meterRegistry));
+        meters.add(Gauge.builder("gateway.lb.instance.ewma.seconds", instanceStats, s -> s.decayedEwma() / 1e9)
+                .tag("service", serviceId).tag("instance", instance).register(meterRegistry));
+        meters.add(Gauge.builder("gateway.lb.instance.inflight", instanceStats, InstanceStats::inflight)
+                .tag("service", serviceId).tag("instance", instance).register(meterRegistry));
+        return new Entry(instanceStats, meters);
+    }
+
+    private static String key(ServiceInstance instance) {
+        return instance.getServiceId() + '/' + instance.getHost() + ':' + instance.getPort();
+    }
+
+    private static final class Entry {
+        final InstanceStats stats;
+        final List<Meter> meters;
+
+        Entry(InstanceStats stats, List<Meter> meters) {
+            this.stats = stats;
+            this.meters = meters;
+        }
+    }
+}
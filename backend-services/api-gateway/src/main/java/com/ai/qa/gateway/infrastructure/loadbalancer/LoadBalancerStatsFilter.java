@@ -0,0 +1,54 @@
+package com.ai.qa.gateway.infrastructure.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+
+/**
+ * 紧跟在负载均衡过滤器之后，统计被选中实例的在途请求数和响应时间 (到收到响应头为止)，
+ * 为 {@link PeakEwmaLoadBalancer} 提供反馈。失败的请求按惩罚耗时计入，让出错的实例迅速降权。
+ */
+public class LoadBalancerStatsFilter implements GlobalFilter, Ordered {
+
+    private static final long FAILURE_PENALTY_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final InstanceStatsRegistry statsRegistry;
+
+    public LoadBalancerStatsFilter(InstanceStatsRegistry statsRegistry) {
+        this.statsRegistry = statsRegistry;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Response<ServiceInstance> lbResponse = exchange.getAttribute(GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+        if (lbResponse == null || !lbResponse.hasServer()) {
+            return chain.filter(exchange);
+        }
+        ServiceInstance instance = lbResponse.getServer();
+        InstanceStats stats = statsRegistry.get(instance);
+        long start = System.nanoTime();
+        stats.requestStarted();
+        return chain.filter(exchange).doFinally(signal -> {
+            long elapsed = System.nanoTime() - start;
+            HttpStatusCode status = exchange.getResponse().getStatusCode();
+            boolean failed = signal == SignalType.ON_ERROR || (status != null && status.is5xxServerError());
+            stats.requestFinished(failed ? Math.max(elapsed, FAILURE_PENALTY_NANOS) : elapsed);
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        return ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER + 1;
+    }
+}
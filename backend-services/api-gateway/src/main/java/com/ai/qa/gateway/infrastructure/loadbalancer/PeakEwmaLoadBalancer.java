@@ -0,0 +1,93 @@
+package com.ai.qa.gateway.infrastructure.loadbalancer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.SelectedInstanceCallback;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 延迟感知的负载均衡：power-of-two-choices + Peak EWMA。
+ * <p>
+ * 每次随机取两个实例，选 {@link InstanceStats#score()} 更低的那个。相比轮询，
+ * 一个卡在长时间 LLM 调用上的 qa-service 实例会因为 EWMA 和在途请求数升高而自然少拿流量；
+ * 相比总是选全局最优，随机二选一不会让所有网关同时涌向同一个"最快"实例。
+ */
+public class PeakEwmaLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    private static final Logger log = LoggerFactory.getLogger(PeakEwmaLoadBalancer.class);
+
+    private static final long EXPIRE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final ObjectProvider<ServiceInstanceListSupplier> supplierProvider;
+    private final String serviceId;
+    private final InstanceStatsRegistry statsRegistry;
+    private final AtomicLong lastExpire = new AtomicLong(System.nanoTime());
+
+    public PeakEwmaLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> supplierProvider, String serviceId,
+                                InstanceStatsRegistry statsRegistry) {
+        this.supplierProvider = supplierProvider;
+        this.serviceId = serviceId;
+        this.statsRegistry = statsRegistry;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = supplierProvider.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(instances -> {
+            Response<ServiceInstance> response = choose(instances);
+            if (supplier instanceof SelectedInstanceCallback && response.hasServer()) {
+                ((SelectedInstanceCallback) supplier).selectedServiceInstance(response.getServer());
+            }
+            return response;
+        });
+    }
+
+    Response<ServiceInstance> choose(List<ServiceInstance> instances) {
+        expireStaleStats();
+        int size = instances.size();
+        if (size == 0) {
+            log.warn("No servers available for service: {}", serviceId);
+            return new EmptyResponse();
+        }
+        ServiceInstance chosen;
+        if (size == 1) {
+            chosen = instances.get(0);
+        } else {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int a = random.nextInt(size);
+            int b = random.nextInt(size - 1);
+            if (b >= a) {
+                b++;
+            }
+            ServiceInstance first = instances.get(a);
+            ServiceInstance second = instances.get(b);
+            chosen = statsRegistry.get(first).score() <= statsRegistry.get(second).score()
+                    ? first : second;
+        }
+        statsRegistry.get(chosen).markSelected();
+        return new DefaultResponse(chosen);
+    }
+
+    private void expireStaleStats() {
+        long last = lastExpire.get();
+        long now = System.nanoTime();
+        if (now - last > EXPIRE_INTERVAL_NANOS && lastExpire.compareAndSet(last, now)) {
+            statsRegistry.expireStale();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.ai.qa.gateway.infrastructure.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * 每个 lb:// 服务的子容器中使用的负载均衡配置。
+ * 注意：这里故意不加 @Configuration，避免被主容器扫描成全局配置，
+ * 只通过 {@code @LoadBalancerClients(defaultConfiguration = ...)} 引用。
+ */
+public class PeakEwmaLoadBalancerConfiguration {
+
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> peakEwmaLoadBalancer(Environment environment,
+                                                                     LoadBalancerClientFactory loadBalancerClientFactory,
+                                                                     InstanceStatsRegistry instanceStatsRegistry) {
+        String name = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        return new PeakEwmaLoadBalancer(
+                loadBalancerClientFactory.getLazyProvider(name, ServiceInstanceListSupplier.class),
+                name, instanceStatsRegistry);
+    }
+}
@@ -0,0 +1,68 @@
+package com.ai.qa.gateway.infrastructure.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 高频事件日志的采样与限速。
+ * <p>
+ * 每 sampleEvery 次事件取 1 次，且每个时间窗口最多输出 maxPerWindow 行；
+ * 被跳过的次数会累积起来，在下一行日志里一并报告。判断过程不加锁、不分配对象，
+ * 调用方先 {@link #tryAcquire()}，成功后再拼日志参数：
+ * <pre>
+ * if (sampler.tryAcquire()) {
+ *     log.warn("... (suppressed {})", ..., sampler.drainSuppressed());
+ * }
+ * </pre>
+ */
+public final class LogSampler {
+
+    private final int sampleEvery;
+    private final int maxPerWindow;
+    private final long windowNanos;
+
+    private final long origin = System.nanoTime();
+    private final LongAdder events = new LongAdder();
+    private final AtomicLong window = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+
+    public LogSampler(int sampleEvery, int maxPerWindow, long windowMillis) {
+        this.sampleEvery = Math.max(1, sampleEvery);
+        this.maxPerWindow = maxPerWindow;
+        this.windowNanos = windowMillis * 1_000_000L;
+    }
+
+    public boolean tryAcquire() {
+        events.increment();
+        if (sampleEvery > 1 && events.sum() % sampleEvery != 0) {
+            suppressed.incrementAndGet();
+            return false;
+        }
+        // window 的高位是窗口编号，低 16 位是本窗口已输出的行数
+        long currentWindow = (System.nanoTime() - origin) / windowNanos;
+        for (;;) {
+            long state = window.get();
+            long stateWindow = state >>> 16;
+            int used = (int) (state & 0xFFFF);
+            long next;
+            if (stateWindow != currentWindow) {
+                next = (currentWindow << 16) | 1;
+            } else if (used < maxPerWindow) {
+                next = state + 1;
+            } else {
+                suppressed.incrementAndGet();
+                return false;
+            }
+            if (window.compareAndSet(state, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 取出并清零上次输出以来被跳过的次数
+     */
+    public long drainSuppressed() {
+        return suppressed.getAndSet(0);
+    }
+}
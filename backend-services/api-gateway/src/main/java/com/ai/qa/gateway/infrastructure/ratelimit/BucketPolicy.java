@@ -0,0 +1,31 @@
+package com.ai.qa.gateway.infrastructure.ratelimit;
+
+/**
+ * 桶状态的迁移规则。
+ * <p>
+ * 每个桶的全部状态就是一个 long，由 {@link TokenBucketStore} 通过 CAS 更新；
+ * 状态 0 表示"全新的桶"，因此一个已经回到初始状态的桶可以被无损地淘汰。
+ */
+public interface BucketPolicy {
+
+    /**
+     * 拒绝本次更新，状态保持不变
+     */
+    long REJECT = Long.MIN_VALUE;
+
+    /**
+     * 根据当前状态计算新状态
+     *
+     * @param state 当前状态 (新桶为 0)
+     * @param now   store 内部时钟，单位纳秒
+     * @param a     由具体策略解释的参数
+     * @param b     由具体策略解释的参数
+     * @return 新状态；返回 {@link #REJECT} 表示拒绝
+     */
+    long next(long state, long now, long a, long b);
+
+    /**
+     * 状态在此时刻之后与新桶等价，可以被回收
+     */
+    long expiresAt(long state);
+}
@@ -0,0 +1,161 @@
+package com.ai.qa.gateway.infrastructure.ratelimit;
+
+import com.google.common.net.InetAddresses;
+
+import java.net.InetAddress;
+
+/**
+ * 限流 key 的紧凑表示：把 KeyResolver 解析出的字符串压缩成两个 long。
+ * <p>
+ * IPv4 按 IPv4-mapped IPv6 (::ffff:a.b.c.d) 打包，所以同一个客户端无论以哪种形式出现都落在同一个桶上；
+ * 非 IP 的 key (例如用户ID) 用 128 位哈希表示，并通过 kind 与 IP 空间隔离。
+ */
+public final class ClientKey {
+
+    public static final int KIND_IP = 1;
+    public static final int KIND_HASHED = 2;
+    public static final int KIND_USER = 3;
+    public static final int KIND_AGGREGATE = 4;
+
+    /**
+     * 路由级、全局级这类不区分客户端的汇总桶
+     */
+    public static final ClientKey AGGREGATE = new ClientKey(KIND_AGGREGATE, 0L, 0L);
+
+    private static final long IPV4_MAPPED_PREFIX = 0x0000_FFFF_0000_0000L;
+
+    private final int kind;
+    private final long hi;
+    private final long lo;
+
+    private ClientKey(int kind, long hi, long lo) {
+        this.kind = kind;
+        this.hi = hi;
+        this.lo = lo;
+    }
+
+    public static ClientKey of(String id) {
+        if (id == null || id.isEmpty()) {
+            return new ClientKey(KIND_HASHED, 0L, 0L);
+        }
+        long v4 = parseIpv4(id);
+        if (v4 >= 0) {
+            return new ClientKey(KIND_IP, 0L, IPV4_MAPPED_PREFIX | v4);
+        }
+        if (id.indexOf(':') >= 0 && InetAddresses.isInetAddress(id)) {
+            return ofAddress(InetAddresses.forString(id));
+        }
+        return hashed(id);
+    }
+
+    public static ClientKey ofAddress(InetAddress address) {
+        byte[] bytes = address.getAddress();
+        if (bytes.length == 4) {
+            return new ClientKey(KIND_IP, 0L, IPV4_MAPPED_PREFIX | (readInt(bytes, 0) & 0xFFFF_FFFFL));
+        }
+        long hi = ((long) readInt(bytes, 0) << 32) | (readInt(bytes, 4) & 0xFFFF_FFFFL);
+        long lo = ((long) readInt(bytes, 8) << 32) | (readInt(bytes, 12) & 0xFFFF_FFFFL);
+        return new ClientKey(KIND_IP, hi, lo);
+    }
+
+    /**
+     * 任意字符串 key：两路独立的 64 位哈希拼成 128 位，碰撞概率可以忽略
+     */
+    public static ClientKey hashed(String id) {
+        return hashed(KIND_HASHED, id);
+    }
+
+    /**
+     * 已认证用户的 key，与 IP 以及其它字符串 key 的空间隔离
+     */
+    public static ClientKey ofUser(String userId) {
+        return hashed(KIND_USER, userId);
+    }
+
+    private static ClientKey hashed(int kind, String id) {
+        long h1 = 0xCBF2_9CE4_8422_2325L;
+        long h2 = 0x8422_2325_CBF2_9CE4L;
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            h1 = (h1 ^ c) * 0x0000_0100_0000_01B3L;
+            h2 = (h2 + c) * 0x9E37_79B9_7F4A_7C15L;
+        }
+        return new ClientKey(kind, mix(h1 ^ id.length()), mix(h2));
+    }
+
+    /**
+     * 手写的 IPv4 解析，热路径上不走 InetAddress，非法输入返回 -1
+     */
+    static long parseIpv4(String s) {
+        int len = s.length();
+        if (len < 7 || len > 15) {
+            return -1;
+        }
+        long result = 0;
+        int octet = -1;
+        int dots = 0;
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = (octet < 0 ? 0 : octet * 10) + (c - '0');
+                if (octet > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && octet >= 0 && dots < 3) {
+                result = (result << 8) | octet;
+                octet = -1;
+                dots++;
+            } else {
+                return -1;
+            }
+        }
+        if (dots != 3 || octet < 0) {
+            return -1;
+        }
+        return (result << 8) | octet;
+    }
+
+    static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51_AFD7_ED55_8CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CE_B9FE_1A85_EC53L;
+        return z ^ (z >>> 33);
+    }
+
+    private static int readInt(byte[] b, int off) {
+        return ((b[off] & 0xFF) << 24) | ((b[off + 1] & 0xFF) << 16) | ((b[off + 2] & 0xFF) << 8) | (b[off + 3] & 0xFF);
+    }
+
+    public int kind() {
+        return kind;
+    }
+
+    public long hi() {
+        return hi;
+    }
+
+    public long lo() {
+        return lo;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ClientKey)) {
+            return false;
+        }
+        ClientKey that = (ClientKey) o;
+        return kind == that.kind && hi == that.hi && lo == that.lo;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) mix(hi ^ lo ^ kind);
+    }
+
+    @Override
+    public String toString() {
+        return "ClientKey{kind=" + kind + ", hi=" + Long.toHexString(hi) + ", lo=" + Long.toHexString(lo) + "}";
+    }
+}
@@ -0,0 +1,51 @@
+package com.ai.qa.gateway.infrastructure.ratelimit;
+
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+/**
+ * 分层限流的 KeyResolver，输出 {@link QuotaKey} 格式的 key。
+ * <ul>
+ *     <li>用户：只取鉴权过滤器校验 JWT 后放入 exchange attribute 的用户ID，不采信客户端自带的 X-User-Id</li>
+ *     <li>IP：直连地址属于受信任代理时，取 X-Forwarded-For 中第一个不受信任的地址</li>
+ * </ul>
+ */
+public class ClientKeyResolver implements KeyResolver {
+
+    private static final String X_FORWARDED_FOR = "X-Forwarded-For";
+    private static final String UNKNOWN_ADDRESS = "unknown";
+
+    private final TrustedProxies trustedProxies;
+    private final String userIdAttribute;
+
+    public ClientKeyResolver(TrustedProxies trustedProxies, String userIdAttribute) {
+        this.trustedProxies = trustedProxies;
+        this.userIdAttribute = userIdAttribute;
+    }
+
+    @Override
+    public Mono<String> resolve(ServerWebExchange exchange) {
+        String userId = exchange.getAttribute(userIdAttribute);
+        return Mono.just(QuotaKey.format(userId, clientAddress(exchange.getRequest())));
+    }
+
+    String clientAddress(ServerHttpRequest request) {
+        InetSocketAddress remote = request.getRemoteAddress();
+        if (remote == null || remote.getAddress() == null) {
+            return UNKNOWN_ADDRESS;
+        }
+        if (trustedProxies.isEmpty() || !trustedProxies.contains(remote.getAddress())) {
+            return remote.getAddress().getHostAddress();
+        }
+        List<String> forwardedFor = request.getHeaders().get(X_FORWARDED_FOR);
+        if (forwardedFor == null || forwardedFor.isEmpty()) {
+            return remote.getAddress().getHostAddress();
+        }
+        return trustedProxies.resolveClient(forwardedFor, remote.getAddress());
+    }
+}
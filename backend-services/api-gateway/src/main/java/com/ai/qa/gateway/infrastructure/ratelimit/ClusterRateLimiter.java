@@ -0,0 +1,133 @@
+package com.ai.qa.gateway.infrastructure.ratelimit;
+
+import com.ai.qa.gateway.infrastructure.config.InMemoryRateLimiterConfig.RateLimiterConfig;
+import com.ai.qa.gateway.infrastructure.logging.LogSampler;
+import com.ai.qa.gateway.infrastructure.metrics.GatewayMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 集群限流器：多个网关副本共享同一份限流预算。
+ * <p>
+ * 每个节点通过 {@link TokenLeaseCoordinator} 一次租借一批令牌，存放在本地的
+ * {@link TokenBucketStore} (使用 {@link LeasePolicy}) 中，之后的请求直接在本地扣减，
+ * 只有余额耗尽时才访问协调者。同一个 key 同时只会有一个租借请求在途，其余请求等待其结果。
+ * 协调者租不出令牌时，本地记住这次拒绝，直到全局预算重新攒够一次请求的令牌为止，期间不再访问协调者。
+ * <p>
+ * 租约按请求最具体的身份计算：已认证且路由启用了用户层时租借用户层，否则租借 IP 层；
+ * 租约的大小、全局速率和容量以及拒绝时的响应头都取自被租借的那一层，消耗路由的 requested-tokens。
+ * 其余各层 (已认证请求的 IP 层、路由层、全局层) 在访问租约之前由父类在本地扣减，
+ * 租约拒绝时退还，和单机模式一样各层要么全部扣减、要么全部不变；这几层是每个节点各自的配额。
+ * 协调者超时或出错时先退还本地扣减的层，再退化为父类的单机分层限流，保证网关可用。
+ */
+public class ClusterRateLimiter extends InMemoryRateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterRateLimiter.class);
+
+    private final TokenBucketStore leases;
+    private final TokenLeaseCoordinator coordinator;
+    private final double leaseFraction;
+    private final Duration coordinatorTimeout;
+    private final LogSampler fallbackLog = new LogSampler(1, 5, 10_000);
+
+    private final ConcurrentHashMap<String, Mono<Long>> inflight = new ConcurrentHashMap<>();
+
+    public ClusterRateLimiter(TokenBucketStore localStore, TokenBucketStore leases, TokenLeaseCoordinator coordinator,
+                              RateLimiterConfig defaultConfig, RateLimiterConfig globalConfig,
+                              ConfigurationService configurationService, GatewayMetrics metrics,
+                              double leaseFraction, Duration coordinatorTimeout) {
+        super(localStore, defaultConfig, globalConfig, configurationService, metrics);
+        this.leases = leases;
+        this.coordinator = coordinator;
+        this.leaseFraction = leaseFraction;
+        this.coordinatorTimeout = coordinatorTimeout;
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        long start = System.nanoTime();
+        RouteLimits limits = limitsFor(routeId);
+        QuotaKey quota = QuotaKey.parse(id);
+        Level leased = quota.user() != null && limits.user != null ? limits.user : limits.client;
+        Level denied = acquire(limits, quota, leased.scope, getStore().now());
+        if (denied != null) {
+            limits.meters.rateLimitDecision(false, System.nanoTime() - start);
+            logDenied(routeId, id);
+            return denied.response;
+        }
+        String principal = leased.scope == Scope.USER ? QuotaKey.principalId(id) : QuotaKey.addressId(id);
+        ClientKey key = ClientKey.of(principal);
+        if (consumeLocal(limits, key)) {
+            limits.meters.rateLimitDecision(true, System.nanoTime() - start);
+            return ALLOWED;
+        }
+        if (deniedByCoordinator(limits, key)) {
+            release(limits, quota, leased.scope, getStore().now());
+            limits.meters.rateLimitDecision(false, System.nanoTime() - start);
+            logDenied(routeId, id);
+            return leased.response;
+        }
+        return renewLease(routeId, principal, limits, leased, key)
+                .flatMap(granted -> {
+                    boolean allowed = consumeLocal(limits, key);
+                    limits.meters.rateLimitDecision(allowed, System.nanoTime() - start);
+                    if (allowed) {
+                        return ALLOWED;
+                    }
+                    release(limits, quota, leased.scope, getStore().now());
+                    logDenied(routeId, id);
+                    return leased.response;
+                })
+                .onErrorResume(e -> {
+                    if (fallbackLog.tryAcquire()) {
+                        log.warn("Token lease failed, falling back to local limit. Route: {}, Error: {} ({} suppressed)",
+                                routeId, e.toString(), fallbackLog.drainSuppressed());
+                    }
+                    release(limits, quota, leased.scope, getStore().now());
+                    return super.isAllowed(routeId, id);
+                });
+    }
+
+    public TokenBucketStore getLeaseStore() {
+        return leases;
+    }
+
+    private boolean consumeLocal(RouteLimits limits, ClientKey key) {
+        return leases.update(limits.index, key, leases.now(), limits.cost, 0L) != BucketPolicy.REJECT;
+    }
+
+    private boolean deniedByCoordinator(RouteLimits limits, ClientKey key) {
+        long state = leases.update(limits.index, key, leases.now(), 0L, 0L);
+        return state != BucketPolicy.REJECT && LeasePolicy.denied(state);
+    }
+
+    /**
+     * 向协调者续租；同一个 key 的并发续租合并为一次
+     */
+    private Mono<Long> renewLease(String routeId, String id, RouteLimits limits, Level leased, ClientKey key) {
+        String leaseKey = routeId + '\u0000' + id;
+        return inflight.computeIfAbsent(leaseKey, k -> coordinator
+                .lease(routeId, id, leaseSize(limits.cost, leased), limits.cost, leased.replenishRate,
+                        leased.burstCapacity)
+                .timeout(coordinatorTimeout)
+                .doOnNext(granted -> {
+                    if (granted > 0) {
+                        leases.update(limits.index, key, leases.now(), 0L, granted);
+                    } else {
+                        // 全局预算最迟在一次请求的消耗之后补回
+                        leases.update(limits.index, key, leases.now(), leased.cost(limits.cost), LeasePolicy.DENY);
+                    }
+                })
+                .doFinally(signal -> inflight.remove(k))
+                .cache());
+    }
+
+    private long leaseSize(int cost, Level leased) {
+        return Math.max(cost, (long) Math.ceil(leased.burstCapacity * leaseFraction));
+    }
+}
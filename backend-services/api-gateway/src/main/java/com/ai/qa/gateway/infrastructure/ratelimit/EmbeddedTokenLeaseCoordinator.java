@@ -0,0 +1,51 @@
+package com.ai.qa.gateway.infrastructure.ratelimit;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 进程内的协调者：全局预算保存在本地的 {@link TokenBucketStore} 中。
+ * <p>
+ * 用于单机部署、本地开发和测试，多个 {@link ClusterRateLimiter} 共享同一个实例即可模拟多个网关节点。
+ * 租出的数量与 {@link RedisTokenLeaseCoordinator} 相同，见 {@link TokenLeaseCoordinator#lease}。
+ */
+public class EmbeddedTokenLeaseCoordinator implements TokenLeaseCoordinator {
+
+    private final TokenBucketStore budgets;
+    private final ConcurrentHashMap<String, Integer> routeIndexes = new ConcurrentHashMap<>();
+    private final AtomicInteger routeSequence = new AtomicInteger();
+
+    public EmbeddedTokenLeaseCoordinator(int maxBuckets, Duration idleTtl) {
+        this.budgets = new TokenBucketStore(GcraPolicy.INSTANCE, maxBuckets, idleTtl);
+    }
+
+    @Override
+    public Mono<Long> lease(String routeId, String id, long requested, long minimum, double replenishRate,
+                            int burstCapacity) {
+        return Mono.fromSupplier(() -> grant(routeId, id, requested, minimum, replenishRate, burstCapacity));
+    }
+
+    long grant(String routeId, String id, long requested, long minimum, double replenishRate, int burstCapacity) {
+        int index = routeIndexes.computeIfAbsent(routeId, k -> routeSequence.getAndIncrement());
+        long interval = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / replenishRate));
+        long tolerance = interval * burstCapacity;
+        ClientKey key = ClientKey.of(id);
+        // 与 lease_tokens.lua 相同：尽量租出 requested 个，预算不够时租出剩余的全部，不足 minimum 个时不租
+        for (;;) {
+            long now = budgets.now();
+            long tat = Math.max(budgets.update(index, key, now, 0L, tolerance), now);
+            long granted = Math.min(requested, (now + tolerance - tat) / interval);
+            if (granted < Math.max(1L, minimum)) {
+                return 0L;
+            }
+            // 与其他租借并发时预算可能已经变化，重新计算
+            if (budgets.update(index, key, now, granted * interval, tolerance) != BucketPolicy.REJECT) {
+                return granted;
+            }
+        }
+    }
+}
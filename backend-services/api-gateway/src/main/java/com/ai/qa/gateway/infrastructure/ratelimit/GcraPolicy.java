@@ -0,0 +1,44 @@
+package com.ai.qa.gateway.infrastructure.ratelimit;
+
+/**
+ * GCRA (Generic Cell Rate Algorithm) 形式的令牌桶。
+ * <p>
+ * 状态是"理论到达时间" TAT：每消耗一个令牌 TAT 向后推一个发放间隔 T，
+ * 只要 TAT - now 不超过 burstCapacity * T 就放行。TAT &lt;= now 表示桶是满的，
+ * 与新桶完全等价，这正是空闲桶可以直接淘汰的原因。
+ * <ul>
+ *     <li>a: 本次消耗对应的时间增量 (cost * T)，负数表示退还</li>
+ *     <li>b: 容忍度 (burstCapacity * T)</li>
+ * </ul>
+ */
+public final class GcraPolicy implements BucketPolicy {
+
+    public static final GcraPolicy INSTANCE = new GcraPolicy();
+
+    private GcraPolicy() {
+    }
+
+    @Override
+    public long next(long tat, long now, long increment, long tolerance) {
+        if (increment < 0) {
+            return Math.max(tat + increment, 0L);
+        }
+        long newTat = Math.max(tat, now) + increment;
+        if (newTat - now > tolerance) {
+            return REJECT;
+        }
+        return newTat;
+    }
+
+    @Override
+    public long expiresAt(long tat) {
+        return tat;
+    }
+
+    /**
+     * 放行后桶内剩余的令牌数
+     */
+    public static long remaining(long newTat, long now, long interval, long tolerance) {
+        return Math.max(0L, (now + tolerance - newTat) / interval);
+    }
+}
@@ -0,0 +1,316 @@
+package com.ai.qa.gateway.infrastructure.ratelimit;
+
+import com.ai.qa.gateway.infrastructure.config.InMemoryRateLimiterConfig.RateLimiterConfig;
+import com.ai.qa.gateway.infrastructure.logging.LogSampler;
+import com.ai.qa.gateway.infrastructure.metrics.GatewayMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.event.FilterArgsEvent;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.route.RouteDefinitionRouteLocator;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于 {@link TokenBucketStore} 的单机分层限流器。
+ * <p>
+ * 继承 {@link AbstractRateLimiter} 后，路由上配置的 {@code in-memory-rate-limiter.*} 参数会被绑定到
+ * {@link #getConfig()}，每个路由使用自己的速率和单次消耗 (requested-tokens)。
+ * 一次判定覆盖四层配额，全部通过才放行：
+ * <ul>
+ *     <li>IP: (路由, 客户端 IP)</li>
+ *     <li>用户: (路由, 已认证用户)，匿名请求跳过</li>
+ *     <li>路由: 该路由所有客户端之和</li>
+ *     <li>全局: 所有路由之和</li>
+ * </ul>
+ * 按从具体到汇总的顺序扣减，某一层拒绝时把已经扣掉的层退还 (GCRA 负增量)，
+ * 因此各层要么全部扣减、要么全部不变；先检查最具体的层，单个客户端超限时不会消耗共享的路由/全局配额。
+ * 整个判定只有几次 CAS，不加锁。
+ */
+public class InMemoryRateLimiter extends AbstractRateLimiter<RateLimiterConfig> {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "in-memory-rate-limiter";
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryRateLimiter.class);
+
+    static final Mono<Response> ALLOWED = Mono.just(new Response(true, Collections.emptyMap()));
+
+    /**
+     * 全局层在 store 中占用的路由下标，普通路由从 1 开始编号
+     */
+    private static final int GLOBAL_INDEX = 0;
+
+    private final TokenBucketStore store;
+    private final RateLimiterConfig defaultConfig;
+    private final Level global;
+    private final GatewayMetrics metrics;
+    // 被限流时的日志：每 100 次取 1 次，每秒最多 10 行
+    private final LogSampler deniedLog = new LogSampler(100, 10, 1000);
+
+    private final ConcurrentHashMap<String, RouteLimits> routeLimits = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> routeIndexes = new ConcurrentHashMap<>();
+    private final AtomicInteger routeSequence = new AtomicInteger(GLOBAL_INDEX + 1);
+
+    /**
+     * @param defaultConfig 路由没有单独配置时使用的 IP/用户/路由层速率
+     * @param globalConfig  全局层速率，replenishRate 为 0 表示不限制
+     */
+    public InMemoryRateLimiter(TokenBucketStore store, RateLimiterConfig defaultConfig, RateLimiterConfig globalConfig,
+                               ConfigurationService configurationService, GatewayMetrics metrics) {
+        super(RateLimiterConfig.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.store = store;
+        this.defaultConfig = defaultConfig;
+        // IP 层总是启用，默认参数无效时启动失败，而不是等到第一个请求
+        new Level(Scope.IP, GLOBAL_INDEX, defaultConfig.getReplenishRate(), defaultConfig.getBurstCapacity());
+        this.global = Level.of(Scope.GLOBAL, GLOBAL_INDEX, globalConfig.getReplenishRate(), globalConfig.getBurstCapacity());
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        long start = System.nanoTime();
+        RouteLimits limits = limitsFor(routeId);
+        Level denied = acquire(limits, QuotaKey.parse(id), store.now());
+        limits.meters.rateLimitDecision(denied == null, System.nanoTime() - start);
+
+        if (denied == null) {
+            return ALLOWED;
+        }
+        logDenied(routeId, id);
+        return denied.response;
+    }
+
+    /**
+     * 依次扣减各层配额
+     *
+     * @return 拒绝本次请求的层，全部通过时返回 null
+     */
+    Level acquire(RouteLimits limits, QuotaKey key, long now) {
+        return acquire(limits, key, null, now);
+    }
+
+    /**
+     * 依次扣减除 skip 以外各层的配额，某一层拒绝时退还已经扣减的层
+     *
+     * @param skip 不在本地扣减的层 (集群模式下由租约负责)，为 null 时扣减所有层
+     * @return 拒绝本次请求的层，全部通过时返回 null
+     */
+    Level acquire(RouteLimits limits, QuotaKey key, Scope skip, long now) {
+        Level[] levels = limits.levels;
+        for (int i = 0; i < levels.length; i++) {
+            Level level = levels[i];
+            ClientKey bucket = level.scope == skip ? null : level.bucket(key);
+            if (bucket == null) {
+                continue;
+            }
+            if (store.update(level.index, bucket, now, level.cost(limits.cost), level.tolerance) == BucketPolicy.REJECT) {
+                refund(limits, key, skip, i, now);
+                return level;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 退还 {@link #acquire(RouteLimits, QuotaKey, Scope, long)} 成功扣减的配额
+     */
+    void release(RouteLimits limits, QuotaKey key, Scope skip, long now) {
+        refund(limits, key, skip, limits.levels.length, now);
+    }
+
+    /**
+     * 退还 levels[0, end) 中已经扣减的配额
+     */
+    private void refund(RouteLimits limits, QuotaKey key, Scope skip, int end, long now) {
+        for (int i = end - 1; i >= 0; i--) {
+            Level level = limits.levels[i];
+            ClientKey bucket = level.scope == skip ? null : level.bucket(key);
+            if (bucket != null) {
+                store.update(level.index, bucket, now, -level.cost(limits.cost), 0L);
+            }
+        }
+    }
+
+    void logDenied(String routeId, String id) {
+        if (deniedLog.tryAcquire()) {
+            log.warn("Request DENIED (Rate Limited). Route: {}, Key: {} ({} similar denials suppressed)",
+                    routeId, id, deniedLog.drainSuppressed());
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(FilterArgsEvent event) {
+        super.onApplicationEvent(event);
+        // 路由参数变化后重新计算该路由的速率；default-filters 的参数影响所有路由
+        if (RouteDefinitionRouteLocator.DEFAULT_FILTERS.equals(event.getRouteId())) {
+            routeLimits.clear();
+        } else {
+            routeLimits.remove(event.getRouteId());
+        }
+    }
+
+    public TokenBucketStore getStore() {
+        return store;
+    }
+
+    RouteLimits limitsFor(String routeId) {
+        RouteLimits limits = routeLimits.get(routeId);
+        if (limits == null) {
+            limits = routeLimits.computeIfAbsent(routeId, this::createLimits);
+        }
+        return limits;
+    }
+
+    private RouteLimits createLimits(String routeId) {
+        RateLimiterConfig config = getConfig().get(routeId);
+        if (config == null) {
+            config = getConfig().get(RouteDefinitionRouteLocator.DEFAULT_FILTERS);
+        }
+        RateLimiterConfig effective = new RateLimiterConfig(
+                pick(config == null ? 0 : config.getReplenishRate(), defaultConfig.getReplenishRate()),
+                pick(config == null ? 0 : config.getBurstCapacity(), defaultConfig.getBurstCapacity()));
+        effective.setUserReplenishRate(pick(config == null ? 0 : config.getUserReplenishRate(), defaultConfig.getUserReplenishRate()));
+        effective.setUserBurstCapacity(pick(config == null ? 0 : config.getUserBurstCapacity(), defaultConfig.getUserBurstCapacity()));
+        effective.setRouteReplenishRate(pick(config == null ? 0 : config.getRouteReplenishRate(), defaultConfig.getRouteReplenishRate()));
+        effective.setRouteBurstCapacity(pick(config == null ? 0 : config.getRouteBurstCapacity(), defaultConfig.getRouteBurstCapacity()));
+        effective.setRequestedTokens(Math.max(1, pick(config == null ? 0 : config.getRequestedTokens(), defaultConfig.getRequestedTokens())));
+        int index = routeIndexes.computeIfAbsent(routeId, k -> routeSequence.getAndIncrement());
+        return new RouteLimits(index, effective, global, metrics.route(routeId));
+    }
+
+    private static double pick(double configured, double fallback) {
+        return configured > 0 ? configured : fallback;
+    }
+
+    private static int pick(int configured, int fallback) {
+        return configured > 0 ? configured : fallback;
+    }
+
+    enum Scope {
+        IP, USER, ROUTE, GLOBAL;
+
+        final String header = name().toLowerCase();
+    }
+
+    /**
+     * 一层配额，预先换算成 GCRA 需要的纳秒值；被拒绝时的响应也预先构造好
+     */
+    static final class Level {
+
+        final Scope scope;
+        final int index;
+        final double replenishRate;
+        final int burstCapacity;
+        final long interval;
+        final long tolerance;
+        final Mono<Response> response;
+
+        private Level(Scope scope, int index, double replenishRate, int burstCapacity) {
+            // 速率为 0 时发放间隔是无穷大，乘以容量后溢出成负数，所有请求都会被放行
+            if (!(replenishRate > 0) || Double.isInfinite(replenishRate)) {
+                throw new IllegalArgumentException(scope.header + " replenishRate must be positive: " + replenishRate);
+            }
+            if (burstCapacity < 1) {
+                throw new IllegalArgumentException(scope.header + " burstCapacity must be at least 1: " + burstCapacity);
+            }
+            double nanos = TimeUnit.SECONDS.toNanos(1) / replenishRate;
+            // TAT = now + tolerance 不能溢出
+            if (nanos * burstCapacity >= Long.MAX_VALUE / 4) {
+                throw new IllegalArgumentException(scope.header + " replenishRate " + replenishRate
+                        + " is too small for burstCapacity " + burstCapacity);
+            }
+            this.scope = scope;
+            this.index = index;
+            this.replenishRate = replenishRate;
+            this.burstCapacity = burstCapacity;
+            this.interval = Math.max(1L, (long) nanos);
+            this.tolerance = interval * burstCapacity;
+
+            // 当被限流时，可以返回一些有用的头信息
+            Map<String, String> headers = new HashMap<>();
+            headers.put("X-RateLimit-Remaining", "0");
+            headers.put("X-RateLimit-Burst-Capacity", String.valueOf(burstCapacity));
+            headers.put("X-RateLimit-Replenish-Rate", String.valueOf(replenishRate));
+            headers.put("X-RateLimit-Scope", scope.header);
+            this.response = Mono.just(new Response(false, Collections.unmodifiableMap(headers)));
+        }
+
+        /**
+         * @return 速率或容量为 0 时返回 null，表示该层不限流
+         */
+        static Level of(Scope scope, int index, double replenishRate, int burstCapacity) {
+            return replenishRate > 0 && burstCapacity > 0 ? new Level(scope, index, replenishRate, burstCapacity) : null;
+        }
+
+        /**
+         * 超过容量的消耗一定被拒绝，按容量 + 1 个间隔计算，避免乘法溢出
+         */
+        long cost(int tokens) {
+            return tokens > tolerance / interval ? tolerance + interval : interval * tokens;
+        }
+
+        ClientKey bucket(QuotaKey key) {
+            switch (scope) {
+                case IP:
+                    return key.address();
+                case USER:
+                    return key.user();
+                default:
+                    return ClientKey.AGGREGATE;
+            }
+        }
+    }
+
+    /**
+     * 某个路由生效的限流参数
+     */
+    static final class RouteLimits {
+
+        final int index;
+        final RateLimiterConfig config;
+        final int cost;
+        /**
+         * 按 IP → 用户 → 路由 → 全局 排列，未启用的层不在其中
+         */
+        final Level[] levels;
+        /**
+         * IP 层，总是启用
+         */
+        final Level client;
+        /**
+         * 用户层，未启用时为 null
+         */
+        final Level user;
+        final GatewayMetrics.RouteMeters meters;
+
+        RouteLimits(int index, RateLimiterConfig config, Level global, GatewayMetrics.RouteMeters meters) {
+            this.index = index;
+            this.config = config;
+            this.cost = config.getRequestedTokens();
+            List<Level> enabled = new ArrayList<>(4);
+            this.client = new Level(Scope.IP, index, config.getReplenishRate(), config.getBurstCapacity());
+            enabled.add(client);
+            this.user = Level.of(Scope.USER, index, config.getUserReplenishRate(), config.getUserBurstCapacity());
+            addIfEnabled(enabled, user);
+            addIfEnabled(enabled, Level.of(Scope.ROUTE, index, config.getRouteReplenishRate(), config.getRouteBurstCapacity()));
+            addIfEnabled(enabled, global);
+            this.levels = enabled.toArray(new Level[0]);
+            this.meters = meters;
+        }
+
+        private static void addIfEnabled(List<Level> levels, Level level) {
+            if (level != null) {
+                levels.add(level);
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.ai.qa.gateway.infrastructure.ratelimit;
+
+import java.time.Duration;
+
+/**
+ * 本节点从全局预算租借来的令牌余额。
+ * <p>
+ * 状态布局：高 40 位为租约到期时间 (毫秒)，低 24 位中最高位是"被拒绝"标记，其余为剩余令牌数。
+ * 租约过期后余额作废，避免某个节点长期囤积令牌而其它节点拿不到。
+ * <p>
+ * 协调者租不出令牌时记录一条被拒绝的租约，到期之前该 key 的请求直接拒绝，不再逐个访问协调者。
+ * <ul>
+ *     <li>a: 本次消耗的令牌数；记录拒绝时为拒绝持续的纳秒数</li>
+ *     <li>b: 新租到并存入的令牌数，0 表示只消耗不存入，{@link #DENY} 表示记录拒绝</li>
+ * </ul>
+ * a、b 都为 0 时只读取当前租约，没有未过期的租约时返回 {@link #REJECT}，不会新建空桶。
+ */
+public final class LeasePolicy implements BucketPolicy {
+
+    /**
+     * 作为 b 传入时表示记录一次被协调者拒绝
+     */
+    public static final long DENY = -1L;
+
+    private static final int TOKEN_BITS = 24;
+    private static final long DENIED = 1L << (TOKEN_BITS - 1);
+    private static final long TOKEN_MASK = DENIED - 1;
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    private final long leaseTtlNanos;
+
+    public LeasePolicy(Duration leaseTtl) {
+        this.leaseTtlNanos = leaseTtl.toNanos();
+    }
+
+    @Override
+    public long next(long state, long now, long cost, long deposit) {
+        long expiry = state >>> TOKEN_BITS;
+        boolean live = expiry * NANOS_PER_MILLI > now;
+        if (deposit == DENY) {
+            return ((now + cost) / NANOS_PER_MILLI << TOKEN_BITS) | DENIED;
+        }
+        if (cost == 0 && deposit == 0) {
+            return live ? state : REJECT;
+        }
+        long tokens = live ? state & TOKEN_MASK : 0L;
+        if (deposit > 0) {
+            tokens = Math.min(tokens + deposit - cost, TOKEN_MASK);
+            if (tokens < 0) {
+                return REJECT;
+            }
+            expiry = (now + leaseTtlNanos) / NANOS_PER_MILLI;
+            return (expiry << TOKEN_BITS) | tokens;
+        }
+        if (tokens < cost) {
+            return REJECT;
+        }
+        return (expiry << TOKEN_BITS) | (tokens - cost);
+    }
+
+    @Override
+    public long expiresAt(long state) {
+        return (state >>> TOKEN_BITS) * NANOS_PER_MILLI;
+    }
+
+    public static long tokens(long state) {
+        return state & TOKEN_MASK;
+    }
+
+    /**
+     * 状态是否为一条被拒绝的租约 (调用方需保证它尚未过期)
+     */
+    public static boolean denied(long state) {
+        return (state & DENIED) != 0;
+    }
+}
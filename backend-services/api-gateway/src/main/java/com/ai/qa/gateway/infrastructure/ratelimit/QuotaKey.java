@@ -0,0 +1,66 @@
+package com.ai.qa.gateway.infrastructure.ratelimit;
+
+/**
+ * 分层限流的客户端标识：已认证用户 (可能为空) + 客户端 IP。
+ * <p>
+ * KeyResolver 只能返回一个字符串，因此编码为 {@code userId@address}，匿名请求只有 address。
+ * IPv4/IPv6 地址中都不会出现 '@'，按最后一个 '@' 拆分即可。
+ */
+public final class QuotaKey {
+
+    private static final char SEPARATOR = '@';
+
+    private final ClientKey user;
+    private final ClientKey address;
+
+    private QuotaKey(ClientKey user, ClientKey address) {
+        this.user = user;
+        this.address = address;
+    }
+
+    public static String format(String userId, String address) {
+        return userId == null || userId.isEmpty() ? address : userId + SEPARATOR + address;
+    }
+
+    public static QuotaKey parse(String id) {
+        int at = id == null ? -1 : id.lastIndexOf(SEPARATOR);
+        if (at < 0) {
+            return new QuotaKey(null, ClientKey.of(id));
+        }
+        return new QuotaKey(ClientKey.ofUser(id.substring(0, at)), ClientKey.of(id.substring(at + 1)));
+    }
+
+    /**
+     * 最具体身份的字符串形式 (已认证时为 user:ID，否则为 IP)，用于集群模式的租约 key
+     */
+    public static String principalId(String id) {
+        int at = id == null ? -1 : id.lastIndexOf(SEPARATOR);
+        return at < 0 ? id : "user:" + id.substring(0, at);
+    }
+
+    /**
+     * IP 部分的字符串形式，用于集群模式按 IP 租借时的租约 key
+     */
+    public static String addressId(String id) {
+        int at = id == null ? -1 : id.lastIndexOf(SEPARATOR);
+        return at < 0 ? id : id.substring(at + 1);
+    }
+
+    /**
+     * 已认证用户的 key，匿名请求为 null
+     */
+    public ClientKey user() {
+        return user;
+    }
+
+    public ClientKey address() {
+        return address;
+    }
+
+    /**
+     * 最具体的身份：已认证时为用户，否则为 IP
+     */
+    public ClientKey principal() {
+        return user != null ? user : address;
+    }
+}
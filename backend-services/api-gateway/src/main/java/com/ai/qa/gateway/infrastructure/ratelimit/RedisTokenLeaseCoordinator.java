@@ -0,0 +1,38 @@
+package com.ai.qa.gateway.infrastructure.ratelimit;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 Redis 的协调者：每个 (routeId, key) 的全局 GCRA 状态保存在一个 Redis key 中，
+ * 由 lua 脚本原子地计算可租出的令牌数。一次往返换来一整批令牌，绝大多数请求不会访问 Redis。
+ */
+public class RedisTokenLeaseCoordinator implements TokenLeaseCoordinator {
+
+    private static final RedisScript<Long> LEASE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/lease_tokens.lua"), Long.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final String keyPrefix;
+
+    public RedisTokenLeaseCoordinator(ReactiveStringRedisTemplate redisTemplate, String keyPrefix) {
+        this.redisTemplate = redisTemplate;
+        this.keyPrefix = keyPrefix;
+    }
+
+    @Override
+    public Mono<Long> lease(String routeId, String id, long requested, long minimum, double replenishRate,
+                            int burstCapacity) {
+        long intervalMicros = Math.max(1L, (long) (TimeUnit.SECONDS.toMicros(1) / replenishRate));
+        long toleranceMicros = intervalMicros * burstCapacity;
+        List<String> keys = List.of(keyPrefix + "{" + routeId + "." + id + "}.tat");
+        List<String> args = List.of(String.valueOf(intervalMicros), String.valueOf(toleranceMicros),
+                String.valueOf(requested), String.valueOf(Math.max(1L, minimum)));
+        return redisTemplate.execute(LEASE_SCRIPT, keys, args).next().defaultIfEmpty(0L);
+    }
+}
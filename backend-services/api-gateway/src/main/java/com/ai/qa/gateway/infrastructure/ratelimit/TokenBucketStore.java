@@ -0,0 +1,297 @@
+package com.ai.qa.gateway.infrastructure.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 有界、可过期的限流桶存储。
+ * <p>
+ * 取代原来永不清理的 {@code ConcurrentHashMap<String, RateLimiter>}：
+ * <ul>
+ *     <li>key 为 (routeIndex, {@link ClientKey})，全部以基本类型存放在预分配的数组里，不产生 String/包装对象</li>
+ *     <li>按哈希分成若干 stripe，每个 stripe 是一张线性探测的开放寻址表，容量固定，内存占用在启动时就确定</li>
+ *     <li>查找和桶状态的 CAS 在 stripe 的读锁 ({@link StampedLock}，共享) 下进行，多个请求可以并发更新；
+ *     只有插入/淘汰这类结构变化才拿写锁</li>
+ *     <li>空闲到期的桶在插入时增量清理 (每次只扫描游标后的几个槽位)；stripe 满了之后淘汰最接近"满桶"的条目，信息损失最小</li>
+ * </ul>
+ * 淘汰使用 backward-shift 删除，会把后面的条目移进空出的槽位；持有读锁期间没有写者，
+ * 找到的槽位在 CAS 完成之前不会换成别的 key，不会扣到其他客户端的桶上。
+ */
+public final class TokenBucketStore {
+
+    private static final int SAMPLE_SIZE = 8;
+    /**
+     * 每次插入顺带检查的槽位数，清理的代价摊到每次插入上是常数
+     */
+    private static final int SWEEP_STEP = 16;
+    private static final int KIND_SHIFT = 24;
+    private static final int MAX_ROUTES = (1 << KIND_SHIFT) - 1;
+
+    private final BucketPolicy policy;
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final long idleTtlNanos;
+    private final long epoch = System.nanoTime();
+
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    public TokenBucketStore(BucketPolicy policy, int maxBuckets, Duration idleTtl) {
+        this(policy, maxBuckets, idleTtl, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    public TokenBucketStore(BucketPolicy policy, int maxBuckets, Duration idleTtl, int concurrency) {
+        if (maxBuckets <= 0) {
+            throw new IllegalArgumentException("maxBuckets must be positive: " + maxBuckets);
+        }
+        int stripeCount = Integer.highestOneBit(Math.max(1, Math.min(concurrency, maxBuckets / SAMPLE_SIZE)) * 2 - 1);
+        int perStripe = Math.max(SAMPLE_SIZE, (maxBuckets + stripeCount - 1) / stripeCount);
+        this.policy = policy;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+        this.stripeMask = stripeCount - 1;
+        this.idleTtlNanos = idleTtl.toNanos();
+    }
+
+    /**
+     * store 内部时钟 (纳秒)，从 0 开始单调递增，所有状态都以它为基准
+     */
+    public long now() {
+        return System.nanoTime() - epoch;
+    }
+
+    /**
+     * 按 {@link BucketPolicy#next} 更新 (routeIndex, key) 对应的桶，桶不存在时以状态 0 新建
+     *
+     * @return 更新前的状态；被策略拒绝时返回 {@link BucketPolicy#REJECT}
+     */
+    public long update(int routeIndex, ClientKey key, long now, long a, long b) {
+        if (routeIndex < 0 || routeIndex >= MAX_ROUTES) {
+            throw new IllegalArgumentException("routeIndex out of range: " + routeIndex);
+        }
+        int meta = (key.kind() << KIND_SHIFT) | (routeIndex + 1);
+        long hash = hash(meta, key.hi(), key.lo());
+        Stripe stripe = stripes[(int) (hash >>> 40) & stripeMask];
+        long stamp = stripe.lock.readLock();
+        try {
+            int slot = stripe.probe(meta, key.hi(), key.lo(), hash);
+            if (slot >= 0) {
+                return apply(stripe.states, slot, now, a, b);
+            }
+        } finally {
+            stripe.lock.unlockRead(stamp);
+        }
+        return stripe.insert(meta, key.hi(), key.lo(), hash, now, a, b);
+    }
+
+    private long apply(AtomicLongArray states, int slot, long now, long a, long b) {
+        for (;;) {
+            long prev = states.get(slot);
+            long next = policy.next(prev, now, a, b);
+            if (next == BucketPolicy.REJECT) {
+                return BucketPolicy.REJECT;
+            }
+            if (prev == next || states.compareAndSet(slot, prev, next)) {
+                return prev;
+            }
+        }
+    }
+
+    /**
+     * 清理所有 stripe 中已经空闲到期的桶
+     */
+    public void expireIdle() {
+        long now = now();
+        for (Stripe stripe : stripes) {
+            long stamp = stripe.lock.writeLock();
+            try {
+                stripe.sweep(now);
+            } finally {
+                stripe.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size;
+        }
+        return size;
+    }
+
+    public int capacity() {
+        return stripes.length * stripes[0].capacity;
+    }
+
+    /**
+     * 因空闲过期而回收的桶数量
+     */
+    public long expiredCount() {
+        return expired.sum();
+    }
+
+    /**
+     * 因容量不足而被强制淘汰的桶数量
+     */
+    public long evictedCount() {
+        return evicted.sum();
+    }
+
+    static long hash(int meta, long hi, long lo) {
+        return ClientKey.mix(hi * 0x9E37_79B9_7F4A_7C15L ^ lo ^ ((long) meta << 32 | meta));
+    }
+
+    private final class Stripe {
+
+        final StampedLock lock = new StampedLock();
+        final int capacity;
+        final int mask;
+        final int[] metas;
+        final long[] his;
+        final long[] los;
+        final AtomicLongArray states;
+        volatile int size;
+        int cursor;
+        int sweepCursor;
+
+        Stripe(int capacity) {
+            // 负载因子不超过 0.5，保证探测链足够短
+            int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+            this.capacity = capacity;
+            this.mask = tableSize - 1;
+            this.metas = new int[tableSize];
+            this.his = new long[tableSize];
+            this.los = new long[tableSize];
+            this.states = new AtomicLongArray(tableSize);
+        }
+
+        int probe(int meta, long hi, long lo, long hash) {
+            int i = (int) hash & mask;
+            for (int n = 0; n <= mask; n++) {
+                int m = metas[i];
+                if (m == 0) {
+                    return -1;
+                }
+                if (m == meta && his[i] == hi && los[i] == lo) {
+                    return i;
+                }
+                i = (i + 1) & mask;
+            }
+            return -1;
+        }
+
+        /**
+         * 在写锁下新建桶并立即按策略更新，返回值同 {@link #update}
+         */
+        long insert(int meta, long hi, long lo, long hash, long now, long a, long b) {
+            long stamp = lock.writeLock();
+            try {
+                int slot = probe(meta, hi, lo, hash);
+                if (slot >= 0) {
+                    return apply(states, slot, now, a, b);
+                }
+                // 新桶的状态是 0，策略拒绝时不需要占用槽位
+                long next = policy.next(0L, now, a, b);
+                if (next == BucketPolicy.REJECT) {
+                    return BucketPolicy.REJECT;
+                }
+                sweepSome(now, SWEEP_STEP);
+                if (size >= capacity) {
+                    evictOne();
+                }
+                int i = (int) hash & mask;
+                while (metas[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                his[i] = hi;
+                los[i] = lo;
+                states.set(i, next);
+                metas[i] = meta;
+                size++;
+                return 0L;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void sweep(long now) {
+            sweepSome(now, mask + 1);
+        }
+
+        /**
+         * 从清理游标开始检查 slots 个槽位，删除空闲到期的桶
+         */
+        private void sweepSome(long now, int slots) {
+            int i = sweepCursor;
+            for (int n = 0; n < slots; n++) {
+                // 删除后当前位置可能被后面的条目移入，重新检查同一位置；每个槽位最多删除 size 次
+                while (metas[i] != 0 && policy.expiresAt(states.get(i)) + idleTtlNanos <= now) {
+                    delete(i);
+                    expired.increment();
+                }
+                i = (i + 1) & mask;
+            }
+            sweepCursor = i;
+        }
+
+        /**
+         * 近似 LRU：从游标开始抽样若干条目，淘汰最早"回满"的那个
+         */
+        void evictOne() {
+            int victim = -1;
+            long oldest = Long.MAX_VALUE;
+            int seen = 0;
+            int i = cursor;
+            for (int n = 0; n <= mask && seen < SAMPLE_SIZE; n++) {
+                if (metas[i] != 0) {
+                    seen++;
+                    long expiresAt = policy.expiresAt(states.get(i));
+                    if (expiresAt < oldest) {
+                        oldest = expiresAt;
+                        victim = i;
+                    }
+                }
+                i = (i + 1) & mask;
+            }
+            cursor = i;
+            if (victim >= 0) {
+                delete(victim);
+                evicted.increment();
+            }
+        }
+
+        /**
+         * 线性探测表的 backward-shift 删除，不留墓碑
+         */
+        private void delete(int hole) {
+            int j = hole;
+            for (;;) {
+                j = (j + 1) & mask;
+                int m = metas[j];
+                if (m == 0) {
+                    break;
+                }
+                int home = (int) hash(m, his[j], los[j]) & mask;
+                boolean stays = hole <= j ? (hole < home && home <= j) : (hole < home || home <= j);
+                if (stays) {
+                    continue;
+                }
+                his[hole] = his[j];
+                los[hole] = los[j];
+                states.set(hole, states.get(j));
+                metas[hole] = m;
+                hole = j;
+            }
+            metas[hole] = 0;
+            his[hole] = 0L;
+            los[hole] = 0L;
+            states.set(hole, 0L);
+            size--;
+        }
+    }
+}
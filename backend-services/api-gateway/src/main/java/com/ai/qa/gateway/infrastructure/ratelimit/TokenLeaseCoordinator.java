@@ -0,0 +1,27 @@
+package com.ai.qa.gateway.infrastructure.ratelimit;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * 集群限流的全局预算协调者。
+ * <p>
+ * 各网关节点不再逐个请求去问协调者，而是一次租借一批令牌，在本地消耗完之后再来续租；
+ * 协调者只需要保证所有节点租出去的令牌总和不超过全局的速率和容量。
+ */
+public interface TokenLeaseCoordinator {
+
+    /**
+     * 为 (routeId, id) 租借令牌：全局预算够时租出 requested 个，不够时租出剩余的全部，
+     * 剩余不足 minimum 个 (一个请求的消耗) 时不租，两种协调者的结果相同
+     *
+     * @param routeId       路由ID
+     * @param id            租借的那一层的身份 (user:ID 或 IP)
+     * @param requested     希望租借的令牌数
+     * @param minimum       单个请求消耗的令牌数
+     * @param replenishRate 该层的全局速率
+     * @param burstCapacity 该层的全局容量
+     * @return 实际租到的令牌数，0 表示全局预算已耗尽
+     */
+    Mono<Long> lease(String routeId, String id, long requested, long minimum, double replenishRate,
+                     int burstCapacity);
+}
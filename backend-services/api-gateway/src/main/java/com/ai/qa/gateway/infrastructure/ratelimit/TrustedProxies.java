@@ -0,0 +1,106 @@
+package com.ai.qa.gateway.infrastructure.ratelimit;
+
+import com.google.common.net.InetAddresses;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 受信任的反向代理/负载均衡网段 (CIDR)。
+ * 只有直连地址属于这些网段时，才采信 X-Forwarded-For 中由它们追加的客户端地址。
+ */
+public final class TrustedProxies {
+
+    private final List<Subnet> subnets;
+
+    public TrustedProxies(List<String> cidrs) {
+        List<Subnet> parsed = new ArrayList<>(cidrs.size());
+        for (String cidr : cidrs) {
+            String value = cidr.trim();
+            if (!value.isEmpty()) {
+                parsed.add(Subnet.parse(value));
+            }
+        }
+        this.subnets = List.copyOf(parsed);
+    }
+
+    public boolean isEmpty() {
+        return subnets.isEmpty();
+    }
+
+    public boolean contains(InetAddress address) {
+        byte[] bytes = address.getAddress();
+        for (Subnet subnet : subnets) {
+            if (subnet.matches(bytes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 从右向左解析 X-Forwarded-For，跳过受信任代理自己追加的地址，返回第一个不受信任的地址。
+     * 链路中出现无法解析的值时停止，返回最后一个可信的结果
+     *
+     * @param forwardedFor 所有 X-Forwarded-For 头的值，按出现顺序
+     * @param remote       直连地址 (已确认属于受信任代理)
+     */
+    public String resolveClient(List<String> forwardedFor, InetAddress remote) {
+        String client = remote.getHostAddress();
+        for (int i = forwardedFor.size() - 1; i >= 0; i--) {
+            String[] hops = forwardedFor.get(i).split(",");
+            for (int j = hops.length - 1; j >= 0; j--) {
+                String hop = hops[j].trim();
+                if (!InetAddresses.isInetAddress(hop)) {
+                    return client;
+                }
+                client = hop;
+                if (!contains(InetAddresses.forString(hop))) {
+                    return client;
+                }
+            }
+        }
+        return client;
+    }
+
+    private static final class Subnet {
+
+        final byte[] network;
+        final int prefixLength;
+
+        Subnet(byte[] network, int prefixLength) {
+            this.network = network;
+            this.prefixLength = prefixLength;
+        }
+
+        static Subnet parse(String cidr) {
+            int slash = cidr.indexOf('/');
+            InetAddress address = InetAddresses.forString(slash < 0 ? cidr : cidr.substring(0, slash));
+            byte[] bytes = address.getAddress();
+            int prefixLength = slash < 0 ? bytes.length * 8 : Integer.parseInt(cidr.substring(slash + 1));
+            if (prefixLength < 0 || prefixLength > bytes.length * 8) {
+                throw new IllegalArgumentException("Invalid CIDR: " + cidr);
+            }
+            return new Subnet(bytes, prefixLength);
+        }
+
+        boolean matches(byte[] address) {
+            if (address.length != network.length) {
+                return false;
+            }
+            int fullBytes = prefixLength / 8;
+            for (int i = 0; i < fullBytes; i++) {
+                if (address[i] != network[i]) {
+                    return false;
+                }
+            }
+            int remainingBits = prefixLength % 8;
+            if (remainingBits == 0) {
+                return true;
+            }
+            int mask = 0xFF << (8 - remainingBits);
+            return (address[fullBytes] & mask) == (network[fullBytes] & mask);
+        }
+    }
+}
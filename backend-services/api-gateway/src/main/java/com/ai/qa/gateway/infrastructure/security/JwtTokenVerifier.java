@@ -0,0 +1,105 @@
+package com.ai.qa.gateway.infrastructure.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 预编译的 JWT 校验器。
+ * <p>
+ * 签名密钥和 {@link JwtParser} 只在启动时构建一次；Nacos 推送配置刷新时，
+ * 只有 jwt.secret 真正发生变化才重新构建，并清空已校验 token 缓存。
+ * 与密钥切换并发、仍在用旧密钥校验的请求不会把结果写回缓存 (见 {@link VerifiedTokenCache} 的代)。
+ * 这样既保留了原来 @RefreshScope 动态刷新密钥的能力，又不用每个请求都重建 parser。
+ */
+@Component
+public class JwtTokenVerifier implements ApplicationListener<EnvironmentChangeEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(JwtTokenVerifier.class);
+    private static final String SECRET_PROPERTY = "jwt.secret";
+
+    private final Environment environment;
+    private final VerifiedTokenCache cache;
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    private volatile CompiledParser compiled;
+
+    public JwtTokenVerifier(Environment environment,
+                            @Value("${gateway.auth.token-cache-size:16384}") int cacheSize,
+                            @Value("${gateway.auth.token-cache-max-ttl-ms:300000}") long cacheMaxTtlMillis) {
+        this.environment = environment;
+        this.cache = new VerifiedTokenCache(cacheSize, cacheMaxTtlMillis);
+        this.compiled = new CompiledParser(environment.getRequiredProperty(SECRET_PROPERTY));
+    }
+
+    /**
+     * 校验 token，缓存命中时直接返回
+     *
+     * @throws io.jsonwebtoken.JwtException 签名错误、过期等
+     * @throws IllegalArgumentException     token 为空
+     */
+    public VerifiedToken verify(String token) {
+        long now = System.currentTimeMillis();
+        VerifiedTokenCache.Digester digest = cache.digest(token);
+        VerifiedToken cached = cache.get(digest, now);
+        if (cached != null) {
+            cacheHits.increment();
+            return cached;
+        }
+        cacheMisses.increment();
+        // 先读代再读 parser：切换时先替换 parser 再清空缓存，读到新代就一定读到新 parser
+        long generation = cache.generation();
+        Claims claims = compiled.parser.parseClaimsJws(token).getBody();
+        Date expiration = claims.getExpiration();
+        VerifiedToken verified = new VerifiedToken(claims.getSubject(), claims.get("username", String.class),
+                expiration != null ? expiration.getTime() : Long.MAX_VALUE);
+        cache.put(digest, verified, now, generation);
+        return verified;
+    }
+
+    public long cacheHits() {
+        return cacheHits.sum();
+    }
+
+    public long cacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    @Override
+    public void onApplicationEvent(EnvironmentChangeEvent event) {
+        if (!event.getKeys().contains(SECRET_PROPERTY)) {
+            return;
+        }
+        String secret = environment.getRequiredProperty(SECRET_PROPERTY);
+        if (secret.equals(compiled.secret)) {
+            return;
+        }
+        compiled = new CompiledParser(secret);
+        cache.clear();
+        log.info("JWT secret changed, verifier rebuilt and verified-token cache cleared");
+    }
+
+    private static final class CompiledParser {
+        final String secret;
+        final JwtParser parser;
+
+        CompiledParser(String secret) {
+            this.secret = secret;
+            this.parser = Jwts.parserBuilder()
+                    .setSigningKey(secret.getBytes(StandardCharsets.UTF_8))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.ai.qa.gateway.infrastructure.security;
+
+/**
+ * 已通过签名校验的 JWT 中网关关心的部分
+ */
+public final class VerifiedToken {
+
+    private final String subject;
+    private final String username;
+    private final long expiresAtMillis;
+
+    public VerifiedToken(String subject, String username, long expiresAtMillis) {
+        this.subject = subject;
+        this.username = username;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * token 的 exp，没有 exp 时为 Long.MAX_VALUE
+     */
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+}
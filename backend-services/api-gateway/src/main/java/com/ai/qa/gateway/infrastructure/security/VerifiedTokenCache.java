@@ -0,0 +1,150 @@
+package com.ai.qa.gateway.infrastructure.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 已校验 token 的缓存，同一个 bearer token 在有效期内只做一次 HMAC 校验和 JSON 解析。
+ * <p>
+ * key 是 token 的 SHA-256 摘要 (取前 128 位)，缓存里不保存 token 原文；伪造的 token 无法构造出相同摘要。
+ * 存储是定长的直接映射数组：命中路径只有一次摘要计算和一次数组读取，不加锁、不分配对象；
+ * 冲突时后写入的覆盖先写入的，容量天然有界。
+ * <p>
+ * 每个条目带有写入时的代 (generation)，{@link #clear()} 使代加一：换密钥之前开始的校验即使在清空之后才写入，
+ * 也会因为代不一致被丢弃，不会让旧密钥签发的 token 重新进入缓存。
+ */
+public class VerifiedTokenCache {
+
+    private static final ThreadLocal<Digester> DIGESTER = ThreadLocal.withInitial(Digester::new);
+
+    private final AtomicReferenceArray<Entry> entries;
+    private final int mask;
+    private final long maxTtlMillis;
+    private final AtomicLong generation = new AtomicLong();
+
+    public VerifiedTokenCache(int capacity, long maxTtlMillis) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        this.entries = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.maxTtlMillis = maxTtlMillis;
+    }
+
+    /**
+     * 计算 token 摘要，结果保存在当前线程的 {@link Digester} 中，随后的 get/put 直接使用
+     */
+    public Digester digest(String token) {
+        Digester digester = DIGESTER.get();
+        digester.compute(token);
+        return digester;
+    }
+
+    public VerifiedToken get(Digester digest, long nowMillis) {
+        Entry entry = entries.get((int) digest.lo & mask);
+        if (entry == null || entry.hi != digest.hi || entry.lo != digest.lo || entry.validUntil <= nowMillis
+                || entry.generation != generation.get()) {
+            return null;
+        }
+        return entry.token;
+    }
+
+    /**
+     * 当前的代，校验开始之前读取，写入时传给 {@link #put}
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * @param generation 开始校验时的 {@link #generation()}；之后缓存被清空过则不写入
+     */
+    public void put(Digester digest, VerifiedToken token, long nowMillis, long generation) {
+        long validUntil = Math.min(token.getExpiresAtMillis(), nowMillis + maxTtlMillis);
+        if (validUntil > nowMillis && generation == this.generation.get()) {
+            entries.set((int) digest.lo & mask, new Entry(digest.hi, digest.lo, validUntil, generation, token));
+        }
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        for (int i = 0; i < entries.length(); i++) {
+            entries.set(i, null);
+        }
+    }
+
+    private static final class Entry {
+        final long hi;
+        final long lo;
+        final long validUntil;
+        final long generation;
+        final VerifiedToken token;
+
+        Entry(long hi, long lo, long validUntil, long generation, VerifiedToken token) {
+            this.hi = hi;
+            this.lo = lo;
+            this.validUntil = validUntil;
+            this.generation = generation;
+            this.token = token;
+        }
+    }
+
+    /**
+     * 每个线程复用的摘要计算器，避免每次请求新建 MessageDigest 和缓冲区
+     */
+    public static final class Digester {
+
+        private final MessageDigest sha256;
+        private final byte[] out = new byte[32];
+        private byte[] buf = new byte[512];
+        long hi;
+        long lo;
+
+        private Digester() {
+            try {
+                this.sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void compute(String token) {
+            int len = token.length();
+            if (buf.length < len) {
+                buf = new byte[Integer.highestOneBit(len) << 1];
+            }
+            boolean ascii = true;
+            for (int i = 0; i < len; i++) {
+                char c = token.charAt(i);
+                if (c > 0x7F) {
+                    ascii = false;
+                    break;
+                }
+                buf[i] = (byte) c;
+            }
+            if (ascii) {
+                sha256.update(buf, 0, len);
+            } else {
+                // 合法的 JWT 只包含 base64url 字符，这里只是兜底
+                sha256.update(token.getBytes(StandardCharsets.UTF_8));
+            }
+            try {
+                sha256.digest(out, 0, out.length);
+            } catch (DigestException e) {
+                throw new IllegalStateException(e);
+            }
+            hi = readLong(0);
+            lo = readLong(8);
+        }
+
+        private long readLong(int off) {
+            long v = 0;
+            for (int i = off; i < off + 8; i++) {
+                v = (v << 8) | (out[i] & 0xFF);
+            }
+            return v;
+        }
+    }
+}
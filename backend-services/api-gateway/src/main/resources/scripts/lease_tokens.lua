@@ -0,0 +1,28 @@
+-- 集群限流：按 GCRA 从全局预算中租出一批令牌
+-- KEYS[1]: 该 (routeId, key) 的理论到达时间 (TAT)，单位微秒
+-- ARGV[1]: 发放间隔 (微秒)  ARGV[2]: 容忍度 = burstCapacity * 间隔  ARGV[3]: 希望租借的令牌数
+-- ARGV[4]: 最少租出的令牌数 (一个请求的消耗)，剩余不足时不租
+-- 返回实际租出的令牌数，与 EmbeddedTokenLeaseCoordinator 相同
+local interval = tonumber(ARGV[1])
+local tolerance = tonumber(ARGV[2])
+local requested = tonumber(ARGV[3])
+local minimum = tonumber(ARGV[4])
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000000 + tonumber(time[2])
+
+local tat = tonumber(redis.call('GET', KEYS[1]) or '0')
+if tat < now then
+  tat = now
+end
+
+local available = math.floor((now + tolerance - tat) / interval)
+local granted = math.min(requested, available)
+if granted < minimum then
+  return 0
+end
+
+tat = tat + granted * interval
+-- 桶回满之后 key 自然过期
+redis.call('SET', KEYS[1], string.format('%d', tat), 'PX', math.ceil((tat - now) / 1000) + 1000)
+return granted
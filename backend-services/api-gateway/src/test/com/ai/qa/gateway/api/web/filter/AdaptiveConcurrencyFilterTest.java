@@ -0,0 +1,121 @@
+package com.ai.qa.gateway.api.web.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.StripPrefixGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class AdaptiveConcurrencyFilterTest {
+
+    /**
+     * 与 application.yml 一样带 StripPrefix=2，下游看到的是 /login 这样的路径
+     */
+    private static final Route USER = Route.async().id("user_service_route").uri("lb://user-service")
+            .predicate(exchange -> true)
+            .filter(new OrderedGatewayFilter(new StripPrefixGatewayFilterFactory().apply(config -> config.setParts(2)), 1))
+            .build();
+    private static final Route QA = route("qa_service_route", "lb://qa-service");
+    private static final Route HISTORY = route("qa_history_route", "lb://qa-service");
+
+    /**
+     * 下游一直不返回，请求保持在途；记录下游看到的路径
+     */
+    private final GatewayFilterChain hanging = exchange -> {
+        downstreamPath = exchange.getRequest().getPath().value();
+        return Mono.never();
+    };
+    private String downstreamPath;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AdaptiveConcurrencyFilter filter = new AdaptiveConcurrencyFilter(meterRegistry,
+            List.of("/api/user/login", "/api/user/register"), List.of("/api/qa/**"), 20, 10, 100, 1);
+    private final List<Disposable> inflight = new ArrayList<>();
+
+    @AfterEach
+    public void release() {
+        inflight.forEach(Disposable::dispose);
+    }
+
+    @Test
+    public void routesToTheSameServiceShareOneLimit() {
+        // qa-service 上限 20：生成请求最多占 15 个
+        for (int i = 0; i < 15; i++) {
+            assertNull(send(QA, HttpMethod.POST, "/api/qa/ask"));
+        }
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, send(QA, HttpMethod.POST, "/api/qa/ask"));
+        // 历史读取走另一个路由，但与生成请求共享 qa-service 的上限 (NORMAL 最多 18 个)
+        for (int i = 0; i < 3; i++) {
+            assertNull(send(HISTORY, HttpMethod.GET, "/api/qa/history/1"));
+        }
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, send(HISTORY, HttpMethod.GET, "/api/qa/history/1"));
+        // user-service 是另一组实例，不受影响
+        assertNull(send(USER, HttpMethod.GET, "/api/user/42"));
+
+        assertEquals(1.0, meterRegistry.get("gateway.concurrency.rejected")
+                .tag("service", "qa-service").tag("priority", "sheddable").counter().count());
+        assertEquals(18.0, meterRegistry.get("gateway.concurrency.inflight").tag("service", "qa-service").gauge().value());
+    }
+
+    @Test
+    public void bestEffortIsShedBeforeCritical() {
+        for (int i = 0; i < 18; i++) {
+            assertNull(send(USER, HttpMethod.GET, "/api/user/" + i));
+        }
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, send(USER, HttpMethod.GET, "/api/user/99"));
+        // 登录/注册在同一个上限下仍有余量：按 StripPrefix 之前的路径识别
+        assertNull(send(USER, HttpMethod.POST, "/api/user/login"));
+        assertEquals("/login", downstreamPath);
+        assertNull(send(USER, HttpMethod.POST, "/api/user/register"));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, send(USER, HttpMethod.POST, "/api/user/login"));
+
+        // 在途请求结束后名额归还
+        inflight.remove(0).dispose();
+        assertNull(send(USER, HttpMethod.POST, "/api/user/login"));
+    }
+
+    @Test
+    public void poolIsTheTargetAuthority() {
+        assertEquals("qa-service", AdaptiveConcurrencyFilter.poolOf(QA));
+        assertEquals("qa-service", AdaptiveConcurrencyFilter.poolOf(HISTORY));
+        assertEquals("10.0.0.5:8081", AdaptiveConcurrencyFilter.poolOf(route("direct", "http://10.0.0.5:8081")));
+    }
+
+    /**
+     * @return 被拒绝时的状态码，放行 (请求仍在途) 时为 null
+     */
+    private HttpStatus send(Route route, HttpMethod method, String path) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.method(method, path));
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+        // 路由上的过滤器 (order 1, 2, ...) 先执行，再到本过滤器
+        GatewayFilterChain chain = forwarded -> filter.filter(forwarded, hanging);
+        List<GatewayFilter> routeFilters = route.getFilters();
+        for (int i = routeFilters.size() - 1; i >= 0; i--) {
+            GatewayFilter routeFilter = routeFilters.get(i);
+            GatewayFilterChain next = chain;
+            chain = forwarded -> routeFilter.filter(forwarded, next);
+        }
+        inflight.add(chain.filter(exchange).subscribe());
+        return (HttpStatus) exchange.getResponse().getStatusCode();
+    }
+
+    private static Route route(String id, String uri) {
+        return Route.async().id(id).uri(uri).predicate(exchange -> true).build();
+    }
+}
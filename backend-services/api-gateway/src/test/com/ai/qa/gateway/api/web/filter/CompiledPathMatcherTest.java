@@ -0,0 +1,38 @@
+package com.ai.qa.gateway.api.web.filter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.server.PathContainer;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompiledPathMatcherTest {
+
+    private final CompiledPathMatcher matcher = new CompiledPathMatcher(List.of(
+            " /api/user/login ", "/api/user/register", "", "/actuator/**", "/api/qa/{id}/public"));
+
+    @Test
+    public void matchesExactPathsAndPatterns() {
+        assertTrue(matches("/api/user/login"));
+        assertTrue(matches("/api/user/register"));
+        assertTrue(matches("/actuator"));
+        assertTrue(matches("/actuator/health/liveness"));
+        assertTrue(matches("/api/qa/17/public"));
+    }
+
+    @Test
+    public void rejectsEverythingElse() {
+        assertFalse(matches("/api/user/login/extra"));
+        assertFalse(matches("/api/user/loginx"));
+        assertFalse(matches("/api/user/42"));
+        assertFalse(matches("/api/qa/17/private"));
+        assertFalse(matches("/"));
+        assertFalse(new CompiledPathMatcher(List.of()).matches(PathContainer.parsePath("/api/user/login")));
+    }
+
+    private boolean matches(String path) {
+        return matcher.matches(PathContainer.parsePath(path));
+    }
+}
@@ -0,0 +1,203 @@
+package com.ai.qa.gateway.api.web.filter;
+
+import com.ai.qa.gateway.infrastructure.cache.ResponseCacheStore;
+import com.ai.qa.gateway.infrastructure.metrics.GatewayMetrics;
+import com.ai.qa.gateway.infrastructure.ratelimit.ClientKeyResolver;
+import com.ai.qa.gateway.infrastructure.ratelimit.TrustedProxies;
+import com.ai.qa.gateway.infrastructure.security.JwtTokenVerifier;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ResponseCacheGatewayFilterFactoryTest {
+
+    private static final String ROUTE = "user_service_route";
+    private static final String ETAG = "\"v1\"";
+
+    private final ResponseCacheStore store = new ResponseCacheStore(1 << 20, 4096, Duration.ofMinutes(10));
+    private final ResponseCacheGatewayFilterFactory factory = new ResponseCacheGatewayFilterFactory(store,
+            new GatewayMetrics(new SimpleMeterRegistry(), new JwtTokenVerifier(new MockEnvironment()
+                    .withProperty("jwt.secret", "test-only-secret-test-only-secret-test-only"), 64, 0)),
+            new ClientKeyResolver(new TrustedProxies(List.of()), AuthenticationFilter.USER_ID_ATTR));
+    private final ResponseCacheLookupFilter lookup = new ResponseCacheLookupFilter(factory);
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private final List<String> conditionalRequests = new ArrayList<>();
+    private Mono<Void> upstreamGate = Mono.empty();
+
+    @Test
+    public void secondRequestIsServedFromCache() {
+        GatewayFilter filter = filter(Duration.ofSeconds(30));
+        MockServerWebExchange first = get("/api/user/42", "10.0.0.1");
+        run(filter, first);
+        assertEquals("MISS", first.getResponse().getHeaders().getFirst("X-Cache"));
+
+        MockServerWebExchange second = get("/api/user/42", "10.0.0.1");
+        run(filter, second);
+        assertEquals(HttpStatus.OK, second.getResponse().getStatusCode());
+        assertEquals("HIT", second.getResponse().getHeaders().getFirst("X-Cache"));
+        assertEquals("user /api/user/42", second.getResponse().getBodyAsString().block());
+        assertEquals(1, upstreamCalls.get());
+
+        // 客户端的 If-None-Match 与缓存一致时直接 304
+        MockServerWebExchange conditional = MockServerWebExchange.from(MockServerHttpRequest.get("/api/user/42")
+                .remoteAddress(new InetSocketAddress("10.0.0.1", 5000)).ifNoneMatch(ETAG));
+        run(filter, conditional);
+        assertEquals(HttpStatus.NOT_MODIFIED, conditional.getResponse().getStatusCode());
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    public void keyIsTheResolvedCallerNotAClientHeader() {
+        GatewayFilter filter = filter(Duration.ofSeconds(30));
+        run(filter, get("/api/user/42", "10.0.0.1"));
+        run(filter, get("/api/user/42", "10.0.0.2"));
+        assertEquals(2, upstreamCalls.get());
+
+        // 鉴权后的用户跨 IP 共享同一个条目
+        run(filter, authenticated(get("/api/user/42", "10.0.0.3"), "42"));
+        run(filter, authenticated(get("/api/user/42", "10.0.0.4"), "42"));
+        assertEquals(3, upstreamCalls.get());
+
+        // 未经鉴权的 X-User-Id 不参与 key，也不能借用别人的条目
+        for (int i = 0; i < 2; i++) {
+            MockServerWebExchange spoofed = MockServerWebExchange.from(MockServerHttpRequest.get("/api/user/42")
+                    .remoteAddress(new InetSocketAddress("10.0.0.1", 5000)).header("X-User-Id", "42"));
+            run(filter, spoofed);
+            assertNull(spoofed.getResponse().getHeaders().getFirst("X-Cache"));
+        }
+        assertEquals(5, upstreamCalls.get());
+    }
+
+    @Test
+    public void concurrentMissesShareOneUpstreamCall() {
+        GatewayFilter filter = filter(Duration.ofSeconds(30));
+        Sinks.Empty<Void> gate = Sinks.empty();
+        upstreamGate = gate.asMono();
+        List<MockServerWebExchange> exchanges = new ArrayList<>();
+        List<Mono<Void>> requests = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            MockServerWebExchange exchange = get("/api/user/42", "10.0.0.1");
+            exchanges.add(exchange);
+            requests.add(filter.filter(exchange, ex -> lookup.filter(ex, this::upstream)).cache());
+            requests.get(i).subscribe();
+        }
+        gate.tryEmitEmpty();
+        Flux.merge(requests).blockLast(Duration.ofSeconds(5));
+
+        assertEquals(1, upstreamCalls.get());
+        assertEquals("MISS", exchanges.get(0).getResponse().getHeaders().getFirst("X-Cache"));
+        for (MockServerWebExchange follower : exchanges.subList(1, 4)) {
+            assertEquals("COALESCED", follower.getResponse().getHeaders().getFirst("X-Cache"));
+            assertEquals("user /api/user/42", follower.getResponse().getBodyAsString().block());
+        }
+    }
+
+    @Test
+    public void staleEntryIsRevalidatedWithItsETag() throws InterruptedException {
+        GatewayFilter filter = filter(Duration.ofMillis(1));
+        run(filter, get("/api/user/42", "10.0.0.1"));
+        Thread.sleep(5);
+
+        MockServerWebExchange revalidated = get("/api/user/42", "10.0.0.1");
+        run(filter, revalidated);
+        assertEquals(List.of(ETAG), conditionalRequests);
+        assertEquals(HttpStatus.OK, revalidated.getResponse().getStatusCode());
+        assertEquals("REVALIDATED", revalidated.getResponse().getHeaders().getFirst("X-Cache"));
+        assertEquals("user /api/user/42", revalidated.getResponse().getBodyAsString().block());
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    public void mutationInvalidatesTheResourceForEveryCaller() {
+        GatewayFilter filter = filter(Duration.ofSeconds(30));
+        run(filter, get("/api/user/42", "10.0.0.1"));
+        run(filter, get("/api/user/42?fields=nickname", "10.0.0.2"));
+        run(filter, get("/api/user/7", "10.0.0.1"));
+        assertEquals(3, upstreamCalls.get());
+
+        MockServerWebExchange update = MockServerWebExchange.from(MockServerHttpRequest.post("/api/user/42/nickname")
+                .remoteAddress(new InetSocketAddress("10.0.0.9", 5000)));
+        run(filter, update);
+        assertEquals(4, upstreamCalls.get());
+
+        run(filter, get("/api/user/42", "10.0.0.1"));
+        run(filter, get("/api/user/42?fields=nickname", "10.0.0.2"));
+        assertEquals(6, upstreamCalls.get());
+        // 其他资源不受影响
+        MockServerWebExchange other = get("/api/user/7", "10.0.0.1");
+        run(filter, other);
+        assertEquals("HIT", other.getResponse().getHeaders().getFirst("X-Cache"));
+        assertEquals(6, upstreamCalls.get());
+    }
+
+    @Test
+    public void lookupRunsAfterRateLimiterAndBeforeConcurrencyLimit() {
+        GatewayFilter filter = filter(Duration.ofSeconds(30));
+        assertTrue(((Ordered) filter).getOrder() < NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER);
+        // 路由过滤器按声明顺序排在 1,2,3...
+        assertTrue(lookup.getOrder() > 10);
+        assertTrue(lookup.getOrder() < AdaptiveConcurrencyFilter.ORDER);
+    }
+
+    private GatewayFilter filter(Duration ttl) {
+        ResponseCacheGatewayFilterFactory.Config config = new ResponseCacheGatewayFilterFactory.Config();
+        config.setRouteId(ROUTE);
+        config.setTtl(ttl);
+        return factory.apply(config);
+    }
+
+    private void run(GatewayFilter filter, ServerWebExchange exchange) {
+        filter.filter(exchange, ex -> lookup.filter(ex, this::upstream)).block(Duration.ofSeconds(5));
+    }
+
+    /**
+     * 模拟下游：GET 返回带 ETag 的用户信息，条件请求的 ETag 一致时返回 304
+     */
+    private Mono<Void> upstream(ServerWebExchange exchange) {
+        upstreamCalls.incrementAndGet();
+        return upstreamGate.then(Mono.defer(() -> {
+            List<String> ifNoneMatch = exchange.getRequest().getHeaders().getIfNoneMatch();
+            conditionalRequests.addAll(ifNoneMatch);
+            HttpHeaders headers = exchange.getResponse().getHeaders();
+            if (ifNoneMatch.contains(ETAG)) {
+                exchange.getResponse().setStatusCode(HttpStatus.NOT_MODIFIED);
+                return exchange.getResponse().writeWith(Flux.empty());
+            }
+            exchange.getResponse().setStatusCode(HttpStatus.OK);
+            headers.setETag(ETAG);
+            byte[] body = ("user " + exchange.getRequest().getURI().getPath()).getBytes(StandardCharsets.UTF_8);
+            return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap(body)));
+        }));
+    }
+
+    private static MockServerWebExchange get(String uri, String address) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(uri).remoteAddress(new InetSocketAddress(address, 5000)));
+    }
+
+    private static MockServerWebExchange authenticated(MockServerWebExchange exchange, String userId) {
+        exchange.getAttributes().put(AuthenticationFilter.USER_ID_ATTR, userId);
+        return exchange;
+    }
+}
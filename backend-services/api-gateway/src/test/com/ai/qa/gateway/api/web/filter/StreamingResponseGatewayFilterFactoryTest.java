@@ -0,0 +1,135 @@
+package com.ai.qa.gateway.api.web.filter;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 通过完整的网关链路访问本地的流式桩服务，验证首字节时间、空闲超时和客户端断开后的取消
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        // 不加载 application.yml：其中的 spring.config.import 会连接 Nacos 拉取共享配置，
+        // 测试属性无法取消文件里声明的 import。路由全部由下面的 DynamicPropertySource 指向桩服务
+        "spring.config.name=streaming-response-test",
+        "spring.cloud.nacos.discovery.enabled=false",
+        "spring.cloud.nacos.config.enabled=false",
+        "spring.cloud.nacos.config.import-check.enabled=false",
+        // 原本来自 Nacos 共享配置
+        "jwt.secret=test-only-secret-test-only-secret-test-only",
+        "gateway.concurrency.enabled=false"
+})
+public class StreamingResponseGatewayFilterFactoryTest {
+
+    private static final Duration CHUNK_INTERVAL = Duration.ofMillis(800);
+    private static final CountDownLatch upstreamCancelled = new CountDownLatch(1);
+
+    private static final DisposableServer stub = HttpServer.create()
+            .host("127.0.0.1")
+            .port(0)
+            .route(routes -> routes
+                    // 立即输出第一块，之后每 800ms 一块，共三块
+                    .get("/api/qa/stream", (request, response) -> response
+                            .header("Content-Type", "text/plain;charset=UTF-8")
+                            .sendString(Flux.concat(Mono.just("first\n"),
+                                    Flux.interval(CHUNK_INTERVAL).take(2).map(i -> "next-" + i + "\n")))
+                    )
+                    // 输出第一块后不再有数据
+                    .get("/api/qa/stall", (request, response) -> response
+                            .header("Content-Type", "text/plain;charset=UTF-8")
+                            .sendString(Flux.concat(Mono.just("first\n"), Flux.never())))
+                    // 持续输出，记录是否被取消
+                    .get("/api/qa/endless", (request, response) -> response
+                            .header("Content-Type", "text/plain;charset=UTF-8")
+                            .sendString(Flux.interval(Duration.ZERO, Duration.ofMillis(50))
+                                    .map(i -> "chunk-" + i + "\n")
+                                    .doOnCancel(upstreamCancelled::countDown)))
+            )
+            .bindNow();
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void routes(DynamicPropertyRegistry registry) {
+        registry.add("spring.cloud.gateway.routes[0].id", () -> "qa_service_route");
+        registry.add("spring.cloud.gateway.routes[0].uri", () -> "http://127.0.0.1:" + stub.port());
+        registry.add("spring.cloud.gateway.routes[0].predicates[0]", () -> "Path=/api/qa/**");
+        registry.add("spring.cloud.gateway.routes[0].filters[0]", () -> "StreamingResponse=2s,1m");
+    }
+
+    @AfterAll
+    public static void stopStub() {
+        stub.disposeNow();
+    }
+
+    @Test
+    public void firstChunkArrivesBeforeUpstreamFinishes() {
+        long start = System.nanoTime();
+        List<Long> arrivals = new ArrayList<>();
+        List<String> chunks = client().get().uri("/api/qa/stream")
+                .responseContent()
+                .asString()
+                .doOnNext(chunk -> arrivals.add(System.nanoTime() - start))
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertNotNull(chunks);
+        assertEquals("first\nnext-0\nnext-1\n", String.join("", chunks));
+        long timeToFirstByte = TimeUnit.NANOSECONDS.toMillis(arrivals.get(0));
+        long total = TimeUnit.NANOSECONDS.toMillis(arrivals.get(arrivals.size() - 1));
+        // 桩服务两次间隔共 1.6 秒，第一块若被缓冲就会和最后一块同时到达
+        assertTrue(total - timeToFirstByte >= CHUNK_INTERVAL.toMillis(),
+                "first chunk at " + timeToFirstByte + " ms, last chunk at " + total + " ms");
+    }
+
+    @Test
+    public void idleStreamIsAbortedAfterIdleTimeout() {
+        long start = System.nanoTime();
+        List<String> received = new ArrayList<>();
+        Throwable error = client().get().uri("/api/qa/stall")
+                .responseContent()
+                .asString()
+                .doOnNext(received::add)
+                .then(Mono.<Throwable>empty())
+                .onErrorResume(Mono::just)
+                .block(Duration.ofSeconds(10));
+
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(List.of("first\n"), received);
+        assertNotNull(error, "truncated stream should surface as an error");
+        assertTrue(elapsed >= 2000 && elapsed < 5000, "aborted after " + elapsed + " ms");
+    }
+
+    @Test
+    public void clientDisconnectCancelsUpstream() throws InterruptedException {
+        client().get().uri("/api/qa/endless")
+                .responseContent()
+                .asString()
+                .take(3)
+                .blockLast(Duration.ofSeconds(5));
+
+        assertTrue(upstreamCancelled.await(5, TimeUnit.SECONDS), "upstream was not cancelled");
+    }
+
+    private HttpClient client() {
+        return HttpClient.create().baseUrl("http://127.0.0.1:" + port);
+    }
+}
@@ -0,0 +1,68 @@
+package com.ai.qa.gateway.infrastructure.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ResponseCacheStoreTest {
+
+    private final ResponseCacheStore store = new ResponseCacheStore(1 << 20, 4096, Duration.ofMinutes(10));
+
+    @Test
+    public void invalidationCoversThePathAndItsAncestors() {
+        put("/api/user/42", "user:1");
+        put("/api/user/42", "10.0.0.1?fields=nickname");
+        put("/api/user", "user:1");
+        put("/api/user/42/avatar", "user:1");
+        put("/api/user/7", "user:1");
+        put("/api/user/42", "user:1", "other_route");
+
+        assertEquals(3, store.invalidate("route", "/api/user/42/nickname"));
+        assertNull(store.get(key("/api/user/42", "user:1")));
+        assertNull(store.get(key("/api/user/42", "10.0.0.1?fields=nickname")));
+        assertNull(store.get(key("/api/user", "user:1")));
+        assertNotNull(store.get(key("/api/user/42/avatar", "user:1")));
+        assertNotNull(store.get(key("/api/user/7", "user:1")));
+        assertNotNull(store.get(ResponseCacheStore.resource("other_route", "/api/user/42") + "\nuser:1"));
+        assertEquals(0, store.invalidate("route", "/api/user/42/nickname"));
+    }
+
+    @Test
+    public void flightInvalidatedWhileInProgressIsNotStored() {
+        String key = key("/api/user/42", "user:1");
+        ResponseCacheStore.Flight leader = store.join(key);
+        ResponseCacheStore.Flight follower = store.join(key);
+        assertTrue(leader.isLeader());
+
+        store.invalidate("route", "/api/user/42");
+        leader.complete(response());
+        assertNull(store.get(key));
+        // follower 拿不到修改之前的结果，自己回源
+        assertEquals(Optional.empty(), follower.result().block());
+        assertTrue(store.join(key).isLeader());
+    }
+
+    private void put(String path, String suffix) {
+        put(path, suffix, "route");
+    }
+
+    private void put(String path, String suffix, String routeId) {
+        ResponseCacheStore.Flight flight = store.join(ResponseCacheStore.resource(routeId, path) + '\n' + suffix);
+        flight.complete(response());
+    }
+
+    private static String key(String path, String suffix) {
+        return ResponseCacheStore.resource("route", path) + '\n' + suffix;
+    }
+
+    private static CachedResponse response() {
+        return new CachedResponse(200, new HttpHeaders(), new byte[16], System.currentTimeMillis(), Long.MAX_VALUE);
+    }
+}
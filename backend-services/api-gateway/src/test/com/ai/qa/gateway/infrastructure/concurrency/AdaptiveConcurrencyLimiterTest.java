@@ -0,0 +1,43 @@
+package com.ai.qa.gateway.infrastructure.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    public void sheddableRequestsAreRejectedBeforeCriticalOnes() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(new GradientLimit(20, 10, 100));
+        // SHEDDABLE 最多占 15 个
+        for (int i = 0; i < 15; i++) {
+            assertTrue(limiter.tryAcquire(RequestPriority.SHEDDABLE) >= 0);
+        }
+        assertEquals(-1, limiter.tryAcquire(RequestPriority.SHEDDABLE));
+        // NORMAL 最多到 18 个
+        assertTrue(limiter.tryAcquire(RequestPriority.NORMAL) >= 0);
+        assertTrue(limiter.tryAcquire(RequestPriority.NORMAL) >= 0);
+        assertTrue(limiter.tryAcquire(RequestPriority.NORMAL) >= 0);
+        assertEquals(-1, limiter.tryAcquire(RequestPriority.NORMAL));
+        // CRITICAL 可以用满整个上限
+        assertTrue(limiter.tryAcquire(RequestPriority.CRITICAL) >= 0);
+        assertTrue(limiter.tryAcquire(RequestPriority.CRITICAL) >= 0);
+        assertEquals(-1, limiter.tryAcquire(RequestPriority.CRITICAL));
+        assertEquals(20, limiter.getInflight());
+
+        limiter.release(1_000_000, 19, false);
+        assertEquals(-1, limiter.tryAcquire(RequestPriority.SHEDDABLE));
+        assertEquals(19, limiter.tryAcquire(RequestPriority.CRITICAL));
+    }
+
+    @Test
+    public void droppedRequestsShrinkTheLimit() {
+        GradientLimit limit = new GradientLimit(100, 10, 500);
+        for (int i = 0; i < 50; i++) {
+            limit.onSample(1_000_000, 100, true);
+        }
+        assertTrue(limit.getLimit() < 50, "limit " + limit.getLimit());
+        assertTrue(limit.getLimit() >= 10);
+    }
+}
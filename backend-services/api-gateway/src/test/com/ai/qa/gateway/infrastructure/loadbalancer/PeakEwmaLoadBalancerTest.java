@@ -0,0 +1,90 @@
+package com.ai.qa.gateway.infrastructure.loadbalancer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PeakEwmaLoadBalancerTest {
+
+    private final ServiceInstance fast = new DefaultServiceInstance("qa-1", "qa-service", "127.0.0.1", 18081, false);
+    private final ServiceInstance slow = new DefaultServiceInstance("qa-2", "qa-service", "127.0.0.1", 18082, false);
+
+    private InstanceStatsRegistry registry;
+    private PeakEwmaLoadBalancer loadBalancer;
+
+    @BeforeEach
+    public void setup() {
+        registry = new InstanceStatsRegistry(new SimpleMeterRegistry(), Duration.ofSeconds(10), Duration.ofMinutes(10));
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("supplier", new StubSupplier(List.of(fast, slow)));
+        loadBalancer = new PeakEwmaLoadBalancer(beanFactory.getBeanProvider(ServiceInstanceListSupplier.class),
+                "qa-service", registry);
+    }
+
+    @Test
+    public void prefersInstanceWithLowerLatency() {
+        int slowPicks = 0;
+        for (int i = 0; i < 1000; i++) {
+            ServiceInstance chosen = choose();
+            InstanceStats stats = registry.get(chosen);
+            stats.requestStarted();
+            boolean isSlow = chosen == slow;
+            stats.requestFinished(TimeUnit.MILLISECONDS.toNanos(isSlow ? 500 : 5));
+            if (isSlow) {
+                slowPicks++;
+            }
+        }
+        assertTrue(slowPicks < 100, "slow instance picked " + slowPicks + " times");
+    }
+
+    @Test
+    public void avoidsInstanceWithRequestsInFlight() {
+        registry.get(fast).observe(TimeUnit.MILLISECONDS.toNanos(10));
+        registry.get(slow).observe(TimeUnit.MILLISECONDS.toNanos(10));
+        for (int i = 0; i < 20; i++) {
+            registry.get(slow).requestStarted();
+        }
+        for (int i = 0; i < 50; i++) {
+            assertEquals(fast, choose());
+        }
+    }
+
+    private ServiceInstance choose() {
+        Response<ServiceInstance> response = loadBalancer.choose(new DefaultRequest<>()).block();
+        assertTrue(response != null && response.hasServer());
+        return response.getServer();
+    }
+
+    private static final class StubSupplier implements ServiceInstanceListSupplier {
+
+        private final List<ServiceInstance> instances;
+
+        StubSupplier(List<ServiceInstance> instances) {
+            this.instances = instances;
+        }
+
+        @Override
+        public String getServiceId() {
+            return "qa-service";
+        }
+
+        @Override
+        public Flux<List<ServiceInstance>> get() {
+            return Flux.just(instances);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.ai.qa.gateway.infrastructure.ratelimit;
+
+import com.ai.qa.gateway.api.web.filter.AuthenticationFilter;
+import com.google.common.net.InetAddresses;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ClientKeyResolverTest {
+
+    private final ClientKeyResolver resolver = new ClientKeyResolver(
+            new TrustedProxies(List.of("10.0.0.0/8", " 192.168.1.10 ", "fd00::/8", "")), AuthenticationFilter.USER_ID_ATTR);
+
+    @Test
+    public void untrustedPeerCannotSpoofForwardedFor() {
+        assertEquals("203.0.113.7", address(MockServerHttpRequest.get("/api/qa")
+                .remoteAddress(new InetSocketAddress("203.0.113.7", 50000))
+                .header("X-Forwarded-For", "1.1.1.1, 10.0.0.5")));
+        // 没有配置受信任代理时总是使用直连地址
+        ClientKeyResolver direct = new ClientKeyResolver(new TrustedProxies(List.of()), AuthenticationFilter.USER_ID_ATTR);
+        assertEquals("10.0.0.5", direct.clientAddress(MockServerHttpRequest.get("/api/qa")
+                .remoteAddress(new InetSocketAddress("10.0.0.5", 50000))
+                .header("X-Forwarded-For", "1.1.1.1").build()));
+    }
+
+    @Test
+    public void trustedChainResolvesTheFirstUntrustedHop() {
+        // 客户端自己伪造了 6.6.6.6，之后经过两层受信任代理
+        assertEquals("203.0.113.7", address(MockServerHttpRequest.get("/api/qa")
+                .remoteAddress(new InetSocketAddress("10.0.0.2", 50000))
+                .header("X-Forwarded-For", "6.6.6.6, 203.0.113.7, 192.168.1.10")
+                .header("X-Forwarded-For", "10.1.2.3")));
+        // 整条链都受信任时取最左边的地址
+        assertEquals("10.9.9.9", address(MockServerHttpRequest.get("/api/qa")
+                .remoteAddress(new InetSocketAddress("10.0.0.2", 50000))
+                .header("X-Forwarded-For", "10.9.9.9, 10.1.2.3")));
+        assertEquals("2001:db8::1", address(MockServerHttpRequest.get("/api/qa")
+                .remoteAddress(new InetSocketAddress("fd00::1", 50000))
+                .header("X-Forwarded-For", "2001:db8::1")));
+    }
+
+    @Test
+    public void malformedHopStopsTheWalk() {
+        assertEquals("10.1.2.3", address(MockServerHttpRequest.get("/api/qa")
+                .remoteAddress(new InetSocketAddress("10.0.0.2", 50000))
+                .header("X-Forwarded-For", "203.0.113.7, unknown, 10.1.2.3")));
+        // 受信任代理没有追加 X-Forwarded-For
+        assertEquals("10.0.0.2", address(MockServerHttpRequest.get("/api/qa")
+                .remoteAddress(new InetSocketAddress("10.0.0.2", 50000))));
+        assertEquals("unknown", address(MockServerHttpRequest.get("/api/qa")));
+    }
+
+    @Test
+    public void userComesOnlyFromTheVerifiedAttribute() {
+        MockServerWebExchange anonymous = MockServerWebExchange.from(MockServerHttpRequest.get("/api/qa")
+                .remoteAddress(new InetSocketAddress("203.0.113.7", 50000))
+                .header("X-User-Id", "42"));
+        assertEquals("203.0.113.7", resolver.resolve(anonymous).block());
+
+        MockServerWebExchange authenticated = MockServerWebExchange.from(MockServerHttpRequest.get("/api/qa")
+                .remoteAddress(new InetSocketAddress("203.0.113.7", 50000)));
+        authenticated.getAttributes().put(AuthenticationFilter.USER_ID_ATTR, "42");
+        assertEquals("42@203.0.113.7", resolver.resolve(authenticated).block());
+    }
+
+    @Test
+    public void subnetMatching() {
+        TrustedProxies proxies = new TrustedProxies(List.of("172.16.0.0/12", "2001:db8::/32"));
+        assertTrue(proxies.contains(InetAddresses.forString("172.31.255.255")));
+        assertFalse(proxies.contains(InetAddresses.forString("172.32.0.1")));
+        assertTrue(proxies.contains(InetAddresses.forString("2001:db8:ffff::1")));
+        // IPv4 地址不匹配 IPv6 网段
+        assertFalse(proxies.contains(InetAddresses.forString("32.1.13.184")));
+        assertThrows(IllegalArgumentException.class, () -> new TrustedProxies(List.of("10.0.0.0/33")));
+        assertThrows(IllegalArgumentException.class, () -> new TrustedProxies(List.of("not-an-address")));
+    }
+
+    private String address(MockServerHttpRequest.BaseBuilder<?> request) {
+        return resolver.clientAddress(request.build());
+    }
+}
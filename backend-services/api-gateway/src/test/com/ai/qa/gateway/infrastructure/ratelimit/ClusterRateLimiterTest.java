@@ -0,0 +1,200 @@
+package com.ai.qa.gateway.infrastructure.ratelimit;
+
+import com.ai.qa.gateway.infrastructure.config.InMemoryRateLimiterConfig.RateLimiterConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ClusterRateLimiterTest {
+
+    static final String ROUTE = InMemoryRateLimiterTest.ROUTE;
+    static final String CLIENT = "10.0.0.1";
+
+    private final AtomicInteger leaseCalls = new AtomicInteger();
+
+    @Test
+    public void requestsAreServedFromTheLocalLease() {
+        // 容量 100，每次租 10 个
+        ClusterRateLimiter limiter = limiter(counting(new EmbeddedTokenLeaseCoordinator(1024, Duration.ofSeconds(60))),
+                new RateLimiterConfig(1, 100));
+        for (int i = 0; i < 25; i++) {
+            assertTrue(allowed(limiter, CLIENT));
+        }
+        assertEquals(3, leaseCalls.get());
+        assertEquals(5, LeasePolicy.tokens(limiter.getLeaseStore().update(1, ClientKey.of("10.0.0.1"),
+                limiter.getLeaseStore().now(), 0L, 0L)));
+    }
+
+    @Test
+    public void nodesShareTheGlobalBudgetAndCacheExhaustion() {
+        TokenLeaseCoordinator coordinator = counting(new EmbeddedTokenLeaseCoordinator(1024, Duration.ofSeconds(60)));
+        // 速率很低，测试期间不会补回令牌
+        RateLimiterConfig defaults = new RateLimiterConfig(0.001, 10);
+        ClusterRateLimiter a = limiter(coordinator, defaults);
+        ClusterRateLimiter b = limiter(coordinator, defaults);
+        int allowed = 0;
+        for (int i = 0; i < 20; i++) {
+            allowed += allowed(a, CLIENT) ? 1 : 0;
+            allowed += allowed(b, CLIENT) ? 1 : 0;
+        }
+        assertEquals(10, allowed);
+        int calls = leaseCalls.get();
+        // 两个节点各被拒绝过一次，之后在重试间隔内不再访问协调者
+        for (int i = 0; i < 100; i++) {
+            assertFalse(allowed(a, CLIENT));
+            assertFalse(allowed(b, CLIENT));
+        }
+        assertEquals(calls, leaseCalls.get());
+        // 其他客户端不受影响
+        assertTrue(allowed(a, "10.0.0.2"));
+    }
+
+    @Test
+    public void deniedLeaseIsRetriedAfterItExpires() throws InterruptedException {
+        // 每 20ms 补回一个令牌
+        ClusterRateLimiter limiter = limiter(counting(new EmbeddedTokenLeaseCoordinator(1024, Duration.ofSeconds(60))),
+                new RateLimiterConfig(50, 1));
+        assertTrue(allowed(limiter, CLIENT));
+        assertFalse(allowed(limiter, CLIENT));
+        assertFalse(allowed(limiter, CLIENT));
+        assertEquals(2, leaseCalls.get());
+        Thread.sleep(40);
+        assertTrue(allowed(limiter, CLIENT));
+        assertEquals(3, leaseCalls.get());
+    }
+
+    @Test
+    public void coordinatorFailureFallsBackToLocalLimits() {
+        TokenLeaseCoordinator down = (routeId, id, requested, minimum, rate, burst) -> {
+            leaseCalls.incrementAndGet();
+            return Mono.error(new IllegalStateException("coordinator down"));
+        };
+        ClusterRateLimiter limiter = limiter(down, new RateLimiterConfig(0.001, 3));
+        assertTrue(allowed(limiter, CLIENT));
+        assertTrue(allowed(limiter, CLIENT));
+        assertTrue(allowed(limiter, CLIENT));
+        assertFalse(allowed(limiter, CLIENT));
+        assertEquals(4, leaseCalls.get());
+    }
+
+    @Test
+    public void coordinatorTimeoutFallsBackToLocalLimits() {
+        ClusterRateLimiter limiter = limiter((routeId, id, requested, minimum, rate, burst) -> Mono.never(),
+                new RateLimiterConfig(0.001, 1));
+        assertTrue(allowed(limiter, CLIENT));
+        assertFalse(allowed(limiter, CLIENT));
+    }
+
+    @Test
+    public void localLevelsAreCheckedBeforeTheLease() {
+        // 每个 IP 容量 10，路由层容量 3
+        RateLimiterConfig defaults = new RateLimiterConfig(0.001, 10);
+        defaults.setRouteReplenishRate(0.001);
+        defaults.setRouteBurstCapacity(3);
+        ClusterRateLimiter limiter = limiter(counting(new EmbeddedTokenLeaseCoordinator(1024, Duration.ofSeconds(60))),
+                defaults);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(allowed(limiter, CLIENT));
+        }
+        int calls = leaseCalls.get();
+        RateLimiter.Response denied = limiter.isAllowed(ROUTE, "10.0.0.2").block();
+        assertFalse(denied.isAllowed());
+        assertEquals("route", denied.getHeaders().get("X-RateLimit-Scope"));
+        // 被本地层拒绝的请求不访问协调者
+        assertEquals(calls, leaseCalls.get());
+    }
+
+    @Test
+    public void deniedLeaseRefundsLocalLevels() {
+        // 每个 IP 容量 1，路由层容量 2
+        RateLimiterConfig defaults = new RateLimiterConfig(0.001, 1);
+        defaults.setRouteReplenishRate(0.001);
+        defaults.setRouteBurstCapacity(2);
+        ClusterRateLimiter limiter = limiter(new EmbeddedTokenLeaseCoordinator(1024, Duration.ofSeconds(60)), defaults);
+        assertTrue(allowed(limiter, CLIENT));
+        for (int i = 0; i < 5; i++) {
+            assertFalse(allowed(limiter, CLIENT));
+        }
+        // 租约拒绝的请求已经退还路由层配额
+        assertTrue(allowed(limiter, "10.0.0.2"));
+        assertFalse(allowed(limiter, "10.0.0.3"));
+    }
+
+    @Test
+    public void authenticatedCallersAreStillLimitedPerAddress() {
+        // 每个用户各自租借，同一个 IP 在本节点上的容量为 2
+        ClusterRateLimiter limiter = limiter(new EmbeddedTokenLeaseCoordinator(1024, Duration.ofSeconds(60)),
+                new RateLimiterConfig(0.001, 2));
+        assertTrue(allowed(limiter, "42@" + CLIENT));
+        assertTrue(allowed(limiter, "43@" + CLIENT));
+        RateLimiter.Response denied = limiter.isAllowed(ROUTE, "44@" + CLIENT).block();
+        assertFalse(denied.isAllowed());
+        assertEquals("ip", denied.getHeaders().get("X-RateLimit-Scope"));
+    }
+
+    @Test
+    public void userLeaseUsesTheUserLevelLimits() {
+        // IP 层每个节点容量 2，用户层全局容量 5
+        RateLimiterConfig defaults = new RateLimiterConfig(0.001, 2);
+        defaults.setUserReplenishRate(0.001);
+        defaults.setUserBurstCapacity(5);
+        TokenLeaseCoordinator coordinator = new EmbeddedTokenLeaseCoordinator(1024, Duration.ofSeconds(60));
+        ClusterRateLimiter a = limiter(coordinator, defaults);
+        ClusterRateLimiter b = limiter(coordinator, defaults);
+        int allowed = 0;
+        RateLimiter.Response denied = null;
+        for (int i = 0; i < 10; i++) {
+            // 每次换一个 IP，只有用户层生效
+            RateLimiter.Response response = (i % 2 == 0 ? a : b).isAllowed(ROUTE, "42@10.0.1." + i).block();
+            if (response.isAllowed()) {
+                allowed++;
+            } else {
+                denied = response;
+            }
+        }
+        assertEquals(5, allowed);
+        assertEquals("user", denied.getHeaders().get("X-RateLimit-Scope"));
+        assertEquals("5", denied.getHeaders().get("X-RateLimit-Burst-Capacity"));
+    }
+
+    @Test
+    public void authenticatedCallersLeaseTheAddressWithoutUserLevel() {
+        // 没有启用用户层：按 IP 全局租借，同一个 IP 上的不同用户共享容量
+        TokenLeaseCoordinator coordinator = new EmbeddedTokenLeaseCoordinator(1024, Duration.ofSeconds(60));
+        ClusterRateLimiter a = limiter(coordinator, new RateLimiterConfig(0.001, 2));
+        ClusterRateLimiter b = limiter(coordinator, new RateLimiterConfig(0.001, 2));
+        assertTrue(allowed(a, "42@" + CLIENT));
+        assertTrue(allowed(b, "43@" + CLIENT));
+        RateLimiter.Response denied = a.isAllowed(ROUTE, "44@" + CLIENT).block();
+        assertFalse(denied.isAllowed());
+        assertEquals("ip", denied.getHeaders().get("X-RateLimit-Scope"));
+        assertTrue(allowed(b, "42@10.0.0.2"));
+    }
+
+    private TokenLeaseCoordinator counting(TokenLeaseCoordinator coordinator) {
+        return (routeId, id, requested, minimum, rate, burst) -> {
+            leaseCalls.incrementAndGet();
+            return coordinator.lease(routeId, id, requested, minimum, rate, burst);
+        };
+    }
+
+    static boolean allowed(ClusterRateLimiter limiter, String id) {
+        return limiter.isAllowed(ROUTE, id).block().isAllowed();
+    }
+
+    static ClusterRateLimiter limiter(TokenLeaseCoordinator coordinator, RateLimiterConfig defaults) {
+        defaults.setRequestedTokens(1);
+        Duration leaseTtl = Duration.ofSeconds(10);
+        return new ClusterRateLimiter(new TokenBucketStore(GcraPolicy.INSTANCE, 1024, Duration.ofSeconds(60)),
+                new TokenBucketStore(new LeasePolicy(leaseTtl), 1024, leaseTtl), coordinator, defaults,
+                new RateLimiterConfig(0, 0), InMemoryRateLimiterTest.configurationService(),
+                InMemoryRateLimiterTest.metrics(), 0.1, Duration.ofMillis(50));
+    }
+}
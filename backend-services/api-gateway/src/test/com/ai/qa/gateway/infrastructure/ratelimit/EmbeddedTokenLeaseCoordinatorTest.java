@@ -0,0 +1,14 @@
+package com.ai.qa.gateway.infrastructure.ratelimit;
+
+import java.time.Duration;
+
+public class EmbeddedTokenLeaseCoordinatorTest extends TokenLeaseCoordinatorContract {
+
+    private final EmbeddedTokenLeaseCoordinator coordinator =
+            new EmbeddedTokenLeaseCoordinator(1024, Duration.ofSeconds(60));
+
+    @Override
+    TokenLeaseCoordinator coordinator() {
+        return coordinator;
+    }
+}
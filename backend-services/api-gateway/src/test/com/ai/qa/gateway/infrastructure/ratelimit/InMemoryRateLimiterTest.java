@@ -0,0 +1,102 @@
+package com.ai.qa.gateway.infrastructure.ratelimit;
+
+import com.ai.qa.gateway.infrastructure.config.InMemoryRateLimiterConfig.RateLimiterConfig;
+import com.ai.qa.gateway.infrastructure.metrics.GatewayMetrics;
+import com.ai.qa.gateway.infrastructure.security.JwtTokenVerifier;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter.Response;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.validation.Validator;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InMemoryRateLimiterTest {
+
+    static final String ROUTE = "qa_service_route";
+
+    @Test
+    public void invalidClientRateFailsAtConstruction() {
+        assertThrows(IllegalArgumentException.class, () -> limiter(new RateLimiterConfig(0, 10), global(0, 0)));
+        assertThrows(IllegalArgumentException.class, () -> limiter(new RateLimiterConfig(5, 0), global(0, 0)));
+        // 极小的速率换算成纳秒后乘以容量会溢出
+        assertThrows(IllegalArgumentException.class, () -> limiter(new RateLimiterConfig(1e-12, 100), global(0, 0)));
+    }
+
+    @Test
+    public void zeroRateDisablesOptionalLevels() {
+        InMemoryRateLimiter limiter = limiter(new RateLimiterConfig(5, 10), global(0, 0));
+        assertTrue(limiter.isAllowed(ROUTE, "42@10.0.0.1").block().isAllowed());
+    }
+
+    @Test
+    public void lowerLevelDenialRefundsTheLevelsAlreadyCharged() {
+        // 速率很低，测试期间不会补回令牌
+        RateLimiterConfig defaults = new RateLimiterConfig(0.001, 3);
+        defaults.setUserReplenishRate(0.001);
+        defaults.setUserBurstCapacity(1);
+        InMemoryRateLimiter limiter = limiter(defaults, global(0, 0));
+        assertTrue(limiter.isAllowed(ROUTE, "42@10.0.0.1").block().isAllowed());
+        for (int i = 0; i < 5; i++) {
+            Response denied = limiter.isAllowed(ROUTE, "42@10.0.0.1").block();
+            assertFalse(denied.isAllowed());
+            assertEquals("user", denied.getHeaders().get("X-RateLimit-Scope"));
+        }
+        // 用户层拒绝时 IP 层已经退还，同一 IP 的匿名请求还剩 2 个令牌
+        assertTrue(limiter.isAllowed(ROUTE, "10.0.0.1").block().isAllowed());
+        assertTrue(limiter.isAllowed(ROUTE, "10.0.0.1").block().isAllowed());
+        Response denied = limiter.isAllowed(ROUTE, "10.0.0.1").block();
+        assertFalse(denied.isAllowed());
+        assertEquals("ip", denied.getHeaders().get("X-RateLimit-Scope"));
+    }
+
+    @Test
+    public void globalDenialRefundsRouteAndClientLevels() {
+        RateLimiterConfig defaults = new RateLimiterConfig(0.001, 2);
+        defaults.setRouteReplenishRate(0.001);
+        defaults.setRouteBurstCapacity(2);
+        InMemoryRateLimiter limiter = limiter(defaults, global(0.001, 1));
+        assertTrue(limiter.isAllowed(ROUTE, "10.0.0.1").block().isAllowed());
+        for (int i = 0; i < 5; i++) {
+            assertEquals("global", limiter.isAllowed(ROUTE, "10.0.0.2").block().getHeaders().get("X-RateLimit-Scope"));
+        }
+        // 被全局层拒绝的请求没有占用路由层和 IP 层：不计全局层时路由层还剩 1 个令牌
+        InMemoryRateLimiter.RouteLimits limits = limiter.limitsFor(ROUTE);
+        long now = limiter.getStore().now();
+        QuotaKey key = QuotaKey.parse("10.0.0.2");
+        assertNull(limiter.acquire(limits, key, InMemoryRateLimiter.Scope.GLOBAL, now));
+        assertEquals(InMemoryRateLimiter.Scope.ROUTE,
+                limiter.acquire(limits, key, InMemoryRateLimiter.Scope.GLOBAL, now).scope);
+    }
+
+    static RateLimiterConfig global(double replenishRate, int burstCapacity) {
+        return new RateLimiterConfig(replenishRate, burstCapacity);
+    }
+
+    static InMemoryRateLimiter limiter(RateLimiterConfig defaults, RateLimiterConfig global) {
+        defaults.setRequestedTokens(Math.max(1, defaults.getRequestedTokens()));
+        TokenBucketStore store = new TokenBucketStore(GcraPolicy.INSTANCE, 1024, Duration.ofSeconds(60));
+        return new InMemoryRateLimiter(store, defaults, global, configurationService(), metrics());
+    }
+
+    static ConfigurationService configurationService() {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        return new ConfigurationService(beanFactory, beanFactory.getBeanProvider(ConversionService.class),
+                beanFactory.getBeanProvider(Validator.class));
+    }
+
+    static GatewayMetrics metrics() {
+        MockEnvironment environment = new MockEnvironment().withProperty("jwt.secret",
+                "test-only-secret-test-only-secret-test-only");
+        return new GatewayMetrics(new SimpleMeterRegistry(), new JwtTokenVerifier(environment, 1024, 0));
+    }
+}
@@ -0,0 +1,52 @@
+package com.ai.qa.gateway.infrastructure.ratelimit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.springframework.data.redis.connection.ReactiveRedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 对真实的 Redis 执行 lease_tokens.lua；地址由 -Dredis.host / -Dredis.port 指定，连不上时跳过
+ */
+public class RedisTokenLeaseCoordinatorTest extends TokenLeaseCoordinatorContract {
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTokenLeaseCoordinator coordinator;
+
+    @BeforeAll
+    public static void connect() {
+        RedisStandaloneConfiguration server = new RedisStandaloneConfiguration(
+                System.getProperty("redis.host", "localhost"), Integer.getInteger("redis.port", 6379));
+        connectionFactory = new LettuceConnectionFactory(server,
+                LettuceClientConfiguration.builder().commandTimeout(Duration.ofSeconds(1)).build());
+        connectionFactory.afterPropertiesSet();
+        boolean reachable;
+        try (ReactiveRedisConnection connection = connectionFactory.getReactiveConnection()) {
+            reachable = "PONG".equals(connection.ping().block(Duration.ofSeconds(1)));
+        } catch (RuntimeException e) {
+            reachable = false;
+        }
+        assumeTrue(reachable, "Redis is not reachable");
+        coordinator = new RedisTokenLeaseCoordinator(new ReactiveStringRedisTemplate(connectionFactory),
+                "test:lease:");
+    }
+
+    @AfterAll
+    public static void close() {
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+    }
+
+    @Override
+    TokenLeaseCoordinator coordinator() {
+        return coordinator;
+    }
+}
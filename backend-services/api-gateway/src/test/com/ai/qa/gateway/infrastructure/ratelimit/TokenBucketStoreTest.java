@@ -0,0 +1,137 @@
+package com.ai.qa.gateway.infrastructure.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TokenBucketStoreTest {
+
+    /**
+     * 状态就是计数：每次加 a，从不拒绝；计数越小越先被淘汰
+     */
+    private static final BucketPolicy COUNTER = new BucketPolicy() {
+        @Override
+        public long next(long state, long now, long a, long b) {
+            return state + a;
+        }
+
+        @Override
+        public long expiresAt(long state) {
+            return state;
+        }
+    };
+
+    @Test
+    public void gcraAllowsBurstThenRejects() {
+        TokenBucketStore store = new TokenBucketStore(GcraPolicy.INSTANCE, 1024, Duration.ofSeconds(60));
+        ClientKey a = ClientKey.of("10.0.0.1");
+        ClientKey b = ClientKey.of("10.0.0.2");
+        // 间隔 10，容忍 50：同一时刻最多放行 5 次
+        for (int i = 0; i < 5; i++) {
+            assertNotEquals(BucketPolicy.REJECT, store.update(1, a, 1000, 10, 50));
+        }
+        assertEquals(BucketPolicy.REJECT, store.update(1, a, 1000, 10, 50));
+        // 其他客户端、其他路由互不影响
+        assertNotEquals(BucketPolicy.REJECT, store.update(1, b, 1000, 10, 50));
+        assertNotEquals(BucketPolicy.REJECT, store.update(2, a, 1000, 10, 50));
+        // 一个间隔之后补回一个令牌
+        assertNotEquals(BucketPolicy.REJECT, store.update(1, a, 1010, 10, 50));
+        assertEquals(3, store.size());
+    }
+
+    @Test
+    public void rejectedFirstRequestDoesNotOccupyASlot() {
+        TokenBucketStore store = new TokenBucketStore(GcraPolicy.INSTANCE, 1024, Duration.ofSeconds(60));
+        assertEquals(BucketPolicy.REJECT, store.update(1, ClientKey.of("10.0.0.1"), 0, 100, 50));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void fullStripeEvictsTheFullestBucket() {
+        TokenBucketStore store = new TokenBucketStore(COUNTER, 64, Duration.ofDays(1), 1);
+        assertEquals(64, store.capacity());
+        for (int i = 0; i < 64; i++) {
+            store.update(1, ClientKey.hashed("old-" + i), 0, 1, 0);
+        }
+        ClientKey busy = ClientKey.hashed("busy");
+        store.update(1, busy, 0, 1_000_000, 0);
+        for (int i = 0; i < 1000; i++) {
+            store.update(1, ClientKey.hashed("new-" + i), 0, 2, 0);
+            assertTrue(store.size() <= store.capacity());
+        }
+        assertEquals(64, store.size());
+        assertEquals(64 + 1 + 1000, store.evictedCount() + store.size());
+        assertEquals(0, store.expiredCount());
+        // 抽样淘汰总是选中计数更小的桶，计数最大的桶留下
+        assertEquals(1_000_000, store.update(1, busy, 0, 0, 0));
+    }
+
+    @Test
+    public void idleBucketsAreSweptIncrementallyOnInsert() {
+        TokenBucketStore store = new TokenBucketStore(GcraPolicy.INSTANCE, 64, Duration.ofNanos(100), 1);
+        for (int i = 0; i < 64; i++) {
+            store.update(1, ClientKey.hashed("old-" + i), 0, 10, 100);
+        }
+        List<ClientKey> fresh = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            ClientKey key = ClientKey.hashed("new-" + i);
+            fresh.add(key);
+            store.update(1, key, 10_000, 10, 100);
+        }
+        assertEquals(64, store.size());
+        assertEquals(64, store.expiredCount() + store.evictedCount());
+        assertTrue(store.expiredCount() > 0);
+        for (ClientKey key : fresh) {
+            // 仍在表中：之前的 TAT 是 10_010
+            assertEquals(10_010, store.update(1, key, 10_000, 0, 100));
+        }
+    }
+
+    /**
+     * 插入和淘汰不断移动条目的同时并发累加，每个桶的计数必须精确，不会加到别的 key 上
+     */
+    @Test
+    public void concurrentUpdatesSurviveEvictionShifts() throws InterruptedException {
+        TokenBucketStore store = new TokenBucketStore(COUNTER, 256, Duration.ofDays(1), 1);
+        long base = 1L << 40;
+        ClientKey[] hot = new ClientKey[4];
+        for (int k = 0; k < hot.length; k++) {
+            hot[k] = ClientKey.hashed("hot-" + k);
+            store.update(1, hot[k], 0, base, 0);
+        }
+        int threads = 4;
+        int iterations = 50_000;
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread churn = new Thread(() -> {
+            for (long i = 0; running.get() || i < 10_000; i++) {
+                store.update(1, ClientKey.hashed("churn-" + i), 0, 1, 0);
+            }
+        });
+        churn.start();
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                for (int i = 0; i < iterations; i++) {
+                    store.update(1, hot[i & 3], 0, 1, 0);
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        running.set(false);
+        churn.join();
+
+        assertTrue(store.evictedCount() > 0);
+        for (ClientKey key : hot) {
+            assertEquals(base + (long) threads * iterations / hot.length, store.update(1, key, 0, 0, 0));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.ai.qa.gateway.infrastructure.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 两种协调者共同的租借语义：预算够时整批租出，不够时租出剩余的全部，剩余不足一个请求的消耗时不租。
+ * 速率很低，测试期间不会补回令牌
+ */
+abstract class TokenLeaseCoordinatorContract {
+
+    private static final double RATE = 0.001;
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    abstract TokenLeaseCoordinator coordinator();
+
+    /**
+     * 每个测试用不同的路由，互不影响 (Redis 中的 key 在测试之间保留)
+     */
+    private final String route = "route-" + System.nanoTime() + "-" + SEQUENCE.incrementAndGet();
+
+    @Test
+    public void grantsTheWholeBatchWhileTheBudgetLasts() {
+        assertEquals(4, lease("10.0.0.1", 4, 1, 10));
+        assertEquals(4, lease("10.0.0.1", 4, 1, 10));
+    }
+
+    @Test
+    public void grantsWhatIsLeftWhenTheBudgetIsShort() {
+        assertEquals(8, lease("10.0.0.1", 8, 1, 10));
+        assertEquals(2, lease("10.0.0.1", 8, 1, 10));
+        assertEquals(0, lease("10.0.0.1", 8, 1, 10));
+    }
+
+    @Test
+    public void grantsNothingBelowOneRequest() {
+        assertEquals(9, lease("10.0.0.1", 9, 3, 10));
+        // 只剩 1 个，不够一个消耗 2 的请求，也不扣减
+        assertEquals(0, lease("10.0.0.1", 4, 2, 10));
+        assertEquals(1, lease("10.0.0.1", 4, 1, 10));
+    }
+
+    @Test
+    public void budgetsAreSeparatedByKey() {
+        assertEquals(10, lease("10.0.0.1", 10, 1, 10));
+        assertEquals(0, lease("10.0.0.1", 1, 1, 10));
+        assertEquals(10, lease("10.0.0.2", 10, 1, 10));
+        assertEquals(5, lease("user:42", 5, 1, 5));
+    }
+
+    private long lease(String id, long requested, long minimum, int burstCapacity) {
+        return coordinator().lease(route, id, requested, minimum, RATE, burstCapacity).block();
+    }
+}
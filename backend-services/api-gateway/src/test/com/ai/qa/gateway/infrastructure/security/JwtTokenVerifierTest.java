@@ -0,0 +1,66 @@
+package com.ai.qa.gateway.infrastructure.security;
+
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class JwtTokenVerifierTest {
+
+    static final String SECRET = "test-only-secret-test-only-secret-test-only";
+    static final String ROTATED = "rotated-secret-rotated-secret-rotated-secret";
+
+    @Test
+    public void verifiesOnceAndServesRepeatsFromCache() {
+        JwtTokenVerifier verifier = new JwtTokenVerifier(new MockEnvironment().withProperty("jwt.secret", SECRET), 64, 60_000);
+        String token = token(SECRET, "42", "alice");
+
+        VerifiedToken verified = verifier.verify(token);
+        assertEquals("42", verified.getSubject());
+        assertEquals("alice", verified.getUsername());
+        verifier.verify(token);
+        verifier.verify(token);
+        assertEquals(1, verifier.cacheMisses());
+        assertEquals(2, verifier.cacheHits());
+
+        assertThrows(JwtException.class, () -> verifier.verify(token(ROTATED, "42", "alice")));
+        assertThrows(JwtException.class, () -> verifier.verify(token.substring(0, token.length() - 2)));
+    }
+
+    @Test
+    public void rotatedSecretInvalidatesCachedTokens() {
+        MockEnvironment environment = new MockEnvironment().withProperty("jwt.secret", SECRET);
+        JwtTokenVerifier verifier = new JwtTokenVerifier(environment, 64, 60_000);
+        String old = token(SECRET, "42", "alice");
+        verifier.verify(old);
+
+        // 其他配置项变化不影响缓存
+        verifier.onApplicationEvent(new EnvironmentChangeEvent(Set.of("gateway.auth.whitelist")));
+        verifier.verify(old);
+        assertEquals(1, verifier.cacheHits());
+
+        environment.setProperty("jwt.secret", ROTATED);
+        verifier.onApplicationEvent(new EnvironmentChangeEvent(Set.of("jwt.secret")));
+        assertThrows(JwtException.class, () -> verifier.verify(old));
+        assertEquals("7", verifier.verify(token(ROTATED, "7", "bob")).getSubject());
+    }
+
+    static String token(String secret, String subject, String username) {
+        return Jwts.builder()
+                .setSubject(subject)
+                .claim("username", username)
+                .setExpiration(new Date(System.currentTimeMillis() + 3_600_000))
+                .signWith(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS256)
+                .compact();
+    }
+}
@@ -0,0 +1,39 @@
+package com.ai.qa.gateway.infrastructure.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class VerifiedTokenCacheTest {
+
+    @Test
+    public void entriesExpireWithTokenOrMaxTtl() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(16, 1000);
+        VerifiedToken shortLived = new VerifiedToken("1", "alice", 500);
+        VerifiedToken longLived = new VerifiedToken("2", "bob", Long.MAX_VALUE);
+        cache.put(cache.digest("a.b.c"), shortLived, 0, cache.generation());
+        cache.put(cache.digest("d.e.f"), longLived, 0, cache.generation());
+
+        assertSame(shortLived, cache.get(cache.digest("a.b.c"), 499));
+        assertNull(cache.get(cache.digest("a.b.c"), 500));
+        assertSame(longLived, cache.get(cache.digest("d.e.f"), 999));
+        assertNull(cache.get(cache.digest("d.e.f"), 1000));
+        assertNull(cache.get(cache.digest("x.y.z"), 0));
+    }
+
+    @Test
+    public void putStartedBeforeClearIsDropped() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(16, 60_000);
+        VerifiedToken token = new VerifiedToken("1", "alice", Long.MAX_VALUE);
+        long generation = cache.generation();
+        cache.clear();
+        cache.put(cache.digest("a.b.c"), token, 0, generation);
+        assertNull(cache.get(cache.digest("a.b.c"), 1));
+
+        cache.put(cache.digest("a.b.c"), token, 0, cache.generation());
+        assertSame(token, cache.get(cache.digest("a.b.c"), 1));
+        cache.clear();
+        assertNull(cache.get(cache.digest("a.b.c"), 1));
+    }
+}
@@ -0,0 +1,125 @@
+package com.ai.qa.benchmarks;
+
+import com.ai.qa.gateway.api.web.filter.AdaptiveConcurrencyFilter;
+import com.ai.qa.gateway.api.web.filter.AuthenticationFilter;
+import com.ai.qa.gateway.infrastructure.metrics.GatewayMetrics;
+import com.ai.qa.gateway.infrastructure.security.JwtTokenVerifier;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.RequestRateLimiterGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一个请求在网关内部经过的完整过滤链：鉴权 → 路由上的 RequestRateLimiter → 自适应并发限制，
+ * 最后由一个直接返回 200 的过滤器代替真正的下游调用。每次调用都新建 MockServerWebExchange，
+ * 与真实请求一样计入 exchange 本身的分配。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterChainBenchmark {
+
+    /**
+     * authenticated: 携带 JWT 访问 /api/qa/history；whitelisted: 访问免鉴权的登录接口
+     */
+    @Param({"authenticated", "whitelisted"})
+    public String request;
+
+    private FilteringWebHandler handler;
+    private Route route;
+    private String path;
+    private String authorization;
+
+    @Setup
+    public void setup() {
+        MeterRegistry registry = GatewayFixtures.meterRegistry();
+        JwtTokenVerifier tokenVerifier = GatewayFixtures.tokenVerifier(300_000);
+        GatewayMetrics metrics = GatewayFixtures.metrics(registry, tokenVerifier);
+
+        RateLimiter<?> limiter = GatewayFixtures.rateLimiter("local", metrics, 1_000_000_000, 100);
+        KeyResolver keyResolver = GatewayFixtures.keyResolver(List.of());
+        RequestRateLimiterGatewayFilterFactory rateLimiterFactory = new RequestRateLimiterGatewayFilterFactory(limiter, keyResolver);
+        RequestRateLimiterGatewayFilterFactory.Config rateLimiterConfig = new RequestRateLimiterGatewayFilterFactory.Config();
+        rateLimiterConfig.setRouteId(GatewayFixtures.ROUTE_ID);
+
+        route = Route.async()
+                .id(GatewayFixtures.ROUTE_ID)
+                .uri("http://127.0.0.1:8082")
+                .predicate(exchange -> true)
+                .filters(List.of(new OrderedGatewayFilter(rateLimiterFactory.apply(rateLimiterConfig), 1)))
+                .build();
+
+        List<GlobalFilter> globalFilters = List.of(
+                new AuthenticationFilter(tokenVerifier, metrics, List.of("/api/user/register", "/api/user/login")),
+                new AdaptiveConcurrencyFilter(registry, List.of("/api/user/login", "/api/user/register"),
+                        List.of("/api/qa/**"), 50, 10, 500, 1),
+                new UpstreamStub());
+        handler = new FilteringWebHandler(globalFilters);
+
+        boolean authenticated = "authenticated".equals(request);
+        path = authenticated ? "/api/qa/history" : "/api/user/login";
+        authorization = authenticated ? "Bearer " + GatewayFixtures.token("42") : null;
+    }
+
+    @Benchmark
+    public HttpStatusCode filterChain() {
+        MockServerHttpRequest.BaseBuilder<?> builder = MockServerHttpRequest.get(path)
+                .remoteAddress(new InetSocketAddress("203.0.113.42", 54321));
+        if (authorization != null) {
+            builder.header(HttpHeaders.AUTHORIZATION, authorization);
+        }
+        MockServerWebExchange exchange = MockServerWebExchange.from(builder);
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+        handler.handle(exchange).block();
+        return exchange.getResponse().getStatusCode();
+    }
+
+    /**
+     * 代替 NettyRoutingFilter，直接返回 200
+     */
+    private static final class UpstreamStub implements GlobalFilter, Ordered {
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+            exchange.getResponse().setStatusCode(HttpStatus.OK);
+            return Mono.empty();
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+    }
+}
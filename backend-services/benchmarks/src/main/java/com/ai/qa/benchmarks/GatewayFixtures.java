@@ -0,0 +1,103 @@
+package com.ai.qa.benchmarks;
+
+import com.ai.qa.gateway.infrastructure.config.InMemoryRateLimiterConfig;
+import com.ai.qa.gateway.infrastructure.config.InMemoryRateLimiterConfig.RateLimiterConfig;
+import com.ai.qa.gateway.infrastructure.metrics.GatewayMetrics;
+import com.ai.qa.gateway.infrastructure.ratelimit.ClusterRateLimiter;
+import com.ai.qa.gateway.infrastructure.ratelimit.EmbeddedTokenLeaseCoordinator;
+import com.ai.qa.gateway.infrastructure.ratelimit.GcraPolicy;
+import com.ai.qa.gateway.infrastructure.ratelimit.InMemoryRateLimiter;
+import com.ai.qa.gateway.infrastructure.ratelimit.LeasePolicy;
+import com.ai.qa.gateway.infrastructure.ratelimit.TokenBucketStore;
+import com.ai.qa.gateway.infrastructure.security.JwtTokenVerifier;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.validation.Validator;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 按生产配置的默认值手工组装网关组件，不启动 Spring 容器
+ */
+final class GatewayFixtures {
+
+    static final String ROUTE_ID = "qa_service_route";
+    static final String SECRET = "benchmark-only-secret-benchmark-only-secret";
+
+    private GatewayFixtures() {
+    }
+
+    static MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+
+    /**
+     * @param cacheMaxTtlMillis 0 表示不缓存，每次都完整验签
+     */
+    static JwtTokenVerifier tokenVerifier(long cacheMaxTtlMillis) {
+        MockEnvironment environment = new MockEnvironment().withProperty("jwt.secret", SECRET);
+        return new JwtTokenVerifier(environment, 16384, cacheMaxTtlMillis);
+    }
+
+    static String token(String userId) {
+        return Jwts.builder()
+                .setSubject(userId)
+                .claim("username", "user-" + userId)
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + Duration.ofHours(1).toMillis()))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    static GatewayMetrics metrics(MeterRegistry registry, JwtTokenVerifier tokenVerifier) {
+        return new GatewayMetrics(registry, tokenVerifier);
+    }
+
+    static ConfigurationService configurationService() {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        return new ConfigurationService(beanFactory, beanFactory.getBeanProvider(ConversionService.class),
+                beanFactory.getBeanProvider(Validator.class));
+    }
+
+    /**
+     * @param mode local 或 cluster (进程内协调者)
+     */
+    static RateLimiter<?> rateLimiter(String mode, GatewayMetrics metrics, double replenishRate, int burstCapacity) {
+        int maxBuckets = 65536;
+        Duration idleTtl = Duration.ofSeconds(60);
+        TokenBucketStore store = new TokenBucketStore(GcraPolicy.INSTANCE, maxBuckets, idleTtl);
+        // 与生产配置一样启用 IP、用户和全局三层
+        RateLimiterConfig defaults = new RateLimiterConfig(replenishRate, burstCapacity);
+        defaults.setUserReplenishRate(replenishRate * 2);
+        defaults.setUserBurstCapacity(burstCapacity * 2);
+        RateLimiterConfig global = new RateLimiterConfig(replenishRate * 400, burstCapacity * 40);
+        if ("local".equals(mode)) {
+            return new InMemoryRateLimiter(store, defaults, global, configurationService(), metrics);
+        }
+        Duration leaseTtl = Duration.ofSeconds(1);
+        TokenBucketStore leases = new TokenBucketStore(new LeasePolicy(leaseTtl), maxBuckets, leaseTtl);
+        return new ClusterRateLimiter(store, leases, new EmbeddedTokenLeaseCoordinator(maxBuckets, idleTtl), defaults,
+                global, configurationService(), metrics, 0.1, Duration.ofMillis(50));
+    }
+
+    /**
+     * 与生产配置相同的分层限流 KeyResolver
+     *
+     * @param trustedProxies 受信任代理网段，为空时只看直连地址
+     */
+    static KeyResolver keyResolver(List<String> trustedProxies) {
+        return new InMemoryRateLimiterConfig().clientKeyResolver(trustedProxies);
+    }
+}
@@ -0,0 +1,61 @@
+package com.ai.qa.benchmarks;
+
+import com.ai.qa.gateway.infrastructure.security.JwtTokenVerifier;
+import com.ai.qa.gateway.infrastructure.security.VerifiedToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT 校验：cold 为每次完整验签 (缓存关闭、token 轮换)，repeated 为同一个 token 命中已校验缓存
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtVerifyBenchmark {
+
+    private static final int TOKEN_COUNT = 1024;
+
+    private JwtTokenVerifier coldVerifier;
+    private JwtTokenVerifier cachingVerifier;
+    private String[] tokens;
+    private String repeatedToken;
+
+    @Setup
+    public void setup() {
+        coldVerifier = GatewayFixtures.tokenVerifier(0);
+        cachingVerifier = GatewayFixtures.tokenVerifier(300_000);
+        tokens = new String[TOKEN_COUNT];
+        for (int i = 0; i < TOKEN_COUNT; i++) {
+            tokens[i] = GatewayFixtures.token(String.valueOf(i));
+        }
+        repeatedToken = tokens[0];
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public VerifiedToken verifyCold(Cursor cursor) {
+        return coldVerifier.verify(tokens[cursor.next++ & (TOKEN_COUNT - 1)]);
+    }
+
+    @Benchmark
+    public VerifiedToken verifyRepeated() {
+        return cachingVerifier.verify(repeatedToken);
+    }
+}
@@ -0,0 +1,72 @@
+package com.ai.qa.benchmarks;
+
+import com.ai.qa.gateway.infrastructure.ratelimit.QuotaKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 限流 key 的解析：clientKeyResolver 从请求中取出用户和客户端地址，QuotaKey 再把它转成桶存储使用的定长 key。
+ * forwarded 表示直连地址是受信任的负载均衡，真实地址取自 X-Forwarded-For
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyResolverBenchmark {
+
+    @Param({"ipv4", "ipv6", "forwarded"})
+    public String family;
+
+    private KeyResolver resolver;
+    private MockServerWebExchange exchange;
+    private String resolvedKey;
+
+    @Setup
+    public void setup() throws UnknownHostException {
+        resolver = GatewayFixtures.keyResolver(List.of("10.0.0.0/8"));
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/api/qa/history");
+        switch (family) {
+            case "ipv6":
+                request.remoteAddress(new InetSocketAddress(InetAddress.getByName("2001:db8:85a3::8a2e:370:7334"), 54321));
+                break;
+            case "forwarded":
+                request.remoteAddress(new InetSocketAddress(InetAddress.getByName("10.0.3.7"), 54321))
+                        .header("X-Forwarded-For", "198.51.100.7, 203.0.113.42, 10.0.1.1");
+                break;
+            default:
+                request.remoteAddress(new InetSocketAddress(InetAddress.getByName("203.0.113.42"), 54321));
+        }
+        exchange = MockServerWebExchange.from(request);
+        resolvedKey = resolver.resolve(exchange).block();
+    }
+
+    @Benchmark
+    public String resolve() {
+        return resolver.resolve(exchange).block();
+    }
+
+    @Benchmark
+    public QuotaKey toQuotaKey() {
+        return QuotaKey.parse(resolvedKey);
+    }
+}
@@ -0,0 +1,99 @@
+package com.ai.qa.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 限流判定在多线程竞争下的耗时。
+ * <ul>
+ *     <li>keys=hot: 所有线程争用同一个客户端的桶</li>
+ *     <li>keys=cold: 约 100 万个不同客户端，远超桶容量，持续触发插入和淘汰</li>
+ *     <li>replenishRate=5 基本全部走拒绝路径，1000000000 基本全部放行</li>
+ * </ul>
+ * 线程数从 1 到 64 依次运行并带上 GC profiler：
+ * <pre>
+ * java -cp target/benchmarks.jar com.ai.qa.benchmarks.RateLimiterBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+    private static final int COLD_KEYS = 1 << 20;
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+
+    @Param({"local", "cluster"})
+    public String mode;
+
+    @Param({"hot", "cold"})
+    public String keys;
+
+    @Param({"5", "1000000000"})
+    public double replenishRate;
+
+    private RateLimiter<?> limiter;
+    private String[] ids;
+
+    @Setup
+    public void setup() {
+        limiter = GatewayFixtures.rateLimiter(mode,
+                GatewayFixtures.metrics(GatewayFixtures.meterRegistry(), GatewayFixtures.tokenVerifier(0)),
+                replenishRate, 100);
+        if ("hot".equals(keys)) {
+            ids = new String[]{"10.0.0.1"};
+            return;
+        }
+        ids = new String[COLD_KEYS];
+        for (int i = 0; i < COLD_KEYS; i++) {
+            ids[i] = "10." + ((i >>> 16) & 0xFF) + "." + ((i >>> 8) & 0xFF) + "." + (i & 0xFF);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Benchmark
+    public RateLimiter.Response isAllowed(Cursor cursor) {
+        String id = ids.length == 1 ? ids[0] : ids[cursor.random.nextInt(ids.length)];
+        return limiter.isAllowed(GatewayFixtures.ROUTE_ID, id).block();
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options cli = new CommandLineOptions(args);
+        for (int threads : THREADS) {
+            Options options = new OptionsBuilder()
+                    .parent(cli)
+                    .include(RateLimiterBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.ai.qa.service.api.controller;
+
+import com.ai.qa.service.infrastructure.events.LoopbackUserChangeTransport;
+import com.ai.qa.service.infrastructure.events.UserChangedEvent;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 服务之间的事件通知，不在 /api 下，网关不会路由到这里
+ */
+@RestController
+@RequestMapping("/internal/events")
+public class InternalEventController {
+
+    private final LoopbackUserChangeTransport userChangeTransport;
+
+    public InternalEventController(LoopbackUserChangeTransport userChangeTransport) {
+        this.userChangeTransport = userChangeTransport;
+    }
+
+    /**
+     * user-service 修改用户资料后广播到每个 qa-service 实例
+     */
+    @PostMapping("/user-changed")
+    public ResponseEntity<Void> userChanged(@RequestBody UserChangedEvent event) {
+        if (event.getUserId() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        userChangeTransport.publish(event);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,18 +1,53 @@
 package com.ai.qa.service.api.controller;
 
+import com.ai.qa.service.api.dto.AskRequest;
+import com.ai.qa.service.api.dto.HistoryPageDTO;
+import com.ai.qa.service.api.dto.HistorySearchResultDTO;
 import com.ai.qa.service.api.dto.QAHistoryDTO;
+import com.ai.qa.service.api.dto.SaveHistoryRequest;
 import com.ai.qa.service.application.dto.SaveHistoryCommand;
+import com.ai.qa.service.application.service.HistorySearchService;
+import com.ai.qa.service.application.service.QAHistoryService;
+import com.ai.qa.service.domain.model.HistoryCursor;
 import com.ai.qa.service.domain.service.QAService;
-import lombok.RequiredArgsConstructor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Locale;
 
 
 @RestController
 @RequestMapping("/api/qa")
-@RequiredArgsConstructor
 public class QAController {
 
     private final QAService qaService;
+    private final QAHistoryService qaHistoryService;
+    private final HistorySearchService historySearchService;
+    private final UIMessageStream messageStream;
+    private final ObjectMapper objectMapper;
+
+    public QAController(QAService qaService, QAHistoryService qaHistoryService,
+                        HistorySearchService historySearchService, ObjectMapper objectMapper) {
+        this.qaService = qaService;
+        this.qaHistoryService = qaHistoryService;
+        this.historySearchService = historySearchService;
+        this.messageStream = new UIMessageStream(objectMapper);
+        this.objectMapper = objectMapper;
+    }
 
     @GetMapping("/test")
     public String testFeign() {
@@ -22,12 +57,108 @@ public class QAController {
 
 
     @PostMapping("/save")
-    public ReponseEntity<QAHistoryDTO> saveHistory(@RequestBody SaveHistoryRequest request){
-//        request.getUserId
-        SaveHistoryCommand command new = SaveHistoryCommand()
+    public ResponseEntity<QAHistoryDTO> saveHistory(@RequestHeader("X-User-Id") String userId,
+                                                    @RequestBody SaveHistoryRequest request){
+        SaveHistoryCommand command = new SaveHistoryCommand(userId, request.getSessionId(),
+                request.getQuestion(), request.getAnswer());
+
+        QAHistoryDTO dto = qaHistoryService.saveHistory(command);
+
+        return ResponseEntity.ok(dto);
+    }
+
+    /**
+     * 用户最近的问答 (所有会话，最新的在前)；下一页传入上一页返回的 nextCursor
+     */
+    @GetMapping("/history")
+    public HistoryPageDTO recentHistory(@RequestHeader("X-User-Id") String userId,
+                                        @RequestParam(required = false) String before,
+                                        @RequestParam(defaultValue = "20") int limit) {
+        return qaHistoryService.recentPage(userId, cursor(before), limit);
+    }
+
+    /**
+     * 在用户自己的问答中全文搜索，按相关度排序；词以 * 结尾时按前缀匹配
+     */
+    @GetMapping("/history/search")
+    public HistorySearchResultDTO searchHistory(@RequestHeader("X-User-Id") String userId,
+                                                @RequestParam("q") String query,
+                                                @RequestParam(defaultValue = "10") int limit) {
+        if (!StringUtils.hasText(query)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "q must not be empty");
+        }
+        return historySearchService.search(userId, query, limit);
+    }
 
-        QAHistoryDTO dto= qaHistorySerive.saveHistory(command);
+    /**
+     * 会话内的问答 (按时间正序)；下一页传入上一页返回的 nextCursor
+     */
+    @GetMapping("/history/sessions/{sessionId}")
+    public HistoryPageDTO sessionHistory(@RequestHeader("X-User-Id") String userId,
+                                         @PathVariable String sessionId,
+                                         @RequestParam(required = false) String after,
+                                         @RequestParam(defaultValue = "20") int limit) {
+        return qaHistoryService.sessionPage(userId, sessionId, cursor(after), limit);
+    }
+
+    /**
+     * 导出会话的完整问答，每行一条 JSON (NDJSON)，边读边写
+     */
+    @GetMapping(value = "/history/sessions/{sessionId}/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportSession(@RequestHeader("X-User-Id") String userId,
+                                                               @PathVariable String sessionId) {
+        StreamingResponseBody body = out -> qaHistoryService.exportSession(userId, sessionId,
+                history -> writeLine(out, history));
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(sessionId + ".ndjson").build().toString())
+                .body(body);
+    }
+
+    private void writeLine(OutputStream out, Object value) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(value));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static HistoryCursor cursor(String value) {
+        try {
+            return HistoryCursor.decode(value);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid cursor");
+        }
+    }
+
+    /**
+     * 流式回答 (SSE)：模型每生成一段文本就推送一个事件，完整回答在流结束后异步保存。
+     * 客户端断开时取消对模型的调用。
+     * 请求头 Cache-Control 含 no-cache / no-store 时跳过语义答案缓存 (与网关响应缓存的约定一致)。
+     */
+    @PostMapping(value = "/ask/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> askStream(@RequestHeader("X-User-Id") String userId,
+                                                   @RequestHeader(value = HttpHeaders.CACHE_CONTROL, required = false)
+                                                   String cacheControl,
+                                                   @RequestBody AskRequest request,
+                                                   HttpServletResponse response) {
+        if (!StringUtils.hasText(request.getQuestion())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "question must not be empty");
+        }
+        response.setHeader(UIMessageStream.HEADER, UIMessageStream.VERSION);
+        // 禁止中间的反向代理 (如 nginx) 缓冲事件流
+        response.setHeader("X-Accel-Buffering", "no");
+        return messageStream.encode(qaService.streamAnswer(userId, request.getSessionId(), request.getQuestion(),
+                allowsCache(cacheControl)));
+    }
 
-        return  new ReponseEntity(dto) ;
+    private static boolean allowsCache(String cacheControl) {
+        if (cacheControl == null) {
+            return true;
+        }
+        String value = cacheControl.toLowerCase(Locale.ROOT);
+        return !value.contains("no-cache") && !value.contains("no-store");
     }
 }
@@ -0,0 +1,36 @@
+package com.ai.qa.service.api.controller;
+
+import com.ai.qa.service.api.dto.SuggestionResultDTO;
+import com.ai.qa.service.application.service.QuestionSuggestService;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * 输入问题时的补全，每次按键都会调用，只读内存中的补全树
+ */
+@RestController
+@RequestMapping("/api/qa")
+public class SuggestController {
+
+    private final QuestionSuggestService suggestService;
+
+    public SuggestController(QuestionSuggestService suggestService) {
+        this.suggestService = suggestService;
+    }
+
+    @GetMapping("/suggest")
+    public SuggestionResultDTO suggest(@RequestParam(defaultValue = "") String prefix,
+                                       @RequestParam(defaultValue = "10") int limit) {
+        if (!StringUtils.hasText(prefix)) {
+            SuggestionResultDTO empty = new SuggestionResultDTO();
+            empty.setItems(List.of());
+            return empty;
+        }
+        return suggestService.suggest(prefix, limit);
+    }
+}
@@ -0,0 +1,63 @@
+package com.ai.qa.service.api.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Flux;
+
+import java.util.UUID;
+
+/**
+ * 把回答的文本增量编码成前端流式聊天客户端 (Vercel AI SDK useChat) 使用的 UI message stream 协议 (v1)：
+ * <pre>
+ * data: {"type":"start","messageId":"..."}
+ * data: {"type":"text-start","id":"..."}
+ * data: {"type":"text-delta","id":"...","delta":"..."}   (每个增量一条)
+ * data: {"type":"text-end","id":"..."}
+ * data: {"type":"finish"}
+ * data: [DONE]
+ * </pre>
+ * 生成失败时在已输出的内容之后发送 {"type":"error","errorText":"..."}。
+ */
+final class UIMessageStream {
+
+    /**
+     * 响应头，客户端据此识别协议版本
+     */
+    static final String HEADER = "x-vercel-ai-ui-message-stream";
+    static final String VERSION = "v1";
+
+    private static final ServerSentEvent<String> DONE = ServerSentEvent.builder("[DONE]").build();
+
+    private final ObjectMapper objectMapper;
+
+    UIMessageStream(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    Flux<ServerSentEvent<String>> encode(Flux<String> deltas) {
+        return Flux.defer(() -> {
+            String messageId = UUID.randomUUID().toString();
+            String textId = messageId + "-text";
+            return Flux.concat(
+                    Flux.just(event(chunk("start").put("messageId", messageId)),
+                            event(chunk("text-start").put("id", textId))),
+                    deltas.map(delta -> event(chunk("text-delta").put("id", textId).put("delta", delta))),
+                    Flux.just(event(chunk("text-end").put("id", textId)), event(chunk("finish")), DONE)
+            ).onErrorResume(e -> Flux.just(event(chunk("error").put("errorText", "回答生成失败，请稍后重试")), DONE));
+        });
+    }
+
+    private ObjectNode chunk(String type) {
+        return objectMapper.createObjectNode().put("type", type);
+    }
+
+    private ServerSentEvent<String> event(ObjectNode chunk) {
+        try {
+            return ServerSentEvent.builder(objectMapper.writeValueAsString(chunk)).build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.ai.qa.service.api.dto;
+
+import lombok.Data;
+
+/**
+ * 提问请求，用户ID由网关通过 X-User-Id 请求头传入
+ */
+@Data
+public class AskRequest {
+
+    private String sessionId;
+    private String question;
+}
@@ -0,0 +1,15 @@
+package com.ai.qa.service.api.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 一页问答摘要；nextCursor 为 null 表示没有下一页
+ */
+@Data
+public class HistoryPageDTO {
+
+    private List<QAHistorySummaryDTO> items;
+    private String nextCursor;
+}
@@ -0,0 +1,19 @@
+package com.ai.qa.service.api.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 一条搜索结果：问题预览和回答中命中位置附近的片段
+ */
+@Data
+public class HistorySearchHitDTO {
+
+    private String id;
+    private String sessionId;
+    private String questionPreview;
+    private String snippet;
+    private LocalDateTime timestamp;
+    private double score;
+}
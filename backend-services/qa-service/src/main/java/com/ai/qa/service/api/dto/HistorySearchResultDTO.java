@@ -0,0 +1,14 @@
+package com.ai.qa.service.api.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 按相关度从高到低排列的搜索结果
+ */
+@Data
+public class HistorySearchResultDTO {
+
+    private List<HistorySearchHitDTO> items;
+}
@@ -1,4 +1,16 @@
 package com.ai.qa.service.api.dto;
 
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
 public class QAHistoryDTO {
+
+    private String id;
+    private String userId;
+    private String sessionId;
+    private String question;
+    private String answer;
+    private LocalDateTime timestamp;
 }
@@ -0,0 +1,14 @@
+package com.ai.qa.service.api.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class QAHistorySummaryDTO {
+
+    private String id;
+    private String sessionId;
+    private String questionPreview;
+    private LocalDateTime timestamp;
+}
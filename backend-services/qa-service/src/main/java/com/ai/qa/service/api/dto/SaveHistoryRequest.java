@@ -0,0 +1,11 @@
+package com.ai.qa.service.api.dto;
+
+import lombok.Data;
+
+@Data
+public class SaveHistoryRequest {
+
+    private String sessionId;
+    private String question;
+    private String answer;
+}
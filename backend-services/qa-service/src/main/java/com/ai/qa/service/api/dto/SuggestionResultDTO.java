@@ -0,0 +1,14 @@
+package com.ai.qa.service.api.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 补全的问题，按热门程度从高到低排列
+ */
+@Data
+public class SuggestionResultDTO {
+
+    private List<String> items;
+}
@@ -1,4 +1,12 @@
 package com.ai.qa.service.application.dto;
 
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
 public class QAHistoryQuery {
+
+    private final String userId;
+    private final String sessionId;
 }
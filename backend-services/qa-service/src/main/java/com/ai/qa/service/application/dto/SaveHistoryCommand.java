@@ -1,4 +1,14 @@
 package com.ai.qa.service.application.dto;
 
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
 public class SaveHistoryCommand {
+
+    private final String userId;
+    private final String sessionId;
+    private final String question;
+    private final String answer;
 }
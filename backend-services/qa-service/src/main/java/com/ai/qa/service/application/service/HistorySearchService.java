@@ -0,0 +1,134 @@
+package com.ai.qa.service.application.service;
+
+import com.ai.qa.service.api.dto.HistorySearchHitDTO;
+import com.ai.qa.service.api.dto.HistorySearchResultDTO;
+import com.ai.qa.service.domain.model.QAHistory;
+import com.ai.qa.service.domain.model.QAHistorySummary;
+import com.ai.qa.service.domain.repo.QAHistoryRepo;
+import com.ai.qa.service.infrastructure.persistence.repositories.SearchIndexingQAHistoryRepo;
+import com.ai.qa.service.infrastructure.search.FullTextIndex;
+import com.ai.qa.service.infrastructure.search.TextAnalyzer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * 在用户自己的问答历史中全文搜索：索引只给出 id 和得分，正文按 id 读取 (已归档的也能读到)。
+ * <p>
+ * 指标：qa.search.latency (含 p50/p99，以及不超过 qa.search.p99-target 的比例)、
+ * qa.search.index.segments、qa.search.index.buffered。
+ */
+@Service
+public class HistorySearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(HistorySearchService.class);
+
+    /**
+     * 每次最多返回的结果数
+     */
+    public static final int MAX_LIMIT = 50;
+
+    private static final int SNIPPET_LENGTH = 80;
+    private static final int SNIPPET_LEAD = 20;
+
+    private final FullTextIndex index;
+    private final QAHistoryRepo repo;
+    private final Duration p99Target;
+    private final Timer latency;
+
+    /**
+     * @param p99Target 搜索延迟的 p99 目标，作为 SLO 边界记录，超过时打印日志
+     */
+    public HistorySearchService(FullTextIndex index, QAHistoryRepo repo, MeterRegistry meterRegistry,
+                                @Value("${qa.search.p99-target:100ms}") Duration p99Target) {
+        this.index = index;
+        this.repo = repo;
+        this.p99Target = p99Target;
+        this.latency = Timer.builder("qa.search.latency")
+                .publishPercentiles(0.5, 0.99)
+                .serviceLevelObjectives(p99Target)
+                .register(meterRegistry);
+        Gauge.builder("qa.search.index.segments", index, FullTextIndex::segmentCount).register(meterRegistry);
+        Gauge.builder("qa.search.index.buffered", index, FullTextIndex::bufferedDocs).register(meterRegistry);
+    }
+
+    public HistorySearchResultDTO search(String userId, String query, int limit) {
+        long start = System.nanoTime();
+        int size = Math.max(1, Math.min(limit, MAX_LIMIT));
+        List<String> terms = new ArrayList<>();
+        TextAnalyzer.query(query).forEach(term -> terms.add(term.getTerm()));
+        List<HistorySearchHitDTO> items = new ArrayList<>(size);
+        for (FullTextIndex.SearchHit hit : index.search(SearchIndexingQAHistoryRepo.partitionOf(userId), query,
+                size)) {
+            Optional<QAHistory> history = repo.findHistoryById(String.valueOf(hit.getDoc()));
+            // 分区已经按用户隔离，这里再核对一次归属
+            if (history.isPresent() && userId.equals(history.get().getUserId())) {
+                items.add(toHit(history.get(), hit.getScore(), terms));
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        latency.record(Duration.ofNanos(elapsed));
+        if (elapsed > p99Target.toNanos()) {
+            log.info("Slow history search for user {}: {} ms, {} hits", userId, elapsed / 1_000_000, items.size());
+        }
+        HistorySearchResultDTO result = new HistorySearchResultDTO();
+        result.setItems(items);
+        return result;
+    }
+
+    /**
+     * 定期把写缓冲写成磁盘段，重启后只丢失最后一个周期内保存的问答
+     */
+    @Scheduled(fixedDelayString = "${qa.search.index.flush-interval:60000}")
+    public void flush() {
+        index.flush();
+    }
+
+    private static HistorySearchHitDTO toHit(QAHistory history, double score, List<String> terms) {
+        HistorySearchHitDTO dto = new HistorySearchHitDTO();
+        dto.setId(history.getId());
+        dto.setSessionId(history.getSessionId());
+        dto.setQuestionPreview(QAHistorySummary.of(history).getQuestionPreview());
+        dto.setSnippet(snippet(history.getAnswer(), terms));
+        dto.setTimestamp(history.getTimestamp());
+        dto.setScore(score);
+        return dto;
+    }
+
+    /**
+     * 回答中最早命中某个查询词的位置附近的一段，没有命中时取开头
+     */
+    static String snippet(String text, List<String> terms) {
+        if (text == null) {
+            return null;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int first = -1;
+        for (String term : terms) {
+            int at = lower.indexOf(term);
+            if (at >= 0 && (first < 0 || at < first)) {
+                first = at;
+            }
+        }
+        int from = first <= SNIPPET_LEAD ? 0 : first - SNIPPET_LEAD;
+        if (from > 0 && Character.isLowSurrogate(text.charAt(from))) {
+            from--;
+        }
+        int to = Math.min(text.length(), from + SNIPPET_LENGTH);
+        if (to < text.length() && Character.isHighSurrogate(text.charAt(to - 1))) {
+            to--;
+        }
+        return (from > 0 ? "…" : "") + text.substring(from, to) + (to < text.length() ? "…" : "");
+    }
+}
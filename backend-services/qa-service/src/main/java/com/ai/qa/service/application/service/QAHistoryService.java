@@ -1,23 +1,100 @@
 package com.ai.qa.service.application.service;
 
+import com.ai.qa.service.api.dto.HistoryPageDTO;
+import com.ai.qa.service.api.dto.QAHistoryDTO;
+import com.ai.qa.service.api.dto.QAHistorySummaryDTO;
 import com.ai.qa.service.application.dto.SaveHistoryCommand;
 import com.ai.qa.service.application.dto.QAHistoryQuery;
+import com.ai.qa.service.domain.model.HistoryCursor;
 import com.ai.qa.service.domain.model.QAHistory;
+import com.ai.qa.service.domain.model.QAHistorySummary;
+import com.ai.qa.service.domain.repo.QAHistoryRepo;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
 public class QAHistoryService {
 
-    public QAHistoryDto saveHistory(SaveHistoryCommand command){
-        //command.getUserid!=null
-        QAHistory history = QAHistory.createNew("","","");
+    /**
+     * 每页最多条数
+     */
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private final QAHistoryRepo repo;
+
+    public QAHistoryDTO saveHistory(SaveHistoryCommand command){
+        QAHistory history = QAHistory.createNew(command.getUserId(), command.getSessionId(),
+                command.getQuestion(), command.getAnswer());
         repo.save(history);
         return toDto(history);
     }
 
     public List<QAHistoryDTO> queryUserHistory(QAHistoryQuery query){
-//        query.getUserId
+        List<QAHistory> historyList = repo.findHistoryBySession(query.getSessionId());
+        // 会话ID是客户端传入的，只返回属于当前用户的记录
+        return historyList.stream()
+                .filter(history -> query.getUserId().equals(history.getUserId()))
+                .map(QAHistoryService::toDto)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 会话内的问答，按时间正序，从 after 之后开始
+     */
+    public HistoryPageDTO sessionPage(String userId, String sessionId, HistoryCursor after, int limit) {
+        int size = pageSize(limit);
+        // 多取一条用来判断是否还有下一页
+        return toPage(repo.findSessionSummaries(userId, sessionId, after, size + 1), size);
+    }
+
+    /**
+     * 用户所有会话的问答，最新的在前，从 before 之前开始
+     */
+    public HistoryPageDTO recentPage(String userId, HistoryCursor before, int limit) {
+        int size = pageSize(limit);
+        return toPage(repo.findUserSummaries(userId, before, size + 1), size);
+    }
 
-        List<QAHistory> historyList=  qaHistory.findHistoryByUserId(query.getUserId);
+    public void exportSession(String userId, String sessionId, Consumer<QAHistoryDTO> consumer) {
+        repo.exportSession(userId, sessionId, history -> consumer.accept(toDto(history)));
+    }
+
+    private static int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    private static HistoryPageDTO toPage(List<QAHistorySummary> summaries, int size) {
+        HistoryPageDTO page = new HistoryPageDTO();
+        List<QAHistorySummary> items = summaries.size() > size ? summaries.subList(0, size) : summaries;
+        page.setItems(items.stream().map(QAHistoryService::toSummaryDto).collect(Collectors.toList()));
+        if (summaries.size() > size) {
+            page.setNextCursor(items.get(items.size() - 1).cursor().encode());
+        }
+        return page;
+    }
+
+    static QAHistorySummaryDTO toSummaryDto(QAHistorySummary summary) {
+        QAHistorySummaryDTO dto = new QAHistorySummaryDTO();
+        dto.setId(summary.getId());
+        dto.setSessionId(summary.getSessionId());
+        dto.setQuestionPreview(summary.getQuestionPreview());
+        dto.setTimestamp(summary.getTimestamp());
+        return dto;
+    }
 
-        return toDtoList(historyList);
+    static QAHistoryDTO toDto(QAHistory history) {
+        QAHistoryDTO dto = new QAHistoryDTO();
+        dto.setId(history.getId());
+        dto.setUserId(history.getUserId());
+        dto.setSessionId(history.getSessionId());
+        dto.setQuestion(history.getQuestion());
+        dto.setAnswer(history.getAnswer());
+        dto.setTimestamp(history.getTimestamp());
+        return dto;
     }
 }
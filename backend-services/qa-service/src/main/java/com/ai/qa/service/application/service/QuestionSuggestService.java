@@ -0,0 +1,76 @@
+package com.ai.qa.service.application.service;
+
+import com.ai.qa.service.api.dto.SuggestionResultDTO;
+import com.ai.qa.service.infrastructure.suggest.HotQuestionMiner;
+import com.ai.qa.service.infrastructure.suggest.SuggestionTrie;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 输入问题时的补全：候选是所有用户最近反复问到的问题 (见 {@link HotQuestionMiner})，
+ * 选中后的问题更可能命中答案缓存。
+ * <p>
+ * 补全树在定时任务的线程中重建，建好后替换 volatile 引用；查询始终读到一棵完整的树，不加锁。
+ * 重建失败时继续使用上一棵树。
+ * <p>
+ * 指标：qa.suggest.latency、qa.suggest.entries (当前的候选数)。
+ */
+@Service
+public class QuestionSuggestService {
+
+    private static final Logger log = LoggerFactory.getLogger(QuestionSuggestService.class);
+
+    private final HotQuestionMiner miner;
+    private final boolean enabled;
+    private final int topK;
+    private final Timer latency;
+    private volatile SuggestionTrie trie = SuggestionTrie.EMPTY;
+
+    /**
+     * @param topK 每个前缀预先算好的候选数，也是一次最多返回的条数
+     */
+    public QuestionSuggestService(HotQuestionMiner miner, MeterRegistry meterRegistry,
+                                  @Value("${qa.suggest.enabled:true}") boolean enabled,
+                                  @Value("${qa.suggest.top-k:10}") int topK) {
+        this.miner = miner;
+        this.enabled = enabled;
+        this.topK = Math.max(1, topK);
+        this.latency = Timer.builder("qa.suggest.latency")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("qa.suggest.entries", this, service -> service.trie.size()).register(meterRegistry);
+    }
+
+    public SuggestionResultDTO suggest(String prefix, int limit) {
+        long start = System.nanoTime();
+        List<String> items = trie.suggest(prefix, Math.max(1, Math.min(limit, topK)));
+        latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        SuggestionResultDTO result = new SuggestionResultDTO();
+        result.setItems(items);
+        return result;
+    }
+
+    @Scheduled(initialDelayString = "${qa.suggest.initial-delay:10000}",
+            fixedDelayString = "${qa.suggest.refresh-interval:600000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            SuggestionTrie next = SuggestionTrie.build(miner.mine(), topK);
+            trie = next;
+            log.info("Rebuilt question suggestions: {} entries, {} nodes", next.size(), next.nodeCount());
+        } catch (RuntimeException e) {
+            log.warn("Failed to rebuild question suggestions, keeping {} entries", trie.size(), e);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.ai.qa.service.domain.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 组装提示词用的会话状态：较早问答的摘要，加上摘要之后最近几轮问答的原文。不可变，每次变化生成新实例。
+ */
+public class ConversationState {
+
+    private static final ConversationState EMPTY = new ConversationState(null, null, Collections.emptyList());
+
+    private final String summary;
+    private final HistoryCursor summarizedThrough;
+    private final List<QAHistory> recentTurns;
+
+    /**
+     * @param summary           为 null 表示还没有摘要
+     * @param summarizedThrough 摘要覆盖到的最后一轮，为 null 表示还没有摘要
+     * @param recentTurns       摘要之后的问答，按时间从早到晚
+     */
+    public ConversationState(String summary, HistoryCursor summarizedThrough, List<QAHistory> recentTurns) {
+        this.summary = summary;
+        this.summarizedThrough = summarizedThrough;
+        this.recentTurns = List.copyOf(recentTurns);
+    }
+
+    public static ConversationState empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 追加一轮新的问答 (已在其中时不变)，超过 maxTurns 时丢弃最早的
+     */
+    public ConversationState withTurn(QAHistory turn, int maxTurns) {
+        for (QAHistory existing : recentTurns) {
+            if (existing.getId() != null && existing.getId().equals(turn.getId())) {
+                return this;
+            }
+        }
+        List<QAHistory> turns = new ArrayList<>(recentTurns);
+        turns.add(turn);
+        if (turns.size() > maxTurns) {
+            turns = turns.subList(turns.size() - maxTurns, turns.size());
+        }
+        return new ConversationState(summary, summarizedThrough, turns);
+    }
+
+    /**
+     * 换成新的摘要，through 之前 (含) 的问答已合并进摘要，从原文中移除
+     */
+    public ConversationState folded(String newSummary, HistoryCursor through) {
+        List<QAHistory> turns = new ArrayList<>();
+        for (QAHistory turn : recentTurns) {
+            if (turn.getId() == null || HistoryCursor.of(turn).compareTo(through) > 0) {
+                turns.add(turn);
+            }
+        }
+        return new ConversationState(newSummary, through, turns);
+    }
+
+    public String getSummary() {
+        return summary;
+    }
+
+    public boolean hasSummary() {
+        return summary != null && !summary.isEmpty();
+    }
+
+    public HistoryCursor getSummarizedThrough() {
+        return summarizedThrough;
+    }
+
+    public List<QAHistory> getRecentTurns() {
+        return recentTurns;
+    }
+}
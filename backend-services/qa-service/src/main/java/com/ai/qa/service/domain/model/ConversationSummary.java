@@ -0,0 +1,35 @@
+package com.ai.qa.service.domain.model;
+
+/**
+ * 会话中较早问答的滚动摘要，与问答历史一起持久化；through 之前 (含) 的问答已经合并进摘要
+ */
+public class ConversationSummary {
+
+    private final String sessionId;
+    private final String userId;
+    private final String summary;
+    private final HistoryCursor through;
+
+    public ConversationSummary(String sessionId, String userId, String summary, HistoryCursor through) {
+        this.sessionId = sessionId;
+        this.userId = userId;
+        this.summary = summary;
+        this.through = through;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getSummary() {
+        return summary;
+    }
+
+    public HistoryCursor getThrough() {
+        return through;
+    }
+}
@@ -0,0 +1,71 @@
+package com.ai.qa.service.domain.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * 问答历史分页的位置 (keyset)：上一页最后一条的 (时间, id)，下一页从它之后 (或之前) 开始，
+ * 不用 OFFSET，翻到多深都是一次索引定位。对客户端是不透明的字符串。
+ */
+public class HistoryCursor implements Comparable<HistoryCursor> {
+
+    private final LocalDateTime timestamp;
+    private final long id;
+
+    public HistoryCursor(LocalDateTime timestamp, long id) {
+        this.timestamp = timestamp;
+        this.id = id;
+    }
+
+    /**
+     * 以这一轮问答为界的位置，问答必须已有 id
+     */
+    public static HistoryCursor of(QAHistory history) {
+        return new HistoryCursor(history.getTimestamp(), Long.parseLong(history.getId()));
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * 按 (时间, id) 排序，与分页查询的顺序一致
+     */
+    @Override
+    public int compareTo(HistoryCursor other) {
+        int byTime = timestamp.compareTo(other.timestamp);
+        return byTime != 0 ? byTime : Long.compare(id, other.id);
+    }
+
+    public String encode() {
+        String raw = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return 空值返回 null (从第一页开始)
+     * @throws IllegalArgumentException 不是 {@link #encode()} 生成的字符串
+     */
+    public static HistoryCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid history cursor: " + cursor);
+            }
+            return new HistoryCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid history cursor: " + cursor, e);
+        }
+    }
+}
@@ -1,12 +1,14 @@
 package com.ai.qa.service.domain.model;
 
-import lombok.Getter;
-import lombok.Setter;
+import org.springframework.util.StringUtils;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 
 
-
+/**
+ * 一轮问答 (聚合根)：用户在某个会话中提出的问题，以及模型生成的回答
+ */
 public class QAHistory {
 
     private String id;
@@ -16,39 +18,77 @@ public class QAHistory {
     private LocalDateTime timestamp;
     private String sessionId;
 
-    private Object rag;
+    private QAHistory(String id, String userId, String sessionId, String question, String answer,
+                      LocalDateTime timestamp) {
+        this.id = id;
+        this.userId = userId;
+        this.sessionId = sessionId;
+        this.question = question;
+        this.answer = answer;
+        this.timestamp = timestamp;
+    }
 
-    public String getId(){
-        return this.id;
+    public static QAHistory createNew(String userId, String question, String answer) {
+        return createNew(userId, null, question, answer);
     }
 
     /**
+     * 新的一轮问答，id 在持久化时生成；时间截断到微秒，与数据库 DATETIME(6) 一致，
+     * 内存中的记录和读回的记录在分页游标上比较结果相同
      *
-     * @param question
-     * @return
+     * @param userId 空字符串视为未登录用户
+     */
+    public static QAHistory createNew(String userId, String sessionId, String question, String answer) {
+        return new QAHistory(null, StringUtils.hasText(userId) ? userId : null, sessionId, question, answer,
+                LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+    }
+
+    /**
+     * 从持久化数据还原
      */
-    public String getAnswer(String question) {
-        String response = rag.getContext();
-        return answer+response;
+    public static QAHistory restore(String id, String userId, String sessionId, String question, String answer,
+                                    LocalDateTime timestamp) {
+        return new QAHistory(id, userId, sessionId, question, answer, timestamp);
     }
 
-    private QAHistory(String id){
+    /**
+     * 持久化后回填生成的 id
+     */
+    public void assignId(String id) {
+        if (this.id != null) {
+            throw new IllegalStateException("QAHistory already has id " + this.id);
+        }
+        this.id = id;
+    }
 
+    public String getId(){
+        return this.id;
     }
 
     public String getUserId(){
+        return userId;
+    }
 
+    public String getSessionId() {
+        return sessionId;
     }
 
-    public String getRAGAnswer(){
+    public String getQuestion() {
+        return question;
+    }
 
-        getAnswer();
-        serivice.sss();
-        return  "";
+    public String getAnswer() {
+        return answer;
     }
-    public static QAHistory createNew(String userId, String question, String answer,...){
 
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
 
-        return new QAHistory();
+    /**
+     * 模型基于检索上下文 (RAG) 生成的回答
+     */
+    public String getRAGAnswer(){
+        return answer;
     }
 }
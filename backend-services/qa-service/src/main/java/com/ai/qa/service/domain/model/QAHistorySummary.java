@@ -0,0 +1,56 @@
+package com.ai.qa.service.domain.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * 列表展示用的问答摘要：只有问题的开头，不含回答，查询时不读取回答正文
+ */
+public class QAHistorySummary {
+
+    /**
+     * 问题预览的最大字符数
+     */
+    public static final int PREVIEW_LENGTH = 100;
+
+    private final String id;
+    private final String sessionId;
+    private final String questionPreview;
+    private final LocalDateTime timestamp;
+
+    public QAHistorySummary(String id, String sessionId, String questionPreview, LocalDateTime timestamp) {
+        this.id = id;
+        this.sessionId = sessionId;
+        this.questionPreview = questionPreview;
+        this.timestamp = timestamp;
+    }
+
+    public static QAHistorySummary of(QAHistory history) {
+        String question = history.getQuestion();
+        String preview = question == null || question.length() <= PREVIEW_LENGTH
+                ? question : question.substring(0, PREVIEW_LENGTH);
+        return new QAHistorySummary(history.getId(), history.getSessionId(), preview, history.getTimestamp());
+    }
+
+    /**
+     * 以这一条为界的分页位置
+     */
+    public HistoryCursor cursor() {
+        return new HistoryCursor(timestamp, Long.parseLong(id));
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public String getQuestionPreview() {
+        return questionPreview;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+}
@@ -1,4 +1,80 @@
 package com.ai.qa.service.domain.model;
 
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一次检索得到的上下文 (RAG)：与问题最相关的若干条已有问答，拼接后放进提示词
+ */
 public class QARAG {
+
+    private static final QARAG EMPTY = new QARAG(Collections.emptyList());
+
+    private final List<Passage> passages;
+
+    public QARAG(List<Passage> passages) {
+        this.passages = List.copyOf(passages);
+    }
+
+    public static QARAG empty() {
+        return EMPTY;
+    }
+
+    public boolean isEmpty() {
+        return passages.isEmpty();
+    }
+
+    public List<Passage> getPassages() {
+        return passages;
+    }
+
+    /**
+     * 按相关度从高到低拼接的上下文文本，没有检索结果时为空串
+     */
+    public String getContext() {
+        StringBuilder context = new StringBuilder();
+        for (int i = 0; i < passages.size(); i++) {
+            Passage passage = passages.get(i);
+            context.append('[').append(i + 1).append("] 问题：").append(passage.getQuestion())
+                    .append("\n回答：").append(passage.getAnswer()).append("\n\n");
+        }
+        return context.toString();
+    }
+
+    /**
+     * 一条检索结果
+     */
+    public static class Passage {
+
+        private final String historyId;
+        private final String question;
+        private final String answer;
+        private final float score;
+
+        public Passage(String historyId, String question, String answer, float score) {
+            this.historyId = historyId;
+            this.question = question;
+            this.answer = answer;
+            this.score = score;
+        }
+
+        public String getHistoryId() {
+            return historyId;
+        }
+
+        public String getQuestion() {
+            return question;
+        }
+
+        public String getAnswer() {
+            return answer;
+        }
+
+        /**
+         * 与问题的余弦相似度
+         */
+        public float getScore() {
+            return score;
+        }
+    }
 }
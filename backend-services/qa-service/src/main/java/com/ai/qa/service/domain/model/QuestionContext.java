@@ -0,0 +1,69 @@
+package com.ai.qa.service.domain.model;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 回答一个问题之前并行准备的上下文：提问用户、会话状态 (摘要和最近几轮问答)、检索结果。
+ * 某个分支超时或失败时使用空结果，并记录在 {@link #getDegraded()} 中。
+ */
+public class QuestionContext {
+
+    /**
+     * 并行加载的各个分支
+     */
+    public enum Branch {
+        USER, HISTORY, RETRIEVAL
+    }
+
+    private final String user;
+    private final ConversationState conversation;
+    private final QARAG rag;
+    private final Set<Branch> degraded;
+
+    public QuestionContext(String user, ConversationState conversation, QARAG rag, Set<Branch> degraded) {
+        this.user = user;
+        this.conversation = conversation;
+        this.rag = rag;
+        this.degraded = degraded.isEmpty()
+                ? Collections.emptySet() : Collections.unmodifiableSet(EnumSet.copyOf(degraded));
+    }
+
+    /**
+     * user-service 返回的用户信息；未登录、用户不存在或查询失败时为 null
+     */
+    public String getUser() {
+        return user;
+    }
+
+    /**
+     * 同一会话之前的内容：较早问答的摘要和最近几轮问答
+     */
+    public ConversationState getConversation() {
+        return conversation;
+    }
+
+    /**
+     * 同一会话中最近的问答原文，按时间从早到晚
+     */
+    public List<QAHistory> getHistory() {
+        return conversation.getRecentTurns();
+    }
+
+    public QARAG getRag() {
+        return rag;
+    }
+
+    /**
+     * 超时或失败、使用了空结果的分支
+     */
+    public Set<Branch> getDegraded() {
+        return degraded;
+    }
+
+    public boolean isDegraded(Branch branch) {
+        return degraded.contains(branch);
+    }
+}
@@ -0,0 +1,16 @@
+package com.ai.qa.service.domain.repo;
+
+import com.ai.qa.service.domain.model.ConversationSummary;
+
+import java.util.Optional;
+
+public interface ConversationSummaryRepo {
+
+    Optional<ConversationSummary> findBySession(String sessionId);
+
+    /**
+     * 插入或覆盖会话的摘要
+     */
+    void save(ConversationSummary summary);
+
+}
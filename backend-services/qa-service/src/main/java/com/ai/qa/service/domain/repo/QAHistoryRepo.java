@@ -1,9 +1,12 @@
 package com.ai.qa.service.domain.repo;
 
+import com.ai.qa.service.domain.model.HistoryCursor;
 import com.ai.qa.service.domain.model.QAHistory;
+import com.ai.qa.service.domain.model.QAHistorySummary;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface QAHistoryRepo {
 
@@ -11,4 +14,24 @@ public interface QAHistoryRepo {
     Optional<QAHistory> findHistoryById(String id);
     List<QAHistory> findHistoryBySession(String sessionId);
 
+    /**
+     * 用户某个会话中 after 之后最新的 limit 轮问答，按时间正序；after 为 null 时不限制起点
+     */
+    List<QAHistory> findRecentTurns(String userId, String sessionId, HistoryCursor after, int limit);
+
+    /**
+     * 用户某个会话中 after 之后的问答摘要，按时间正序，最多 limit 条；after 为 null 时从第一条开始
+     */
+    List<QAHistorySummary> findSessionSummaries(String userId, String sessionId, HistoryCursor after, int limit);
+
+    /**
+     * 用户 before 之前的问答摘要 (所有会话)，按时间倒序，最多 limit 条；before 为 null 时从最新一条开始
+     */
+    List<QAHistorySummary> findUserSummaries(String userId, HistoryCursor before, int limit);
+
+    /**
+     * 按时间正序逐条读取用户某个会话的完整问答，不把整个会话读进内存，用于导出
+     */
+    void exportSession(String userId, String sessionId, Consumer<QAHistory> consumer);
+
 }
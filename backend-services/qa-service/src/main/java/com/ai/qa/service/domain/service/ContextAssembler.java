@@ -0,0 +1,116 @@
+package com.ai.qa.service.domain.service;
+
+import com.ai.qa.service.domain.model.ConversationState;
+import com.ai.qa.service.domain.model.QAHistory;
+import com.ai.qa.service.domain.model.QARAG;
+import com.ai.qa.service.infrastructure.llm.ChatMessage;
+import com.ai.qa.service.infrastructure.llm.TokenCounter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按 token 预算组装提示词。系统提示词和当前问题总是带上，其余部分按优先级依次放入，放不下的整段跳过：
+ * 最近一轮问答 (追问通常指向它)、会话摘要、检索到的相关问答、其余最近的问答 (从新到旧)。
+ * 输出顺序为系统提示词、检索结果、摘要、按时间排列的问答、当前问题。
+ * <p>
+ * token 数由 {@link TokenCounter} 本地估算，会话状态本身有上限 (见 {@link ConversationMemory})，
+ * 组装耗时与会话长度无关。
+ * <p>
+ * 指标：qa.context.prompt.tokens (估算的提示词 token 数)、qa.context.dropped{part=turn|summary|rag}。
+ */
+@Service
+public class ContextAssembler {
+
+    private final int maxPromptTokens;
+    private final DistributionSummary promptTokens;
+    private final Counter droppedTurns;
+    private final Counter droppedSummary;
+    private final Counter droppedRag;
+
+    /**
+     * @param maxPromptTokens 提示词的 token 上限，需给回答留出模型上下文窗口的剩余部分
+     */
+    public ContextAssembler(MeterRegistry meterRegistry,
+                            @Value("${qa.context.max-prompt-tokens:6000}") int maxPromptTokens) {
+        this.maxPromptTokens = maxPromptTokens;
+        this.promptTokens = DistributionSummary.builder("qa.context.prompt.tokens").register(meterRegistry);
+        this.droppedTurns = Counter.builder("qa.context.dropped").tag("part", "turn").register(meterRegistry);
+        this.droppedSummary = Counter.builder("qa.context.dropped").tag("part", "summary").register(meterRegistry);
+        this.droppedRag = Counter.builder("qa.context.dropped").tag("part", "rag").register(meterRegistry);
+    }
+
+    public List<ChatMessage> assemble(String systemPrompt, QARAG rag, ConversationState conversation,
+                                      String question) {
+        ChatMessage system = ChatMessage.system(systemPrompt);
+        ChatMessage current = ChatMessage.user(question);
+        int remaining = maxPromptTokens - TokenCounter.count(system) - TokenCounter.count(current);
+
+        // 放入的问答是 turns[from..] 这一段最近的问答
+        List<QAHistory> turns = conversation.getRecentTurns();
+        int from = turns.size();
+        if (!turns.isEmpty() && cost(turns.get(from - 1)) <= remaining) {
+            remaining -= cost(turns.get(from - 1));
+            from--;
+        }
+
+        ChatMessage summary = null;
+        if (conversation.hasSummary()) {
+            ChatMessage candidate = ChatMessage.system("以下是本会话较早内容的摘要：\n" + conversation.getSummary());
+            int cost = TokenCounter.count(candidate);
+            if (cost <= remaining) {
+                summary = candidate;
+                remaining -= cost;
+            } else {
+                droppedSummary.increment();
+            }
+        }
+
+        ChatMessage reference = null;
+        if (!rag.isEmpty()) {
+            ChatMessage candidate = ChatMessage.system("以下是与当前问题相关的历史问答，可作为参考：\n\n" + rag.getContext());
+            int cost = TokenCounter.count(candidate);
+            if (cost <= remaining) {
+                reference = candidate;
+                remaining -= cost;
+            } else {
+                droppedRag.increment();
+            }
+        }
+
+        // 其余轮次从新到旧放入，遇到放不下的就停止，保持放入的问答在时间上连续
+        while (from < turns.size() && from > 0 && cost(turns.get(from - 1)) <= remaining) {
+            remaining -= cost(turns.get(from - 1));
+            from--;
+        }
+
+        List<ChatMessage> messages = new ArrayList<>();
+        messages.add(system);
+        if (reference != null) {
+            messages.add(reference);
+        }
+        if (summary != null) {
+            messages.add(summary);
+        }
+        for (QAHistory turn : turns.subList(from, turns.size())) {
+            messages.add(ChatMessage.user(turn.getQuestion()));
+            messages.add(ChatMessage.assistant(turn.getAnswer()));
+        }
+        messages.add(current);
+        if (from > 0) {
+            droppedTurns.increment(from);
+        }
+        promptTokens.record(maxPromptTokens - remaining);
+        return messages;
+    }
+
+    private static int cost(QAHistory turn) {
+        return 2 * TokenCounter.MESSAGE_OVERHEAD + TokenCounter.count(turn.getQuestion())
+                + TokenCounter.count(turn.getAnswer());
+    }
+}
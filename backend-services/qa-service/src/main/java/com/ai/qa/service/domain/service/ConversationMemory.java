@@ -0,0 +1,198 @@
+package com.ai.qa.service.domain.service;
+
+import com.ai.qa.service.domain.model.ConversationState;
+import com.ai.qa.service.domain.model.ConversationSummary;
+import com.ai.qa.service.domain.model.HistoryCursor;
+import com.ai.qa.service.domain.model.QAHistory;
+import com.ai.qa.service.domain.repo.ConversationSummaryRepo;
+import com.ai.qa.service.domain.repo.QAHistoryRepo;
+import com.ai.qa.service.infrastructure.llm.ConversationSummarizer;
+import com.ai.qa.service.infrastructure.llm.TokenCounter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 每个会话的滚动状态：最近 recentTurns 轮问答保留原文，更早的合并进一份摘要。
+ * 摘要之后的原文攒到 recentTurns + foldBatch 轮时，在后台调用一次模型把多出的轮次合并进摘要，
+ * 摘要与合并到的位置一起持久化，不需要每次都重读整个会话。
+ * <p>
+ * 状态缓存在内存中，保存问答后 {@link #append(QAHistory)} 增量更新；未缓存的会话从数据库读取摘要，
+ * 再按 (create_time, id) 索引只读取摘要之后最新的几轮。读取量和提示词长度都与会话长度无关。
+ * <p>
+ * 会话 id 由客户端传入，状态按 (用户, 会话) 区分，只读取该用户自己的问答；摘要属于其他用户时不使用，
+ * 也不覆盖 (摘要表以会话 id 为主键)，这时该用户在这个会话中只保留最近的原文。
+ * <p>
+ * 合并失败时原文继续累积，超过 recentTurns + 2 * foldBatch 轮后丢弃最早的 (不进入摘要)。
+ * 同一会话同时只有一个合并在进行。会话在加载过程中恰好保存了新问答时，缓存中可能缺少这一轮，条目过期后恢复。
+ * <p>
+ * 指标：qa.context.fold{outcome=ok|error|rejected}、qa.context.turns.dropped。
+ */
+@Service
+public class ConversationMemory {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversationMemory.class);
+
+    private final QAHistoryRepo historyRepo;
+    private final ConversationSummaryRepo summaryRepo;
+    private final ConversationSummarizer summarizer;
+    private final ExecutorService executor;
+    private final int recentTurns;
+    private final int foldBatch;
+    private final int maxTurns;
+    private final int summaryMaxTokens;
+    private final Cache<String, ConversationState> states;
+    private final Set<String> folding = ConcurrentHashMap.newKeySet();
+
+    private final Counter folded;
+    private final Counter foldFailed;
+    private final Counter foldRejected;
+    private final Counter dropped;
+
+    /**
+     * @param recentTurns      保留原文的最近轮数
+     * @param foldBatch        超出的轮数攒够这么多才合并一次
+     * @param summaryMaxTokens 摘要的 token 上限
+     */
+    public ConversationMemory(QAHistoryRepo historyRepo, ConversationSummaryRepo summaryRepo,
+                              ConversationSummarizer summarizer,
+                              @Qualifier("conversationSummaryExecutor") ExecutorService executor,
+                              MeterRegistry meterRegistry,
+                              @Value("${qa.context.recent-turns:6}") int recentTurns,
+                              @Value("${qa.context.fold-batch:4}") int foldBatch,
+                              @Value("${qa.context.summary.max-tokens:500}") int summaryMaxTokens,
+                              @Value("${qa.context.cache.max-size:10000}") long cacheMaxSize,
+                              @Value("${qa.context.cache.expire-after-access:30m}") Duration expireAfterAccess) {
+        this.historyRepo = historyRepo;
+        this.summaryRepo = summaryRepo;
+        this.summarizer = summarizer;
+        this.executor = executor;
+        this.recentTurns = recentTurns;
+        this.foldBatch = Math.max(1, foldBatch);
+        this.maxTurns = recentTurns + 2 * this.foldBatch;
+        this.summaryMaxTokens = summaryMaxTokens;
+        this.states = CacheBuilder.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterAccess(expireAfterAccess)
+                .build();
+        this.folded = Counter.builder("qa.context.fold").tag("outcome", "ok").register(meterRegistry);
+        this.foldFailed = Counter.builder("qa.context.fold").tag("outcome", "error").register(meterRegistry);
+        this.foldRejected = Counter.builder("qa.context.fold").tag("outcome", "rejected").register(meterRegistry);
+        this.dropped = Counter.builder("qa.context.turns.dropped").register(meterRegistry);
+    }
+
+    /**
+     * 会话的当前状态，未缓存时从数据库读取摘要和其后最新的几轮
+     */
+    public ConversationState load(String userId, String sessionId) {
+        String key = key(userId, sessionId);
+        ConversationState state;
+        try {
+            state = states.get(key, () -> read(userId, sessionId));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Failed to load conversation " + sessionId, e.getCause());
+        }
+        maybeFold(key, userId, sessionId, state);
+        return state;
+    }
+
+    /**
+     * 问答保存之后调用；会话未缓存时不做任何事，下次加载时从数据库读到
+     */
+    public void append(QAHistory turn) {
+        if (turn.getSessionId() == null || turn.getId() == null) {
+            return;
+        }
+        String key = key(turn.getUserId(), turn.getSessionId());
+        ConversationState state = states.asMap().computeIfPresent(key, (session, current) -> {
+            ConversationState next = current.withTurn(turn, maxTurns);
+            int lost = current.getRecentTurns().size() + 1 - next.getRecentTurns().size();
+            if (next != current && lost > 0) {
+                dropped.increment(lost);
+            }
+            return next;
+        });
+        if (state != null) {
+            maybeFold(key, turn.getUserId(), turn.getSessionId(), state);
+        }
+    }
+
+    private static String key(String userId, String sessionId) {
+        // 用户 id 是数字，不含分隔符
+        return userId + ":" + sessionId;
+    }
+
+    private ConversationState read(String userId, String sessionId) {
+        ConversationSummary summary = summaryRepo.findBySession(sessionId)
+                .filter(stored -> ownedBy(stored, userId))
+                .orElse(null);
+        HistoryCursor through = summary == null ? null : summary.getThrough();
+        // 多读的轮数不超过一次合并的量，读到就触发合并
+        List<QAHistory> turns = historyRepo.findRecentTurns(userId, sessionId, through, recentTurns + foldBatch);
+        return new ConversationState(summary == null ? null : summary.getSummary(), through, turns);
+    }
+
+    private static boolean ownedBy(ConversationSummary summary, String userId) {
+        return Objects.equals(summary.getUserId(), userId);
+    }
+
+    private void maybeFold(String key, String userId, String sessionId, ConversationState state) {
+        List<QAHistory> turns = state.getRecentTurns();
+        if (turns.size() < recentTurns + foldBatch || !folding.add(key)) {
+            return;
+        }
+        List<QAHistory> older = new ArrayList<>(turns.subList(0, turns.size() - recentTurns));
+        try {
+            executor.execute(() -> {
+                try {
+                    fold(key, userId, sessionId, state.getSummary(), older);
+                } finally {
+                    folding.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            folding.remove(key);
+            foldRejected.increment();
+            log.debug("Summary executor is full, folding of session {} postponed", sessionId);
+        }
+    }
+
+    private void fold(String key, String userId, String sessionId, String previous, List<QAHistory> older) {
+        QAHistory last = older.get(older.size() - 1);
+        try {
+            if (summaryRepo.findBySession(sessionId).filter(stored -> !ownedBy(stored, userId)).isPresent()) {
+                log.debug("Session {} is summarized for another user, not folding", sessionId);
+                return;
+            }
+            String summary = TokenCounter.truncate(summarizer.summarize(previous, older, summaryMaxTokens),
+                    summaryMaxTokens);
+            HistoryCursor through = HistoryCursor.of(last);
+            summaryRepo.save(new ConversationSummary(sessionId, userId, summary, through));
+            states.asMap().computeIfPresent(key, (session, current) -> current.folded(summary, through));
+            folded.increment();
+        } catch (RuntimeException e) {
+            foldFailed.increment();
+            log.warn("Failed to summarize {} turns of session {}", older.size(), sessionId, e);
+        }
+    }
+}
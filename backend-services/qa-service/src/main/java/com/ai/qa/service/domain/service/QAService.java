@@ -1,37 +1,140 @@
 package com.ai.qa.service.domain.service;
 
-import com.ai.qa.service.infrastructure.feign.UserClient;
-import org.springframework.beans.factory.annotation.Autowired;
+import com.ai.qa.service.domain.model.QAHistory;
+import com.ai.qa.service.domain.model.QuestionContext;
+import com.ai.qa.service.domain.repo.QAHistoryRepo;
+import com.ai.qa.service.infrastructure.llm.ChatCompletionClient;
+import com.ai.qa.service.infrastructure.llm.ChatMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
 
 @Service
 public class QAService {
 
-    @Autowired
-    private UserClient userClient;
+    private static final Logger log = LoggerFactory.getLogger(QAService.class);
+
+    private final QuestionContextLoader contextLoader;
+    private final ContextAssembler contextAssembler;
+    private final ConversationMemory conversationMemory;
+    private final ChatCompletionClient chatClient;
+    private final QAHistoryRepo historyRepo;
+    private final RetrievalService retrievalService;
+    private final SemanticAnswerCache answerCache;
+    private final String systemPrompt;
+
+    public QAService(QuestionContextLoader contextLoader, ContextAssembler contextAssembler,
+                     ConversationMemory conversationMemory, ChatCompletionClient chatClient, QAHistoryRepo historyRepo,
+                     RetrievalService retrievalService, SemanticAnswerCache answerCache,
+                     @Value("${qa.llm.system-prompt:你是一个专业、简洁的问答助手。}") String systemPrompt) {
+        this.contextLoader = contextLoader;
+        this.contextAssembler = contextAssembler;
+        this.conversationMemory = conversationMemory;
+        this.chatClient = chatClient;
+        this.historyRepo = historyRepo;
+        this.retrievalService = retrievalService;
+        this.answerCache = answerCache;
+        this.systemPrompt = systemPrompt;
+    }
 
     public String processQuestion(Long userId) {
-        // 1. 调用 user-service 获取用户信息
-        System.out.println("Fetching user info for userId: " + userId);
-        String user;
-        try {
-
-            // 就像调用一个本地方法一样！
-            user = userClient.getUserById(userId);
-        } catch (Exception e) {
-            // Feign 在遇到 4xx/5xx 错误时会抛出异常，需要处理
-            System.err.println("Failed to fetch user info for userId: " + userId + ". Error: " + e.getMessage());
+        // 1. 调用 user-service 获取用户信息 (与会话历史、检索一样作为并行分支执行，有自己的超时时间)
+        log.debug("Fetching user info for userId: {}", userId);
+        QuestionContext context = contextLoader.load(String.valueOf(userId), null, null).join();
+        if (context.isDegraded(QuestionContext.Branch.USER)) {
             // 可以根据业务返回一个默认的、友好的错误信息
             return "Sorry, I cannot get your user information right now.";
         }
 
+        String user = context.getUser();
         if (user == null) {
             return "Sorry, user with ID " + userId + " not found.";
         }
 
-        System.out.println("Question from user: " + user);
+        log.debug("Question from user: {}", user);
 
         // 返回最终结果
         return user;
     }
+
+    /**
+     * 流式回答：先查语义答案缓存，命中时直接返回已有回答；否则检索相关的已有问答作为上下文，
+     * 再把模型生成的每个文本增量立即向下游发出。
+     * <p>
+     * 模型正常输出完毕后，完整的回答在后台线程写入问答历史并加入检索索引和答案缓存，不占用响应流；
+     * 下游取消订阅 (用户断开) 时上游生成随之取消，不完整的回答不会保存。
+     * 缓存或检索失败不影响回答，只是按未命中 / 没有上下文处理。
+     *
+     * @param useCache false 时跳过答案缓存，总是重新生成 (生成的回答仍会加入缓存)
+     * @return 回答的文本增量
+     */
+    public Flux<String> streamAnswer(String userId, String sessionId, String question, boolean useCache) {
+        if (!answerCache.isEnabled()) {
+            return generate(userId, sessionId, question);
+        }
+        if (!useCache) {
+            answerCache.recordBypass();
+            return generate(userId, sessionId, question);
+        }
+        return Mono.fromCallable(() -> answerCache.lookup(userId, question))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(e -> {
+                    log.warn("Answer cache lookup failed for user {}, generating", userId, e);
+                    return Mono.just(Optional.<QAHistory>empty());
+                })
+                .flatMapMany(cached -> cached
+                        .map(hit -> Flux.just(hit.getAnswer())
+                                .doOnComplete(() -> saveAsync(
+                                        QAHistory.createNew(userId, sessionId, question, hit.getAnswer()), false)))
+                        .orElseGet(() -> generate(userId, sessionId, question)));
+    }
+
+    /**
+     * 并行加载用户、会话历史和检索结果后生成回答；任一分支超时只是少一部分上下文
+     */
+    private Flux<String> generate(String userId, String sessionId, String question) {
+        return Mono.fromFuture(() -> contextLoader.load(userId, sessionId, question))
+                .flatMapMany(context -> {
+                    StringBuilder answer = new StringBuilder();
+                    long start = System.nanoTime();
+                    return chatClient.stream(prompt(context, question))
+                            .doOnNext(answer::append)
+                            .doOnComplete(() -> {
+                                answerCache.recordGeneration(Duration.ofNanos(System.nanoTime() - start));
+                                saveAsync(QAHistory.createNew(userId, sessionId, question, answer.toString()), true);
+                            });
+                });
+    }
+
+    /**
+     * 系统提示词、检索到的相关问答、会话摘要和最近几轮问答、当前问题，按 token 预算取舍
+     */
+    private List<ChatMessage> prompt(QuestionContext context, String question) {
+        return contextAssembler.assemble(systemPrompt, context.getRag(), context.getConversation(), question);
+    }
+
+    /**
+     * @param index 是否加入检索索引和答案缓存；缓存命中的回答已经在索引中，不再重复加入
+     */
+    private void saveAsync(QAHistory history, boolean index) {
+        Mono.fromRunnable(() -> {
+                    historyRepo.save(history);
+                    conversationMemory.append(history);
+                    if (index) {
+                        retrievalService.index(history);
+                        answerCache.put(history);
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .subscribe(null, e -> log.error("Failed to save or index answer for user {} session {}",
+                        history.getUserId(), history.getSessionId(), e));
+    }
 }
@@ -0,0 +1,149 @@
+package com.ai.qa.service.domain.service;
+
+import com.ai.qa.service.domain.model.ConversationState;
+import com.ai.qa.service.domain.model.QARAG;
+import com.ai.qa.service.domain.model.QuestionContext;
+import com.ai.qa.service.domain.model.QuestionContext.Branch;
+import com.ai.qa.service.infrastructure.feign.UserClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 并行加载回答问题所需的上下文：查询用户 (user-service)、读取会话状态 ({@link ConversationMemory})、检索相关问答，
+ * 三个分支同时在专用线程池上执行，总耗时取决于最慢的分支而不是三者之和。
+ * <p>
+ * 每个分支有自己的截止时间 (从开始加载时算起)，超时或失败时取消该分支并使用空结果，
+ * 不影响其他分支；由调用方根据 {@link QuestionContext#getDegraded()} 决定是否可以继续。
+ * 线程池满时分支同样按失败处理，不会占用调用方线程。
+ * <p>
+ * 指标：qa.pipeline.branch{branch, outcome=ok|timeout|error|rejected}。
+ */
+@Service
+public class QuestionContextLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(QuestionContextLoader.class);
+
+    private final UserClient userClient;
+    private final ConversationMemory conversationMemory;
+    private final RetrievalService retrievalService;
+    private final ExecutorService executor;
+    private final MeterRegistry meterRegistry;
+    private final Duration userTimeout;
+    private final Duration historyTimeout;
+    private final Duration retrievalTimeout;
+
+    public QuestionContextLoader(UserClient userClient, ConversationMemory conversationMemory,
+                                 RetrievalService retrievalService,
+                                 @Qualifier("qaPipelineExecutor") ExecutorService executor,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${qa.pipeline.timeout.user:500ms}") Duration userTimeout,
+                                 @Value("${qa.pipeline.timeout.history:300ms}") Duration historyTimeout,
+                                 @Value("${qa.pipeline.timeout.retrieval:2s}") Duration retrievalTimeout) {
+        this.userClient = userClient;
+        this.conversationMemory = conversationMemory;
+        this.retrievalService = retrievalService;
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+        this.userTimeout = userTimeout;
+        this.historyTimeout = historyTimeout;
+        this.retrievalTimeout = retrievalTimeout;
+    }
+
+    /**
+     * @param userId    为空时不查询用户
+     * @param sessionId 为空时不读取会话历史
+     * @param question  为空时不检索
+     */
+    public CompletableFuture<QuestionContext> load(String userId, String sessionId, String question) {
+        Set<Branch> degraded = Collections.synchronizedSet(EnumSet.noneOf(Branch.class));
+        CompletableFuture<String> user = StringUtils.hasText(userId)
+                ? branch(Branch.USER, userTimeout, () -> userClient.getUserById(Long.valueOf(userId)), null, degraded)
+                : CompletableFuture.completedFuture(null);
+        CompletableFuture<ConversationState> history = StringUtils.hasText(sessionId)
+                ? branch(Branch.HISTORY, historyTimeout, () -> conversationMemory.load(userId, sessionId),
+                ConversationState.empty(), degraded)
+                : CompletableFuture.completedFuture(ConversationState.empty());
+        CompletableFuture<QARAG> rag = StringUtils.hasText(question)
+                ? branch(Branch.RETRIEVAL, retrievalTimeout, () -> retrievalService.retrieve(userId, question),
+                QARAG.empty(), degraded)
+                : CompletableFuture.completedFuture(QARAG.empty());
+        return CompletableFuture.allOf(user, history, rag)
+                .thenApply(done -> new QuestionContext(user.join(), history.join(), rag.join(), degraded));
+    }
+
+    /**
+     * 在线程池上执行一个分支，超时或失败时中断它并返回 fallback；返回的 future 不会异常结束
+     */
+    private <T> CompletableFuture<T> branch(Branch branch, Duration timeout, Callable<T> task, T fallback,
+                                            Set<Branch> degraded) {
+        long start = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> running;
+        try {
+            running = executor.submit(() -> {
+                try {
+                    result.complete(task.call());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            running = null;
+            result.completeExceptionally(e);
+        }
+        Future<?> submitted = running;
+        return result.orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS)
+                .handle((value, error) -> {
+                    Throwable cause = unwrap(error);
+                    String outcome = cause == null ? "ok"
+                            : cause instanceof TimeoutException ? "timeout"
+                            : cause instanceof RejectedExecutionException ? "rejected" : "error";
+                    Timer.builder("qa.pipeline.branch")
+                            .tag("branch", branch.name().toLowerCase(Locale.ROOT))
+                            .tag("outcome", outcome)
+                            .register(meterRegistry)
+                            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    if (cause == null) {
+                        return value;
+                    }
+                    if (submitted != null) {
+                        submitted.cancel(true);
+                    }
+                    degraded.add(branch);
+                    if (cause instanceof TimeoutException) {
+                        log.warn("Branch {} did not finish within {}, continuing without it", branch, timeout);
+                    } else {
+                        log.warn("Branch {} failed ({}), continuing without it", branch, outcome, cause);
+                    }
+                    return fallback;
+                });
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+}
@@ -0,0 +1,109 @@
+package com.ai.qa.service.domain.service;
+
+import com.ai.qa.service.domain.model.QAHistory;
+import com.ai.qa.service.domain.model.QARAG;
+import com.ai.qa.service.domain.repo.QAHistoryRepo;
+import com.ai.qa.service.infrastructure.llm.EmbeddingModel;
+import com.ai.qa.service.infrastructure.vector.HnswIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 检索增强 (RAG)：已回答的问答对向量化后写入 {@link HnswIndex}，新问题到来时检索最相似的几条作为上下文。
+ * <p>
+ * qa.rag.scope=user (默认) 时只检索提问者自己的历史，索引中的标签为用户ID；global 时在所有用户的问答中检索。
+ */
+@Service
+public class RetrievalService {
+
+    private static final Logger log = LoggerFactory.getLogger(RetrievalService.class);
+
+    /**
+     * 未登录用户的问答使用的标签
+     */
+    private static final long ANONYMOUS = 0L;
+
+    private final EmbeddingModel embeddingModel;
+    private final HnswIndex index;
+    private final QAHistoryRepo historyRepo;
+    private final boolean userScoped;
+    private final int topK;
+    private final int ef;
+    private final float minScore;
+
+    /**
+     * @param ef       搜索时的候选集大小，调大提高召回率
+     * @param minScore 相似度低于该值的结果不作为上下文
+     */
+    public RetrievalService(EmbeddingModel embeddingModel, @Qualifier("ragIndex") HnswIndex index,
+                            QAHistoryRepo historyRepo,
+                            @Value("${qa.rag.scope:user}") String scope,
+                            @Value("${qa.rag.top-k:3}") int topK,
+                            @Value("${qa.rag.ef:64}") int ef,
+                            @Value("${qa.rag.min-score:0.75}") float minScore) {
+        this.embeddingModel = embeddingModel;
+        this.index = index;
+        this.historyRepo = historyRepo;
+        this.userScoped = !"global".equalsIgnoreCase(scope);
+        this.topK = topK;
+        this.ef = ef;
+        this.minScore = minScore;
+    }
+
+    /**
+     * 检索与问题最相关的已有问答
+     */
+    public QARAG retrieve(String userId, String question) {
+        if (index.size() == 0) {
+            return QARAG.empty();
+        }
+        float[] vector = embeddingModel.embed(question);
+        long tag = userScoped ? tagOf(userId) : HnswIndex.ANY_TAG;
+        List<QARAG.Passage> passages = new ArrayList<>(topK);
+        for (HnswIndex.SearchHit hit : index.search(vector, topK, ef, tag)) {
+            if (hit.getScore() < minScore) {
+                break;
+            }
+            historyRepo.findHistoryById(String.valueOf(hit.getExternalId())).ifPresent(history ->
+                    passages.add(new QARAG.Passage(history.getId(), history.getQuestion(), history.getAnswer(),
+                            hit.getScore())));
+        }
+        return new QARAG(passages);
+    }
+
+    /**
+     * 把一轮已保存的问答加入索引
+     */
+    public void index(QAHistory history) {
+        if (history.getId() == null) {
+            throw new IllegalArgumentException("QAHistory must be saved before indexing");
+        }
+        float[] vector = embeddingModel.embed(passageText(history));
+        index.add(Long.parseLong(history.getId()), tagOf(history.getUserId()), vector);
+    }
+
+    /**
+     * 定期把索引写回磁盘，重启后只丢失最后一个周期内加入的问答
+     */
+    @Scheduled(fixedDelayString = "${qa.rag.index.flush-interval:60000}")
+    public void flush() {
+        long start = System.nanoTime();
+        index.flush();
+        log.debug("Flushed RAG index ({} vectors) in {} ms", index.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    static String passageText(QAHistory history) {
+        return "问题：" + history.getQuestion() + "\n回答：" + history.getAnswer();
+    }
+
+    private static long tagOf(String userId) {
+        return userId == null ? ANONYMOUS : Long.parseLong(userId);
+    }
+}
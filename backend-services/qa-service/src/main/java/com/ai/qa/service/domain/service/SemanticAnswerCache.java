@@ -0,0 +1,208 @@
+package com.ai.qa.service.domain.service;
+
+import com.ai.qa.service.domain.model.QAHistory;
+import com.ai.qa.service.domain.repo.QAHistoryRepo;
+import com.ai.qa.service.infrastructure.llm.EmbeddingModel;
+import com.ai.qa.service.infrastructure.vector.HnswIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 语义答案缓存：新问题与某个已回答的问题足够相似时直接返回已有回答，不再调用模型生成。
+ * <p>
+ * 索引中只有问题本身的向量 (检索增强用的索引是问答对的向量)，外部 id 为问答历史 id，标签为用户ID。
+ * qa.answer-cache.scope=user (默认) 时只命中提问者自己问过的问题；global 时命中所有用户的问题，
+ * 只适合回答与提问者无关的场景。
+ * <p>
+ * 超过 ttl 的回答不再命中。HNSW 索引不支持删除，失效通过 {@link #invalidate(String)}、
+ * {@link #invalidateUser(String)}、{@link #invalidateAll()} 记录在内存中，查找时跳过；
+ * 重启后失效记录丢失，由 ttl 兜底。
+ * <p>
+ * 指标：qa.answer.cache.requests{result=hit|miss|bypass}、qa.answer.cache.saved (命中节省的生成时间，
+ * 按 qa.answer.generation 的平均生成时间估算)。
+ */
+@Service
+public class SemanticAnswerCache {
+
+    private static final Logger log = LoggerFactory.getLogger(SemanticAnswerCache.class);
+
+    private static final long ANONYMOUS = 0L;
+    private static final long ALL_USERS = Long.MIN_VALUE;
+
+    /**
+     * 最相似的几个候选可能已过期或失效，多取几个
+     */
+    private static final int CANDIDATES = 4;
+
+    private final EmbeddingModel embeddingModel;
+    private final HnswIndex index;
+    private final QAHistoryRepo historyRepo;
+    private final boolean enabled;
+    private final boolean userScoped;
+    private final float minScore;
+    private final Duration ttl;
+    private final int ef;
+
+    private final Set<Long> invalidatedIds = ConcurrentHashMap.newKeySet();
+    /**
+     * 用户标签 (或 ALL_USERS) -> 失效时间，此前的回答不再命中
+     */
+    private final Map<Long, LocalDateTime> invalidatedBefore = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter bypasses;
+    private final Counter savedSeconds;
+    private final Timer generation;
+
+    /**
+     * @param minScore 问题之间的余弦相似度不低于该值才视为同一个问题
+     * @param ttl      回答的有效期
+     */
+    public SemanticAnswerCache(EmbeddingModel embeddingModel,
+                               @Qualifier("answerCacheIndex") HnswIndex index,
+                               QAHistoryRepo historyRepo, MeterRegistry meterRegistry,
+                               @Value("${qa.answer-cache.enabled:true}") boolean enabled,
+                               @Value("${qa.answer-cache.scope:user}") String scope,
+                               @Value("${qa.answer-cache.min-score:0.95}") float minScore,
+                               @Value("${qa.answer-cache.ttl:7d}") Duration ttl,
+                               @Value("${qa.answer-cache.ef:32}") int ef) {
+        this.embeddingModel = embeddingModel;
+        this.index = index;
+        this.historyRepo = historyRepo;
+        this.enabled = enabled;
+        this.userScoped = !"global".equalsIgnoreCase(scope);
+        this.minScore = minScore;
+        this.ttl = ttl;
+        this.ef = ef;
+        this.hits = requests(meterRegistry, "hit");
+        this.misses = requests(meterRegistry, "miss");
+        this.bypasses = requests(meterRegistry, "bypass");
+        this.savedSeconds = Counter.builder("qa.answer.cache.saved")
+                .description("Estimated generation time saved by cache hits")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.generation = Timer.builder("qa.answer.generation").register(meterRegistry);
+    }
+
+    private static Counter requests(MeterRegistry registry, String result) {
+        return Counter.builder("qa.answer.cache.requests").tag("result", result).register(registry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 查找与问题足够相似、仍然有效的已有回答
+     */
+    public Optional<QAHistory> lookup(String userId, String question) {
+        if (!enabled || index.size() == 0) {
+            misses.increment();
+            return Optional.empty();
+        }
+        float[] vector = embeddingModel.embed(question);
+        long tag = tagOf(userId);
+        LocalDateTime expiredBefore = LocalDateTime.now().minus(ttl);
+        for (HnswIndex.SearchHit hit : index.search(vector, CANDIDATES, ef, userScoped ? tag : HnswIndex.ANY_TAG)) {
+            if (hit.getScore() < minScore) {
+                break;
+            }
+            if (invalidatedIds.contains(hit.getExternalId())) {
+                continue;
+            }
+            Optional<QAHistory> history = historyRepo.findHistoryById(String.valueOf(hit.getExternalId()))
+                    .filter(h -> h.getTimestamp().isAfter(expiredBefore) && !invalidated(hit.getTag(), h));
+            if (history.isPresent()) {
+                hits.increment();
+                savedSeconds.increment(generation.mean(TimeUnit.SECONDS));
+                log.debug("Answer cache hit for user {}: history {} (score {})", userId, hit.getExternalId(),
+                        hit.getScore());
+                return history;
+            }
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * 请求要求跳过缓存时调用，只用于统计
+     */
+    public void recordBypass() {
+        bypasses.increment();
+    }
+
+    /**
+     * 记录一次完整生成的耗时，用于估算命中节省的时间
+     */
+    public void recordGeneration(Duration duration) {
+        generation.record(duration);
+    }
+
+    /**
+     * 把一轮已保存的问答加入缓存
+     */
+    public void put(QAHistory history) {
+        if (!enabled) {
+            return;
+        }
+        if (history.getId() == null) {
+            throw new IllegalArgumentException("QAHistory must be saved before caching");
+        }
+        index.add(Long.parseLong(history.getId()), tagOf(history.getUserId()), embeddingModel.embed(history.getQuestion()));
+    }
+
+    /**
+     * 某一轮问答的回答不再命中 (例如回答被纠正或删除)
+     */
+    public void invalidate(String historyId) {
+        invalidatedIds.add(Long.parseLong(historyId));
+    }
+
+    /**
+     * 某个用户此前的回答都不再命中
+     */
+    public void invalidateUser(String userId) {
+        invalidatedBefore.put(tagOf(userId), LocalDateTime.now());
+    }
+
+    /**
+     * 此前的所有回答都不再命中 (例如更换了模型或系统提示词)
+     */
+    public void invalidateAll() {
+        invalidatedBefore.put(ALL_USERS, LocalDateTime.now());
+    }
+
+    @Scheduled(fixedDelayString = "${qa.rag.index.flush-interval:60000}")
+    public void flush() {
+        if (enabled) {
+            index.flush();
+        }
+    }
+
+    private boolean invalidated(long tag, QAHistory history) {
+        LocalDateTime user = invalidatedBefore.get(tag);
+        LocalDateTime all = invalidatedBefore.get(ALL_USERS);
+        return (user != null && !history.getTimestamp().isAfter(user))
+                || (all != null && !history.getTimestamp().isAfter(all));
+    }
+
+    private static long tagOf(String userId) {
+        return userId == null || userId.isEmpty() ? ANONYMOUS : Long.parseLong(userId);
+    }
+}
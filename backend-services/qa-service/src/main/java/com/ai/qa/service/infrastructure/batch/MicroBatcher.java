@@ -0,0 +1,248 @@
+package com.ai.qa.service.infrastructure.batch;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 微批量调度：把并发到达的单个请求攒成一批，用一次批量调用完成，再把结果分发给各自的调用方。
+ * <p>
+ * 收集线程从队列取出第一个请求后，最多再等待 maxDelay (从该请求入队时算起)，或攒够 maxBatchSize 个就发出；
+ * 同时在途的批次不超过 maxConcurrentBatches，名额用完时收集线程等待，期间到达的请求并入下一批，
+ * 因此下游越慢批次越大。队列满时 {@link #submit(Object)} 立即返回失败的 future
+ * ({@link RejectedExecutionException})，不阻塞调用方线程。
+ * <p>
+ * 批量调用必须按输入顺序返回同样数量的结果；调用失败时这一批的所有 future 都以同一个异常结束。
+ * 发出前已被取消的请求不会进入批次。
+ * <p>
+ * 指标 (标签 name)：qa.batch.size、qa.batch.latency (批量调用耗时)、qa.batch.wait (请求在队列中的等待时间)、
+ * qa.batch.queue (当前排队数)、qa.batch.rejected、qa.batch.failures。
+ *
+ * @param <I> 单个请求
+ * @param <O> 单个结果
+ */
+public class MicroBatcher<I, O> implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(MicroBatcher.class);
+
+    private final String name;
+    private final Function<List<I>, List<O>> batchCall;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Pending<I, O>> queue;
+    private final Semaphore inFlight;
+    private final ExecutorService executor;
+    private final Thread collector;
+    private volatile boolean closed;
+
+    private final DistributionSummary batchSize;
+    private final Timer latency;
+    private final Timer wait;
+    private final Counter rejected;
+    private final Counter failures;
+
+    /**
+     * @param batchCall            批量调用，在调度器自己的线程上执行
+     * @param maxDelay             单个请求为了凑批最多多等的时间
+     * @param queueCapacity        排队上限，超过后拒绝新请求
+     * @param maxConcurrentBatches 同时在途的批量调用数
+     */
+    public MicroBatcher(String name, Function<List<I>, List<O>> batchCall, int maxBatchSize, Duration maxDelay,
+                        int queueCapacity, int maxConcurrentBatches, MeterRegistry meterRegistry) {
+        if (maxBatchSize < 1 || queueCapacity < 1 || maxConcurrentBatches < 1) {
+            throw new IllegalArgumentException("maxBatchSize, queueCapacity and maxConcurrentBatches must be positive");
+        }
+        this.name = name;
+        this.batchCall = batchCall;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.inFlight = new Semaphore(maxConcurrentBatches);
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(maxConcurrentBatches, runnable -> {
+            Thread thread = new Thread(runnable, name + "-batch-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.batchSize = DistributionSummary.builder("qa.batch.size").tag("name", name).register(meterRegistry);
+        this.latency = Timer.builder("qa.batch.latency").tag("name", name).register(meterRegistry);
+        this.wait = Timer.builder("qa.batch.wait").tag("name", name).register(meterRegistry);
+        this.rejected = Counter.builder("qa.batch.rejected").tag("name", name).register(meterRegistry);
+        this.failures = Counter.builder("qa.batch.failures").tag("name", name).register(meterRegistry);
+        Gauge.builder("qa.batch.queue", queue, BlockingQueue::size).tag("name", name).register(meterRegistry);
+
+        this.collector = new Thread(this::collect, name + "-batch-collector");
+        this.collector.setDaemon(true);
+        this.collector.start();
+    }
+
+    /**
+     * 提交一个请求，结果在所在批次完成后通过 future 返回
+     */
+    public CompletableFuture<O> submit(I item) {
+        Pending<I, O> pending = new Pending<>(item);
+        if (closed) {
+            pending.future.completeExceptionally(new RejectedExecutionException(name + " batcher is closed"));
+        } else if (!queue.offer(pending)) {
+            rejected.increment();
+            pending.future.completeExceptionally(new RejectedExecutionException(name + " batch queue is full"));
+        }
+        return pending.future;
+    }
+
+    /**
+     * 依次等待一组结果，总等待时间不超过 timeout。
+     * 任一请求失败、超时或等待被中断时取消其余请求，并抛出运行时异常 (批量调用抛出的运行时异常原样抛出)。
+     */
+    public static <O> List<O> awaitAll(List<CompletableFuture<O>> futures, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        List<O> results = new ArrayList<>(futures.size());
+        try {
+            for (CompletableFuture<O> future : futures) {
+                results.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            }
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(false));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Batched call failed", e.getCause());
+        } catch (TimeoutException e) {
+            futures.forEach(future -> future.cancel(false));
+            throw new IllegalStateException("Batched call did not complete within " + timeout, e);
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(false));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a batched call", e);
+        }
+        return results;
+    }
+
+    /**
+     * 不再接受新请求，已排队的请求发出并等待完成
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            collector.join(TimeUnit.SECONDS.toMillis(30));
+            // 与 close 并发提交、在收集线程退出后才入队的请求
+            List<Pending<I, O>> leftover = new ArrayList<>();
+            queue.drainTo(leftover);
+            leftover.forEach(pending -> pending.future.completeExceptionally(
+                    new RejectedExecutionException(name + " batcher is closed")));
+            executor.shutdown();
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Batcher {} did not finish in-flight batches on close", name);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void collect() {
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Pending<I, O> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<Pending<I, O>> batch = new ArrayList<>(maxBatchSize);
+                batch.add(first);
+                long deadline = first.enqueuedAt + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending<I, O> next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                // 等待在途名额期间到达的请求并入这一批
+                inFlight.acquire();
+                queue.drainTo(batch, maxBatchSize - batch.size());
+                try {
+                    executor.execute(() -> {
+                        try {
+                            dispatch(batch);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    inFlight.release();
+                    batch.forEach(pending -> pending.future.completeExceptionally(e));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void dispatch(List<Pending<I, O>> batch) {
+        long now = System.nanoTime();
+        List<Pending<I, O>> live = new ArrayList<>(batch.size());
+        List<I> items = new ArrayList<>(batch.size());
+        for (Pending<I, O> pending : batch) {
+            wait.record(now - pending.enqueuedAt, TimeUnit.NANOSECONDS);
+            if (!pending.future.isDone()) {
+                live.add(pending);
+                items.add(pending.item);
+            }
+        }
+        if (items.isEmpty()) {
+            return;
+        }
+        batchSize.record(items.size());
+        List<O> results;
+        try {
+            results = latency.recordCallable(() -> batchCall.apply(items));
+            if (results == null || results.size() != items.size()) {
+                throw new IllegalStateException("Batch call of " + name + " returned "
+                        + (results == null ? "null" : results.size() + " results") + " for " + items.size() + " items");
+            }
+        } catch (Exception e) {
+            failures.increment();
+            log.warn("Batch call of {} failed for {} items", name, items.size(), e);
+            live.forEach(pending -> pending.future.completeExceptionally(e));
+            return;
+        }
+        for (int i = 0; i < live.size(); i++) {
+            live.get(i).future.complete(results.get(i));
+        }
+    }
+
+    private static final class Pending<I, O> {
+
+        final I item;
+        final long enqueuedAt = System.nanoTime();
+        final CompletableFuture<O> future = new CompletableFuture<>();
+
+        Pending(I item) {
+            this.item = item;
+        }
+    }
+}
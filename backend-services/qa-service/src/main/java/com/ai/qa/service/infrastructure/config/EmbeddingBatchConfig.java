@@ -0,0 +1,44 @@
+package com.ai.qa.service.infrastructure.config;
+
+import com.ai.qa.service.infrastructure.batch.MicroBatcher;
+import com.ai.qa.service.infrastructure.llm.BatchingEmbeddingModel;
+import com.ai.qa.service.infrastructure.llm.EmbeddingModel;
+import com.ai.qa.service.infrastructure.llm.OpenAiEmbeddingClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class EmbeddingBatchConfig {
+
+    /**
+     * 向量化请求的批量调度器，关闭时发出已排队的请求
+     */
+    @Bean(destroyMethod = "close")
+    public MicroBatcher<String, float[]> embeddingBatcher(OpenAiEmbeddingClient embeddingClient,
+                                                          @Value("${qa.embedding.batch.max-size:64}") int maxSize,
+                                                          @Value("${qa.embedding.batch.max-delay:5ms}") Duration maxDelay,
+                                                          @Value("${qa.embedding.batch.queue-capacity:1024}") int queueCapacity,
+                                                          @Value("${qa.embedding.batch.concurrency:4}") int concurrency,
+                                                          MeterRegistry meterRegistry) {
+        return new MicroBatcher<>("embedding", embeddingClient::embed, maxSize, maxDelay, queueCapacity, concurrency,
+                meterRegistry);
+    }
+
+    /**
+     * 缓存未命中的文本经由批量调度器发给模型服务；关闭批量时直接调用
+     */
+    @Bean
+    public EmbeddingModel batchingEmbeddingModel(OpenAiEmbeddingClient embeddingClient,
+                                                 MicroBatcher<String, float[]> embeddingBatcher,
+                                                 @Value("${qa.embedding.batch.enabled:true}") boolean enabled,
+                                                 @Value("${qa.embedding.batch.timeout:10s}") Duration timeout) {
+        if (!enabled) {
+            return embeddingClient;
+        }
+        return new BatchingEmbeddingModel(embeddingClient, embeddingBatcher, timeout);
+    }
+}
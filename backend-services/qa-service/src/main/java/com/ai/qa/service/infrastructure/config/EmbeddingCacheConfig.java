@@ -0,0 +1,42 @@
+package com.ai.qa.service.infrastructure.config;
+
+import com.ai.qa.service.infrastructure.llm.CachingEmbeddingModel;
+import com.ai.qa.service.infrastructure.llm.EmbeddingModel;
+import com.ai.qa.service.infrastructure.llm.OpenAiEmbeddingClient;
+import com.ai.qa.service.infrastructure.vector.MappedVectorCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+public class EmbeddingCacheConfig {
+
+    /**
+     * 向量缓存的磁盘层，关闭时写回磁盘
+     */
+    @Bean(destroyMethod = "close")
+    public MappedVectorCache embeddingDiskCache(OpenAiEmbeddingClient embeddingClient,
+                                                @Value("${qa.embedding.cache.dir:./data/embedding-cache}") Path directory,
+                                                @Value("${qa.embedding.cache.disk-capacity:1000000}") int capacity)
+            throws IOException {
+        return new MappedVectorCache(directory, embeddingClient.dimension(), capacity);
+    }
+
+    /**
+     * 检索、索引等所有需要向量化的地方都注入这个带缓存的实现，未命中的文本交给批量调度
+     */
+    @Bean
+    @Primary
+    public EmbeddingModel cachingEmbeddingModel(@Qualifier("batchingEmbeddingModel") EmbeddingModel embeddingModel,
+                                                MappedVectorCache embeddingDiskCache,
+                                                @Value("${qa.embedding.cache.memory-max-bytes:67108864}") long memoryMaxBytes,
+                                                MeterRegistry meterRegistry) {
+        return new CachingEmbeddingModel(embeddingModel, embeddingDiskCache, memoryMaxBytes, meterRegistry);
+    }
+}
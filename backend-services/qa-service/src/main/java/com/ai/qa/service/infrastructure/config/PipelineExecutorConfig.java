@@ -0,0 +1,84 @@
+package com.ai.qa.service.infrastructure.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class PipelineExecutorConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(PipelineExecutorConfig.class);
+
+    /**
+     * 问答流程中并行分支 (查询用户、读取历史、检索) 使用的线程池，与 Tomcat 线程和 Reactor 调度器分开。
+     * <p>
+     * platform (默认)：固定大小的线程池，队列有界，满了直接拒绝；
+     * virtual：每个任务一个虚拟线程，需要 Java 21 及以上，否则退回 platform。
+     * 分支都是阻塞 IO，虚拟线程不占用平台线程，并发量只受下游 (连接池、user-service) 限制。
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService qaPipelineExecutor(@Value("${qa.pipeline.executor:platform}") String mode,
+                                              @Value("${qa.pipeline.threads:64}") int threads,
+                                              @Value("${qa.pipeline.queue-capacity:256}") int queueCapacity,
+                                              MeterRegistry meterRegistry) {
+        ExecutorService executor = "virtual".equalsIgnoreCase(mode) ? virtualThreadExecutor() : null;
+        if (executor == null) {
+            AtomicInteger count = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "qa-pipeline-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        }
+        return ExecutorServiceMetrics.monitor(meterRegistry, executor, "qa.pipeline");
+    }
+
+    /**
+     * 在后台生成会话摘要的线程池：每个任务是一次模型调用，线程数即同时进行的摘要数；队列满时跳过，下次保存问答时再合并
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService conversationSummaryExecutor(@Value("${qa.context.summary.threads:4}") int threads,
+                                                       @Value("${qa.context.summary.queue-capacity:256}") int queueCapacity,
+                                                       MeterRegistry meterRegistry) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "qa-summary-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return ExecutorServiceMetrics.monitor(meterRegistry, pool, "qa.summary");
+    }
+
+    /**
+     * 编译目标是 Java 17，通过反射调用 Java 21 的 Executors.newVirtualThreadPerTaskExecutor()
+     */
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ExecutorService executor = (ExecutorService) factory.invoke(null);
+            log.info("Using virtual threads for the QA pipeline");
+            return executor;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("Virtual threads are not available on Java {}, using a platform thread pool",
+                    Runtime.version().feature());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.ai.qa.service.infrastructure.config;
+
+import com.ai.qa.service.domain.repo.QAHistoryRepo;
+import com.ai.qa.service.infrastructure.persistence.archive.JpaHistoryArchive;
+import com.ai.qa.service.infrastructure.search.FullTextIndex;
+import com.ai.qa.service.infrastructure.persistence.repositories.HistoryIdGenerator;
+import com.ai.qa.service.infrastructure.persistence.repositories.HistorySpillFile;
+import com.ai.qa.service.infrastructure.persistence.repositories.JdbcQAHistoryBatchWriter;
+import com.ai.qa.service.infrastructure.persistence.repositories.QAHistoryRepoImpl;
+import com.ai.qa.service.infrastructure.persistence.repositories.SearchIndexingQAHistoryRepo;
+import com.ai.qa.service.infrastructure.persistence.repositories.TieredQAHistoryRepo;
+import com.ai.qa.service.infrastructure.persistence.repositories.WriteBehindQAHistoryRepo;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+public class QAHistoryPersistenceConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(QAHistoryPersistenceConfig.class);
+
+    /**
+     * 业务代码注入的问答历史仓储：开启写后模式时保存进入后台批量写入，否则直接使用 JPA 实现。
+     * 开启归档时读取经过 {@link TieredQAHistoryRepo}，已移入归档的行照常可读。
+     * 最外层在保存后更新全文索引，写后模式下保存时已经分配了 id，可以立即索引
+     */
+    @Bean
+    @Primary
+    public QAHistoryRepo qaHistoryRepo(QAHistoryRepoImpl qaHistoryRepoImpl, JpaHistoryArchive historyArchive,
+                                       FullTextIndex historySearchIndex,
+                                       ObjectProvider<WriteBehindQAHistoryRepo> writeBehindQAHistoryRepo,
+                                       @Value("${qa.history.archive.enabled:true}") boolean archiveEnabled) {
+        WriteBehindQAHistoryRepo writeBehind = writeBehindQAHistoryRepo.getIfAvailable();
+        return new SearchIndexingQAHistoryRepo(writeBehind != null ? writeBehind
+                : reads(qaHistoryRepoImpl, historyArchive, archiveEnabled), historySearchIndex);
+    }
+
+    /**
+     * 写后模式的仓储单独注册为 bean，定时回放溢出文件的 {@code @Scheduled} 方法才会被发现；
+     * 没有指定 destroyMethod，按推断调用 close()，关闭时写完队列中的记录
+     */
+    @Bean
+    @ConditionalOnProperty(name = "qa.history.write-behind.enabled", matchIfMissing = true)
+    public WriteBehindQAHistoryRepo writeBehindQAHistoryRepo(QAHistoryRepoImpl qaHistoryRepoImpl,
+                                                             JpaHistoryArchive historyArchive,
+                                                             JdbcTemplate jdbcTemplate,
+                                                             TransactionTemplate transactionTemplate,
+                                                             @Value("${qa.history.write-behind.node-id:-1}") int nodeId,
+                                                             @Value("${qa.history.write-behind.batch-size:200}") int batchSize,
+                                                             @Value("${qa.history.write-behind.max-delay:50ms}") Duration maxDelay,
+                                                             @Value("${qa.history.write-behind.queue-capacity:10000}") int queueCapacity,
+                                                             @Value("${qa.history.write-behind.spill-file:./data/history-spill/qa-history.spill}") Path spillFile,
+                                                             @Value("${qa.history.write-behind.replay-interval:30000}") long replayIntervalMillis,
+                                                             @Value("${qa.history.archive.enabled:true}") boolean archiveEnabled,
+                                                             MeterRegistry meterRegistry) throws IOException {
+        return new WriteBehindQAHistoryRepo(reads(qaHistoryRepoImpl, historyArchive, archiveEnabled),
+                new JdbcQAHistoryBatchWriter(jdbcTemplate, transactionTemplate),
+                new HistoryIdGenerator(nodeId >= 0 ? nodeId : defaultNodeId()), new HistorySpillFile(spillFile),
+                batchSize, maxDelay, queueCapacity, Duration.ofMillis(replayIntervalMillis), meterRegistry);
+    }
+
+    private static QAHistoryRepo reads(QAHistoryRepoImpl qaHistoryRepoImpl, JpaHistoryArchive historyArchive,
+                                       boolean archiveEnabled) {
+        return archiveEnabled ? new TieredQAHistoryRepo(qaHistoryRepoImpl, historyArchive) : qaHistoryRepoImpl;
+    }
+
+    /**
+     * 没有配置节点号时由主机名和进程号推出；多实例部署时应当显式配置，保证互不相同
+     */
+    private static int defaultNodeId() {
+        int nodeId = Math.floorMod(ManagementFactory.getRuntimeMXBean().getName().hashCode(),
+                HistoryIdGenerator.MAX_NODE + 1);
+        log.info("qa.history.write-behind.node-id is not set, using {}", nodeId);
+        return nodeId;
+    }
+}
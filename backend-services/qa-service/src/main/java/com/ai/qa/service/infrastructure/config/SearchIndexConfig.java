@@ -0,0 +1,31 @@
+package com.ai.qa.service.infrastructure.config;
+
+import com.ai.qa.service.infrastructure.search.FullTextIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+public class SearchIndexConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchIndexConfig.class);
+
+    /**
+     * 问答历史的全文索引，段文件保存在 qa.search.index.dir 下，重启后直接加载；关闭时把写缓冲写成段
+     */
+    @Bean(destroyMethod = "close")
+    public FullTextIndex historySearchIndex(@Value("${qa.search.index.dir:./data/search-index}") Path directory,
+                                            @Value("${qa.search.index.max-buffer-docs:10000}") int maxBufferDocs,
+                                            @Value("${qa.search.index.merge-factor:8}") int mergeFactor,
+                                            @Value("${qa.search.index.max-segment-bytes:1073741824}") long maxSegmentBytes,
+                                            @Value("${qa.search.max-expansions:64}") int maxExpansions) throws IOException {
+        FullTextIndex index = new FullTextIndex(directory, maxBufferDocs, mergeFactor, maxSegmentBytes, maxExpansions);
+        log.info("Opened history search index in {}: {} segments", directory, index.segmentCount());
+        return index;
+    }
+}
@@ -0,0 +1,48 @@
+package com.ai.qa.service.infrastructure.config;
+
+import com.ai.qa.service.infrastructure.feign.HedgedUserClient;
+import com.ai.qa.service.infrastructure.feign.UserClient;
+import com.ai.qa.service.infrastructure.feign.UserServiceInstances;
+import com.ai.qa.service.infrastructure.hedge.Hedger;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.openfeign.FeignClientBuilder;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class UserHedgingConfig {
+
+    @Bean(destroyMethod = "close")
+    public Hedger userHedger(@Value("${qa.user-client.hedge.max-threads:64}") int maxThreads,
+                             @Value("${qa.user-client.hedge.percentile:0.95}") double percentile,
+                             @Value("${qa.user-client.hedge.min-delay:5ms}") Duration minDelay,
+                             @Value("${qa.user-client.hedge.max-delay:200ms}") Duration maxDelay,
+                             @Value("${qa.user-client.hedge.budget:0.05}") double budget,
+                             @Value("${qa.user-client.hedge.burst:10}") int burst,
+                             @Value("${qa.user-client.hedge.timeout:2s}") Duration timeout,
+                             MeterRegistry meterRegistry) {
+        return new Hedger("user", maxThreads, percentile, minDelay, maxDelay, budget, burst, timeout, meterRegistry);
+    }
+
+    /**
+     * 实际发往 user-service 的客户端：开启对冲时直连各个实例并在慢请求上对冲，否则走负载均衡的 Feign 客户端
+     */
+    @Bean
+    public UserClient userServiceClient(@Qualifier("remoteUserClient") UserClient remoteUserClient,
+                                        DiscoveryClient discoveryClient, ApplicationContext applicationContext,
+                                        Hedger userHedger,
+                                        @Value("${qa.user-client.hedge.enabled:true}") boolean enabled) {
+        if (!enabled) {
+            return remoteUserClient;
+        }
+        UserServiceInstances instances = new UserServiceInstances(discoveryClient,
+                new FeignClientBuilder(applicationContext), "user-service");
+        return new HedgedUserClient(instances, remoteUserClient, userHedger);
+    }
+}
@@ -0,0 +1,54 @@
+package com.ai.qa.service.infrastructure.config;
+
+import com.ai.qa.service.infrastructure.events.UserChangeTransport;
+import com.ai.qa.service.infrastructure.feign.UserClient;
+import com.ai.qa.service.infrastructure.feign.UserNearCache;
+import com.ai.qa.service.infrastructure.feign.UserRequestCollapser;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.time.Duration;
+
+@Configuration
+public class UserNearCacheConfig {
+
+    /**
+     * 合并并发的单个用户查询，关闭时发出已排队的请求
+     */
+    @Bean(destroyMethod = "close")
+    public UserRequestCollapser userRequestCollapser(@Qualifier("userServiceClient") UserClient userServiceClient,
+                                                     @Value("${qa.user-client.collapse.max-size:100}") int maxSize,
+                                                     @Value("${qa.user-client.collapse.window:5ms}") Duration window,
+                                                     @Value("${qa.user-client.collapse.queue-capacity:1024}") int queueCapacity,
+                                                     @Value("${qa.user-client.collapse.concurrency:4}") int concurrency,
+                                                     @Value("${qa.user-client.collapse.timeout:2s}") Duration timeout,
+                                                     MeterRegistry meterRegistry) {
+        return new UserRequestCollapser(userServiceClient, maxSize, window, queueCapacity, concurrency, timeout,
+                meterRegistry);
+    }
+
+    /**
+     * 需要用户信息的地方都注入这个带近端缓存的实现，未命中的查询经由合并器发给 user-service (见 UserHedgingConfig)；
+     * 关闭缓存或合并时跳过对应的一层
+     */
+    @Bean
+    @Primary
+    public UserClient cachingUserClient(@Qualifier("userServiceClient") UserClient userServiceClient,
+                                        UserRequestCollapser userRequestCollapser,
+                                        @Value("${qa.user-client.collapse.enabled:true}") boolean collapse,
+                                        UserChangeTransport userChangeTransport,
+                                        @Value("${qa.user-cache.enabled:true}") boolean enabled,
+                                        @Value("${qa.user-cache.max-size:10000}") long maxSize,
+                                        @Value("${qa.user-cache.ttl:10m}") Duration ttl,
+                                        MeterRegistry meterRegistry) {
+        UserClient loader = collapse ? userRequestCollapser : userServiceClient;
+        if (!enabled) {
+            return loader;
+        }
+        return new UserNearCache(loader, userChangeTransport, maxSize, ttl, meterRegistry);
+    }
+}
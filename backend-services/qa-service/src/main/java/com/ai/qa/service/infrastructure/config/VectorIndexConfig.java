@@ -0,0 +1,53 @@
+package com.ai.qa.service.infrastructure.config;
+
+import com.ai.qa.service.infrastructure.llm.EmbeddingModel;
+import com.ai.qa.service.infrastructure.vector.HnswIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+@EnableScheduling
+public class VectorIndexConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(VectorIndexConfig.class);
+
+    /**
+     * 检索用的向量索引，文件保存在 qa.rag.index.dir 下，重启后直接加载；关闭时把未落盘的部分写回
+     */
+    @Bean(destroyMethod = "close")
+    public HnswIndex ragIndex(EmbeddingModel embeddingModel,
+                              @Value("${qa.rag.index.dir:./data/rag-index}") Path directory,
+                              @Value("${qa.rag.index.capacity:5000000}") int capacity,
+                              @Value("${qa.rag.index.m:16}") int m,
+                              @Value("${qa.rag.index.ef-construction:100}") int efConstruction) throws IOException {
+        HnswIndex index = new HnswIndex(directory, embeddingModel.dimension(), m, efConstruction, capacity);
+        if (index.isRestored()) {
+            log.info("Loaded RAG index from {}: {} vectors", directory, index.size());
+        } else {
+            log.info("Created empty RAG index in {} (dimension {}, capacity {})",
+                    directory, embeddingModel.dimension(), capacity);
+        }
+        return index;
+    }
+
+    /**
+     * 语义答案缓存用的向量索引，只包含问题本身的向量
+     */
+    @Bean(destroyMethod = "close")
+    public HnswIndex answerCacheIndex(EmbeddingModel embeddingModel,
+                                      @Value("${qa.answer-cache.index.dir:./data/answer-cache-index}") Path directory,
+                                      @Value("${qa.answer-cache.index.capacity:5000000}") int capacity,
+                                      @Value("${qa.rag.index.m:16}") int m,
+                                      @Value("${qa.rag.index.ef-construction:100}") int efConstruction) throws IOException {
+        HnswIndex index = new HnswIndex(directory, embeddingModel.dimension(), m, efConstruction, capacity);
+        log.info("Opened answer cache index in {}: {} vectors", directory, index.size());
+        return index;
+    }
+}
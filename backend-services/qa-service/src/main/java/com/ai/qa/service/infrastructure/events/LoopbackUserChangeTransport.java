@@ -0,0 +1,35 @@
+package com.ai.qa.service.infrastructure.events;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 进程内传输：{@link #publish(UserChangedEvent)} 在调用线程上依次通知所有订阅者
+ */
+@Component
+public class LoopbackUserChangeTransport implements UserChangeTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(LoopbackUserChangeTransport.class);
+
+    private final List<Consumer<UserChangedEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void subscribe(Consumer<UserChangedEvent> listener) {
+        listeners.add(listener);
+    }
+
+    public void publish(UserChangedEvent event) {
+        for (Consumer<UserChangedEvent> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                log.warn("User-changed listener failed for user {}", event.getUserId(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.ai.qa.service.infrastructure.events;
+
+import java.util.function.Consumer;
+
+/**
+ * 接收用户变更事件的传输方式。默认实现是 {@link LoopbackUserChangeTransport}，
+ * 由 HTTP 接口 (user-service 广播) 或测试直接投递；换成消息队列时实现该接口即可。
+ */
+public interface UserChangeTransport {
+
+    void subscribe(Consumer<UserChangedEvent> listener);
+}
@@ -0,0 +1,16 @@
+package com.ai.qa.service.infrastructure.events;
+
+import lombok.Data;
+
+/**
+ * user-service 发出的用户变更事件，字段与 user-service 的同名类一致
+ */
+@Data
+public class UserChangedEvent {
+
+    private Long userId;
+    /**
+     * 变更时间 (user-service 的毫秒时间戳)
+     */
+    private long changedAt;
+}
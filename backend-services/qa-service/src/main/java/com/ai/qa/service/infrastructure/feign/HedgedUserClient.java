@@ -0,0 +1,59 @@
+package com.ai.qa.service.infrastructure.feign;
+
+import com.ai.qa.service.infrastructure.hedge.Hedger;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 对 user-service 的查询做对冲：第一次尝试按轮询发往某个实例，慢于对冲延迟时再向下一个实例发出同样的请求，
+ * 取先返回的结果。两个查询接口都是幂等的 GET，重复执行没有副作用。
+ * <p>
+ * 只有一个可用实例时不对冲 (同一实例上的第二次请求大概率同样慢)；
+ * 服务发现没有返回实例时交给负载均衡的客户端处理。
+ */
+public class HedgedUserClient implements UserClient {
+
+    private final Supplier<List<UserClient>> instances;
+    private final UserClient fallback;
+    private final Hedger hedger;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * @param instances 每个 user-service 实例各自的客户端
+     * @param fallback  没有可用实例时使用的客户端
+     */
+    public HedgedUserClient(Supplier<List<UserClient>> instances, UserClient fallback, Hedger hedger) {
+        this.instances = instances;
+        this.fallback = fallback;
+        this.hedger = hedger;
+    }
+
+    @Override
+    public String getUserById(Long userId) {
+        return call(client -> client.getUserById(userId));
+    }
+
+    @Override
+    public Map<Long, String> getUsersByIds(Collection<Long> ids) {
+        return call(client -> client.getUsersByIds(ids));
+    }
+
+    private <T> T call(Function<UserClient, T> request) {
+        List<UserClient> clients = instances.get();
+        if (clients.isEmpty()) {
+            return request.apply(fallback);
+        }
+        int index = Math.floorMod(next.getAndIncrement(), clients.size());
+        UserClient primary = clients.get(index);
+        if (clients.size() == 1) {
+            return hedger.call(() -> request.apply(primary), null);
+        }
+        UserClient secondary = clients.get((index + 1) % clients.size());
+        return hedger.call(() -> request.apply(primary), () -> request.apply(secondary));
+    }
+}
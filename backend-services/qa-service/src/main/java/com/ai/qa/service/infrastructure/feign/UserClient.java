@@ -3,12 +3,17 @@ package com.ai.qa.service.infrastructure.feign;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.util.Collection;
+import java.util.Map;
 
 /**
  * 调用 user-service 的 Feign 客户端
  */
 // name/value 属性值必须与目标服务在 Nacos 上注册的服务名完全一致！
-@FeignClient(name = "user-service")
+// 业务代码注入的是带近端缓存的 UserNearCache (@Primary)，这里的远程调用通过 remoteUserClient 限定名获取
+@FeignClient(name = "user-service", qualifiers = "remoteUserClient", primary = false)
 public interface UserClient {
 
     /**
@@ -24,6 +29,14 @@ public interface UserClient {
     @GetMapping("/api/user/{userId}") // <-- 这个路径要和 user-service 的接口完全匹配
     String getUserById(@PathVariable("userId") Long userId);
 
+    /**
+     * 一次查询多个用户，user-service 一次最多接受 200 个不同的ID
+     *
+     * @return 用户ID -> 用户信息，数据库里不存在的用户不在结果中 (单个查询仍会返回结果)
+     */
+    @GetMapping("/api/user/batch")
+    Map<Long, String> getUsersByIds(@RequestParam("ids") Collection<Long> ids);
+
     // 你可以在这里定义 user-service 暴露的其他任何接口
     // 例如:
     // @PostMapping("/api/user/internal/check-status")
@@ -0,0 +1,175 @@
+package com.ai.qa.service.infrastructure.feign;
+
+import com.ai.qa.service.infrastructure.events.UserChangeTransport;
+import com.ai.qa.service.infrastructure.events.UserChangedEvent;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * user-service 用户信息的近端缓存：数量有上限，写入后 ttl 过期；
+ * user-service 修改用户资料后推送变更事件，收到后立即清除对应条目。
+ * <p>
+ * 事件可能在一次加载进行中到达 (加载读到的是旧数据)，所以除了清除条目，还记录每个用户最近的失效时间，
+ * 加载开始时间早于失效时间的条目按未命中处理。事件丢失时由 ttl 兜底。
+ * <p>
+ * 指标：qa.user.cache.requests{result=hit|miss|stale}、qa.user.cache.size、qa.user.cache.evictions、
+ * qa.user.cache.age (命中条目的年龄，即最多可能陈旧多久)、qa.user.cache.invalidation.lag (从变更到收到事件的延迟)。
+ */
+public class UserNearCache implements UserClient {
+
+    private final UserClient delegate;
+    private final Ticker ticker;
+    private final Cache<Long, Entry> cache;
+    /**
+     * 用户ID -> 最近一次收到变更事件的时间 (ticker 纳秒)，只需保留 ttl 那么久
+     */
+    private final Cache<Long, Long> invalidatedAt;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter stale;
+    private final DistributionSummary age;
+    private final Timer invalidationLag;
+
+    public UserNearCache(UserClient delegate, UserChangeTransport transport, long maxSize, Duration ttl,
+                         MeterRegistry meterRegistry) {
+        this(delegate, transport, maxSize, ttl, meterRegistry, Ticker.systemTicker());
+    }
+
+    UserNearCache(UserClient delegate, UserChangeTransport transport, long maxSize, Duration ttl,
+                  MeterRegistry meterRegistry, Ticker ticker) {
+        this.delegate = delegate;
+        this.ticker = ticker;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        this.invalidatedAt = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .ticker(ticker)
+                .build();
+
+        this.hits = requests(meterRegistry, "hit");
+        this.misses = requests(meterRegistry, "miss");
+        this.stale = requests(meterRegistry, "stale");
+        this.age = DistributionSummary.builder("qa.user.cache.age").baseUnit("milliseconds").register(meterRegistry);
+        this.invalidationLag = Timer.builder("qa.user.cache.invalidation.lag").register(meterRegistry);
+        Gauge.builder("qa.user.cache.size", cache, Cache::size).register(meterRegistry);
+        FunctionCounter.builder("qa.user.cache.evictions", cache, c -> c.stats().evictionCount()).register(meterRegistry);
+
+        transport.subscribe(this::onUserChanged);
+    }
+
+    private static Counter requests(MeterRegistry registry, String result) {
+        return Counter.builder("qa.user.cache.requests").tag("result", result).register(registry);
+    }
+
+    @Override
+    public String getUserById(Long userId) {
+        String cached = cached(userId);
+        if (cached != null) {
+            return cached;
+        }
+        long loadStartedAt = ticker.read();
+        String user = delegate.getUserById(userId);
+        // 不存在的用户不缓存，注册后可以立即查到
+        if (user != null) {
+            cache.put(userId, new Entry(user, loadStartedAt));
+        }
+        return user;
+    }
+
+    /**
+     * 命中的用户直接返回，未命中的合并成一次批量查询
+     */
+    @Override
+    public Map<Long, String> getUsersByIds(Collection<Long> ids) {
+        Map<Long, String> users = new LinkedHashMap<>();
+        Set<Long> missing = new LinkedHashSet<>();
+        for (Long userId : ids) {
+            if (users.containsKey(userId) || missing.contains(userId)) {
+                continue;
+            }
+            String user = cached(userId);
+            if (user != null) {
+                users.put(userId, user);
+            } else {
+                missing.add(userId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            long loadStartedAt = ticker.read();
+            delegate.getUsersByIds(missing).forEach((userId, user) -> {
+                if (user != null) {
+                    cache.put(userId, new Entry(user, loadStartedAt));
+                    users.put(userId, user);
+                }
+            });
+        }
+        return users;
+    }
+
+    /**
+     * 清除一个用户的缓存
+     */
+    public void invalidate(Long userId) {
+        invalidatedAt.put(userId, ticker.read());
+        cache.invalidate(userId);
+    }
+
+    /**
+     * @return 有效的缓存条目，未命中或已失效时返回 null
+     */
+    private String cached(Long userId) {
+        Entry entry = cache.getIfPresent(userId);
+        if (entry != null) {
+            Long invalidated = invalidatedAt.getIfPresent(userId);
+            if (invalidated == null || entry.loadStartedAt - invalidated >= 0) {
+                hits.increment();
+                age.record(TimeUnit.NANOSECONDS.toMillis(ticker.read() - entry.loadStartedAt));
+                return entry.user;
+            }
+            stale.increment();
+        } else {
+            misses.increment();
+        }
+        return null;
+    }
+
+    private void onUserChanged(UserChangedEvent event) {
+        invalidate(event.getUserId());
+        long lag = System.currentTimeMillis() - event.getChangedAt();
+        if (event.getChangedAt() > 0 && lag >= 0) {
+            invalidationLag.record(lag, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static final class Entry {
+
+        final String user;
+        final long loadStartedAt;
+
+        Entry(String user, long loadStartedAt) {
+            this.user = user;
+            this.loadStartedAt = loadStartedAt;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.ai.qa.service.infrastructure.feign;
+
+import com.ai.qa.service.infrastructure.batch.MicroBatcher;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 合并并发的单个用户查询：窗口期内到达的 {@link #getUserById(Long)} 攒成一次
+ * {@link UserClient#getUsersByIds(Collection)} 调用 (同一批中重复的ID只查一次)，再把结果分发给各自的调用方。
+ * <p>
+ * 批量接口只返回数据库里存在的用户，而单个查询对任何ID都有结果；批量结果里缺少的ID再逐个走单个查询，
+ * 保证合并前后每个调用方拿到的结果一致。
+ * <p>
+ * 批量调用失败时这一批的调用方都收到同一个异常；排队已满时立即失败，由调用方按 user-service 不可用处理。
+ * 指标见 {@link MicroBatcher}，标签 name=user。
+ */
+public class UserRequestCollapser implements UserClient, Closeable {
+
+    /**
+     * user-service 批量接口一次接受的最多ID数
+     */
+    public static final int MAX_BATCH_SIZE = 200;
+
+    private final UserClient delegate;
+    private final MicroBatcher<Long, String> batcher;
+    private final Duration timeout;
+
+    /**
+     * @param window  单个查询为了凑批最多多等的时间
+     * @param timeout 一次查询的最长等待时间，包括排队和批量调用
+     */
+    public UserRequestCollapser(UserClient delegate, int maxBatchSize, Duration window, int queueCapacity,
+                                int concurrency, Duration timeout, MeterRegistry meterRegistry) {
+        if (maxBatchSize > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("maxBatchSize must not exceed " + MAX_BATCH_SIZE);
+        }
+        this.delegate = delegate;
+        this.timeout = timeout;
+        this.batcher = new MicroBatcher<>("user", this::fetch, maxBatchSize, window, queueCapacity, concurrency,
+                meterRegistry);
+    }
+
+    @Override
+    public String getUserById(Long userId) {
+        return MicroBatcher.awaitAll(List.of(batcher.submit(userId)), timeout).get(0);
+    }
+
+    /**
+     * 已经是批量查询，直接调用，缺少的ID按单个查询补齐
+     */
+    @Override
+    public Map<Long, String> getUsersByIds(Collection<Long> ids) {
+        Set<Long> distinct = new LinkedHashSet<>(ids);
+        Map<Long, String> users = new LinkedHashMap<>();
+        Map<Long, String> found = delegate.getUsersByIds(distinct);
+        for (Long id : distinct) {
+            String user = lookup(found, id);
+            if (user != null) {
+                users.put(id, user);
+            }
+        }
+        return users;
+    }
+
+    @Override
+    public void close() {
+        batcher.close();
+    }
+
+    private List<String> fetch(List<Long> ids) {
+        Map<Long, String> users = delegate.getUsersByIds(new LinkedHashSet<>(ids));
+        List<String> results = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            results.add(lookup(users, id));
+        }
+        return results;
+    }
+
+    /**
+     * 批量结果里没有的ID退回单个查询，与不合并时的结果保持一致
+     */
+    private String lookup(Map<Long, String> batch, Long id) {
+        if (batch != null && batch.containsKey(id)) {
+            return batch.get(id);
+        }
+        return delegate.getUserById(id);
+    }
+}
@@ -0,0 +1,48 @@
+package com.ai.qa.service.infrastructure.feign;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.openfeign.FeignClientBuilder;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * user-service 当前注册的各个实例，每个实例一个直连的 Feign 客户端 (不经过负载均衡)，对冲时用来指定发往哪个实例。
+ * 实例列表每次从服务发现读取 (Nacos 客户端本地有缓存)，已下线实例的客户端随之丢弃。
+ */
+public class UserServiceInstances implements Supplier<List<UserClient>> {
+
+    private final DiscoveryClient discoveryClient;
+    private final FeignClientBuilder feignClientBuilder;
+    private final String serviceId;
+    private final Map<URI, UserClient> clients = new ConcurrentHashMap<>();
+
+    public UserServiceInstances(DiscoveryClient discoveryClient, FeignClientBuilder feignClientBuilder,
+                                String serviceId) {
+        this.discoveryClient = discoveryClient;
+        this.feignClientBuilder = feignClientBuilder;
+        this.serviceId = serviceId;
+    }
+
+    @Override
+    public List<UserClient> get() {
+        List<ServiceInstance> instances = discoveryClient.getInstances(serviceId);
+        Set<URI> current = instances.stream().map(ServiceInstance::getUri).collect(Collectors.toSet());
+        clients.keySet().retainAll(current);
+        List<UserClient> result = new ArrayList<>(instances.size());
+        for (ServiceInstance instance : instances) {
+            result.add(clients.computeIfAbsent(instance.getUri(), uri -> feignClientBuilder
+                    .forType(UserClient.class, serviceId)
+                    .url(uri.toString())
+                    .build()));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,223 @@
+package com.ai.qa.service.infrastructure.hedge;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 对冲请求：第一次尝试在对冲延迟内没有返回时再发出第二次尝试，取先成功返回的结果，用于削减幂等调用的尾延迟。
+ * <p>
+ * 对冲延迟取最近成功调用耗时的 percentile 分位数 (限制在 [minDelay, maxDelay] 内，样本不足时为 maxDelay)，
+ * 即只有慢于绝大多数调用的请求才会对冲。额外负载由令牌桶限制：每次调用存入 budgetRatio 个令牌，
+ * 每次对冲消耗一个，最多积攒 burst 个，因此长期来看对冲数不超过调用数的 budgetRatio 倍。
+ * <p>
+ * 两次尝试都在对冲器自己的线程池中执行，线程用完时第一次尝试被拒绝 ({@link RejectedExecutionException})，
+ * 对冲则直接跳过。第一次尝试在对冲前失败时直接抛出，不做重试；对冲后只有两次都失败才抛出第一次尝试的异常。
+ * 落后的一次尝试不会被中断 (阻塞 IO 通常无法中断)，结束后只用于统计耗时。
+ * <p>
+ * 指标 (标签 name)：qa.hedge.calls、qa.hedge.issued、qa.hedge.won (对冲先返回)、
+ * qa.hedge.skipped{reason=budget|rejected}、qa.hedge.delay (当前对冲延迟，毫秒)。
+ */
+public class Hedger implements Closeable {
+
+    /**
+     * 计算分位数用的最近样本数，以及每隔多少个样本重新计算一次
+     */
+    private static final int WINDOW = 512;
+    private static final int RECOMPUTE_EVERY = 32;
+
+    private static final long MILLI_TOKENS = 1000;
+
+    private final String name;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private final long depositPerCall;
+    private final long maxTokens;
+    private final Duration timeout;
+    private final ThreadPoolExecutor executor;
+
+    private final long[] samples = new long[WINDOW];
+    private long sampleCount;
+    private volatile long delayNanos;
+    /**
+     * 令牌数，单位为千分之一个令牌
+     */
+    private final AtomicLong tokens;
+
+    private final Counter calls;
+    private final Counter issued;
+    private final Counter won;
+    private final Counter skippedBudget;
+    private final Counter skippedRejected;
+
+    /**
+     * @param maxThreads  同时在途的尝试数上限 (含对冲)
+     * @param percentile  对冲延迟取成功耗时的这个分位数，例如 0.95
+     * @param budgetRatio 对冲数相对调用数的上限，例如 0.05
+     * @param burst       最多积攒的对冲次数
+     * @param timeout     一次调用 (含对冲) 的最长等待时间
+     */
+    public Hedger(String name, int maxThreads, double percentile, Duration minDelay, Duration maxDelay,
+                  double budgetRatio, int burst, Duration timeout, MeterRegistry meterRegistry) {
+        if (percentile <= 0 || percentile >= 1 || budgetRatio < 0 || burst < 1 || maxThreads < 1) {
+            throw new IllegalArgumentException("percentile must be in (0, 1), budgetRatio >= 0, burst and maxThreads >= 1");
+        }
+        this.name = name;
+        this.percentile = percentile;
+        this.minDelayNanos = minDelay.toNanos();
+        this.maxDelayNanos = Math.max(minDelayNanos, maxDelay.toNanos());
+        this.delayNanos = maxDelayNanos;
+        this.depositPerCall = Math.round(budgetRatio * MILLI_TOKENS);
+        this.maxTokens = burst * MILLI_TOKENS;
+        this.tokens = new AtomicLong(maxTokens);
+        this.timeout = timeout;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, name + "-hedge-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+
+        this.calls = Counter.builder("qa.hedge.calls").tag("name", name).register(meterRegistry);
+        this.issued = Counter.builder("qa.hedge.issued").tag("name", name).register(meterRegistry);
+        this.won = Counter.builder("qa.hedge.won").tag("name", name).register(meterRegistry);
+        this.skippedBudget = skipped(meterRegistry, name, "budget");
+        this.skippedRejected = skipped(meterRegistry, name, "rejected");
+        Gauge.builder("qa.hedge.delay", this, h -> h.delayNanos / 1e6).tag("name", name).baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    private static Counter skipped(MeterRegistry registry, String name, String reason) {
+        return Counter.builder("qa.hedge.skipped").tag("name", name).tag("reason", reason).register(registry);
+    }
+
+    /**
+     * 执行一次调用，必要时对冲
+     *
+     * @param primary 第一次尝试
+     * @param hedge   对冲尝试，应当发往与第一次不同的实例；为 null 时不对冲，只限制等待时间
+     */
+    public <T> T call(Supplier<T> primary, Supplier<T> hedge) {
+        calls.increment();
+        tokens.getAndUpdate(t -> Math.min(maxTokens, t + depositPerCall));
+        long deadline = System.nanoTime() + timeout.toNanos();
+
+        CompletableFuture<T> first = attempt(primary);
+        try {
+            try {
+                long wait = hedge == null ? timeout.toNanos() : Math.min(delayNanos, timeout.toNanos());
+                return first.get(wait, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // 慢于对冲延迟，下面决定是否对冲
+            }
+            CompletableFuture<T> second = hedge == null ? null : tryHedge(hedge);
+            CompletableFuture<T> result = second == null ? first : race(first, second);
+            return result.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(name + " call failed", e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException(name + " call did not complete within " + timeout, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + name, e);
+        }
+    }
+
+    /**
+     * 当前的对冲延迟
+     */
+    public Duration currentDelay() {
+        return Duration.ofNanos(delayNanos);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private <T> CompletableFuture<T> tryHedge(Supplier<T> hedge) {
+        if (tokens.getAndUpdate(t -> t >= MILLI_TOKENS ? t - MILLI_TOKENS : t) < MILLI_TOKENS) {
+            skippedBudget.increment();
+            return null;
+        }
+        try {
+            CompletableFuture<T> future = attempt(hedge);
+            issued.increment();
+            return future;
+        } catch (RejectedExecutionException e) {
+            tokens.getAndUpdate(t -> Math.min(maxTokens, t + MILLI_TOKENS));
+            skippedRejected.increment();
+            return null;
+        }
+    }
+
+    /**
+     * 先成功的结果；两次都失败时以第一次尝试的异常结束
+     */
+    private <T> CompletableFuture<T> race(CompletableFuture<T> first, CompletableFuture<T> second) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicBoolean decided = new AtomicBoolean();
+        AtomicInteger failed = new AtomicInteger();
+        first.whenComplete((value, error) -> {
+            if (error == null) {
+                if (decided.compareAndSet(false, true)) {
+                    result.complete(value);
+                }
+            } else if (failed.incrementAndGet() == 2) {
+                result.completeExceptionally(error);
+            }
+        });
+        second.whenComplete((value, error) -> {
+            if (error == null) {
+                if (decided.compareAndSet(false, true)) {
+                    won.increment();
+                    result.complete(value);
+                }
+            } else if (failed.incrementAndGet() == 2) {
+                first.whenComplete((v, firstError) -> result.completeExceptionally(firstError));
+            }
+        });
+        return result;
+    }
+
+    private <T> CompletableFuture<T> attempt(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            T value = call.get();
+            record(System.nanoTime() - start);
+            return value;
+        }, executor);
+    }
+
+    private synchronized void record(long nanos) {
+        samples[(int) (sampleCount % WINDOW)] = nanos;
+        sampleCount++;
+        if (sampleCount >= RECOMPUTE_EVERY && sampleCount % RECOMPUTE_EVERY == 0) {
+            long[] sorted = Arrays.copyOf(samples, (int) Math.min(sampleCount, WINDOW));
+            Arrays.sort(sorted);
+            long value = sorted[(int) Math.min(sorted.length - 1, Math.floor(percentile * sorted.length))];
+            delayNanos = Math.max(minDelayNanos, Math.min(maxDelayNanos, value));
+        }
+    }
+}
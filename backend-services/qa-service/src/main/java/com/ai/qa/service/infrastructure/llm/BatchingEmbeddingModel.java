@@ -0,0 +1,48 @@
+package com.ai.qa.service.infrastructure.llm;
+
+import com.ai.qa.service.infrastructure.batch.MicroBatcher;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 把并发请求的向量化合并成批量调用：每段文本单独提交给 {@link MicroBatcher}，
+ * 与同一时间其他请求的文本一起发给模型服务。
+ */
+public class BatchingEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final MicroBatcher<String, float[]> batcher;
+    private final Duration timeout;
+
+    /**
+     * @param batcher 批量调用应当是 delegate 的 {@link EmbeddingModel#embed(List)}
+     * @param timeout 一次 embed 调用的最长等待时间，包括排队和批量调用
+     */
+    public BatchingEmbeddingModel(EmbeddingModel delegate, MicroBatcher<String, float[]> batcher, Duration timeout) {
+        this.delegate = delegate;
+        this.batcher = batcher;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public String modelId() {
+        return delegate.modelId();
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+
+    @Override
+    public List<float[]> embed(List<String> texts) {
+        List<CompletableFuture<float[]>> futures = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            futures.add(batcher.submit(text));
+        }
+        return MicroBatcher.awaitAll(futures, timeout);
+    }
+}
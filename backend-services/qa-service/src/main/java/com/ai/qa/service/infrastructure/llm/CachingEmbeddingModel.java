@@ -0,0 +1,167 @@
+package com.ai.qa.service.infrastructure.llm;
+
+import com.ai.qa.service.infrastructure.vector.MappedVectorCache;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 带缓存的向量化：同一段文本 (规范化之后) 在同一个模型下只调用一次模型服务。
+ * <ul>
+ *     <li>key：SHA-256(模型标识 + 规范化文本) 的前 128 位。规范化包括 NFKC (全角转半角)、转小写、合并空白；
+ *     只有字面相同的文本才会命中</li>
+ *     <li>内存层：Guava Cache，按向量字节数限制容量</li>
+ *     <li>磁盘层：{@link MappedVectorCache}，重启后仍然有效；命中后回填内存层</li>
+ * </ul>
+ * 批量调用时只把未命中的文本 (去重后) 发给模型服务。
+ * 指标：qa.embedding.cache.requests{result=memory|disk|miss}、qa.embedding.cache.entries{tier}、
+ * qa.embedding.cache.evictions{tier}。
+ */
+public class CachingEmbeddingModel implements EmbeddingModel {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final EmbeddingModel delegate;
+    private final Cache<ContentKey, float[]> memory;
+    private final MappedVectorCache disk;
+    private final byte[] modelPrefix;
+
+    private final Counter memoryHits;
+    private final Counter diskHits;
+    private final Counter misses;
+
+    public CachingEmbeddingModel(EmbeddingModel delegate, MappedVectorCache disk, long memoryMaxBytes,
+                                 MeterRegistry registry) {
+        this.delegate = delegate;
+        this.disk = disk;
+        this.modelPrefix = (delegate.modelId() + '\0').getBytes(StandardCharsets.UTF_8);
+        this.memory = CacheBuilder.newBuilder()
+                .maximumWeight(memoryMaxBytes)
+                .weigher((ContentKey key, float[] vector) -> 48 + vector.length * Float.BYTES)
+                .recordStats()
+                .build();
+
+        this.memoryHits = requests(registry, "memory");
+        this.diskHits = requests(registry, "disk");
+        this.misses = requests(registry, "miss");
+        Gauge.builder("qa.embedding.cache.entries", memory, Cache::size).tag("tier", "memory").register(registry);
+        Gauge.builder("qa.embedding.cache.entries", disk, MappedVectorCache::size).tag("tier", "disk").register(registry);
+        FunctionCounter.builder("qa.embedding.cache.evictions", memory, c -> c.stats().evictionCount())
+                .tag("tier", "memory").register(registry);
+        FunctionCounter.builder("qa.embedding.cache.evictions", disk, MappedVectorCache::evictionCount)
+                .tag("tier", "disk").register(registry);
+    }
+
+    private static Counter requests(MeterRegistry registry, String result) {
+        return Counter.builder("qa.embedding.cache.requests").tag("result", result).register(registry);
+    }
+
+    @Override
+    public String modelId() {
+        return delegate.modelId();
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+
+    @Override
+    public List<float[]> embed(List<String> texts) {
+        float[][] vectors = new float[texts.size()][];
+        // 未命中的 key -> 在 texts 中的位置，同一批里的重复文本只请求一次
+        Map<ContentKey, List<Integer>> pending = new LinkedHashMap<>();
+        for (int i = 0; i < texts.size(); i++) {
+            ContentKey key = keyOf(texts.get(i));
+            float[] vector = memory.getIfPresent(key);
+            if (vector != null) {
+                memoryHits.increment();
+            } else if ((vector = disk.get(key.hi, key.lo)) != null) {
+                diskHits.increment();
+                memory.put(key, vector);
+            } else {
+                misses.increment();
+                pending.computeIfAbsent(key, k -> new ArrayList<>(1)).add(i);
+                continue;
+            }
+            vectors[i] = vector;
+        }
+
+        if (!pending.isEmpty()) {
+            List<String> missing = new ArrayList<>(pending.size());
+            for (List<Integer> positions : pending.values()) {
+                missing.add(texts.get(positions.get(0)));
+            }
+            List<float[]> embedded = delegate.embed(missing);
+            int j = 0;
+            for (Map.Entry<ContentKey, List<Integer>> entry : pending.entrySet()) {
+                float[] vector = embedded.get(j++);
+                ContentKey key = entry.getKey();
+                memory.put(key, vector);
+                disk.put(key.hi, key.lo, vector);
+                for (int position : entry.getValue()) {
+                    vectors[position] = vector;
+                }
+            }
+        }
+        // 缓存中的数组是共享的，返回副本，调用方可以随意修改
+        List<float[]> result = new ArrayList<>(vectors.length);
+        for (float[] vector : vectors) {
+            result.add(vector.clone());
+        }
+        return result;
+    }
+
+    ContentKey keyOf(String text) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(modelPrefix);
+        ByteBuffer hash = ByteBuffer.wrap(digest.digest(normalize(text).getBytes(StandardCharsets.UTF_8)));
+        return new ContentKey(hash.getLong(), hash.getLong());
+    }
+
+    static String normalize(String text) {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+    }
+
+    static final class ContentKey {
+
+        final long hi;
+        final long lo;
+
+        ContentKey(long hi, long lo) {
+            this.hi = hi;
+            this.lo = lo;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ContentKey && ((ContentKey) o).hi == hi && ((ContentKey) o).lo == lo;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hi);
+        }
+    }
+}
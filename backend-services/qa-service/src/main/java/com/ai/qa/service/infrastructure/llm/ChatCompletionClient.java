@@ -0,0 +1,93 @@
+package com.ai.qa.service.infrastructure.llm;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * OpenAI 兼容的 /chat/completions 流式接口 (stream=true)。
+ * <p>
+ * 模型每生成一段文本就推送一个 SSE 事件，这里逐个事件解析出增量文本，不等待完整回答。
+ * 返回的 Flux 被取消时 (例如用户断开连接) WebClient 会关闭到模型服务的连接，服务端随之停止生成。
+ */
+@Component
+public class ChatCompletionClient {
+
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_TYPE =
+            new ParameterizedTypeReference<>() {};
+    private static final String DONE = "[DONE]";
+
+    private final WebClient webClient;
+    private final ObjectMapper objectMapper;
+    private final String model;
+    private final Duration idleTimeout;
+
+    /**
+     * @param idleTimeout 两个增量之间 (以及请求发出到第一个增量) 的最长等待时间
+     */
+    public ChatCompletionClient(WebClient.Builder webClientBuilder, ObjectMapper objectMapper,
+                                @Value("${qa.llm.base-url}") String baseUrl,
+                                @Value("${qa.llm.api-key:}") String apiKey,
+                                @Value("${qa.llm.model}") String model,
+                                @Value("${qa.llm.idle-timeout:30s}") Duration idleTimeout) {
+        WebClient.Builder builder = webClientBuilder.clone().baseUrl(baseUrl);
+        if (StringUtils.hasText(apiKey)) {
+            builder.defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey);
+        }
+        this.webClient = builder.build();
+        this.objectMapper = objectMapper;
+        this.model = model;
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * 流式生成回答
+     *
+     * @return 依次到达的文本增量，模型输出结束时完成
+     */
+    public Flux<String> stream(List<ChatMessage> messages) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("model", model);
+        body.put("stream", true);
+        body.put("messages", messages);
+
+        return webClient.post()
+                .uri("/chat/completions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .bodyValue(body)
+                .retrieve()
+                .bodyToFlux(SSE_TYPE)
+                .timeout(idleTimeout)
+                .mapNotNull(ServerSentEvent::data)
+                .takeWhile(data -> !DONE.equals(data))
+                .map(this::delta)
+                .filter(delta -> !delta.isEmpty());
+    }
+
+    /**
+     * 取出 choices[0].delta.content，角色声明、结束原因等不含文本的事件返回空串
+     */
+    private String delta(String data) {
+        try {
+            JsonNode content = objectMapper.readTree(data).path("choices").path(0).path("delta").path("content");
+            return content.isTextual() ? content.asText() : "";
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Malformed completion chunk: " + data, e);
+        }
+    }
+}
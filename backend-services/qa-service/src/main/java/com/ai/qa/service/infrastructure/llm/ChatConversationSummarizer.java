@@ -0,0 +1,56 @@
+package com.ai.qa.service.infrastructure.llm;
+
+import com.ai.qa.service.domain.model.QAHistory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 用对话模型生成摘要；每轮问答的原文先截断，单次调用的输入有上限
+ */
+@Component
+public class ChatConversationSummarizer implements ConversationSummarizer {
+
+    private final ChatCompletionClient chatClient;
+    private final int maxTurnTokens;
+    private final Duration timeout;
+
+    /**
+     * @param maxTurnTokens 每轮问答送入模型的 token 上限
+     */
+    public ChatConversationSummarizer(ChatCompletionClient chatClient,
+                                      @Value("${qa.context.summary.max-turn-tokens:1000}") int maxTurnTokens,
+                                      @Value("${qa.context.summary.timeout:60s}") Duration timeout) {
+        this.chatClient = chatClient;
+        this.maxTurnTokens = maxTurnTokens;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public String summarize(String previous, List<QAHistory> turns, int maxTokens) {
+        StringBuilder input = new StringBuilder();
+        if (previous != null && !previous.isEmpty()) {
+            input.append("已有摘要：\n").append(previous).append("\n\n");
+        }
+        input.append("新的问答：\n");
+        for (QAHistory turn : turns) {
+            input.append("用户：").append(TokenCounter.truncate(turn.getQuestion(), maxTurnTokens / 2)).append('\n');
+            input.append("助手：").append(TokenCounter.truncate(turn.getAnswer(), maxTurnTokens)).append("\n\n");
+        }
+        List<ChatMessage> messages = List.of(
+                ChatMessage.system("你负责压缩对话记录。把已有摘要和新的问答合并成一份新的摘要，保留用户的目标、"
+                        + "关键事实、已得出的结论和尚未解决的问题，省略寒暄和重复内容。摘要不超过 " + maxTokens
+                        + " 个 token，只输出摘要本身。"),
+                ChatMessage.user(input.toString()));
+        String summary = chatClient.stream(messages)
+                .collect(Collectors.joining())
+                .block(timeout);
+        if (summary == null || summary.isBlank()) {
+            throw new IllegalStateException("Model returned an empty summary");
+        }
+        return summary.trim();
+    }
+}
@@ -0,0 +1,35 @@
+package com.ai.qa.service.infrastructure.llm;
+
+/**
+ * 对话消息，按 OpenAI 兼容格式序列化为 {"role": ..., "content": ...}
+ */
+public final class ChatMessage {
+
+    private final String role;
+    private final String content;
+
+    private ChatMessage(String role, String content) {
+        this.role = role;
+        this.content = content;
+    }
+
+    public static ChatMessage system(String content) {
+        return new ChatMessage("system", content);
+    }
+
+    public static ChatMessage user(String content) {
+        return new ChatMessage("user", content);
+    }
+
+    public static ChatMessage assistant(String content) {
+        return new ChatMessage("assistant", content);
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public String getContent() {
+        return content;
+    }
+}
@@ -0,0 +1,21 @@
+package com.ai.qa.service.infrastructure.llm;
+
+import com.ai.qa.service.domain.model.QAHistory;
+
+import java.util.List;
+
+/**
+ * 把会话中较早的几轮问答合并进已有摘要
+ */
+public interface ConversationSummarizer {
+
+    /**
+     * 阻塞直到生成完成
+     *
+     * @param previous  已有摘要，没有时为 null
+     * @param turns     要合并的问答，按时间从早到晚
+     * @param maxTokens 新摘要的 token 上限
+     * @return 新摘要
+     */
+    String summarize(String previous, List<QAHistory> turns, int maxTokens);
+}
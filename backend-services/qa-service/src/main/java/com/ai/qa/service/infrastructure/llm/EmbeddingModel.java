@@ -0,0 +1,27 @@
+package com.ai.qa.service.infrastructure.llm;
+
+import java.util.List;
+
+/**
+ * 文本向量化模型
+ */
+public interface EmbeddingModel {
+
+    /**
+     * 模型标识，模型或输出维度变化后同一段文本的向量也不同
+     */
+    String modelId();
+
+    int dimension();
+
+    /**
+     * 批量向量化
+     *
+     * @return 与 texts 一一对应
+     */
+    List<float[]> embed(List<String> texts);
+
+    default float[] embed(String text) {
+        return embed(List.of(text)).get(0);
+    }
+}
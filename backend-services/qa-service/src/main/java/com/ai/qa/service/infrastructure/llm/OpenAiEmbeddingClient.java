@@ -0,0 +1,90 @@
+package com.ai.qa.service.infrastructure.llm;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * OpenAI 兼容的 /embeddings 接口，与对话模型使用同一个服务地址和密钥
+ */
+@Component
+public class OpenAiEmbeddingClient implements EmbeddingModel {
+
+    private final WebClient webClient;
+    private final String model;
+    private final int dimensions;
+    private final Duration timeout;
+
+    /**
+     * @param dimensions 输出维度，text-embedding-3 系列支持截短，维度越小索引越小、检索越快
+     */
+    public OpenAiEmbeddingClient(WebClient.Builder webClientBuilder,
+                                 @Value("${qa.llm.base-url}") String baseUrl,
+                                 @Value("${qa.llm.api-key:}") String apiKey,
+                                 @Value("${qa.embedding.model}") String model,
+                                 @Value("${qa.embedding.dimensions}") int dimensions,
+                                 @Value("${qa.embedding.timeout:5s}") Duration timeout) {
+        WebClient.Builder builder = webClientBuilder.clone().baseUrl(baseUrl);
+        if (StringUtils.hasText(apiKey)) {
+            builder.defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey);
+        }
+        this.webClient = builder.build();
+        this.model = model;
+        this.dimensions = dimensions;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public String modelId() {
+        return model + "/" + dimensions;
+    }
+
+    @Override
+    public int dimension() {
+        return dimensions;
+    }
+
+    @Override
+    public List<float[]> embed(List<String> texts) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("model", model);
+        body.put("input", texts);
+        body.put("dimensions", dimensions);
+
+        JsonNode response = webClient.post()
+                .uri("/embeddings")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .block(timeout);
+        if (response == null) {
+            throw new IllegalStateException("Empty embedding response");
+        }
+
+        float[][] vectors = new float[texts.size()][];
+        for (JsonNode item : response.path("data")) {
+            JsonNode embedding = item.path("embedding");
+            float[] vector = new float[embedding.size()];
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] = (float) embedding.get(i).asDouble();
+            }
+            vectors[item.path("index").asInt()] = vector;
+        }
+        for (float[] vector : vectors) {
+            if (vector == null || vector.length != dimensions) {
+                throw new IllegalStateException("Embedding response does not match the request");
+            }
+        }
+        return List.of(vectors);
+    }
+}
@@ -0,0 +1,100 @@
+package com.ai.qa.service.infrastructure.llm;
+
+/**
+ * 本地估算文本的 token 数，不调用模型服务，也不加载 BPE 词表。
+ * <p>
+ * 规则参照 OpenAI 的 cl100k / o200k 分词的平均表现，并且偏向多估：
+ * 中日韩字符每字 1 个；英文单词 (含前导空格) 每 5 个字母 1 个；数字每 3 位 1 个；
+ * 其他字母文字每 2 个字符 1 个；标点、符号、换行各 1 个；单个空格并入后面的词。
+ * 对中英文混合的问答，误差一般在 ±15% 以内，组装提示词时的预算留出了余量。
+ */
+public final class TokenCounter {
+
+    /**
+     * 每条消息的固定开销 (角色、分隔符)
+     */
+    public static final int MESSAGE_OVERHEAD = 4;
+
+    private TokenCounter() {
+    }
+
+    public static int count(String text) {
+        return text == null ? 0 : count(text, text.length());
+    }
+
+    public static int count(ChatMessage message) {
+        return MESSAGE_OVERHEAD + count(message.getContent());
+    }
+
+    /**
+     * 截断到不超过 maxTokens 个 token，在字符边界上截断
+     */
+    public static String truncate(String text, int maxTokens) {
+        if (text == null || count(text) <= maxTokens) {
+            return text;
+        }
+        // token 数随长度单调不减，二分查找最长的前缀
+        int low = 0;
+        int high = text.length();
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (count(text, mid) <= maxTokens) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (low > 0 && Character.isHighSurrogate(text.charAt(low - 1))) {
+            low--;
+        }
+        return text.substring(0, low);
+    }
+
+    private static int count(String text, int end) {
+        int tokens = 0;
+        int i = 0;
+        while (i < end) {
+            int cp = text.codePointAt(i);
+            if (isCjk(cp)) {
+                tokens++;
+                i += Character.charCount(cp);
+            } else if (cp < 128 && Character.isLetter(cp)) {
+                int start = i;
+                while (i < end && text.charAt(i) < 128 && Character.isLetter(text.charAt(i))) {
+                    i++;
+                }
+                tokens += (i - start + 4) / 5;
+            } else if (Character.isDigit(cp)) {
+                int start = i;
+                while (i < end && Character.isDigit(text.charAt(i))) {
+                    i++;
+                }
+                tokens += (i - start + 2) / 3;
+            } else if (Character.isLetter(cp)) {
+                int start = i;
+                while (i < end) {
+                    int next = text.codePointAt(i);
+                    if (!Character.isLetter(next) || next < 128 || isCjk(next)) {
+                        break;
+                    }
+                    i += Character.charCount(next);
+                }
+                tokens += (i - start + 1) / 2;
+            } else if (cp == ' ') {
+                i++;
+            } else {
+                tokens++;
+                i += Character.charCount(cp);
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isCjk(int cp) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
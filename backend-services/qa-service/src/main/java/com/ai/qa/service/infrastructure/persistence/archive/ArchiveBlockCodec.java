@@ -0,0 +1,185 @@
+package com.ai.qa.service.infrastructure.persistence.archive;
+
+import com.ai.qa.service.domain.model.QAHistory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 归档块的编码：一个块是同一会话中按时间排列的若干轮问答，按列存放 (id、时间、用户、会话、问题、回答各自连续)，
+ * 相似的内容相邻，再整体用 DEFLATE 压缩，可选预置字典。id 和时间存与前一条的差值。
+ * <p>
+ * 字典不写进块里，解码时必须使用编码时的同一份字典。
+ */
+public final class ArchiveBlockCodec {
+
+    private static final byte VERSION = 1;
+
+    private ArchiveBlockCodec() {
+    }
+
+    /**
+     * 未压缩的列式编码
+     */
+    public static byte[] serialize(List<QAHistory> rows) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeInt(rows.size());
+            long previousId = 0;
+            for (QAHistory row : rows) {
+                long id = Long.parseLong(row.getId());
+                out.writeLong(id - previousId);
+                previousId = id;
+            }
+            long previousTime = 0;
+            for (QAHistory row : rows) {
+                long time = micros(row.getTimestamp());
+                out.writeLong(time - previousTime);
+                previousTime = time;
+            }
+            for (QAHistory row : rows) {
+                writeString(out, row.getUserId());
+            }
+            for (QAHistory row : rows) {
+                writeString(out, row.getSessionId());
+            }
+            for (QAHistory row : rows) {
+                writeString(out, row.getQuestion());
+            }
+            for (QAHistory row : rows) {
+                writeString(out, row.getAnswer());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static List<QAHistory> deserialize(byte[] raw) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw))) {
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IllegalStateException("Unsupported archive block version " + version);
+            }
+            int count = in.readInt();
+            long[] ids = new long[count];
+            long previousId = 0;
+            for (int i = 0; i < count; i++) {
+                previousId += in.readLong();
+                ids[i] = previousId;
+            }
+            long[] times = new long[count];
+            long previousTime = 0;
+            for (int i = 0; i < count; i++) {
+                previousTime += in.readLong();
+                times[i] = previousTime;
+            }
+            String[][] columns = new String[4][count];
+            for (String[] column : columns) {
+                for (int i = 0; i < count; i++) {
+                    column[i] = readString(in);
+                }
+            }
+            List<QAHistory> rows = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                rows.add(QAHistory.restore(String.valueOf(ids[i]), columns[0][i], columns[1][i], columns[2][i],
+                        columns[3][i], time(times[i])));
+            }
+            return rows;
+        } catch (IOException e) {
+            throw new IllegalStateException("Corrupted archive block", e);
+        }
+    }
+
+    /**
+     * @param dictionary 预置字典，空数组表示不用字典
+     */
+    public static byte[] compress(byte[] raw, byte[] dictionary) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            if (dictionary.length > 0) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public static byte[] decompress(byte[] compressed, int rawLength, byte[] dictionary) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawLength];
+            int offset = 0;
+            while (offset < rawLength) {
+                int n = inflater.inflate(raw, offset, rawLength - offset);
+                if (n == 0) {
+                    if (inflater.needsDictionary()) {
+                        if (dictionary.length == 0) {
+                            throw new IllegalStateException("Archive block requires a dictionary");
+                        }
+                        inflater.setDictionary(dictionary);
+                    } else if (inflater.finished() || inflater.needsInput()) {
+                        throw new IllegalStateException("Truncated archive block");
+                    }
+                }
+                offset += n;
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted archive block", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long micros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1_000;
+    }
+
+    private static LocalDateTime time(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+}
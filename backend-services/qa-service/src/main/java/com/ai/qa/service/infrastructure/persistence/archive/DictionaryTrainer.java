@@ -0,0 +1,133 @@
+package com.ai.qa.service.infrastructure.persistence.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * 从样本中训练 DEFLATE 预置字典 (思路同 zstd 的 COVER 算法，做了简化)。
+ * <p>
+ * 统计每个 8 字节片段出现在多少个样本中，把样本切成 64 字节的候选段，段的得分是其中尚未被字典覆盖、
+ * 且出现在至少两个样本中的片段的频次之和 (只出现一次的内容对其他记录没有帮助)；
+ * 贪心地选得分最高的段加入字典，并把它覆盖的片段频次清零，直到字典装满。
+ * 得分只会因为清零而下降，用惰性更新的优先队列，不必每轮重新计算所有候选段。
+ * <p>
+ * DEFLATE 引用字典时距离越近编码越短，得分最高的段放在字典末尾。
+ */
+public final class DictionaryTrainer {
+
+    /**
+     * DEFLATE 的窗口大小，字典再长也用不到
+     */
+    public static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+
+    private static final int KMER = 8;
+    private static final int SEGMENT = 64;
+
+    private DictionaryTrainer() {
+    }
+
+    /**
+     * @return 训练出的字典；样本太少、没有重复内容时为空数组
+     */
+    public static byte[] train(List<byte[]> samples, int dictionarySize) {
+        int capacity = Math.min(dictionarySize, MAX_DICTIONARY_SIZE);
+        Map<Long, Integer> frequency = new HashMap<>();
+        for (byte[] sample : samples) {
+            Set<Long> seen = new HashSet<>();
+            for (int i = 0; i + KMER <= sample.length; i++) {
+                long kmer = kmer(sample, i);
+                if (seen.add(kmer)) {
+                    frequency.merge(kmer, 1, Integer::sum);
+                }
+            }
+        }
+
+        PriorityQueue<Candidate> queue = new PriorityQueue<>();
+        for (byte[] sample : samples) {
+            for (int start = 0; start + KMER <= sample.length; start += SEGMENT) {
+                Candidate candidate = new Candidate(sample, start, Math.min(sample.length, start + SEGMENT));
+                candidate.score = candidate.score(frequency);
+                if (candidate.score > 0) {
+                    queue.add(candidate);
+                }
+            }
+        }
+
+        List<Candidate> chosen = new ArrayList<>();
+        int size = 0;
+        while (!queue.isEmpty() && size < capacity) {
+            Candidate best = queue.poll();
+            long score = best.score(frequency);
+            if (score == 0) {
+                continue;
+            }
+            if (!queue.isEmpty() && score < queue.peek().score) {
+                best.score = score;
+                queue.add(best);
+                continue;
+            }
+            chosen.add(best);
+            size += best.end - best.start;
+            for (int i = best.start; i + KMER <= best.end; i++) {
+                frequency.put(kmer(best.sample, i), 0);
+            }
+        }
+
+        Collections.reverse(chosen);
+        ByteArrayOutputStream dictionary = new ByteArrayOutputStream(size);
+        for (Candidate candidate : chosen) {
+            dictionary.write(candidate.sample, candidate.start, candidate.end - candidate.start);
+        }
+        byte[] bytes = dictionary.toByteArray();
+        // 超出容量时保留末尾 (得分最高的部分)
+        return bytes.length <= capacity ? bytes
+                : java.util.Arrays.copyOfRange(bytes, bytes.length - capacity, bytes.length);
+    }
+
+    private static long kmer(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < KMER; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static final class Candidate implements Comparable<Candidate> {
+
+        final byte[] sample;
+        final int start;
+        final int end;
+        long score;
+
+        Candidate(byte[] sample, int start, int end) {
+            this.sample = sample;
+            this.start = start;
+            this.end = end;
+        }
+
+        long score(Map<Long, Integer> frequency) {
+            long total = 0;
+            Set<Long> counted = new HashSet<>();
+            for (int i = start; i + KMER <= end; i++) {
+                long kmer = kmer(sample, i);
+                int count = frequency.getOrDefault(kmer, 0);
+                if (count > 1 && counted.add(kmer)) {
+                    total += count;
+                }
+            }
+            return total;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            return Long.compare(other.score, score);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.ai.qa.service.infrastructure.persistence.archive;
+
+import com.ai.qa.service.domain.model.HistoryCursor;
+import com.ai.qa.service.domain.model.QAHistory;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 冷存储中的问答历史，只读。由 {@link HistoryArchiver} 把超过保留期的行从 qa_history 移入，
+ * 同一行不会同时出现在两边。
+ * <p>
+ * 区间参数都是开区间，null 表示不限制。
+ */
+public interface HistoryArchive {
+
+    Optional<QAHistory> findById(String id);
+
+    /**
+     * 会话中位于 (after, before) 之间的归档问答，按时间正序
+     */
+    List<QAHistory> findBySession(String sessionId, HistoryCursor after, HistoryCursor before);
+
+    /**
+     * 用户位于 (after, before) 之间最新的 limit 条归档问答 (所有会话)，按时间倒序
+     */
+    List<QAHistory> findByUser(String userId, HistoryCursor after, HistoryCursor before, int limit);
+}
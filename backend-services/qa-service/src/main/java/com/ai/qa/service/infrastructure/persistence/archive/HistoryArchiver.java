@@ -0,0 +1,190 @@
+package com.ai.qa.service.infrastructure.persistence.archive;
+
+import com.ai.qa.service.domain.model.HistoryCursor;
+import com.ai.qa.service.domain.model.QAHistory;
+import com.ai.qa.service.infrastructure.persistence.entities.QAHistoryArchiveBlockPO;
+import com.ai.qa.service.infrastructure.persistence.entities.QAHistoryArchiveDictPO;
+import com.ai.qa.service.infrastructure.persistence.repositories.ArchiveTotalsView;
+import com.google.common.util.concurrent.AtomicDouble;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 定期把超过 max-age 的问答从 qa_history 移入压缩归档 (见 {@link JpaHistoryArchive})，热表只保留近期数据。
+ * 每次取最旧的 batch-rows 行，按会话分组、每 block-rows 行压缩成一块，一个事务写入归档并删除原行。
+ * <p>
+ * 压缩使用从问答原文训练的预置字典 ({@link DictionaryTrainer})：单个块只有几十行，
+ * 问答中反复出现的措辞和格式靠字典才能在块之间共享。没有字典或字典超过 dictionary.max-age 时，
+ * 用本批的问答重新训练；旧字典保留，用它压缩的块仍然可读。
+ * <p>
+ * 指标：qa.history.archive.rows、qa.history.archive.bytes{kind=raw|compressed} (本实例归档的量)、
+ * qa.history.archive.compression.ratio (全部归档块压缩前后的字节数之比)。
+ */
+@Component
+public class HistoryArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(HistoryArchiver.class);
+
+    /**
+     * 样本太少时训练出的字典没有代表性
+     */
+    private static final int MIN_DICTIONARY_SAMPLES = 64;
+
+    private final JpaHistoryArchive archive;
+    private final boolean enabled;
+    private final Duration maxAge;
+    private final int batchRows;
+    private final int blockRows;
+    private final int maxBatches;
+    private final int dictionarySize;
+    private final Duration dictionaryMaxAge;
+
+    private final Counter archivedRows;
+    private final Counter rawBytes;
+    private final Counter compressedBytes;
+    private final AtomicDouble compressionRatio = new AtomicDouble();
+
+    /**
+     * @param maxAge     超过这个时间的问答移入归档
+     * @param batchRows  每个事务归档的行数
+     * @param blockRows  每块的最大行数，越大压缩率越高，读取单行时解压的量也越大
+     * @param maxBatches 每次运行最多归档的批数，积压时分多次完成
+     */
+    public HistoryArchiver(JpaHistoryArchive archive, MeterRegistry meterRegistry,
+                           @Value("${qa.history.archive.enabled:true}") boolean enabled,
+                           @Value("${qa.history.archive.max-age:90d}") Duration maxAge,
+                           @Value("${qa.history.archive.batch-rows:1000}") int batchRows,
+                           @Value("${qa.history.archive.block-rows:64}") int blockRows,
+                           @Value("${qa.history.archive.max-batches:50}") int maxBatches,
+                           @Value("${qa.history.archive.dictionary.size:32768}") int dictionarySize,
+                           @Value("${qa.history.archive.dictionary.max-age:30d}") Duration dictionaryMaxAge) {
+        this.archive = archive;
+        this.enabled = enabled;
+        this.maxAge = maxAge;
+        this.batchRows = batchRows;
+        this.blockRows = blockRows;
+        this.maxBatches = maxBatches;
+        this.dictionarySize = dictionarySize;
+        this.dictionaryMaxAge = dictionaryMaxAge;
+        this.archivedRows = Counter.builder("qa.history.archive.rows").register(meterRegistry);
+        this.rawBytes = Counter.builder("qa.history.archive.bytes").tag("kind", "raw").register(meterRegistry);
+        this.compressedBytes = Counter.builder("qa.history.archive.bytes").tag("kind", "compressed")
+                .register(meterRegistry);
+        Gauge.builder("qa.history.archive.compression.ratio", compressionRatio, AtomicDouble::get)
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${qa.history.archive.initial-delay:60000}",
+            fixedDelayString = "${qa.history.archive.interval:3600000}")
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minus(maxAge);
+        int total = 0;
+        try {
+            for (int batch = 0; batch < maxBatches; batch++) {
+                List<QAHistory> rows = archive.findArchivable(cutoff, batchRows);
+                if (rows.isEmpty()) {
+                    break;
+                }
+                Long dictionaryId = dictionaryFor(rows);
+                List<QAHistoryArchiveBlockPO> blocks = archive.move(blocks(rows, blockRows), dictionaryId);
+                for (QAHistoryArchiveBlockPO block : blocks) {
+                    rawBytes.increment(block.getRawBytes());
+                    compressedBytes.increment(block.getCompressedBytes());
+                }
+                archivedRows.increment(rows.size());
+                total += rows.size();
+                if (rows.size() < batchRows) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("History archiving stopped after {} rows", total, e);
+        }
+        if (total > 0) {
+            log.info("Archived {} history rows older than {}", total, cutoff);
+        }
+        refreshRatio();
+    }
+
+    /**
+     * 按会话分组，组内按时间排序后每 blockRows 行切成一块
+     */
+    static List<List<QAHistory>> blocks(List<QAHistory> rows, int blockRows) {
+        Map<String, List<QAHistory>> sessions = new LinkedHashMap<>();
+        for (QAHistory row : rows) {
+            sessions.computeIfAbsent(row.getSessionId() + "|" + row.getUserId(), key -> new ArrayList<>()).add(row);
+        }
+        List<List<QAHistory>> blocks = new ArrayList<>();
+        for (List<QAHistory> session : sessions.values()) {
+            session.sort(Comparator.comparing(HistoryCursor::of));
+            for (int from = 0; from < session.size(); from += blockRows) {
+                blocks.add(new ArrayList<>(session.subList(from, Math.min(session.size(), from + blockRows))));
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * 问题和回答原文作为训练样本
+     */
+    static List<byte[]> samples(List<QAHistory> rows) {
+        List<byte[]> samples = new ArrayList<>(rows.size() * 2);
+        for (QAHistory row : rows) {
+            if (row.getQuestion() != null) {
+                samples.add(row.getQuestion().getBytes(StandardCharsets.UTF_8));
+            }
+            if (row.getAnswer() != null) {
+                samples.add(row.getAnswer().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return samples;
+    }
+
+    private Long dictionaryFor(List<QAHistory> rows) {
+        Optional<QAHistoryArchiveDictPO> latest = archive.latestDictionary();
+        if (latest.isPresent() && latest.get().getCreateTime().isAfter(LocalDateTime.now().minus(dictionaryMaxAge))) {
+            return latest.get().getId();
+        }
+        if (rows.size() >= MIN_DICTIONARY_SAMPLES) {
+            List<byte[]> samples = samples(rows);
+            byte[] dictionary = DictionaryTrainer.train(samples, dictionarySize);
+            if (dictionary.length > 0) {
+                QAHistoryArchiveDictPO saved = archive.saveDictionary(dictionary, samples.size());
+                log.info("Trained archive dictionary {} ({} bytes) from {} samples", saved.getId(),
+                        dictionary.length, samples.size());
+                return saved.getId();
+            }
+        }
+        return latest.map(QAHistoryArchiveDictPO::getId).orElse(null);
+    }
+
+    private void refreshRatio() {
+        try {
+            ArchiveTotalsView totals = archive.totals();
+            if (totals.getCompressedBytes() > 0) {
+                compressionRatio.set((double) totals.getRawBytes() / totals.getCompressedBytes());
+            }
+        } catch (RuntimeException e) {
+            log.debug("Failed to read archive totals", e);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.ai.qa.service.infrastructure.persistence.archive;
+
+import com.ai.qa.service.domain.model.HistoryCursor;
+import com.ai.qa.service.domain.model.QAHistory;
+import com.ai.qa.service.infrastructure.persistence.entities.QAHistoryArchiveBlockPO;
+import com.ai.qa.service.infrastructure.persistence.entities.QAHistoryArchiveDictPO;
+import com.ai.qa.service.infrastructure.persistence.entities.QAHistoryArchiveRefPO;
+import com.ai.qa.service.infrastructure.persistence.repositories.ArchiveTotalsView;
+import com.ai.qa.service.infrastructure.persistence.repositories.JpaArchiveBlockRepository;
+import com.ai.qa.service.infrastructure.persistence.repositories.JpaArchiveDictRepository;
+import com.ai.qa.service.infrastructure.persistence.repositories.JpaArchiveRefRepository;
+import com.ai.qa.service.infrastructure.persistence.repositories.JpaQAHistoryRepository;
+import com.ai.qa.service.infrastructure.persistence.repositories.QAHistoryMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 归档存放在 qa_history_archive_block 表中：每块是同一会话按时间排列的若干轮问答，列式编码后压缩
+ * (见 {@link ArchiveBlockCodec})；qa_history_archive_ref 记录每个 id 所在的块。
+ * 读取时先按块的时间范围筛选，只解压与查询区间相交的块。
+ * <p>
+ * 字典不可变，按 id 缓存在内存中。
+ * <p>
+ * 指标：qa.history.archive.read{op=id|session|user}，归档读取 (含解压) 的耗时。
+ */
+@Repository
+public class JpaHistoryArchive implements HistoryArchive {
+
+    /**
+     * MySQL DATETIME 的取值范围，代替不限制的区间端点
+     */
+    private static final LocalDateTime MIN_TIME = LocalDateTime.of(1000, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_TIME = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    private static final int USER_BLOCK_PAGE = 16;
+
+    private static final Comparator<QAHistory> BY_CURSOR = Comparator.comparing(HistoryCursor::of);
+
+    private final JpaArchiveBlockRepository blockRepository;
+    private final JpaArchiveRefRepository refRepository;
+    private final JpaArchiveDictRepository dictRepository;
+    private final JpaQAHistoryRepository historyRepository;
+    private final QAHistoryMapper mapper;
+    private final EntityManager entityManager;
+    private final Map<Long, byte[]> dictionaries = new ConcurrentHashMap<>();
+
+    private final Timer readById;
+    private final Timer readSession;
+    private final Timer readUser;
+
+    public JpaHistoryArchive(JpaArchiveBlockRepository blockRepository, JpaArchiveRefRepository refRepository,
+                             JpaArchiveDictRepository dictRepository, JpaQAHistoryRepository historyRepository,
+                             QAHistoryMapper mapper, EntityManager entityManager, MeterRegistry meterRegistry) {
+        this.blockRepository = blockRepository;
+        this.refRepository = refRepository;
+        this.dictRepository = dictRepository;
+        this.historyRepository = historyRepository;
+        this.mapper = mapper;
+        this.entityManager = entityManager;
+        this.readById = Timer.builder("qa.history.archive.read").tag("op", "id").register(meterRegistry);
+        this.readSession = Timer.builder("qa.history.archive.read").tag("op", "session").register(meterRegistry);
+        this.readUser = Timer.builder("qa.history.archive.read").tag("op", "user").register(meterRegistry);
+    }
+
+    @Override
+    public Optional<QAHistory> findById(String id) {
+        Long historyId = Long.valueOf(id);
+        return readById.record(() -> refRepository.findById(historyId)
+                .flatMap(ref -> blockRepository.findById(ref.getBlockId()))
+                .flatMap(block -> decode(block).stream().filter(row -> row.getId().equals(id)).findFirst()));
+    }
+
+    @Override
+    public List<QAHistory> findBySession(String sessionId, HistoryCursor after, HistoryCursor before) {
+        return readSession.record(() -> {
+            List<QAHistory> rows = new ArrayList<>();
+            for (QAHistoryArchiveBlockPO block : blockRepository.findSessionBlocks(sessionId, from(after),
+                    to(before))) {
+                for (QAHistory row : decode(block)) {
+                    if (within(row, after, before)) {
+                        rows.add(row);
+                    }
+                }
+            }
+            rows.sort(BY_CURSOR);
+            return rows;
+        });
+    }
+
+    /**
+     * 按 last_time 倒序逐页读块；已经凑够 limit 条、且下一块的 last_time 早于第 limit 新的一条时，
+     * 后面的块不可能再有更新的行，停止读取
+     */
+    @Override
+    public List<QAHistory> findByUser(String userId, HistoryCursor after, HistoryCursor before, int limit) {
+        Long user = Long.valueOf(userId);
+        return readUser.record(() -> {
+            List<QAHistory> rows = new ArrayList<>();
+            for (int page = 0; ; page++) {
+                List<QAHistoryArchiveBlockPO> blocks = blockRepository.findUserBlocks(user, from(after), to(before),
+                        PageRequest.of(page, USER_BLOCK_PAGE));
+                for (QAHistoryArchiveBlockPO block : blocks) {
+                    if (rows.size() >= limit && block.getLastTime().isBefore(rows.get(limit - 1).getTimestamp())) {
+                        return rows;
+                    }
+                    for (QAHistory row : decode(block)) {
+                        if (within(row, after, before)) {
+                            rows.add(row);
+                        }
+                    }
+                    rows.sort(BY_CURSOR.reversed());
+                    if (rows.size() > limit) {
+                        rows.subList(limit, rows.size()).clear();
+                    }
+                }
+                if (blocks.size() < USER_BLOCK_PAGE) {
+                    return rows;
+                }
+            }
+        });
+    }
+
+    /**
+     * 早于 cutoff 的最旧的 limit 行
+     */
+    public List<QAHistory> findArchivable(LocalDateTime cutoff, int limit) {
+        return historyRepository.findOlderThan(cutoff, PageRequest.of(0, limit)).stream()
+                .map(mapper::toDomain)
+                .collect(Collectors.toList());
+    }
+
+    public Optional<QAHistoryArchiveDictPO> latestDictionary() {
+        return dictRepository.findTopByOrderByIdDesc();
+    }
+
+    public QAHistoryArchiveDictPO saveDictionary(byte[] dictionary, int sampleCount) {
+        QAHistoryArchiveDictPO po = new QAHistoryArchiveDictPO();
+        po.setDictionary(dictionary);
+        po.setSampleCount(sampleCount);
+        po.setCreateTime(LocalDateTime.now());
+        po = dictRepository.save(po);
+        dictionaries.put(po.getId(), dictionary);
+        return po;
+    }
+
+    public ArchiveTotalsView totals() {
+        return blockRepository.totals();
+    }
+
+    /**
+     * 在一个事务中写入归档块、登记 id，并从 qa_history 删除这些行。
+     * 删除的行数不等于归档的行数说明其他实例已经归档了其中一部分，整个事务回滚，同一行不会归档两次。
+     *
+     * @param blocks       每个元素是一个块的内容，同一会话、按时间正序
+     * @param dictionaryId 压缩使用的字典，null 表示不用字典
+     * @return 写入的块
+     */
+    @Transactional
+    public List<QAHistoryArchiveBlockPO> move(List<List<QAHistory>> blocks, Long dictionaryId) {
+        byte[] dictionary = dictionary(dictionaryId);
+        List<QAHistoryArchiveBlockPO> saved = new ArrayList<>(blocks.size());
+        List<Long> ids = new ArrayList<>();
+        for (List<QAHistory> rows : blocks) {
+            byte[] raw = ArchiveBlockCodec.serialize(rows);
+            QAHistoryArchiveBlockPO block = new QAHistoryArchiveBlockPO();
+            block.setSessionId(rows.get(0).getSessionId());
+            block.setUserId(rows.get(0).getUserId() == null ? null : Long.valueOf(rows.get(0).getUserId()));
+            block.setFirstTime(rows.get(0).getTimestamp());
+            block.setLastTime(rows.get(rows.size() - 1).getTimestamp());
+            block.setRowCount(rows.size());
+            block.setDictionaryId(dictionaryId);
+            block.setRawBytes(raw.length);
+            block.setPayload(ArchiveBlockCodec.compress(raw, dictionary));
+            block.setCompressedBytes(block.getPayload().length);
+            entityManager.persist(block);
+            for (QAHistory row : rows) {
+                QAHistoryArchiveRefPO ref = new QAHistoryArchiveRefPO();
+                ref.setHistoryId(Long.valueOf(row.getId()));
+                ref.setBlockId(block.getId());
+                entityManager.persist(ref);
+                ids.add(ref.getHistoryId());
+            }
+            saved.add(block);
+        }
+        entityManager.flush();
+        int deleted = historyRepository.deleteByIds(ids);
+        if (deleted != ids.size()) {
+            throw new IllegalStateException("Expected to archive " + ids.size() + " rows but deleted " + deleted
+                    + ", another instance is archiving concurrently");
+        }
+        return saved;
+    }
+
+    private List<QAHistory> decode(QAHistoryArchiveBlockPO block) {
+        byte[] raw = ArchiveBlockCodec.decompress(block.getPayload(), block.getRawBytes(),
+                dictionary(block.getDictionaryId()));
+        return ArchiveBlockCodec.deserialize(raw);
+    }
+
+    private byte[] dictionary(Long id) {
+        if (id == null) {
+            return new byte[0];
+        }
+        return dictionaries.computeIfAbsent(id, key -> dictRepository.findById(key)
+                .map(QAHistoryArchiveDictPO::getDictionary)
+                .orElseThrow(() -> new IllegalStateException("Archive dictionary " + key + " is missing")));
+    }
+
+    private static LocalDateTime from(HistoryCursor after) {
+        return after == null ? MIN_TIME : after.getTimestamp();
+    }
+
+    private static LocalDateTime to(HistoryCursor before) {
+        return before == null ? MAX_TIME : before.getTimestamp();
+    }
+
+    private static boolean within(QAHistory row, HistoryCursor after, HistoryCursor before) {
+        HistoryCursor cursor = HistoryCursor.of(row);
+        return (after == null || cursor.compareTo(after) > 0) && (before == null || cursor.compareTo(before) < 0);
+    }
+}
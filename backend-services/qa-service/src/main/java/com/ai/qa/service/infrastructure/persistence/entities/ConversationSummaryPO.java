@@ -0,0 +1,30 @@
+package com.ai.qa.service.infrastructure.persistence.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name= "qa_session_summary")
+@Getter
+@Setter
+public class ConversationSummaryPO {
+
+    @Id
+    private String sessionId;
+    private Long userId;
+    @Column(columnDefinition = "TEXT")
+    private String summary;
+    /**
+     * 摘要覆盖到的最后一轮问答 (qa_history 的 create_time, id)
+     */
+    private LocalDateTime throughTime;
+    private Long throughId;
+    private LocalDateTime updateTime;
+
+}
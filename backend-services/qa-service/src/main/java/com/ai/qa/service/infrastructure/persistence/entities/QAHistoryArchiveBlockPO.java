@@ -0,0 +1,48 @@
+package com.ai.qa.service.infrastructure.persistence.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Entity
+/**
+ * 归档块：同一会话的若干轮问答压缩在一起。时间范围和行数单独存放，查询时先按它们筛选块，只解压需要的
+ */
+@Table(name = "qa_history_archive_block", indexes = {
+        @Index(name = "idx_archive_session_time", columnList = "session_id, first_time"),
+        @Index(name = "idx_archive_user_time", columnList = "user_id, last_time")
+})
+@Getter
+@Setter
+public class QAHistoryArchiveBlockPO {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private String sessionId;
+    private Long userId;
+    @Column(nullable = false)
+    private LocalDateTime firstTime;
+    @Column(nullable = false)
+    private LocalDateTime lastTime;
+    private int rowCount;
+    /**
+     * 压缩时使用的字典 (qa_history_archive_dict)，null 表示没有字典
+     */
+    private Long dictionaryId;
+    private int rawBytes;
+    private int compressedBytes;
+    @Lob
+    @Column(nullable = false, columnDefinition = "MEDIUMBLOB")
+    private byte[] payload;
+
+}
@@ -0,0 +1,33 @@
+package com.ai.qa.service.infrastructure.persistence.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * 归档压缩字典。重新训练时新增一行，旧字典保留，用它压缩的块仍需要它解压
+ */
+@Entity
+@Table(name = "qa_history_archive_dict")
+@Getter
+@Setter
+public class QAHistoryArchiveDictPO {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Lob
+    @Column(nullable = false, columnDefinition = "BLOB")
+    private byte[] dictionary;
+    private int sampleCount;
+    private LocalDateTime createTime;
+
+}
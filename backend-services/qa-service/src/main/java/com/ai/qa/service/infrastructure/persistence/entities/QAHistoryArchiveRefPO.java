@@ -0,0 +1,22 @@
+package com.ai.qa.service.infrastructure.persistence.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 已归档的问答 id 所在的块，按 id 查询时使用
+ */
+@Entity
+@Table(name = "qa_history_archive_ref")
+@Getter
+@Setter
+public class QAHistoryArchiveRefPO {
+
+    @Id
+    private Long historyId;
+    private Long blockId;
+
+}
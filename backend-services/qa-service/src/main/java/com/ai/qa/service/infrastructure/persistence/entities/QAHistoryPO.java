@@ -1,22 +1,39 @@
 package com.ai.qa.service.infrastructure.persistence.entities;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name= "qa_history")
+/**
+ * 两个索引分别服务于会话内和用户全部历史的 keyset 分页：等值列在前，排序列 (create_time, id) 在后；
+ * idx_create_time 供归档任务找出最旧的行
+ */
+@Table(name= "qa_history", indexes = {
+        @Index(name = "idx_session_time_id", columnList = "session_id, create_time, id"),
+        @Index(name = "idx_user_time_id", columnList = "user_id, create_time, id"),
+        @Index(name = "idx_create_time", columnList = "create_time")
+})
+@Getter
+@Setter
 public class QAHistoryPO {
 
-    private String id;
-    private String userId;
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private Long userId;
     private String question;
     private String answer;
+    @Column(name = "create_time", nullable = false)
     private LocalDateTime timestamp;
     private String sessionId;
 
-    private LocalDateTime create_time;
-    private LocalDateTime update_time;
-
 }
@@ -0,0 +1,11 @@
+package com.ai.qa.service.infrastructure.persistence.repositories;
+
+/**
+ * 所有归档块的压缩前后字节数 (接口投影)
+ */
+public interface ArchiveTotalsView {
+
+    long getRawBytes();
+
+    long getCompressedBytes();
+}
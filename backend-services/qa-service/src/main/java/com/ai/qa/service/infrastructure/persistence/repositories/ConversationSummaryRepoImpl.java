@@ -0,0 +1,38 @@
+package com.ai.qa.service.infrastructure.persistence.repositories;
+
+import com.ai.qa.service.domain.model.ConversationSummary;
+import com.ai.qa.service.domain.model.HistoryCursor;
+import com.ai.qa.service.domain.repo.ConversationSummaryRepo;
+import com.ai.qa.service.infrastructure.persistence.entities.ConversationSummaryPO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class ConversationSummaryRepoImpl implements ConversationSummaryRepo {
+
+    private final JpaConversationSummaryRepository jpaConversationSummaryRepository;
+
+    @Override
+    public Optional<ConversationSummary> findBySession(String sessionId) {
+        return jpaConversationSummaryRepository.findById(sessionId)
+                .map(po -> new ConversationSummary(po.getSessionId(),
+                        po.getUserId() == null ? null : String.valueOf(po.getUserId()), po.getSummary(),
+                        new HistoryCursor(po.getThroughTime(), po.getThroughId())));
+    }
+
+    @Override
+    public void save(ConversationSummary summary) {
+        ConversationSummaryPO po = new ConversationSummaryPO();
+        po.setSessionId(summary.getSessionId());
+        po.setUserId(summary.getUserId() == null ? null : Long.valueOf(summary.getUserId()));
+        po.setSummary(summary.getSummary());
+        po.setThroughTime(summary.getThrough().getTimestamp());
+        po.setThroughId(summary.getThrough().getId());
+        po.setUpdateTime(LocalDateTime.now());
+        jpaConversationSummaryRepository.save(po);
+    }
+}
@@ -0,0 +1,42 @@
+package com.ai.qa.service.infrastructure.persistence.repositories;
+
+/**
+ * 在写入数据库之前生成问答历史 id (写后模式下调用方需要立即拿到 id，用于检索索引和答案缓存)。
+ * <p>
+ * 64 位：41 位毫秒时间戳 (自 2024-01-01 起) | 10 位节点号 | 12 位序号。同一节点内单调递增，
+ * 不同节点的节点号必须不同。远大于自增 id，与已有数据不会冲突。时钟回拨时沿用上一次的时间戳继续递增。
+ */
+public class HistoryIdGenerator {
+
+    private static final long EPOCH_MILLIS = 1704067200000L;
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE = (1 << NODE_BITS) - 1;
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+
+    private final long node;
+    private long lastMillis = -1;
+    private long sequence;
+
+    public HistoryIdGenerator(int node) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("node must be between 0 and " + MAX_NODE);
+        }
+        this.node = node;
+    }
+
+    public synchronized long nextId() {
+        long now = Math.max(System.currentTimeMillis() - EPOCH_MILLIS, lastMillis);
+        if (now == lastMillis) {
+            sequence = (sequence + 1) & MAX_SEQUENCE;
+            if (sequence == 0) {
+                // 这一毫秒的序号用完，借用下一毫秒
+                now++;
+            }
+        } else {
+            sequence = 0;
+        }
+        lastMillis = now;
+        return (now << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | sequence;
+    }
+}
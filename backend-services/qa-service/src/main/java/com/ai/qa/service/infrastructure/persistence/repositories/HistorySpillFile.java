@@ -0,0 +1,159 @@
+package com.ai.qa.service.infrastructure.persistence.repositories;
+
+import com.ai.qa.service.domain.model.QAHistory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 数据库不可用时暂存问答历史的本地文件，追加写入并刷到磁盘后才算写入成功。
+ * <p>
+ * 每条记录：长度 (int)、内容、内容的 CRC32 (long)。进程崩溃时最后一条记录可能只写了一部分，
+ * 读取时遇到长度或校验和不符即停止，丢弃之后的内容。重写 (回放后保留剩余记录) 先写临时文件再原子替换。
+ */
+public class HistorySpillFile {
+
+    private static final Logger log = LoggerFactory.getLogger(HistorySpillFile.class);
+
+    private final Path file;
+    private volatile long records;
+
+    public HistorySpillFile(Path file) throws IOException {
+        this.file = file;
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        this.records = readAll().size();
+    }
+
+    /**
+     * 追加一批记录并刷到磁盘
+     */
+    public synchronized void append(List<QAHistory> histories) throws IOException {
+        ByteBuffer buffer = encode(histories);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        records += histories.size();
+    }
+
+    public synchronized List<QAHistory> readAll() throws IOException {
+        if (!Files.exists(file)) {
+            return new ArrayList<>();
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        List<QAHistory> histories = new ArrayList<>();
+        while (buffer.remaining() >= Integer.BYTES) {
+            int length = buffer.getInt();
+            if (length < 0 || buffer.remaining() < length + Long.BYTES) {
+                log.warn("Truncated record in spill file {} after {} records", file, histories.size());
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if (crc.getValue() != buffer.getLong()) {
+                log.warn("Corrupt record in spill file {} after {} records", file, histories.size());
+                break;
+            }
+            histories.add(decode(ByteBuffer.wrap(payload)));
+        }
+        return histories;
+    }
+
+    /**
+     * 用给定的记录替换文件内容，为空时清空
+     */
+    public synchronized void rewrite(List<QAHistory> remaining) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = encode(remaining);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        records = remaining.size();
+    }
+
+    /**
+     * 文件中的记录数
+     */
+    public long size() {
+        return records;
+    }
+
+    private static ByteBuffer encode(List<QAHistory> histories) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (QAHistory history : histories) {
+            ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+            DataOutputStream record = new DataOutputStream(recordBytes);
+            record.writeLong(Long.parseLong(history.getId()));
+            writeString(record, history.getUserId());
+            writeString(record, history.getSessionId());
+            writeString(record, history.getQuestion());
+            writeString(record, history.getAnswer());
+            writeString(record, history.getTimestamp().toString());
+            byte[] payload = recordBytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            out.writeInt(payload.length);
+            out.write(payload);
+            out.writeLong(crc.getValue());
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    private static QAHistory decode(ByteBuffer in) {
+        String id = String.valueOf(in.getLong());
+        String userId = readString(in);
+        String sessionId = readString(in);
+        String question = readString(in);
+        String answer = readString(in);
+        LocalDateTime timestamp = LocalDateTime.parse(readString(in));
+        return QAHistory.restore(id, userId, sessionId, question, answer, timestamp);
+    }
+
+    /**
+     * 长度 -1 表示 null；不用 writeUTF，回答可能超过 64KB
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,45 @@
+package com.ai.qa.service.infrastructure.persistence.repositories;
+
+import com.ai.qa.service.domain.model.QAHistory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JDBC 批量插入 (MySQL 连接串需要 rewriteBatchedStatements=true 才会合并成多行 INSERT)，整批在一个事务中
+ */
+public class JdbcQAHistoryBatchWriter implements QAHistoryBatchWriter {
+
+    private static final String INSERT = "INSERT INTO qa_history (id, user_id, session_id, question, answer, create_time)"
+            + " VALUES (?, ?, ?, ?, ?, ?)";
+    private static final int[] TYPES = {Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+            Types.TIMESTAMP};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public JdbcQAHistoryBatchWriter(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void insertAll(List<QAHistory> histories) {
+        List<Object[]> rows = new ArrayList<>(histories.size());
+        for (QAHistory history : histories) {
+            rows.add(new Object[]{
+                    Long.valueOf(history.getId()),
+                    history.getUserId() == null ? null : Long.valueOf(history.getUserId()),
+                    history.getSessionId(),
+                    history.getQuestion(),
+                    history.getAnswer(),
+                    Timestamp.valueOf(history.getTimestamp())
+            });
+        }
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT, rows, TYPES));
+    }
+}
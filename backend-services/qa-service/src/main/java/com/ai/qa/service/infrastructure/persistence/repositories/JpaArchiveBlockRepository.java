@@ -0,0 +1,34 @@
+package com.ai.qa.service.infrastructure.persistence.repositories;
+
+import com.ai.qa.service.infrastructure.persistence.entities.QAHistoryArchiveBlockPO;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 按块的时间范围 [first_time, last_time] 与查询区间 [from, to] 是否相交筛选，不相交的块不读取
+ */
+@Repository
+public interface JpaArchiveBlockRepository extends JpaRepository<QAHistoryArchiveBlockPO, Long> {
+
+    @Query("select b from QAHistoryArchiveBlockPO b where b.sessionId = :sessionId "
+            + "and b.firstTime <= :to and b.lastTime >= :from order by b.firstTime asc, b.id asc")
+    List<QAHistoryArchiveBlockPO> findSessionBlocks(@Param("sessionId") String sessionId,
+                                                    @Param("from") LocalDateTime from,
+                                                    @Param("to") LocalDateTime to);
+
+    @Query("select b from QAHistoryArchiveBlockPO b where b.userId = :userId "
+            + "and b.lastTime >= :from and b.firstTime <= :to order by b.lastTime desc, b.id desc")
+    List<QAHistoryArchiveBlockPO> findUserBlocks(@Param("userId") Long userId,
+                                                 @Param("from") LocalDateTime from,
+                                                 @Param("to") LocalDateTime to, Pageable page);
+
+    @Query("select coalesce(sum(b.rawBytes), 0) as rawBytes, coalesce(sum(b.compressedBytes), 0) as compressedBytes "
+            + "from QAHistoryArchiveBlockPO b")
+    ArchiveTotalsView totals();
+}
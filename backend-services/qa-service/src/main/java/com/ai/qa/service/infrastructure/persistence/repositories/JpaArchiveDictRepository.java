@@ -0,0 +1,13 @@
+package com.ai.qa.service.infrastructure.persistence.repositories;
+
+import com.ai.qa.service.infrastructure.persistence.entities.QAHistoryArchiveDictPO;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface JpaArchiveDictRepository extends JpaRepository<QAHistoryArchiveDictPO, Long> {
+
+    Optional<QAHistoryArchiveDictPO> findTopByOrderByIdDesc();
+}
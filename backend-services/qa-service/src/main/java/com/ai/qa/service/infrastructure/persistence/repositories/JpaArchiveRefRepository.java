@@ -0,0 +1,9 @@
+package com.ai.qa.service.infrastructure.persistence.repositories;
+
+import com.ai.qa.service.infrastructure.persistence.entities.QAHistoryArchiveRefPO;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface JpaArchiveRefRepository extends JpaRepository<QAHistoryArchiveRefPO, Long> {
+}
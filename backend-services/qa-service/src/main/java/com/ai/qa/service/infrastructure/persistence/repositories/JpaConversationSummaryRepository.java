@@ -0,0 +1,9 @@
+package com.ai.qa.service.infrastructure.persistence.repositories;
+
+import com.ai.qa.service.infrastructure.persistence.entities.ConversationSummaryPO;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface JpaConversationSummaryRepository extends JpaRepository<ConversationSummaryPO, String> {
+}
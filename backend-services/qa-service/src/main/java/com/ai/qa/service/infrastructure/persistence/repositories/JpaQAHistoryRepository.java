@@ -1,12 +1,106 @@
 package com.ai.qa.service.infrastructure.persistence.repositories;
 
+import com.ai.qa.service.domain.model.QAHistorySummary;
 import com.ai.qa.service.infrastructure.persistence.entities.QAHistoryPO;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 分页查询都是 keyset 分页：按 (create_time, id) 排序，从上一页最后一条之后继续，
+ * 由 (session_id, create_time, id) 和 (user_id, create_time, id) 索引直接定位，与翻到第几页无关。
+ * 条件中多写一个 create_time &gt;= / &lt;= 是为了让优化器用它确定索引扫描的起点，OR 只过滤时间相同的几行。
+ */
 @Repository
-public interface JpaQAHistoryRepository extends JpaRepository<QAHistoryPO> {
+public interface JpaQAHistoryRepository extends JpaRepository<QAHistoryPO, Long> {
+
+    String SUMMARY = "select h.id as id, h.sessionId as sessionId, "
+            + "substring(h.question, 1, " + QAHistorySummary.PREVIEW_LENGTH + ") as questionPreview, "
+            + "h.timestamp as createTime from QAHistoryPO h ";
+
+    String QUESTION = "select h.id as id, h.userId as userId, h.question as question, "
+            + "h.timestamp as createTime from QAHistoryPO h ";
+
+    List<QAHistoryPO> findBySessionIdOrderByTimestampAscIdAsc(String sessionId);
+
+    List<QAHistoryPO> findBySessionIdAndUserIdOrderByTimestampDescIdDesc(String sessionId, Long userId,
+                                                                         Pageable page);
+
+    @Query("select h from QAHistoryPO h where h.sessionId = :sessionId and h.userId = :userId "
+            + "and h.timestamp >= :timestamp and (h.timestamp > :timestamp or h.id > :id) "
+            + "order by h.timestamp desc, h.id desc")
+    List<QAHistoryPO> findLatestAfter(@Param("userId") Long userId, @Param("sessionId") String sessionId,
+                                      @Param("timestamp") LocalDateTime timestamp,
+                                      @Param("id") Long id, Pageable page);
+
+    @Query(SUMMARY + "where h.sessionId = :sessionId and h.userId = :userId "
+            + "order by h.timestamp asc, h.id asc")
+    List<QAHistorySummaryView> findSessionSummaries(@Param("userId") Long userId,
+                                                    @Param("sessionId") String sessionId, Pageable page);
+
+    @Query(SUMMARY + "where h.sessionId = :sessionId and h.userId = :userId and h.timestamp >= :timestamp "
+            + "and (h.timestamp > :timestamp or h.id > :id) "
+            + "order by h.timestamp asc, h.id asc")
+    List<QAHistorySummaryView> findSessionSummariesAfter(@Param("userId") Long userId,
+                                                         @Param("sessionId") String sessionId,
+                                                         @Param("timestamp") LocalDateTime timestamp,
+                                                         @Param("id") Long id, Pageable page);
+
+    @Query(SUMMARY + "where h.userId = :userId order by h.timestamp desc, h.id desc")
+    List<QAHistorySummaryView> findUserSummaries(@Param("userId") Long userId, Pageable page);
+
+    @Query(SUMMARY + "where h.userId = :userId and h.timestamp <= :timestamp "
+            + "and (h.timestamp < :timestamp or h.id < :id) "
+            + "order by h.timestamp desc, h.id desc")
+    List<QAHistorySummaryView> findUserSummariesBefore(@Param("userId") Long userId,
+                                                       @Param("timestamp") LocalDateTime timestamp,
+                                                       @Param("id") Long id, Pageable page);
+
+    /**
+     * 逐行读取 (MySQL 驱动在 fetchSize 为 Integer.MIN_VALUE 时按行流式返回结果)，必须在事务中消费并关闭
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select h from QAHistoryPO h where h.sessionId = :sessionId and h.userId = :userId "
+            + "order by h.timestamp asc, h.id asc")
+    Stream<QAHistoryPO> streamSession(@Param("userId") Long userId, @Param("sessionId") String sessionId);
+
+    /**
+     * 早于 cutoff 的最旧的一批，由 create_time 索引定位，用于归档
+     */
+    @Query("select h from QAHistoryPO h where h.timestamp < :cutoff order by h.timestamp asc, h.id asc")
+    List<QAHistoryPO> findOlderThan(@Param("cutoff") LocalDateTime cutoff, Pageable page);
+
+    /**
+     * since 之后、不超过 maxLength 个字符的问题，从新到旧 keyset 分页，由 create_time 索引定位；用于统计热门问题
+     */
+    @Query(QUESTION + "where h.timestamp >= :since and length(h.question) <= :maxLength "
+            + "order by h.timestamp desc, h.id desc")
+    List<QuestionView> findRecentQuestions(@Param("since") LocalDateTime since,
+                                           @Param("maxLength") int maxLength, Pageable page);
 
-    QAHistoryPO findHistoryById(String userId);
+    @Query(QUESTION + "where h.timestamp >= :since and length(h.question) <= :maxLength "
+            + "and h.timestamp <= :timestamp and (h.timestamp < :timestamp or h.id < :id) "
+            + "order by h.timestamp desc, h.id desc")
+    List<QuestionView> findRecentQuestionsBefore(@Param("since") LocalDateTime since,
+                                                 @Param("maxLength") int maxLength,
+                                                 @Param("timestamp") LocalDateTime timestamp,
+                                                 @Param("id") Long id, Pageable page);
 
+    @Modifying
+    @Query("delete from QAHistoryPO h where h.id in :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
 }
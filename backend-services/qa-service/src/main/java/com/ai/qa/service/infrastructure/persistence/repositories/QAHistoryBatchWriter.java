@@ -0,0 +1,16 @@
+package com.ai.qa.service.infrastructure.persistence.repositories;
+
+import com.ai.qa.service.domain.model.QAHistory;
+
+import java.util.List;
+
+/**
+ * 把一批已分配 id 的问答历史写入数据库，一次往返完成
+ */
+public interface QAHistoryBatchWriter {
+
+    /**
+     * @throws org.springframework.dao.DataAccessException 写入失败，整批回滚
+     */
+    void insertAll(List<QAHistory> histories);
+}
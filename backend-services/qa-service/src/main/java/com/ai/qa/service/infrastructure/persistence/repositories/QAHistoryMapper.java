@@ -0,0 +1,35 @@
+package com.ai.qa.service.infrastructure.persistence.repositories;
+
+import com.ai.qa.service.domain.model.QAHistory;
+import com.ai.qa.service.domain.model.QAHistorySummary;
+import com.ai.qa.service.infrastructure.persistence.entities.QAHistoryPO;
+import org.springframework.stereotype.Component;
+
+/**
+ * 领域对象与持久化对象之间的转换；数据库中的 id 和 user_id 是 BIGINT，领域层使用字符串
+ */
+@Component
+public class QAHistoryMapper {
+
+    public QAHistoryPO toPO(QAHistory history) {
+        QAHistoryPO po = new QAHistoryPO();
+        po.setId(history.getId() == null ? null : Long.valueOf(history.getId()));
+        po.setUserId(history.getUserId() == null ? null : Long.valueOf(history.getUserId()));
+        po.setSessionId(history.getSessionId());
+        po.setQuestion(history.getQuestion());
+        po.setAnswer(history.getAnswer());
+        po.setTimestamp(history.getTimestamp());
+        return po;
+    }
+
+    public QAHistory toDomain(QAHistoryPO po) {
+        return QAHistory.restore(String.valueOf(po.getId()),
+                po.getUserId() == null ? null : String.valueOf(po.getUserId()),
+                po.getSessionId(), po.getQuestion(), po.getAnswer(), po.getTimestamp());
+    }
+
+    public QAHistorySummary toSummary(QAHistorySummaryView view) {
+        return new QAHistorySummary(String.valueOf(view.getId()), view.getSessionId(), view.getQuestionPreview(),
+                view.getCreateTime());
+    }
+}
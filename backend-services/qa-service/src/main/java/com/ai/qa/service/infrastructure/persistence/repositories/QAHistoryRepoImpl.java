@@ -1,35 +1,102 @@
 package com.ai.qa.service.infrastructure.persistence.repositories;
 
+import com.ai.qa.service.domain.model.HistoryCursor;
 import com.ai.qa.service.domain.model.QAHistory;
+import com.ai.qa.service.domain.model.QAHistorySummary;
 import com.ai.qa.service.domain.repo.QAHistoryRepo;
+import com.ai.qa.service.infrastructure.persistence.entities.QAHistoryPO;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+@Repository
 @RequiredArgsConstructor
 public class QAHistoryRepoImpl implements QAHistoryRepo {
 
     private final JpaQAHistoryRepository jpaQAHistoryRepository;
 
-    private Mapper mapper;
+    private final QAHistoryMapper mapper;
+
+    private final EntityManager entityManager;
 
     @Override
     public void save(QAHistory history) {
-        QAHistoryPO qaHistoryPO = mapper.toPO(history);
-        jpaQAHistoryRepository.save(jpaQAHistoryRepository);
+        QAHistoryPO qaHistoryPO = jpaQAHistoryRepository.save(mapper.toPO(history));
+        if (history.getId() == null) {
+            history.assignId(String.valueOf(qaHistoryPO.getId()));
+        }
     }
 
     @Override
     public Optional<QAHistory> findHistoryById(String id) {
-        //ddd
-        QAHistoryPO qaHistoryPO = jpaQAHistoryRepository.findHistoryById(id);
-        return mapper.toDomain(qaHistoryPO);
+        return jpaQAHistoryRepository.findById(Long.valueOf(id)).map(mapper::toDomain);
     }
 
     @Override
     public List<QAHistory> findHistoryBySession(String sessionId) {
-        //ddd
-        return null;
+        return jpaQAHistoryRepository.findBySessionIdOrderByTimestampAscIdAsc(sessionId).stream()
+                .map(mapper::toDomain)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 倒序取最新的 limit 条再反转，只读取需要的几行
+     */
+    @Override
+    public List<QAHistory> findRecentTurns(String userId, String sessionId, HistoryCursor after, int limit) {
+        Pageable page = PageRequest.of(0, limit);
+        List<QAHistoryPO> rows = after == null
+                ? jpaQAHistoryRepository.findBySessionIdAndUserIdOrderByTimestampDescIdDesc(sessionId,
+                Long.valueOf(userId), page)
+                : jpaQAHistoryRepository.findLatestAfter(Long.valueOf(userId), sessionId, after.getTimestamp(),
+                after.getId(), page);
+        List<QAHistory> turns = rows.stream().map(mapper::toDomain).collect(Collectors.toList());
+        Collections.reverse(turns);
+        return turns;
+    }
+
+    @Override
+    public List<QAHistorySummary> findSessionSummaries(String userId, String sessionId, HistoryCursor after,
+                                                       int limit) {
+        Pageable page = PageRequest.of(0, limit);
+        List<QAHistorySummaryView> rows = after == null
+                ? jpaQAHistoryRepository.findSessionSummaries(Long.valueOf(userId), sessionId, page)
+                : jpaQAHistoryRepository.findSessionSummariesAfter(Long.valueOf(userId), sessionId,
+                after.getTimestamp(), after.getId(), page);
+        return rows.stream().map(mapper::toSummary).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<QAHistorySummary> findUserSummaries(String userId, HistoryCursor before, int limit) {
+        Pageable page = PageRequest.of(0, limit);
+        List<QAHistorySummaryView> rows = before == null
+                ? jpaQAHistoryRepository.findUserSummaries(Long.valueOf(userId), page)
+                : jpaQAHistoryRepository.findUserSummariesBefore(Long.valueOf(userId), before.getTimestamp(),
+                before.getId(), page);
+        return rows.stream().map(mapper::toSummary).collect(Collectors.toList());
+    }
+
+    /**
+     * 流式查询要求在事务中读完；每行转换后即从持久化上下文中移除，内存占用与会话长度无关
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportSession(String userId, String sessionId, Consumer<QAHistory> consumer) {
+        try (Stream<QAHistoryPO> rows = jpaQAHistoryRepository.streamSession(Long.valueOf(userId), sessionId)) {
+            rows.forEach(po -> {
+                consumer.accept(mapper.toDomain(po));
+                entityManager.detach(po);
+            });
+        }
     }
 }
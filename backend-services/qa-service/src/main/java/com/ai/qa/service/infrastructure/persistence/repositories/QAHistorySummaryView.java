@@ -0,0 +1,17 @@
+package com.ai.qa.service.infrastructure.persistence.repositories;
+
+import java.time.LocalDateTime;
+
+/**
+ * 问答摘要的查询投影，不读取回答正文
+ */
+public interface QAHistorySummaryView {
+
+    Long getId();
+
+    String getSessionId();
+
+    String getQuestionPreview();
+
+    LocalDateTime getCreateTime();
+}
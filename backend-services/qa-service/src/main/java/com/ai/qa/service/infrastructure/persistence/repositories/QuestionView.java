@@ -0,0 +1,17 @@
+package com.ai.qa.service.infrastructure.persistence.repositories;
+
+import java.time.LocalDateTime;
+
+/**
+ * 统计热门问题用的查询投影，只读取问题和提问用户
+ */
+public interface QuestionView {
+
+    Long getId();
+
+    Long getUserId();
+
+    String getQuestion();
+
+    LocalDateTime getCreateTime();
+}
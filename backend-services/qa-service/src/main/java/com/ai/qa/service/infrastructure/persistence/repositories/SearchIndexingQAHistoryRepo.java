@@ -0,0 +1,85 @@
+package com.ai.qa.service.infrastructure.persistence.repositories;
+
+import com.ai.qa.service.domain.model.HistoryCursor;
+import com.ai.qa.service.domain.model.QAHistory;
+import com.ai.qa.service.domain.model.QAHistorySummary;
+import com.ai.qa.service.domain.repo.QAHistoryRepo;
+import com.ai.qa.service.infrastructure.search.FullTextIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * 保存问答后把问题和回答加入全文索引 (按用户分区)，读取原样委托。
+ * 索引失败只记录日志，不影响保存；索引只在本实例内存和本地磁盘中，与向量索引相同。
+ */
+public class SearchIndexingQAHistoryRepo implements QAHistoryRepo {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchIndexingQAHistoryRepo.class);
+
+    /**
+     * 未登录用户的问答所在的分区
+     */
+    static final long ANONYMOUS = 0L;
+
+    private final QAHistoryRepo delegate;
+    private final FullTextIndex index;
+
+    public SearchIndexingQAHistoryRepo(QAHistoryRepo delegate, FullTextIndex index) {
+        this.delegate = delegate;
+        this.index = index;
+    }
+
+    @Override
+    public void save(QAHistory history) {
+        delegate.save(history);
+        try {
+            index.add(Long.parseLong(history.getId()), partitionOf(history.getUserId()), documentText(history));
+        } catch (RuntimeException e) {
+            log.warn("Failed to index history {} for search", history.getId(), e);
+        }
+    }
+
+    public static long partitionOf(String userId) {
+        return userId == null ? ANONYMOUS : Long.parseLong(userId);
+    }
+
+    static String documentText(QAHistory history) {
+        String question = history.getQuestion() == null ? "" : history.getQuestion();
+        return history.getAnswer() == null ? question : question + "\n" + history.getAnswer();
+    }
+
+    @Override
+    public Optional<QAHistory> findHistoryById(String id) {
+        return delegate.findHistoryById(id);
+    }
+
+    @Override
+    public List<QAHistory> findHistoryBySession(String sessionId) {
+        return delegate.findHistoryBySession(sessionId);
+    }
+
+    @Override
+    public List<QAHistory> findRecentTurns(String userId, String sessionId, HistoryCursor after, int limit) {
+        return delegate.findRecentTurns(userId, sessionId, after, limit);
+    }
+
+    @Override
+    public List<QAHistorySummary> findSessionSummaries(String userId, String sessionId, HistoryCursor after,
+                                                       int limit) {
+        return delegate.findSessionSummaries(userId, sessionId, after, limit);
+    }
+
+    @Override
+    public List<QAHistorySummary> findUserSummaries(String userId, HistoryCursor before, int limit) {
+        return delegate.findUserSummaries(userId, before, limit);
+    }
+
+    @Override
+    public void exportSession(String userId, String sessionId, Consumer<QAHistory> consumer) {
+        delegate.exportSession(userId, sessionId, consumer);
+    }
+}
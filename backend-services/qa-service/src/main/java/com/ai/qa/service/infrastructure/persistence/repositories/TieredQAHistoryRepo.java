@@ -0,0 +1,127 @@
+package com.ai.qa.service.infrastructure.persistence.repositories;
+
+import com.ai.qa.service.domain.model.HistoryCursor;
+import com.ai.qa.service.domain.model.QAHistory;
+import com.ai.qa.service.domain.model.QAHistorySummary;
+import com.ai.qa.service.domain.repo.QAHistoryRepo;
+import com.ai.qa.service.infrastructure.persistence.archive.HistoryArchive;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * 热表 + 归档的问答历史：写入只进热表，读取合并两边的结果，调用方看不出一行是否已经归档。
+ * <p>
+ * 归档的行都早于保留期，但归档任务运行期间两边的时间范围可能交错，所以不假定归档一定更旧，而是按 (时间, id) 合并。
+ * 热表已经返回满一页时，归档只查询与这一页重叠的区间；归档按块的时间范围筛选，
+ * 不重叠时不解压任何块，近期会话的读取只多一次索引查询。
+ */
+public class TieredQAHistoryRepo implements QAHistoryRepo {
+
+    private static final Comparator<QAHistory> BY_CURSOR = Comparator.comparing(HistoryCursor::of);
+
+    private final QAHistoryRepo hot;
+    private final HistoryArchive archive;
+
+    public TieredQAHistoryRepo(QAHistoryRepo hot, HistoryArchive archive) {
+        this.hot = hot;
+        this.archive = archive;
+    }
+
+    @Override
+    public void save(QAHistory history) {
+        hot.save(history);
+    }
+
+    @Override
+    public Optional<QAHistory> findHistoryById(String id) {
+        Optional<QAHistory> history = hot.findHistoryById(id);
+        return history.isPresent() ? history : archive.findById(id);
+    }
+
+    @Override
+    public List<QAHistory> findHistoryBySession(String sessionId) {
+        List<QAHistory> rows = new ArrayList<>(archive.findBySession(sessionId, null, null));
+        rows.addAll(hot.findHistoryBySession(sessionId));
+        rows.sort(BY_CURSOR);
+        return rows;
+    }
+
+    @Override
+    public List<QAHistory> findRecentTurns(String userId, String sessionId, HistoryCursor after, int limit) {
+        List<QAHistory> recent = hot.findRecentTurns(userId, sessionId, after, limit);
+        // 热表满一页时，只有比其中最旧一条更新的归档行才可能进入结果
+        HistoryCursor from = recent.size() >= limit ? max(after, HistoryCursor.of(recent.get(0))) : after;
+        List<QAHistory> rows = archive.findBySession(sessionId, from, null).stream()
+                .filter(row -> userId.equals(row.getUserId()))
+                .collect(Collectors.toCollection(ArrayList::new));
+        if (rows.isEmpty()) {
+            return recent;
+        }
+        rows.addAll(recent);
+        rows.sort(BY_CURSOR);
+        return new ArrayList<>(rows.subList(Math.max(0, rows.size() - limit), rows.size()));
+    }
+
+    @Override
+    public List<QAHistorySummary> findSessionSummaries(String userId, String sessionId, HistoryCursor after,
+                                                       int limit) {
+        List<QAHistorySummary> page = hot.findSessionSummaries(userId, sessionId, after, limit);
+        HistoryCursor before = page.size() >= limit ? page.get(page.size() - 1).cursor() : null;
+        List<QAHistory> archived = archive.findBySession(sessionId, after, before).stream()
+                .filter(row -> userId.equals(row.getUserId()))
+                .collect(Collectors.toList());
+        if (archived.isEmpty()) {
+            return page;
+        }
+        List<QAHistorySummary> merged = archived.stream().map(QAHistorySummary::of).collect(Collectors.toList());
+        merged.addAll(page);
+        merged.sort(Comparator.comparing(QAHistorySummary::cursor));
+        return new ArrayList<>(merged.subList(0, Math.min(limit, merged.size())));
+    }
+
+    @Override
+    public List<QAHistorySummary> findUserSummaries(String userId, HistoryCursor before, int limit) {
+        List<QAHistorySummary> page = hot.findUserSummaries(userId, before, limit);
+        HistoryCursor after = page.size() >= limit ? page.get(page.size() - 1).cursor() : null;
+        List<QAHistory> archived = archive.findByUser(userId, after, before, limit);
+        if (archived.isEmpty()) {
+            return page;
+        }
+        List<QAHistorySummary> merged = archived.stream().map(QAHistorySummary::of).collect(Collectors.toList());
+        merged.addAll(page);
+        merged.sort(Comparator.comparing(QAHistorySummary::cursor).reversed());
+        return new ArrayList<>(merged.subList(0, Math.min(limit, merged.size())));
+    }
+
+    /**
+     * 会话的归档部分先读进内存 (已压缩存放，通常只是会话较早的一段)，热表仍逐行读取，两边按时间归并输出
+     */
+    @Override
+    public void exportSession(String userId, String sessionId, Consumer<QAHistory> consumer) {
+        Iterator<QAHistory> archived = archive.findBySession(sessionId, null, null).stream()
+                .filter(row -> userId.equals(row.getUserId()))
+                .iterator();
+        QAHistory[] next = {archived.hasNext() ? archived.next() : null};
+        hot.exportSession(userId, sessionId, row -> {
+            while (next[0] != null && BY_CURSOR.compare(next[0], row) < 0) {
+                consumer.accept(next[0]);
+                next[0] = archived.hasNext() ? archived.next() : null;
+            }
+            consumer.accept(row);
+        });
+        while (next[0] != null) {
+            consumer.accept(next[0]);
+            next[0] = archived.hasNext() ? archived.next() : null;
+        }
+    }
+
+    private static HistoryCursor max(HistoryCursor a, HistoryCursor b) {
+        return a == null || b.compareTo(a) > 0 ? b : a;
+    }
+}
@@ -0,0 +1,359 @@
+package com.ai.qa.service.infrastructure.persistence.repositories;
+
+import com.ai.qa.service.domain.model.HistoryCursor;
+import com.ai.qa.service.domain.model.QAHistory;
+import com.ai.qa.service.domain.model.QAHistorySummary;
+import com.ai.qa.service.domain.repo.QAHistoryRepo;
+import com.ai.qa.service.infrastructure.batch.MicroBatcher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.TransactionException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * 写后模式的问答历史仓储：save 只分配 id 并放入有界队列，后台线程攒够一批或等待超过 maxDelay 后用一次
+ * JDBC 批量插入写入数据库，回答的响应时间不再包含数据库往返。
+ * <p>
+ * 读取经由 JPA 实现，再叠加尚未写入的记录，同一会话刚保存的问答立即可见 (包括分页摘要和导出)。
+ * <p>
+ * 数据库不可用 (连接、超时等暂时性错误) 时整批追加到本地溢出文件，定时回放；此后 retryAfter 内或回放成功之前
+ * 不再尝试写入数据库，直接写溢出文件，避免每批都等待连接超时把队列堵满。其他错误 (例如数据不合法)
+ * 逐条重试，仍失败的记录丢弃并记录日志。主键重复视为之前已经写入 (回放中途失败后再次回放)。
+ * 队列已满或已关闭时在调用方线程直接写入。关闭时写完队列中的记录，未能写入的留在溢出文件中，下次启动后回放。
+ * 溢出文件中的记录不在叠加视图中，数据库恢复并回放之后才能读到。
+ * <p>
+ * 指标：队列长度和写入耗时见 {@link MicroBatcher} (name=history)；qa.history.write.pending (尚未写入的记录数)、
+ * qa.history.write.spill (溢出文件中的记录数)、qa.history.write.spilled、qa.history.write.dropped、
+ * qa.history.write.sync (在调用方线程写入的记录数)。
+ */
+public class WriteBehindQAHistoryRepo implements QAHistoryRepo, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindQAHistoryRepo.class);
+
+    private static final Comparator<QAHistory> CHRONOLOGICAL = Comparator.comparing(QAHistory::getTimestamp)
+            .thenComparing(history -> Long.parseLong(history.getId()));
+    private static final Comparator<QAHistorySummary> SUMMARY_ORDER = Comparator.comparing(QAHistorySummary::cursor);
+
+    private final QAHistoryRepo reads;
+    private final QAHistoryBatchWriter writer;
+    private final HistoryIdGenerator idGenerator;
+    private final HistorySpillFile spill;
+    private final int batchSize;
+    private final long retryAfterNanos;
+    private final MicroBatcher<QAHistory, Boolean> batcher;
+
+    private final Map<Long, QAHistory> pending = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> pendingBySession = new ConcurrentHashMap<>();
+    /**
+     * 在此之前 (System.nanoTime) 认为数据库不可用
+     */
+    private volatile long unavailableUntil = System.nanoTime();
+
+    private final Counter spilled;
+    private final Counter dropped;
+    private final Counter syncWrites;
+
+    /**
+     * @param reads         读取用的仓储 (JPA 实现)
+     * @param batchSize     一次批量插入的最多记录数
+     * @param maxDelay      一条记录最多等待多久就写入
+     * @param queueCapacity 等待写入的记录数上限
+     * @param retryAfter    数据库不可用后多久再尝试写入
+     */
+    public WriteBehindQAHistoryRepo(QAHistoryRepo reads, QAHistoryBatchWriter writer, HistoryIdGenerator idGenerator,
+                                    HistorySpillFile spill, int batchSize, Duration maxDelay, int queueCapacity,
+                                    Duration retryAfter, MeterRegistry meterRegistry) {
+        this.reads = reads;
+        this.writer = writer;
+        this.idGenerator = idGenerator;
+        this.spill = spill;
+        this.batchSize = batchSize;
+        this.retryAfterNanos = retryAfter.toNanos();
+        this.spilled = Counter.builder("qa.history.write.spilled").register(meterRegistry);
+        this.dropped = Counter.builder("qa.history.write.dropped").register(meterRegistry);
+        this.syncWrites = Counter.builder("qa.history.write.sync").register(meterRegistry);
+        Gauge.builder("qa.history.write.pending", pending, Map::size).register(meterRegistry);
+        Gauge.builder("qa.history.write.spill", spill, HistorySpillFile::size).register(meterRegistry);
+        // 单个写入线程，按保存顺序写入
+        this.batcher = new MicroBatcher<>("history", this::flush, batchSize, maxDelay, queueCapacity, 1, meterRegistry);
+    }
+
+    @Override
+    public void save(QAHistory history) {
+        if (history.getId() == null) {
+            history.assignId(String.valueOf(idGenerator.nextId()));
+        }
+        track(history);
+        batcher.submit(history).whenComplete((written, error) -> {
+            if (error != null) {
+                // 队列已满或已关闭
+                syncWrites.increment();
+                flush(List.of(history));
+            }
+        });
+    }
+
+    @Override
+    public Optional<QAHistory> findHistoryById(String id) {
+        QAHistory unwritten = pending.get(Long.valueOf(id));
+        return unwritten != null ? Optional.of(unwritten) : reads.findHistoryById(id);
+    }
+
+    @Override
+    public List<QAHistory> findHistoryBySession(String sessionId) {
+        // 先取未写入的记录再读数据库：此间写入完成的记录一定能在数据库中读到
+        List<QAHistory> unwritten = sessionOf(sessionId);
+        List<QAHistory> stored = reads.findHistoryBySession(sessionId);
+        if (unwritten.isEmpty()) {
+            return stored;
+        }
+        Map<String, QAHistory> merged = new LinkedHashMap<>();
+        stored.forEach(history -> merged.put(history.getId(), history));
+        unwritten.forEach(history -> merged.putIfAbsent(history.getId(), history));
+        List<QAHistory> result = new ArrayList<>(merged.values());
+        result.sort(CHRONOLOGICAL);
+        return result;
+    }
+
+    @Override
+    public List<QAHistory> findRecentTurns(String userId, String sessionId, HistoryCursor after, int limit) {
+        List<QAHistory> unwritten = sessionOf(sessionId).stream()
+                .filter(history -> userId.equals(history.getUserId()))
+                .filter(history -> after == null || HistoryCursor.of(history).compareTo(after) > 0)
+                .collect(Collectors.toList());
+        List<QAHistory> stored = reads.findRecentTurns(userId, sessionId, after, limit);
+        if (unwritten.isEmpty()) {
+            return stored;
+        }
+        Map<String, QAHistory> merged = new LinkedHashMap<>();
+        stored.forEach(history -> merged.put(history.getId(), history));
+        unwritten.forEach(history -> merged.putIfAbsent(history.getId(), history));
+        List<QAHistory> result = new ArrayList<>(merged.values());
+        result.sort(CHRONOLOGICAL);
+        return result.size() > limit ? new ArrayList<>(result.subList(result.size() - limit, result.size())) : result;
+    }
+
+    @Override
+    public List<QAHistorySummary> findSessionSummaries(String userId, String sessionId, HistoryCursor after,
+                                                       int limit) {
+        List<QAHistorySummary> unwritten = unwrittenSummaries(sessionOf(sessionId), userId,
+                summary -> after == null || summary.cursor().compareTo(after) > 0);
+        List<QAHistorySummary> stored = reads.findSessionSummaries(userId, sessionId, after, limit);
+        return unwritten.isEmpty() ? stored : merge(stored, unwritten, SUMMARY_ORDER, limit);
+    }
+
+    @Override
+    public List<QAHistorySummary> findUserSummaries(String userId, HistoryCursor before, int limit) {
+        List<QAHistorySummary> unwritten = unwrittenSummaries(new ArrayList<>(pending.values()), userId,
+                summary -> before == null || summary.cursor().compareTo(before) < 0);
+        List<QAHistorySummary> stored = reads.findUserSummaries(userId, before, limit);
+        return unwritten.isEmpty() ? stored : merge(stored, unwritten, SUMMARY_ORDER.reversed(), limit);
+    }
+
+    /**
+     * 未写入的记录是会话中最新的，在数据库中的记录之后输出
+     */
+    @Override
+    public void exportSession(String userId, String sessionId, Consumer<QAHistory> consumer) {
+        List<QAHistory> unwritten = sessionOf(sessionId).stream()
+                .filter(history -> userId.equals(history.getUserId()))
+                .sorted(CHRONOLOGICAL)
+                .collect(Collectors.toList());
+        Set<String> unwrittenIds = unwritten.stream().map(QAHistory::getId).collect(Collectors.toSet());
+        Set<String> exported = new HashSet<>();
+        reads.exportSession(userId, sessionId, history -> {
+            if (unwrittenIds.contains(history.getId())) {
+                exported.add(history.getId());
+            }
+            consumer.accept(history);
+        });
+        unwritten.stream().filter(history -> !exported.contains(history.getId())).forEach(consumer);
+    }
+
+    /**
+     * 数据库恢复后把溢出文件中的记录写回，仍然失败的留在文件中等下一次
+     */
+    @Scheduled(fixedDelayString = "${qa.history.write-behind.replay-interval:30000}")
+    public void replaySpill() {
+        if (spill.size() == 0) {
+            return;
+        }
+        synchronized (spill) {
+            try {
+                List<QAHistory> records = spill.readAll();
+                int done = 0;
+                while (done < records.size()) {
+                    List<QAHistory> chunk = records.subList(done, Math.min(records.size(), done + batchSize));
+                    int written = write(chunk, true);
+                    done += written;
+                    if (written < chunk.size()) {
+                        break;
+                    }
+                }
+                spill.rewrite(records.subList(done, records.size()));
+                if (done > 0) {
+                    log.info("Replayed {} QA history records from spill file, {} remaining", done,
+                            records.size() - done);
+                }
+            } catch (IOException e) {
+                log.error("Failed to replay QA history spill file", e);
+            }
+        }
+    }
+
+    private List<QAHistory> sessionOf(String sessionId) {
+        List<QAHistory> unwritten = new ArrayList<>();
+        for (Long id : pendingBySession.getOrDefault(sessionId, Collections.emptySet())) {
+            QAHistory history = pending.get(id);
+            if (history != null) {
+                unwritten.add(history);
+            }
+        }
+        return unwritten;
+    }
+
+    private static List<QAHistorySummary> unwrittenSummaries(List<QAHistory> histories, String userId,
+                                                             Predicate<QAHistorySummary> inPage) {
+        return histories.stream()
+                .filter(history -> userId.equals(history.getUserId()))
+                .map(QAHistorySummary::of)
+                .filter(inPage)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 数据库中的一页与未写入的记录合并，按分页顺序取前 limit 条；数据库的一页已是该顺序下的前 limit 条，
+     * 合并后的前 limit 条不会缺少数据库中的记录
+     */
+    private static List<QAHistorySummary> merge(List<QAHistorySummary> stored, List<QAHistorySummary> unwritten,
+                                                Comparator<QAHistorySummary> order, int limit) {
+        Map<String, QAHistorySummary> merged = new LinkedHashMap<>();
+        stored.forEach(summary -> merged.put(summary.getId(), summary));
+        unwritten.forEach(summary -> merged.putIfAbsent(summary.getId(), summary));
+        List<QAHistorySummary> result = new ArrayList<>(merged.values());
+        result.sort(order);
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    /**
+     * 写完队列中的记录
+     */
+    @Override
+    public void close() {
+        batcher.close();
+    }
+
+    /**
+     * 批量调度器的批量调用：写入数据库，暂时性失败时写入溢出文件；不抛出异常
+     */
+    private List<Boolean> flush(List<QAHistory> batch) {
+        try {
+            int written = write(batch, false);
+            if (written < batch.size()) {
+                List<QAHistory> rest = batch.subList(written, batch.size());
+                try {
+                    spill.append(rest);
+                    spilled.increment(rest.size());
+                } catch (IOException e) {
+                    dropped.increment(rest.size());
+                    log.error("Failed to spill {} QA history records, they are lost", rest.size(), e);
+                }
+            }
+        } finally {
+            batch.forEach(this::untrack);
+        }
+        return Collections.nCopies(batch.size(), Boolean.TRUE);
+    }
+
+    /**
+     * @param probe 数据库被认为不可用时是否仍然尝试 (回放)
+     * @return 从头开始已经写入 (或因数据错误丢弃) 的记录数；小于 batch 长度表示遇到暂时性错误，其余记录未写入
+     */
+    private int write(List<QAHistory> batch, boolean probe) {
+        if (!probe && System.nanoTime() - unavailableUntil < 0) {
+            return 0;
+        }
+        try {
+            writer.insertAll(batch);
+            unavailableUntil = System.nanoTime();
+            return batch.size();
+        } catch (RuntimeException e) {
+            if (isTransient(e)) {
+                unavailableUntil = System.nanoTime() + retryAfterNanos;
+                log.warn("Database unavailable, failed to write {} QA history records", batch.size(), e);
+                return 0;
+            }
+        }
+        // 整批失败可能只是其中一条记录有问题，逐条写入
+        for (int i = 0; i < batch.size(); i++) {
+            QAHistory history = batch.get(i);
+            try {
+                writer.insertAll(List.of(history));
+            } catch (DuplicateKeyException e) {
+                log.debug("QA history {} was already written", history.getId());
+            } catch (RuntimeException e) {
+                if (isTransient(e)) {
+                    unavailableUntil = System.nanoTime() + retryAfterNanos;
+                    return i;
+                }
+                dropped.increment();
+                log.error("Dropping QA history {} of session {}", history.getId(), history.getSessionId(), e);
+            }
+        }
+        return batch.size();
+    }
+
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof TransactionException;
+    }
+
+    private void track(QAHistory history) {
+        Long id = Long.valueOf(history.getId());
+        pending.put(id, history);
+        if (history.getSessionId() != null) {
+            pendingBySession.compute(history.getSessionId(), (session, ids) -> {
+                Set<Long> result = ids != null ? ids : ConcurrentHashMap.newKeySet();
+                result.add(id);
+                return result;
+            });
+        }
+    }
+
+    private void untrack(QAHistory history) {
+        Long id = Long.valueOf(history.getId());
+        pending.remove(id);
+        if (history.getSessionId() != null) {
+            pendingBySession.computeIfPresent(history.getSessionId(), (session, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.ai.qa.service.infrastructure.search;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * 只读的磁盘段 (格式见 {@link SegmentWriter})，整个文件映射到内存，数据在堆外。
+ * 按用户ID在用户表中二分查找，再在该用户的词范围内按字节序二分查找词；只解码命中的倒排表。
+ * <p>
+ * 只用绝对位置读取映射的 buffer，多个线程可以同时搜索。
+ */
+final class DiskSegment implements SegmentReader {
+
+    private final Path file;
+    private final ByteBuffer buffer;
+    private final int userTable;
+    private final int userCount;
+    private final int termTable;
+    private final int termCount;
+    private final int termBytes;
+    private final int docCount;
+
+    private DiskSegment(Path file, ByteBuffer buffer) {
+        this.file = file;
+        this.buffer = buffer;
+        int trailer = buffer.capacity() - SegmentWriter.TRAILER_BYTES;
+        if (trailer < 0 || buffer.getInt(trailer + 28) != SegmentWriter.MAGIC) {
+            throw new IllegalStateException("Not a search segment: " + file);
+        }
+        if (buffer.getInt(trailer + 32) != SegmentWriter.VERSION) {
+            throw new IllegalStateException("Unsupported search segment version in " + file);
+        }
+        this.userTable = buffer.getInt(trailer);
+        this.userCount = buffer.getInt(trailer + 4);
+        this.termTable = buffer.getInt(trailer + 8);
+        this.termCount = buffer.getInt(trailer + 12);
+        this.termBytes = buffer.getInt(trailer + 16);
+        this.docCount = buffer.getInt(trailer + 24);
+    }
+
+    static DiskSegment open(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new DiskSegment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open search segment " + file, e);
+        }
+    }
+
+    Path file() {
+        return file;
+    }
+
+    long sizeBytes() {
+        return buffer.capacity();
+    }
+
+    int totalDocs() {
+        return docCount;
+    }
+
+    @Override
+    public int docCount(long user) {
+        int index = findUser(user);
+        return index < 0 ? 0 : userDocs(index);
+    }
+
+    @Override
+    public long totalLength(long user) {
+        int index = findUser(user);
+        return index < 0 ? 0 : userLength(index);
+    }
+
+    @Override
+    public void lookup(long user, String term, boolean prefix, int maxTerms, List<Postings> out) {
+        int index = findUser(user);
+        if (index < 0) {
+            return;
+        }
+        byte[] key = term.getBytes(StandardCharsets.UTF_8);
+        int from = userFirstTerm(index);
+        int to = from + userTermCount(index);
+        // 第一个不小于 key 的词
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareTerm(mid, key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        if (!prefix) {
+            if (low < to && compareTerm(low, key) == 0) {
+                out.add(postings(low));
+            }
+            return;
+        }
+        for (int t = low, found = 0; t < to && found < maxTerms && startsWith(t, key); t++, found++) {
+            out.add(postings(t));
+        }
+    }
+
+    // ---------------------------------------------------------------- 合并时顺序读取
+
+    int userCount() {
+        return userCount;
+    }
+
+    long userAt(int index) {
+        return buffer.getLong(userTable + index * SegmentWriter.USER_ENTRY_BYTES);
+    }
+
+    int userDocs(int index) {
+        return buffer.getInt(userTable + index * SegmentWriter.USER_ENTRY_BYTES + 8);
+    }
+
+    long userLength(int index) {
+        return buffer.getLong(userTable + index * SegmentWriter.USER_ENTRY_BYTES + 12);
+    }
+
+    int userFirstTerm(int index) {
+        return buffer.getInt(userTable + index * SegmentWriter.USER_ENTRY_BYTES + 20);
+    }
+
+    int userTermCount(int index) {
+        return buffer.getInt(userTable + index * SegmentWriter.USER_ENTRY_BYTES + 24);
+    }
+
+    byte[] termAt(int t) {
+        int entry = termTable + t * SegmentWriter.TERM_ENTRY_BYTES;
+        byte[] bytes = new byte[buffer.getInt(entry + 4)];
+        buffer.get(termBytes + buffer.getInt(entry), bytes);
+        return bytes;
+    }
+
+    /**
+     * 解码第 t 个词的倒排表
+     */
+    Postings postings(int t) {
+        int entry = termTable + t * SegmentWriter.TERM_ENTRY_BYTES;
+        int size = buffer.getInt(entry + 8);
+        int position = buffer.getInt(entry + 12);
+        long[] docs = new long[size];
+        int[] freqs = new int[size];
+        int[] lengths = new int[size];
+        long doc = 0;
+        long[] value = new long[1];
+        for (int i = 0; i < size; i++) {
+            position = readVarLong(position, value);
+            doc += value[0];
+            docs[i] = doc;
+            position = readVarLong(position, value);
+            freqs[i] = (int) value[0];
+            position = readVarLong(position, value);
+            lengths[i] = (int) value[0];
+        }
+        return new Postings(new String(termAt(t), StandardCharsets.UTF_8), docs, freqs, lengths, size);
+    }
+
+    private int findUser(long user) {
+        int low = 0;
+        int high = userCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long value = userAt(mid);
+            if (value < user) {
+                low = mid + 1;
+            } else if (value > user) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 按无符号字节比较第 t 个词和 key，与写入时的排序一致
+     */
+    private int compareTerm(int t, byte[] key) {
+        int entry = termTable + t * SegmentWriter.TERM_ENTRY_BYTES;
+        int offset = termBytes + buffer.getInt(entry);
+        int length = buffer.getInt(entry + 4);
+        int n = Math.min(length, key.length);
+        for (int i = 0; i < n; i++) {
+            int diff = (buffer.get(offset + i) & 0xFF) - (key[i] & 0xFF);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length - key.length;
+    }
+
+    private boolean startsWith(int t, byte[] key) {
+        int entry = termTable + t * SegmentWriter.TERM_ENTRY_BYTES;
+        int offset = termBytes + buffer.getInt(entry);
+        if (buffer.getInt(entry + 4) < key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(offset + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int readVarLong(int position, long[] out) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get(position++);
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        out[0] = value;
+        return position;
+    }
+}
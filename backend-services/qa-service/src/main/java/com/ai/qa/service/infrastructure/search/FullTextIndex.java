@@ -0,0 +1,477 @@
+package com.ai.qa.service.infrastructure.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * 嵌入式全文索引 (倒排索引)，按用户分区，BM25 排序，支持前缀查询。
+ * <p>
+ * 结构与 LSM 相同：
+ * <ul>
+ *     <li>新文档进入内存中的写缓冲 ({@link MemorySegment})，加入后立即可搜索</li>
+ *     <li>缓冲攒够 maxBufferDocs 篇或定期 {@link #flush()} 时写成不可变的磁盘段 ({@link DiskSegment})，
+ *     倒排表是差值编码的变长整数</li>
+ *     <li>段数超过 mergeFactor 时，后台线程把最小的几个段合并成一个，搜索要查的段数保持有限</li>
+ *     <li>segments 清单记录当前有效的段，每次变化后原子替换；重启时只加载清单中的段，
+ *     清单之外的文件是写到一半的段或已被合并的段，直接删除</li>
+ * </ul>
+ * 写缓冲中尚未写成段的文档在进程崩溃时丢失 (与向量索引的 flush 周期一致)。
+ * <p>
+ * 并发：加入文档持写锁，只修改写缓冲；搜索在读锁下读取写缓冲并取得段列表的快照，之后无锁读取磁盘段。
+ * 写段和合并不阻塞搜索，只在最后替换段列表时短暂持有写锁。
+ * <p>
+ * 统计量 (文档数、平均长度、包含某个词的文档数) 都在用户分区内计算，排序结果与其他用户的数据无关。
+ */
+public class FullTextIndex implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(FullTextIndex.class);
+
+    private static final int MANIFEST_MAGIC = 0x51414653;
+    private static final int MANIFEST_VERSION = 1;
+    private static final String MANIFEST = "segments";
+    private static final String SEGMENT_PREFIX = "seg-";
+    private static final String SEGMENT_SUFFIX = ".fts";
+
+    /**
+     * BM25 参数，取常用值
+     */
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final Path directory;
+    private final int maxBufferDocs;
+    private final int mergeFactor;
+    private final long maxSegmentBytes;
+    private final int maxExpansions;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private MemorySegment buffer = new MemorySegment();
+    /**
+     * 已从写缓冲中取出、尚未写成段的缓冲 (写入失败时保留，下次重试)
+     */
+    private List<MemorySegment> pending = List.of();
+    private volatile List<DiskSegment> segments;
+
+    /**
+     * 修改段清单 (写段、合并) 时持有，清单的写入顺序与内存中段列表的变化顺序一致
+     */
+    private final Object commitLock = new Object();
+    private final AtomicLong nextGeneration;
+    private final ExecutorService maintenance;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicBoolean mergeScheduled = new AtomicBoolean();
+
+    /**
+     * @param maxBufferDocs   写缓冲的文档数上限，达到后在后台写成段
+     * @param mergeFactor     段数超过它时合并最小的 mergeFactor 个段
+     * @param maxSegmentBytes 合并结果的大小上限，超过后不再参与合并
+     * @param maxExpansions   一个前缀最多扩展成多少个词 (取包含文档最多的)
+     */
+    public FullTextIndex(Path directory, int maxBufferDocs, int mergeFactor, long maxSegmentBytes,
+                         int maxExpansions) throws IOException {
+        this.directory = directory;
+        this.maxBufferDocs = maxBufferDocs;
+        this.mergeFactor = Math.max(2, mergeFactor);
+        this.maxSegmentBytes = Math.min(maxSegmentBytes, Integer.MAX_VALUE);
+        this.maxExpansions = maxExpansions;
+        Files.createDirectories(directory);
+        List<String> names = new ArrayList<>();
+        this.nextGeneration = new AtomicLong(readManifest(names));
+        List<DiskSegment> opened = new ArrayList<>();
+        for (String name : names) {
+            opened.add(DiskSegment.open(directory.resolve(name)));
+        }
+        this.segments = List.copyOf(opened);
+        deleteUnlisted(new HashSet<>(names));
+        this.maintenance = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "search-index-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 加入一篇文档；同一个 doc 在写缓冲中已存在时忽略
+     */
+    public void add(long doc, long user, String text) {
+        List<String> terms = TextAnalyzer.terms(text);
+        int buffered;
+        lock.writeLock().lock();
+        try {
+            buffer.add(doc, user, terms);
+            buffered = buffer.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (buffered >= maxBufferDocs && flushScheduled.compareAndSet(false, true)) {
+            maintenance.execute(() -> {
+                try {
+                    flush();
+                } catch (RuntimeException e) {
+                    log.warn("Failed to flush search index buffer", e);
+                } finally {
+                    flushScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * 在用户的文档中搜索，按 BM25 得分从高到低返回最多 limit 个结果，得分相同时 id 大的 (较新的) 在前。
+     * 查询中的词是“或”的关系，同时包含多个词的文档得分更高
+     */
+    public List<SearchHit> search(long user, String query, int limit) {
+        List<TextAnalyzer.QueryTerm> queryTerms = TextAnalyzer.query(query);
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        int scanTerms = maxExpansions * 4;
+        List<List<Postings>> found = new ArrayList<>(queryTerms.size());
+        for (int i = 0; i < queryTerms.size(); i++) {
+            found.add(new ArrayList<>());
+        }
+        long docCount = 0;
+        long totalLength = 0;
+        List<DiskSegment> snapshot;
+        lock.readLock().lock();
+        try {
+            List<SegmentReader> memory = new ArrayList<>(pending);
+            memory.add(buffer);
+            for (SegmentReader reader : memory) {
+                docCount += reader.docCount(user);
+                totalLength += reader.totalLength(user);
+                for (int i = 0; i < queryTerms.size(); i++) {
+                    TextAnalyzer.QueryTerm term = queryTerms.get(i);
+                    reader.lookup(user, term.getTerm(), term.isPrefix(), scanTerms, found.get(i));
+                }
+            }
+            snapshot = segments;
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (DiskSegment segment : snapshot) {
+            int docs = segment.docCount(user);
+            if (docs == 0) {
+                continue;
+            }
+            docCount += docs;
+            totalLength += segment.totalLength(user);
+            for (int i = 0; i < queryTerms.size(); i++) {
+                TextAnalyzer.QueryTerm term = queryTerms.get(i);
+                segment.lookup(user, term.getTerm(), term.isPrefix(), scanTerms, found.get(i));
+            }
+        }
+        if (docCount == 0) {
+            return List.of();
+        }
+        double averageLength = Math.max(1.0, (double) totalLength / docCount);
+        Map<Long, Double> scores = new HashMap<>();
+        for (List<Postings> postings : found) {
+            score(postings, docCount, averageLength).forEach((doc, score) -> scores.merge(doc, score, Double::sum));
+        }
+        return top(scores, limit);
+    }
+
+    /**
+     * 一个查询词的得分：前缀扩展出的多个词取其中最高的一个，不因为一篇文档恰好含有多个扩展词而叠加
+     */
+    private Map<Long, Double> score(List<Postings> postings, long docCount, double averageLength) {
+        Map<String, List<Postings>> byTerm = new LinkedHashMap<>();
+        for (Postings p : postings) {
+            byTerm.computeIfAbsent(p.term, key -> new ArrayList<>()).add(p);
+        }
+        List<Map.Entry<String, List<Postings>>> terms = new ArrayList<>(byTerm.entrySet());
+        if (terms.size() > maxExpansions) {
+            terms.sort(Comparator.comparingInt((Map.Entry<String, List<Postings>> e) -> docFreq(e.getValue()))
+                    .reversed());
+            terms = terms.subList(0, maxExpansions);
+        }
+        Map<Long, Double> scores = new HashMap<>();
+        for (Map.Entry<String, List<Postings>> term : terms) {
+            int df = docFreq(term.getValue());
+            double idf = Math.log(1 + (docCount - df + 0.5) / (df + 0.5));
+            for (Postings p : term.getValue()) {
+                for (int i = 0; i < p.size; i++) {
+                    double tf = p.freqs[i];
+                    double norm = K1 * (1 - B + B * p.lengths[i] / averageLength);
+                    scores.merge(p.docs[i], idf * tf * (K1 + 1) / (tf + norm), Math::max);
+                }
+            }
+        }
+        return scores;
+    }
+
+    private static int docFreq(List<Postings> postings) {
+        int df = 0;
+        for (Postings p : postings) {
+            df += p.size;
+        }
+        return df;
+    }
+
+    private static List<SearchHit> top(Map<Long, Double> scores, int limit) {
+        Comparator<SearchHit> order = Comparator.comparingDouble(SearchHit::getScore)
+                .thenComparingLong(SearchHit::getDoc);
+        PriorityQueue<SearchHit> heap = new PriorityQueue<>(order);
+        for (Map.Entry<Long, Double> e : scores.entrySet()) {
+            SearchHit hit = new SearchHit(e.getKey(), e.getValue());
+            if (heap.size() < limit) {
+                heap.add(hit);
+            } else if (order.compare(hit, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(hit);
+            }
+        }
+        List<SearchHit> hits = new ArrayList<>(heap);
+        hits.sort(order.reversed());
+        return hits;
+    }
+
+    /**
+     * 把写缓冲写成磁盘段；之后段数过多时在后台合并
+     */
+    public void flush() {
+        synchronized (commitLock) {
+            lock.writeLock().lock();
+            try {
+                if (buffer.size() > 0) {
+                    List<MemorySegment> next = new ArrayList<>(pending);
+                    next.add(buffer);
+                    pending = List.copyOf(next);
+                    buffer = new MemorySegment();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            for (MemorySegment frozen : pending) {
+                DiskSegment segment = writeSegment(frozen::writeTo);
+                List<DiskSegment> next = new ArrayList<>(segments);
+                next.add(segment);
+                // 清单先落盘，成功后才从内存中移除这部分缓冲
+                writeManifest(next);
+                lock.writeLock().lock();
+                try {
+                    segments = List.copyOf(next);
+                    List<MemorySegment> rest = new ArrayList<>(pending);
+                    rest.remove(frozen);
+                    pending = List.copyOf(rest);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                log.debug("Flushed {} documents to search segment {}", frozen.size(), segment.file().getFileName());
+            }
+        }
+        if (segments.size() > mergeFactor && mergeScheduled.compareAndSet(false, true)) {
+            maintenance.execute(() -> {
+                try {
+                    mergeSegments();
+                } catch (RuntimeException e) {
+                    log.warn("Failed to merge search segments", e);
+                } finally {
+                    mergeScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * 反复合并最小的 mergeFactor 个段 (合并结果不超过 maxSegmentBytes)，直到段数不超过 mergeFactor
+     */
+    void mergeSegments() {
+        while (true) {
+            List<DiskSegment> candidates = new ArrayList<>(segments);
+            if (candidates.size() <= mergeFactor) {
+                return;
+            }
+            candidates.sort(Comparator.comparingLong(DiskSegment::sizeBytes));
+            List<DiskSegment> chosen = new ArrayList<>();
+            long bytes = 0;
+            for (DiskSegment segment : candidates) {
+                if (chosen.size() == mergeFactor || bytes + segment.sizeBytes() > maxSegmentBytes) {
+                    break;
+                }
+                chosen.add(segment);
+                bytes += segment.sizeBytes();
+            }
+            if (chosen.size() < 2) {
+                return;
+            }
+            long start = System.nanoTime();
+            DiskSegment merged = writeSegment(writer -> SegmentMerger.merge(chosen, writer));
+            synchronized (commitLock) {
+                List<DiskSegment> next = new ArrayList<>(segments);
+                next.removeAll(chosen);
+                next.add(merged);
+                writeManifest(next);
+                lock.writeLock().lock();
+                try {
+                    segments = List.copyOf(next);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            // 进行中的搜索仍可能持有旧段；删除文件不影响已建立的映射
+            for (DiskSegment segment : chosen) {
+                deleteQuietly(segment.file());
+            }
+            log.debug("Merged {} search segments ({} bytes) into {} in {} ms", chosen.size(), bytes,
+                    merged.file().getFileName(), (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * 写缓冲和待写段中的文档数
+     */
+    public int bufferedDocs() {
+        lock.readLock().lock();
+        try {
+            int docs = buffer.size();
+            for (MemorySegment segment : pending) {
+                docs += segment.size();
+            }
+            return docs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        maintenance.shutdown();
+        try {
+            if (!maintenance.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Search index maintenance did not finish in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private DiskSegment writeSegment(Consumer<SegmentWriter> content) {
+        String name = String.format("%s%010d%s", SEGMENT_PREFIX, nextGeneration.getAndIncrement(), SEGMENT_SUFFIX);
+        Path target = directory.resolve(name);
+        Path tmp = directory.resolve(name + ".tmp");
+        try (SegmentWriter writer = new SegmentWriter(tmp)) {
+            content.accept(writer);
+            writer.finish();
+        }
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            deleteQuietly(tmp);
+            throw new UncheckedIOException("Failed to write search segment " + target, e);
+        }
+        return DiskSegment.open(target);
+    }
+
+    private void writeManifest(List<DiskSegment> list) {
+        Path target = directory.resolve(MANIFEST);
+        Path tmp = directory.resolve(MANIFEST + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MANIFEST_MAGIC);
+                out.writeInt(MANIFEST_VERSION);
+                out.writeLong(nextGeneration.get());
+                out.writeInt(list.size());
+                for (DiskSegment segment : list) {
+                    out.writeUTF(segment.file().getFileName().toString());
+                }
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write search index manifest in " + directory, e);
+        }
+    }
+
+    /**
+     * @return 下一个段的编号
+     */
+    private long readManifest(List<String> names) throws IOException {
+        Path manifest = directory.resolve(MANIFEST);
+        if (!Files.exists(manifest)) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(manifest)))) {
+            if (in.readInt() != MANIFEST_MAGIC || in.readInt() != MANIFEST_VERSION) {
+                throw new IllegalStateException("Unsupported search index manifest in " + directory);
+            }
+            long generation = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                names.add(in.readUTF());
+            }
+            return generation;
+        }
+    }
+
+    private void deleteUnlisted(Set<String> listed) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*")) {
+            for (Path file : files) {
+                if (!listed.contains(file.getFileName().toString())) {
+                    log.info("Deleting unreferenced search segment {}", file.getFileName());
+                    deleteQuietly(file);
+                }
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete {}", file, e);
+        }
+    }
+
+    public static final class SearchHit {
+
+        private final long doc;
+        private final double score;
+
+        public SearchHit(long doc, double score) {
+            this.doc = doc;
+            this.score = score;
+        }
+
+        public long getDoc() {
+            return doc;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+}
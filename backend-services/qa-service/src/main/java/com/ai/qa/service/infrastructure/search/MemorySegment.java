@@ -0,0 +1,170 @@
+package com.ai.qa.service.infrastructure.search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 写缓冲：新加入的文档先进入这里，攒够一定数量或定期写成磁盘段。
+ * 每个用户一个分区，分区内按词存放可增长的基本类型数组，不为每个出现位置创建对象。
+ * <p>
+ * 不是线程安全的，由 {@link FullTextIndex} 加锁访问；写成磁盘段之前不再修改。
+ */
+final class MemorySegment implements SegmentReader {
+
+    private final Map<Long, Partition> partitions = new HashMap<>();
+    private final Set<Long> docs = new HashSet<>();
+    private long postingCount;
+
+    /**
+     * @return 文档已经在缓冲中时返回 false
+     */
+    boolean add(long doc, long user, List<String> terms) {
+        if (!docs.add(doc)) {
+            return false;
+        }
+        Map<String, Integer> freqs = new HashMap<>();
+        for (String term : terms) {
+            freqs.merge(term, 1, Integer::sum);
+        }
+        Partition partition = partitions.computeIfAbsent(user, key -> new Partition());
+        partition.docCount++;
+        partition.totalLength += terms.size();
+        for (Map.Entry<String, Integer> e : freqs.entrySet()) {
+            partition.terms.computeIfAbsent(e.getKey(), key -> new PostingsBuffer())
+                    .add(doc, e.getValue(), terms.size());
+        }
+        postingCount += freqs.size();
+        return true;
+    }
+
+    int size() {
+        return docs.size();
+    }
+
+    long postingCount() {
+        return postingCount;
+    }
+
+    @Override
+    public int docCount(long user) {
+        Partition partition = partitions.get(user);
+        return partition == null ? 0 : partition.docCount;
+    }
+
+    @Override
+    public long totalLength(long user) {
+        Partition partition = partitions.get(user);
+        return partition == null ? 0 : partition.totalLength;
+    }
+
+    @Override
+    public void lookup(long user, String term, boolean prefix, int maxTerms, List<Postings> out) {
+        Partition partition = partitions.get(user);
+        if (partition == null) {
+            return;
+        }
+        if (!prefix) {
+            PostingsBuffer buffer = partition.terms.get(term);
+            if (buffer != null) {
+                out.add(buffer.copy(term));
+            }
+            return;
+        }
+        int found = 0;
+        for (Map.Entry<String, PostingsBuffer> e : partition.terms.tailMap(term).entrySet()) {
+            if (!e.getKey().startsWith(term) || found++ >= maxTerms) {
+                break;
+            }
+            out.add(e.getValue().copy(e.getKey()));
+        }
+    }
+
+    /**
+     * 按用户、词 (UTF-8 字节序，与磁盘段一致)、文档 id 的顺序写出
+     */
+    void writeTo(SegmentWriter writer) {
+        Long[] users = partitions.keySet().toArray(new Long[0]);
+        Arrays.sort(users);
+        for (Long user : users) {
+            Partition partition = partitions.get(user);
+            writer.startUser(user, partition.docCount, partition.totalLength);
+            List<byte[]> terms = new ArrayList<>(partition.terms.size());
+            Map<byte[], PostingsBuffer> byBytes = new HashMap<>();
+            for (Map.Entry<String, PostingsBuffer> e : partition.terms.entrySet()) {
+                byte[] bytes = e.getKey().getBytes(StandardCharsets.UTF_8);
+                terms.add(bytes);
+                byBytes.put(bytes, e.getValue());
+            }
+            terms.sort(Arrays::compareUnsigned);
+            for (byte[] term : terms) {
+                Postings postings = byBytes.get(term).sorted();
+                writer.addTerm(term, postings.docs, postings.freqs, postings.lengths, postings.size);
+            }
+        }
+    }
+
+    private static final class Partition {
+        int docCount;
+        long totalLength;
+        final TreeMap<String, PostingsBuffer> terms = new TreeMap<>();
+    }
+
+    private static final class PostingsBuffer {
+
+        long[] docs = new long[2];
+        int[] freqs = new int[2];
+        int[] lengths = new int[2];
+        int size;
+
+        void add(long doc, int freq, int length) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            lengths[size] = length;
+            size++;
+        }
+
+        Postings copy(String term) {
+            return new Postings(term, Arrays.copyOf(docs, size), Arrays.copyOf(freqs, size),
+                    Arrays.copyOf(lengths, size), size);
+        }
+
+        /**
+         * 文档按加入顺序存放，id 通常已经递增；只有并发保存时才会有少量乱序
+         */
+        Postings sorted() {
+            boolean ordered = true;
+            for (int i = 1; i < size && ordered; i++) {
+                ordered = docs[i - 1] < docs[i];
+            }
+            if (ordered) {
+                return new Postings(null, docs, freqs, lengths, size);
+            }
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(docs[a], docs[b]));
+            long[] sortedDocs = new long[size];
+            int[] sortedFreqs = new int[size];
+            int[] sortedLengths = new int[size];
+            for (int i = 0; i < size; i++) {
+                sortedDocs[i] = docs[order[i]];
+                sortedFreqs[i] = freqs[order[i]];
+                sortedLengths[i] = lengths[order[i]];
+            }
+            return new Postings(null, sortedDocs, sortedFreqs, sortedLengths, size);
+        }
+    }
+}
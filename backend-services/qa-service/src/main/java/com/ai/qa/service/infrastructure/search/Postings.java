@@ -0,0 +1,21 @@
+package com.ai.qa.service.infrastructure.search;
+
+/**
+ * 一个词在一个段中的倒排表：包含它的文档、在各文档中的出现次数、各文档的总词数。磁盘段中文档按 id 升序
+ */
+final class Postings {
+
+    final String term;
+    final long[] docs;
+    final int[] freqs;
+    final int[] lengths;
+    final int size;
+
+    Postings(String term, long[] docs, int[] freqs, int[] lengths, int size) {
+        this.term = term;
+        this.docs = docs;
+        this.freqs = freqs;
+        this.lengths = lengths;
+        this.size = size;
+    }
+}
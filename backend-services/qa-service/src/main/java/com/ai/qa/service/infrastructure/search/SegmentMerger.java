@@ -0,0 +1,99 @@
+package com.ai.qa.service.infrastructure.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 把若干磁盘段合并成一个：各段的用户表、词表都是有序的，按 (用户, 词) 做多路归并，
+ * 同一个词在各段中的倒排表按文档 id 归并。一个文档只会出现在一个段中，不需要去重。
+ */
+final class SegmentMerger {
+
+    private SegmentMerger() {
+    }
+
+    static void merge(List<DiskSegment> sources, SegmentWriter writer) {
+        int[] userCursor = new int[sources.size()];
+        while (true) {
+            long user = Long.MAX_VALUE;
+            boolean any = false;
+            for (int s = 0; s < sources.size(); s++) {
+                if (userCursor[s] < sources.get(s).userCount()) {
+                    user = Math.min(user, sources.get(s).userAt(userCursor[s]));
+                    any = true;
+                }
+            }
+            if (!any) {
+                break;
+            }
+            List<DiskSegment> segments = new ArrayList<>();
+            List<Integer> users = new ArrayList<>();
+            int docs = 0;
+            long length = 0;
+            for (int s = 0; s < sources.size(); s++) {
+                DiskSegment segment = sources.get(s);
+                if (userCursor[s] < segment.userCount() && segment.userAt(userCursor[s]) == user) {
+                    segments.add(segment);
+                    users.add(userCursor[s]);
+                    docs += segment.userDocs(userCursor[s]);
+                    length += segment.userLength(userCursor[s]);
+                    userCursor[s]++;
+                }
+            }
+            writer.startUser(user, docs, length);
+            mergeTerms(segments, users, writer);
+        }
+    }
+
+    private static void mergeTerms(List<DiskSegment> segments, List<Integer> users, SegmentWriter writer) {
+        int n = segments.size();
+        int[] cursor = new int[n];
+        int[] end = new int[n];
+        byte[][] current = new byte[n][];
+        for (int i = 0; i < n; i++) {
+            cursor[i] = segments.get(i).userFirstTerm(users.get(i));
+            end[i] = cursor[i] + segments.get(i).userTermCount(users.get(i));
+            current[i] = cursor[i] < end[i] ? segments.get(i).termAt(cursor[i]) : null;
+        }
+        while (true) {
+            byte[] term = null;
+            for (byte[] candidate : current) {
+                if (candidate != null && (term == null || Arrays.compareUnsigned(candidate, term) < 0)) {
+                    term = candidate;
+                }
+            }
+            if (term == null) {
+                return;
+            }
+            Postings merged = null;
+            for (int i = 0; i < n; i++) {
+                if (current[i] != null && Arrays.equals(current[i], term)) {
+                    Postings postings = segments.get(i).postings(cursor[i]);
+                    merged = merged == null ? postings : merge(merged, postings);
+                    cursor[i]++;
+                    current[i] = cursor[i] < end[i] ? segments.get(i).termAt(cursor[i]) : null;
+                }
+            }
+            writer.addTerm(term, merged.docs, merged.freqs, merged.lengths, merged.size);
+        }
+    }
+
+    private static Postings merge(Postings a, Postings b) {
+        int size = a.size + b.size;
+        long[] docs = new long[size];
+        int[] freqs = new int[size];
+        int[] lengths = new int[size];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < size; k++) {
+            boolean fromA = j >= b.size || (i < a.size && a.docs[i] < b.docs[j]);
+            Postings source = fromA ? a : b;
+            int index = fromA ? i++ : j++;
+            docs[k] = source.docs[index];
+            freqs[k] = source.freqs[index];
+            lengths[k] = source.lengths[index];
+        }
+        return new Postings(a.term, docs, freqs, lengths, size);
+    }
+}
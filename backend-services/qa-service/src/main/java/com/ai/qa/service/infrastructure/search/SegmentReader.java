@@ -0,0 +1,24 @@
+package com.ai.qa.service.infrastructure.search;
+
+import java.util.List;
+
+/**
+ * 可搜索的段：内存中的写缓冲或磁盘上的不可变段。数据按用户分区，所有读取都限定在一个用户之内
+ */
+interface SegmentReader {
+
+    /**
+     * 用户在本段中的文档数
+     */
+    int docCount(long user);
+
+    /**
+     * 用户在本段中所有文档的词数之和，用于计算平均文档长度
+     */
+    long totalLength(long user);
+
+    /**
+     * 把用户分区中等于 term (prefix 为 true 时以 term 开头) 的词的倒排表加入 out，最多 maxTerms 个
+     */
+    void lookup(long user, String term, boolean prefix, int maxTerms, List<Postings> out);
+}
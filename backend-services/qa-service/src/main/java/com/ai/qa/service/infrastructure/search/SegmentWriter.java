@@ -0,0 +1,196 @@
+package com.ai.qa.service.infrastructure.search;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 顺序写出一个磁盘段。文件布局：
+ * <pre>
+ * [倒排表][词][词表][用户表][尾部]
+ * 倒排表  每个词一段，每个文档依次为 (与上一个 id 的差, 出现次数, 文档词数)，均为变长整数
+ * 词      所有词的 UTF-8 字节首尾相接
+ * 词表    每个词 20 字节：词的偏移、长度、文档数、倒排表偏移、倒排表字节数，按 (用户, 词) 排序
+ * 用户表  每个用户 28 字节：用户ID、文档数、总词数、第一个词在词表中的序号、词数，按用户ID排序
+ * 尾部    各部分的偏移和条数、魔数、版本
+ * </pre>
+ * 词表和用户表是定长记录，读取时直接在映射的文件上二分查找，不需要载入内存。
+ * <p>
+ * 调用顺序：对每个用户 (ID 升序) 调用 {@link #startUser}，再按词的字节序调用 {@link #addTerm}，最后 {@link #finish()}。
+ * 写在临时文件中，由 {@link FullTextIndex} 在 finish 之后改名为正式的段文件。
+ */
+final class SegmentWriter implements Closeable {
+
+    static final int MAGIC = 0x51414654;
+    static final int VERSION = 1;
+    static final int TERM_ENTRY_BYTES = 20;
+    static final int USER_ENTRY_BYTES = 28;
+    static final int TRAILER_BYTES = 36;
+
+    private final FileChannel channel;
+    private final CountingOutputStream postings;
+    private final ByteArrayOutputStream termBytes = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream termTableBytes = new ByteArrayOutputStream();
+    private final DataOutputStream termTable = new DataOutputStream(termTableBytes);
+    private final ByteArrayOutputStream userTableBytes = new ByteArrayOutputStream();
+    private final DataOutputStream userTable = new DataOutputStream(userTableBytes);
+    private final byte[] varint = new byte[10];
+
+    private int termCount;
+    private int userCount;
+    private int docCount;
+    private long currentUser;
+    private int currentDocs;
+    private long currentLength;
+    private int userFirstTerm;
+
+    SegmentWriter(Path file) {
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create search segment " + file, e);
+        }
+        this.postings = new CountingOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 65536));
+    }
+
+    void startUser(long user, int docs, long totalLength) {
+        endUser();
+        currentUser = user;
+        currentDocs = docs;
+        currentLength = totalLength;
+        userFirstTerm = termCount;
+        userCount++;
+        docCount += docs;
+    }
+
+    /**
+     * @param docs 升序
+     */
+    void addTerm(byte[] term, long[] docs, int[] freqs, int[] lengths, int size) {
+        try {
+            long start = postings.count;
+            long previous = 0;
+            for (int i = 0; i < size; i++) {
+                writeVarLong(docs[i] - previous);
+                writeVarLong(freqs[i]);
+                writeVarLong(lengths[i]);
+                previous = docs[i];
+            }
+            termTable.writeInt(termBytes.size());
+            termTable.writeInt(term.length);
+            termTable.writeInt(size);
+            termTable.writeInt(checkedOffset(start));
+            termTable.writeInt((int) (postings.count - start));
+            termBytes.write(term);
+            termCount++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 写出词表、用户表和尾部，并刷到磁盘
+     */
+    void finish() {
+        endUser();
+        try {
+            int termBytesOffset = checkedOffset(postings.count);
+            termBytes.writeTo(postings);
+            int termTableOffset = checkedOffset(postings.count);
+            termTableBytes.writeTo(postings);
+            int userTableOffset = checkedOffset(postings.count);
+            userTableBytes.writeTo(postings);
+            checkedOffset(postings.count + TRAILER_BYTES);
+            DataOutputStream trailer = new DataOutputStream(postings);
+            trailer.writeInt(userTableOffset);
+            trailer.writeInt(userCount);
+            trailer.writeInt(termTableOffset);
+            trailer.writeInt(termCount);
+            trailer.writeInt(termBytesOffset);
+            trailer.writeInt(termBytes.size());
+            trailer.writeInt(docCount);
+            trailer.writeInt(MAGIC);
+            trailer.writeInt(VERSION);
+            trailer.flush();
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void endUser() {
+        if (userCount == 0 || userFirstTerm < 0) {
+            return;
+        }
+        try {
+            userTable.writeLong(currentUser);
+            userTable.writeInt(currentDocs);
+            userTable.writeLong(currentLength);
+            userTable.writeInt(userFirstTerm);
+            userTable.writeInt(termCount - userFirstTerm);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        userFirstTerm = -1;
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        int n = 0;
+        while ((value & ~0x7FL) != 0) {
+            varint[n++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        varint[n++] = (byte) value;
+        postings.write(varint, 0, n);
+    }
+
+    /**
+     * 段文件整体映射为一个 ByteBuffer，偏移不能超过 int 范围
+     */
+    private static int checkedOffset(long offset) {
+        if (offset > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Search segment exceeds 2GB");
+        }
+        return (int) offset;
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.ai.qa.service.infrastructure.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 把文本切成索引词：先做 NFKC 规范化 (全角转半角等) 并转小写；连续的字母、数字是一个词；
+ * 中日韩文字没有空格分隔，连续的一段按相邻两字切成重叠的二元组 (只有一个字时就是这个字)。
+ * 其他字符都是分隔符。超过 {@link #MAX_TERM_LENGTH} 个字符的词截断。
+ * <p>
+ * 查询使用同样的切分；以 * 结尾的词是前缀查询，单个汉字也按前缀处理，能匹配以它开头的二元组。
+ */
+public final class TextAnalyzer {
+
+    public static final int MAX_TERM_LENGTH = 64;
+
+    private TextAnalyzer() {
+    }
+
+    public static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text != null) {
+            tokenize(normalize(text), terms);
+        }
+        return terms;
+    }
+
+    public static List<QueryTerm> query(String query) {
+        List<QueryTerm> terms = new ArrayList<>();
+        if (query == null) {
+            return terms;
+        }
+        for (String chunk : normalize(query).split("\\s+")) {
+            boolean prefix = chunk.endsWith("*");
+            List<String> tokens = new ArrayList<>();
+            tokenize(prefix ? chunk.substring(0, chunk.length() - 1) : chunk, tokens);
+            for (int i = 0; i < tokens.size(); i++) {
+                String token = tokens.get(i);
+                boolean last = i == tokens.size() - 1;
+                terms.add(new QueryTerm(token, (prefix && last) || isSingleCjk(token)));
+            }
+        }
+        return terms;
+    }
+
+    private static String normalize(String text) {
+        return Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+    }
+
+    private static void tokenize(String text, List<String> terms) {
+        int i = 0;
+        while (i < text.length()) {
+            int c = text.codePointAt(i);
+            if (isCjk(c)) {
+                int end = i;
+                while (end < text.length() && isCjk(text.codePointAt(end))) {
+                    end += Character.charCount(text.codePointAt(end));
+                }
+                bigrams(text, i, end, terms);
+                i = end;
+            } else if (Character.isLetterOrDigit(c)) {
+                int end = i;
+                while (end < text.length()) {
+                    int d = text.codePointAt(end);
+                    if (!Character.isLetterOrDigit(d) || isCjk(d)) {
+                        break;
+                    }
+                    end += Character.charCount(d);
+                }
+                terms.add(truncate(text.substring(i, end)));
+                i = end;
+            } else {
+                i += Character.charCount(c);
+            }
+        }
+    }
+
+    private static void bigrams(String text, int start, int end, List<String> terms) {
+        int first = start;
+        int second = first + Character.charCount(text.codePointAt(first));
+        if (second >= end) {
+            terms.add(text.substring(first, end));
+            return;
+        }
+        while (second < end) {
+            int next = second + Character.charCount(text.codePointAt(second));
+            terms.add(text.substring(first, next));
+            first = second;
+            second = next;
+        }
+    }
+
+    private static String truncate(String term) {
+        if (term.length() <= MAX_TERM_LENGTH) {
+            return term;
+        }
+        int end = MAX_TERM_LENGTH;
+        if (Character.isHighSurrogate(term.charAt(end - 1))) {
+            end--;
+        }
+        return term.substring(0, end);
+    }
+
+    private static boolean isSingleCjk(String token) {
+        return token.codePointCount(0, token.length()) == 1 && isCjk(token.codePointAt(0));
+    }
+
+    private static boolean isCjk(int c) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(c);
+        return script == Character.UnicodeScript.HAN || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA || script == Character.UnicodeScript.HANGUL;
+    }
+
+    /**
+     * 查询中的一个词
+     */
+    public static final class QueryTerm {
+
+        private final String term;
+        private final boolean prefix;
+
+        public QueryTerm(String term, boolean prefix) {
+            this.term = term;
+            this.prefix = prefix;
+        }
+
+        public String getTerm() {
+            return term;
+        }
+
+        public boolean isPrefix() {
+            return prefix;
+        }
+    }
+}
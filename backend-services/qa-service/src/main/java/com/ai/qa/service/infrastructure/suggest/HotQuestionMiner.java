@@ -0,0 +1,84 @@
+package com.ai.qa.service.infrastructure.suggest;
+
+import com.ai.qa.service.infrastructure.persistence.repositories.JpaQAHistoryRepository;
+import com.ai.qa.service.infrastructure.persistence.repositories.QuestionView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 从 qa_history 中找出最近 window 内被反复问到的问题。
+ * 从新到旧按 (create_time, id) keyset 分页读取，只读问题列，最多读 max-rows 行；
+ * 超过 max-question-length 的问题在查询条件中排除，它们不适合作为输入补全。
+ */
+@Component
+public class HotQuestionMiner {
+
+    private static final Logger log = LoggerFactory.getLogger(HotQuestionMiner.class);
+
+    private static final int PAGE_SIZE = 5000;
+
+    private final JpaQAHistoryRepository repository;
+    private final Duration window;
+    private final int maxRows;
+    private final int maxQuestionLength;
+    private final int minCount;
+    private final int minUsers;
+    private final int maxEntries;
+    private final int maxCandidates;
+
+    /**
+     * @param minCount      出现次数下限
+     * @param minUsers      提问的不同用户数下限，只有个别用户问过的问题不会推荐给别人
+     * @param maxEntries    补全候选数上限
+     * @param maxCandidates 统计时最多同时跟踪的不同问题数
+     */
+    public HotQuestionMiner(JpaQAHistoryRepository repository,
+                            @Value("${qa.suggest.window:30d}") Duration window,
+                            @Value("${qa.suggest.max-rows:500000}") int maxRows,
+                            @Value("${qa.suggest.max-question-length:120}") int maxQuestionLength,
+                            @Value("${qa.suggest.min-count:3}") int minCount,
+                            @Value("${qa.suggest.min-users:2}") int minUsers,
+                            @Value("${qa.suggest.max-entries:10000}") int maxEntries,
+                            @Value("${qa.suggest.max-candidates:200000}") int maxCandidates) {
+        this.repository = repository;
+        this.window = window;
+        this.maxRows = maxRows;
+        this.maxQuestionLength = maxQuestionLength;
+        this.minCount = minCount;
+        this.minUsers = minUsers;
+        this.maxEntries = maxEntries;
+        this.maxCandidates = maxCandidates;
+    }
+
+    public List<SuggestionTrie.Suggestion> mine() {
+        long start = System.nanoTime();
+        LocalDateTime since = LocalDateTime.now().minus(window);
+        QuestionCounter counter = new QuestionCounter(minUsers, maxCandidates);
+        int rows = 0;
+        List<QuestionView> page = repository.findRecentQuestions(since, maxQuestionLength,
+                PageRequest.of(0, Math.min(PAGE_SIZE, maxRows)));
+        while (!page.isEmpty()) {
+            for (QuestionView row : page) {
+                counter.add(row.getQuestion(), row.getUserId());
+            }
+            rows += page.size();
+            if (page.size() < PAGE_SIZE || rows >= maxRows) {
+                break;
+            }
+            QuestionView last = page.get(page.size() - 1);
+            page = repository.findRecentQuestionsBefore(since, maxQuestionLength, last.getCreateTime(), last.getId(),
+                    PageRequest.of(0, Math.min(PAGE_SIZE, maxRows - rows)));
+        }
+        List<SuggestionTrie.Suggestion> hot = counter.top(minCount, maxEntries);
+        log.info("Mined {} hot questions from {} rows ({} distinct, {} pruned) in {} ms", hot.size(), rows,
+                counter.distinct(), counter.pruned(), (System.nanoTime() - start) / 1_000_000);
+        return hot;
+    }
+}
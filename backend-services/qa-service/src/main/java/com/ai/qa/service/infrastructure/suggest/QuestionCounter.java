@@ -0,0 +1,123 @@
+package com.ai.qa.service.infrastructure.suggest;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 统计规范化后相同的问题出现的次数和提问的不同用户数。
+ * <p>
+ * 只有至少 minUsers 个不同用户问过的问题才能成为补全候选：补全对所有用户可见，
+ * 只有个别用户问过的问题可能包含个人信息。
+ * <p>
+ * 不同问题数超过 maxCandidates 时丢弃出现次数最少的 (lossy counting)，内存有上限；
+ * 被丢弃的问题之后再出现会从头计数，热门问题不受影响。
+ */
+public final class QuestionCounter {
+
+    private final int minUsers;
+    private final int maxCandidates;
+    private final Map<String, Candidate> candidates = new HashMap<>();
+    private int pruned;
+
+    public QuestionCounter(int minUsers, int maxCandidates) {
+        this.minUsers = Math.max(1, minUsers);
+        this.maxCandidates = Math.max(1, maxCandidates);
+    }
+
+    /**
+     * 显示的原文取第一次见到的写法 (调用方从新到旧读取时就是最近的写法)
+     */
+    public void add(String question, Long userId) {
+        String key = SuggestionTrie.normalize(question, true);
+        if (key.isEmpty()) {
+            return;
+        }
+        Candidate candidate = candidates.get(key);
+        if (candidate == null) {
+            if (candidates.size() >= maxCandidates) {
+                prune();
+            }
+            candidate = new Candidate(collapseWhitespace(question), minUsers);
+            candidates.put(key, candidate);
+        }
+        candidate.count++;
+        candidate.addUser(userId == null ? 0 : userId);
+    }
+
+    /**
+     * 出现至少 minCount 次、提问用户数达到 minUsers 的问题，按次数从高到低最多 maxEntries 个
+     */
+    public List<SuggestionTrie.Suggestion> top(int minCount, int maxEntries) {
+        List<Candidate> hot = new ArrayList<>();
+        for (Candidate candidate : candidates.values()) {
+            if (candidate.count >= minCount && candidate.userCount >= minUsers) {
+                hot.add(candidate);
+            }
+        }
+        hot.sort(Comparator.comparingInt((Candidate c) -> c.count).reversed().thenComparing(c -> c.text));
+        List<SuggestionTrie.Suggestion> result = new ArrayList<>(Math.min(hot.size(), maxEntries));
+        for (Candidate candidate : hot.subList(0, Math.min(hot.size(), maxEntries))) {
+            result.add(new SuggestionTrie.Suggestion(candidate.text, candidate.count));
+        }
+        return result;
+    }
+
+    public int distinct() {
+        return candidates.size();
+    }
+
+    /**
+     * 丢弃过的候选数
+     */
+    public int pruned() {
+        return pruned;
+    }
+
+    /**
+     * 依次去掉出现 1 次、2 次……的候选，直到剩下不超过容量的四分之三
+     */
+    private void prune() {
+        int target = maxCandidates * 3 / 4;
+        for (int threshold = 1; candidates.size() > target; threshold++) {
+            int limit = threshold;
+            int before = candidates.size();
+            candidates.values().removeIf(candidate -> candidate.count <= limit);
+            pruned += before - candidates.size();
+        }
+    }
+
+    private static String collapseWhitespace(String text) {
+        return text.trim().replaceAll("\\s+", " ");
+    }
+
+    private static final class Candidate {
+
+        final String text;
+        int count;
+        /**
+         * 只需要知道是否达到 minUsers，最多记录这么多个不同用户
+         */
+        final long[] users;
+        int userCount;
+
+        Candidate(String text, int minUsers) {
+            this.text = text;
+            this.users = new long[minUsers];
+        }
+
+        void addUser(long user) {
+            if (userCount == users.length) {
+                return;
+            }
+            for (int i = 0; i < userCount; i++) {
+                if (users[i] == user) {
+                    return;
+                }
+            }
+            users[userCount++] = user;
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package com.ai.qa.service.infrastructure.suggest;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 不可变的前缀补全树，建好后只读，多线程无锁查询。
+ * <p>
+ * 结构是压缩的基数树 (只有一个孩子的节点合并进边上的字符串)，所有节点按层次顺序排进几个并行数组：
+ * <ul>
+ *     <li>边上的字符串是 labels 中的一段 (labelStart, labelLength)</li>
+ *     <li>一个节点的孩子在数组中连续存放，按边的首字符排序，查找时二分</li>
+ *     <li>每个节点预先算好子树中权重最高的 k 个候选 (top 中的一段)，候选按权重从高到低编号，
+ *     所以这一段就是子树中最小的 k 个编号</li>
+ * </ul>
+ * 查询只沿前缀走一条路径，再复制预先算好的结果，与候选总数无关；除了结果本身几乎不分配对象。
+ * <p>
+ * 键是 {@link #normalize} 之后的文本 (NFKC、小写、合并空白)，返回的是候选的原文。
+ */
+public final class SuggestionTrie {
+
+    public static final SuggestionTrie EMPTY = build(List.of(), 1);
+
+    private final String[] texts;
+    private final char[] labels;
+    private final int[] labelStart;
+    private final int[] labelLength;
+    private final int[] firstChild;
+    private final int[] childCount;
+    /**
+     * 第 n 个节点的结果是 top[topStart[n], topStart[n + 1])
+     */
+    private final int[] topStart;
+    private final int[] top;
+
+    private SuggestionTrie(String[] texts, char[] labels, int[] labelStart, int[] labelLength, int[] firstChild,
+                           int[] childCount, int[] topStart, int[] top) {
+        this.texts = texts;
+        this.labels = labels;
+        this.labelStart = labelStart;
+        this.labelLength = labelLength;
+        this.firstChild = firstChild;
+        this.childCount = childCount;
+        this.topStart = topStart;
+        this.top = top;
+    }
+
+    /**
+     * @param topK 每个节点保留的候选数，即一次查询最多返回的条数
+     */
+    public static SuggestionTrie build(List<Suggestion> suggestions, int topK) {
+        // 规范化后相同的候选只保留权重最高的一个
+        Map<String, Suggestion> byKey = new HashMap<>();
+        for (Suggestion suggestion : suggestions) {
+            String key = normalize(suggestion.getText(), true);
+            if (!key.isEmpty()) {
+                byKey.merge(key, suggestion, (a, b) -> b.getWeight() > a.getWeight() ? b : a);
+            }
+        }
+        // 按权重从高到低编号，权重相同时按原文排序，结果稳定
+        List<Map.Entry<String, Suggestion>> ranked = new ArrayList<>(byKey.entrySet());
+        ranked.sort(Comparator.comparingLong((Map.Entry<String, Suggestion> e) -> e.getValue().getWeight())
+                .reversed()
+                .thenComparing(e -> e.getValue().getText()));
+        String[] texts = new String[ranked.size()];
+        String[] rankKeys = new String[ranked.size()];
+        Integer[] byKeyOrder = new Integer[ranked.size()];
+        for (int rank = 0; rank < ranked.size(); rank++) {
+            texts[rank] = ranked.get(rank).getValue().getText();
+            rankKeys[rank] = ranked.get(rank).getKey();
+            byKeyOrder[rank] = rank;
+        }
+        Arrays.sort(byKeyOrder, Comparator.comparing(rank -> rankKeys[rank]));
+        String[] sortedKeys = new String[texts.length];
+        int[] sortedRanks = new int[texts.length];
+        for (int i = 0; i < texts.length; i++) {
+            sortedRanks[i] = byKeyOrder[i];
+            sortedKeys[i] = rankKeys[sortedRanks[i]];
+        }
+
+        Node root = node(sortedKeys, sortedRanks, 0, texts.length, 0, Math.max(1, topK));
+        return pack(root, texts);
+    }
+
+    /**
+     * 以 prefix 开头的候选，按权重从高到低最多 limit 条
+     */
+    public List<String> suggest(String prefix, int limit) {
+        String key = normalize(prefix, false);
+        int node = 0;
+        int i = 0;
+        while (i < key.length()) {
+            int child = findChild(node, key.charAt(i));
+            if (child < 0) {
+                return List.of();
+            }
+            // 前缀可以停在边的中间，这时子树中的候选同样都匹配
+            int n = Math.min(labelLength[child], key.length() - i);
+            int start = labelStart[child];
+            for (int j = 0; j < n; j++) {
+                if (labels[start + j] != key.charAt(i + j)) {
+                    return List.of();
+                }
+            }
+            i += n;
+            node = child;
+        }
+        int from = topStart[node];
+        int count = Math.min(limit, topStart[node + 1] - from);
+        if (count <= 0) {
+            return List.of();
+        }
+        String[] result = new String[count];
+        for (int j = 0; j < count; j++) {
+            result[j] = texts[top[from + j]];
+        }
+        return Arrays.asList(result);
+    }
+
+    /**
+     * 候选数
+     */
+    public int size() {
+        return texts.length;
+    }
+
+    public int nodeCount() {
+        return firstChild.length;
+    }
+
+    /**
+     * NFKC、小写、连续空白合并成一个空格、去掉开头的空白；trimEnd 时也去掉末尾的空白。
+     * 查询的前缀不去掉末尾的空格：输入 "spring " 时用户已经打完了一个词
+     */
+    static String normalize(String text, boolean trimEnd) {
+        if (text == null) {
+            return "";
+        }
+        String normalized = Normalizer.isNormalized(text, Normalizer.Form.NFKC)
+                ? text : Normalizer.normalize(text, Normalizer.Form.NFKC);
+        StringBuilder out = new StringBuilder(normalized.length());
+        boolean space = false;
+        for (int i = 0; i < normalized.length(); ) {
+            int codePoint = normalized.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.isWhitespace(codePoint) || Character.isSpaceChar(codePoint)) {
+                space = out.length() > 0;
+                continue;
+            }
+            if (space) {
+                out.append(' ');
+                space = false;
+            }
+            out.appendCodePoint(Character.toLowerCase(codePoint));
+        }
+        if (space && !trimEnd) {
+            out.append(' ');
+        }
+        return out.toString();
+    }
+
+    private int findChild(int node, char c) {
+        int low = firstChild[node];
+        int high = low + childCount[node] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char value = labels[labelStart[mid]];
+            if (value < c) {
+                low = mid + 1;
+            } else if (value > c) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    // ---------------------------------------------------------------- 构建
+
+    private static final class Node {
+
+        String labelKey = "";
+        int labelFrom;
+        int labelTo;
+        final List<Node> children = new ArrayList<>();
+        int[] top;
+        int firstChild;
+    }
+
+    /**
+     * keys[from, to) 已排序且都有相同的前 depth 个字符，建出它们的子树
+     */
+    private static Node node(String[] keys, int[] ranks, int from, int to, int depth, int topK) {
+        Node node = new Node();
+        List<int[]> tops = new ArrayList<>();
+        int i = from;
+        // 等于前缀本身的键排在最前面，最多一个
+        if (i < to && keys[i].length() == depth) {
+            tops.add(new int[]{ranks[i]});
+            i++;
+        }
+        while (i < to) {
+            char c = keys[i].charAt(depth);
+            int j = i + 1;
+            while (j < to && keys[j].charAt(depth) == c) {
+                j++;
+            }
+            // 有序区间的公共前缀就是首尾两个键的公共前缀
+            int end = commonPrefixEnd(keys[i], keys[j - 1], depth);
+            Node child = node(keys, ranks, i, j, end, topK);
+            child.labelKey = keys[i];
+            child.labelFrom = depth;
+            child.labelTo = end;
+            node.children.add(child);
+            tops.add(child.top);
+            i = j;
+        }
+        node.top = smallest(tops, topK);
+        return node;
+    }
+
+    private static int commonPrefixEnd(String a, String b, int from) {
+        int end = from;
+        int max = Math.min(a.length(), b.length());
+        while (end < max && a.charAt(end) == b.charAt(end)) {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * 各子树的结果合起来取最小的 k 个编号 (编号越小权重越高)
+     */
+    private static int[] smallest(List<int[]> tops, int k) {
+        int total = 0;
+        for (int[] t : tops) {
+            total += t.length;
+        }
+        int[] all = new int[total];
+        int at = 0;
+        for (int[] t : tops) {
+            System.arraycopy(t, 0, all, at, t.length);
+            at += t.length;
+        }
+        Arrays.sort(all);
+        return all.length <= k ? all : Arrays.copyOf(all, k);
+    }
+
+    /**
+     * 按层次顺序给节点编号，使每个节点的孩子连续存放，再展开成数组
+     */
+    private static SuggestionTrie pack(Node root, String[] texts) {
+        List<Node> order = new ArrayList<>();
+        order.add(root);
+        for (int n = 0; n < order.size(); n++) {
+            Node node = order.get(n);
+            node.firstChild = order.size();
+            order.addAll(node.children);
+        }
+        int count = order.size();
+        int[] labelStart = new int[count];
+        int[] labelLength = new int[count];
+        int[] firstChild = new int[count];
+        int[] childCount = new int[count];
+        int[] topStart = new int[count + 1];
+        StringBuilder labels = new StringBuilder();
+        int topTotal = 0;
+        for (int n = 0; n < count; n++) {
+            Node node = order.get(n);
+            labelStart[n] = labels.length();
+            labelLength[n] = node.labelTo - node.labelFrom;
+            labels.append(node.labelKey, node.labelFrom, node.labelTo);
+            firstChild[n] = node.firstChild;
+            childCount[n] = node.children.size();
+            topStart[n] = topTotal;
+            topTotal += node.top.length;
+        }
+        topStart[count] = topTotal;
+        int[] top = new int[topTotal];
+        for (int n = 0; n < count; n++) {
+            int[] nodeTop = order.get(n).top;
+            System.arraycopy(nodeTop, 0, top, topStart[n], nodeTop.length);
+        }
+        char[] chars = new char[labels.length()];
+        labels.getChars(0, labels.length(), chars, 0);
+        return new SuggestionTrie(texts, chars, labelStart, labelLength, firstChild, childCount, topStart, top);
+    }
+
+    /**
+     * 一个补全候选：显示的原文和权重 (出现次数)
+     */
+    public static final class Suggestion {
+
+        private final String text;
+        private final long weight;
+
+        public Suggestion(String text, long weight) {
+            this.text = text;
+            this.weight = weight;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public long getWeight() {
+            return weight;
+        }
+    }
+}
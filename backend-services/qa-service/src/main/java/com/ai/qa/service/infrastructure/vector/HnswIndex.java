@@ -0,0 +1,729 @@
+package com.ai.qa.service.infrastructure.vector;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 近似最近邻索引 (HNSW, Hierarchical Navigable Small World)，余弦相似度。
+ * <p>
+ * 存储：
+ * <ul>
+ *     <li>向量、第 0 层邻接表、节点元数据 (外部 id、标签、层数) 都是内存映射文件中的定长槽位，
+ *     数据在堆外，百万级向量不占 Java 堆，重启后直接映射、无需重建</li>
+ *     <li>第 1 层及以上只有约 1/M 的节点，邻接表放在堆内，{@link #flush()} 时整体写入 upper.links</li>
+ *     <li>index.meta 记录节点数和入口点，flush 时最后原子替换；重启后只认可 meta 中记录的节点，
+ *     之后插入但未 flush 的节点被丢弃</li>
+ * </ul>
+ * 并发：插入由单个写锁串行化，搜索完全无锁，可以与插入同时进行。节点的向量和邻接表写完之后才更新
+ * volatile 的节点数，搜索只访问编号小于开始时节点数的节点；插入时改写已有节点的邻接表，
+ * 并发的搜索可能读到改写到一半的表，其中每个 id 都是有效节点，只影响这一次搜索走的路径。
+ * <p>
+ * 每个节点带一个 long 标签 (例如用户ID)，可以只在某个标签内搜索。标签内节点很少时
+ * HNSW 要遍历大量不满足条件的节点，此时改为对该标签的节点逐个计算 (精确结果)。
+ */
+public class HnswIndex implements Closeable {
+
+    /**
+     * 不按标签过滤
+     */
+    public static final long ANY_TAG = Long.MIN_VALUE;
+
+    private static final int MAGIC = 0x484E5357;
+    private static final int VERSION = 1;
+    private static final int MAX_LEVEL = 16;
+    private static final long EMPTY = -1L;
+
+    /**
+     * 节点元数据槽位：外部 id (long)、标签 (long)、层数 (int)，补齐到 24 字节
+     */
+    private static final int NODE_SLOT_BYTES = 24;
+
+    private final Path directory;
+    private final int dimension;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final int capacity;
+    private final double levelMultiplier;
+
+    private final MappedSlots vectors;
+    private final FloatBuffer[] vectorViews;
+    private final int vectorsPerSegment;
+    private final MappedSlots links0;
+    private final MappedSlots nodes;
+    /**
+     * 第 1 层及以上的邻接表，key = node << 5 | level，value 不可变，修改时整体替换
+     */
+    private final ConcurrentHashMap<Long, int[]> upperLinks = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, IntList> tagNodes = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<SearchContext> contexts = new ConcurrentLinkedQueue<>();
+
+    private final Object writeLock = new Object();
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final boolean restored;
+
+    private volatile int size;
+    /**
+     * 入口点和最高层打包在一起，保证搜索读到的是一致的一对：maxLevel << 32 | entryNode
+     */
+    private volatile long entry = EMPTY;
+
+    /**
+     * @param m              每个节点在第 1 层及以上的最大邻居数，第 0 层为 2m
+     * @param efConstruction 插入时的候选集大小，越大图质量越高、插入越慢
+     * @param capacity       最大节点数，决定映射文件的大小 (稀疏文件，按实际写入占用磁盘)
+     */
+    public HnswIndex(Path directory, int dimension, int m, int efConstruction, int capacity) throws IOException {
+        this.directory = directory;
+        this.dimension = dimension;
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.capacity = capacity;
+        this.levelMultiplier = 1 / Math.log(m);
+
+        Files.createDirectories(directory);
+        this.vectors = new MappedSlots(directory.resolve("vectors.f32"), dimension * Float.BYTES, capacity);
+        this.vectorViews = vectors.floatViews();
+        this.vectorsPerSegment = vectors.slotsPerSegment();
+        this.links0 = new MappedSlots(directory.resolve("links0.i32"), (maxM0 + 1) * Integer.BYTES, capacity);
+        this.nodes = new MappedSlots(directory.resolve("nodes.bin"), NODE_SLOT_BYTES, capacity);
+        this.restored = load();
+    }
+
+    /**
+     * @return 是否从磁盘恢复了已有的索引；参数 (维度、M、容量) 与已有文件不一致时从空索引开始
+     */
+    public boolean isRestored() {
+        return restored;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * 插入一个向量，向量会被归一化后保存
+     *
+     * @param externalId 调用方的 id，搜索结果中原样返回
+     * @param tag        标签，用于按标签过滤搜索
+     */
+    public void add(long externalId, long tag, float[] vector) {
+        float[] q = normalize(vector);
+        synchronized (writeLock) {
+            int node = size;
+            if (node >= capacity) {
+                throw new IllegalStateException("HNSW index is full: capacity " + capacity);
+            }
+            int level = randomLevel();
+            writeVector(node, q);
+            writeNode(node, externalId, tag, level);
+            setLinks(node, 0, new int[0], 0);
+
+            long current = entry;
+            if (current == EMPTY) {
+                publish(node, tag);
+                entry = pack(level, node);
+                return;
+            }
+
+            SearchContext context = acquireContext();
+            try {
+                int top = maxLevel(current);
+                int ep = entryNode(current);
+                float epSim = dot(q, ep, context.scratch);
+                for (int l = top; l > level; l--) {
+                    ep = greedy(q, ep, epSim, l, node, context);
+                    epSim = dot(q, ep, context.scratch);
+                }
+                for (int l = Math.min(level, top); l >= 0; l--) {
+                    NodeHeap found = searchLayer(q, ep, l, efConstruction, ANY_TAG, node, context);
+                    int[] sorted = drainDescending(found);
+                    ep = sorted[0];
+                    int[] neighbors = selectNeighbors(sorted, sorted.length, q, l == 0 ? maxM0 : m, context);
+                    setLinks(node, l, neighbors, neighbors.length);
+                    for (int neighbor : neighbors) {
+                        connect(neighbor, node, l, context);
+                    }
+                }
+            } finally {
+                releaseContext(context);
+            }
+            publish(node, tag);
+            if (level > maxLevel(current)) {
+                entry = pack(level, node);
+            }
+        }
+    }
+
+    /**
+     * 搜索与 query 最相似的 k 个节点
+     *
+     * @param ef  候选集大小 (不小于 k)，越大召回率越高、耗时越长
+     * @param tag 只返回带该标签的节点，{@link #ANY_TAG} 表示不过滤
+     * @return 按相似度从高到低排列
+     */
+    public List<SearchHit> search(float[] query, int k, int ef, long tag) {
+        // 写入方先更新 size 再更新入口点，这里反过来读，入口点一定小于 limit
+        long current = entry;
+        int limit = size;
+        if (limit == 0 || current == EMPTY || k <= 0) {
+            return List.of();
+        }
+        float[] q = normalize(query);
+        SearchContext context = acquireContext();
+        try {
+            NodeHeap found;
+            if (tag != ANY_TAG) {
+                IntList candidates = tagNodes.get(tag);
+                if (candidates == null) {
+                    return List.of();
+                }
+                int count = candidates.size();
+                // 逐个计算 count 次，过滤后的 HNSW 大约要访问 ef * limit / count 个节点，取代价低的一种
+                if ((long) count * count <= (long) Math.max(ef, k) * limit) {
+                    found = exhaustive(q, candidates, count, k, context);
+                    return toHits(found, k);
+                }
+            }
+            int ep = entryNode(current);
+            float epSim = dot(q, ep, context.scratch);
+            for (int l = maxLevel(current); l > 0; l--) {
+                ep = greedy(q, ep, epSim, l, limit, context);
+                epSim = dot(q, ep, context.scratch);
+            }
+            found = searchLayer(q, ep, 0, Math.max(ef, k), tag, limit, context);
+            return toHits(found, k);
+        } finally {
+            releaseContext(context);
+        }
+    }
+
+    /**
+     * 把映射文件写回磁盘，并保存上层邻接表和元数据；期间插入被阻塞，搜索不受影响
+     */
+    public void flush() {
+        synchronized (writeLock) {
+            vectors.force();
+            links0.force();
+            nodes.force();
+            try {
+                writeAtomically(directory.resolve("upper.links"), out -> {
+                    out.writeInt(upperLinks.size());
+                    for (Map.Entry<Long, int[]> e : upperLinks.entrySet()) {
+                        out.writeLong(e.getKey());
+                        out.writeInt(e.getValue().length);
+                        for (int neighbor : e.getValue()) {
+                            out.writeInt(neighbor);
+                        }
+                    }
+                });
+                // meta 最后写，重启时只有它记录的节点被视为有效
+                int flushedSize = size;
+                long flushedEntry = entry;
+                writeAtomically(directory.resolve("index.meta"), out -> {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                    out.writeInt(dimension);
+                    out.writeInt(m);
+                    out.writeInt(capacity);
+                    out.writeInt(flushedSize);
+                    out.writeLong(flushedEntry);
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to flush HNSW index to " + directory, e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    // ---------------------------------------------------------------- 搜索
+
+    /**
+     * 在某一层上贪心地移动到更近的邻居，直到不能再改进
+     */
+    private int greedy(float[] q, int ep, float epSim, int level, int limit, SearchContext context) {
+        int current = ep;
+        float best = epSim;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] neighbors = context.neighbors;
+            int count = readLinks(current, level, neighbors);
+            for (int i = 0; i < count; i++) {
+                int candidate = neighbors[i];
+                if (candidate >= limit) {
+                    continue;
+                }
+                float sim = dot(q, candidate, context.scratch);
+                if (sim > best) {
+                    best = sim;
+                    current = candidate;
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * HNSW 论文中的 SEARCH-LAYER：从 ep 出发做最佳优先搜索
+     *
+     * @return context.results，堆顶是 ef 个结果中相似度最低的 (key 为相似度)
+     */
+    private NodeHeap searchLayer(float[] q, int ep, int level, int ef, long tag, int limit, SearchContext context) {
+        NodeHeap candidates = context.candidates;
+        NodeHeap results = context.results;
+        candidates.clear();
+        results.clear();
+        short mark = context.nextMark(limit);
+        short[] visited = context.visited;
+
+        float epSim = dot(q, ep, context.scratch);
+        visited[ep] = mark;
+        candidates.push(-epSim, ep);
+        if (accepts(ep, tag)) {
+            results.push(epSim, ep);
+        }
+        int[] neighbors = context.neighbors;
+        while (!candidates.isEmpty()) {
+            float candidateSim = -candidates.topKey();
+            if (results.size() >= ef && candidateSim < results.topKey()) {
+                break;
+            }
+            int current = candidates.pop();
+            int count = readLinks(current, level, neighbors);
+            for (int i = 0; i < count; i++) {
+                int neighbor = neighbors[i];
+                if (neighbor >= limit || visited[neighbor] == mark) {
+                    continue;
+                }
+                visited[neighbor] = mark;
+                float sim = dot(q, neighbor, context.scratch);
+                if (results.size() < ef || sim > results.topKey()) {
+                    candidates.push(-sim, neighbor);
+                    if (accepts(neighbor, tag)) {
+                        results.push(sim, neighbor);
+                        if (results.size() > ef) {
+                            results.pop();
+                        }
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private NodeHeap exhaustive(float[] q, IntList candidates, int count, int k, SearchContext context) {
+        NodeHeap results = context.results;
+        results.clear();
+        int[] items = candidates.items();
+        for (int i = 0; i < count; i++) {
+            int node = items[i];
+            float sim = dot(q, node, context.scratch);
+            if (results.size() < k) {
+                results.push(sim, node);
+            } else if (sim > results.topKey()) {
+                results.pop();
+                results.push(sim, node);
+            }
+        }
+        return results;
+    }
+
+    private boolean accepts(int node, long tag) {
+        return tag == ANY_TAG || readTag(node) == tag;
+    }
+
+    private List<SearchHit> toHits(NodeHeap results, int k) {
+        while (results.size() > k) {
+            results.pop();
+        }
+        SearchHit[] hits = new SearchHit[results.size()];
+        for (int i = hits.length - 1; i >= 0; i--) {
+            float sim = results.topKey();
+            int node = results.pop();
+            hits[i] = new SearchHit(readExternalId(node), readTag(node), sim);
+        }
+        return Arrays.asList(hits);
+    }
+
+    // ---------------------------------------------------------------- 建图
+
+    /**
+     * 取出堆中所有节点，按相似度从高到低排列
+     */
+    private int[] drainDescending(NodeHeap results) {
+        int[] sorted = new int[results.size()];
+        for (int i = sorted.length - 1; i >= 0; i--) {
+            sorted[i] = results.pop();
+        }
+        return sorted;
+    }
+
+    /**
+     * 启发式选邻居 (论文 Algorithm 4)：候选按与 base 的相似度从高到低处理，
+     * 只有当候选与 base 比与所有已选邻居都更近时才选它，使邻居分布在不同方向上
+     */
+    private int[] selectNeighbors(int[] sorted, int count, float[] base, int max, SearchContext context) {
+        if (count <= max) {
+            return Arrays.copyOf(sorted, count);
+        }
+        int[] selected = new int[max];
+        // 已选邻居的向量留在堆内，与后续候选比较时不再从映射文件读取
+        float[][] selectedVectors = context.selectedVectors;
+        int selectedCount = 0;
+        for (int i = 0; i < count && selectedCount < max; i++) {
+            int candidate = sorted[i];
+            float[] candidateVector = selectedVectors[selectedCount];
+            readVector(candidate, candidateVector);
+            float toBase = dot(base, candidateVector, dimension);
+            boolean keep = true;
+            for (int j = 0; j < selectedCount; j++) {
+                if (dot(candidateVector, selectedVectors[j], dimension) > toBase) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected[selectedCount++] = candidate;
+            }
+        }
+        return Arrays.copyOf(selected, selectedCount);
+    }
+
+    /**
+     * 给 node 加上指向 added 的边，邻居已满时重新选择
+     */
+    private void connect(int node, int added, int level, SearchContext context) {
+        int max = level == 0 ? maxM0 : m;
+        int[] current = new int[max + 1];
+        int count = readLinks(node, level, current);
+        if (count < max) {
+            current[count] = added;
+            setLinks(node, level, current, count + 1);
+            return;
+        }
+        current[count++] = added;
+        float[] base = context.base;
+        readVector(node, base);
+        // 按与 node 的相似度从高到低排序后重新选择
+        NodeHeap heap = context.candidates;
+        heap.clear();
+        for (int i = 0; i < count; i++) {
+            heap.push(-dot(base, current[i], context.scratch), current[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            current[i] = heap.pop();
+        }
+        int[] selected = selectNeighbors(current, count, base, max, context);
+        setLinks(node, level, selected, selected.length);
+    }
+
+    private int randomLevel() {
+        double r = 1 - random.nextDouble();
+        return Math.min(MAX_LEVEL, (int) (-Math.log(r) * levelMultiplier));
+    }
+
+    private void publish(int node, long tag) {
+        tagNodes.computeIfAbsent(tag, t -> new IntList()).add(node);
+        size = node + 1;
+    }
+
+    // ---------------------------------------------------------------- 存储
+
+    private float dot(float[] q, int node, float[] scratch) {
+        readVector(node, scratch);
+        return dot(q, scratch, dimension);
+    }
+
+    private static float dot(float[] a, float[] b, int dimension) {
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < dimension; i += 4) {
+            s0 += a[i] * b[i];
+            s1 += a[i + 1] * b[i + 1];
+            s2 += a[i + 2] * b[i + 2];
+            s3 += a[i + 3] * b[i + 3];
+        }
+        for (; i < dimension; i++) {
+            s0 += a[i] * b[i];
+        }
+        return s0 + s1 + s2 + s3;
+    }
+
+    private void readVector(int node, float[] into) {
+        vectorViews[node / vectorsPerSegment].get((node % vectorsPerSegment) * dimension, into, 0, dimension);
+    }
+
+    private void writeVector(int node, float[] vector) {
+        vectorViews[node / vectorsPerSegment].put((node % vectorsPerSegment) * dimension, vector, 0, dimension);
+    }
+
+    private void writeNode(int node, long externalId, long tag, int level) {
+        ByteBuffer segment = nodes.segment(node);
+        int offset = nodes.offset(node);
+        segment.putLong(offset, externalId);
+        segment.putLong(offset + 8, tag);
+        segment.putInt(offset + 16, level);
+    }
+
+    private long readExternalId(int node) {
+        return nodes.segment(node).getLong(nodes.offset(node));
+    }
+
+    private long readTag(int node) {
+        return nodes.segment(node).getLong(nodes.offset(node) + 8);
+    }
+
+    private int readLevel(int node) {
+        return nodes.segment(node).getInt(nodes.offset(node) + 16);
+    }
+
+    /**
+     * @param into 长度不小于该层的最大邻居数
+     * @return 邻居个数
+     */
+    private int readLinks(int node, int level, int[] into) {
+        if (level == 0) {
+            ByteBuffer segment = links0.segment(node);
+            int offset = links0.offset(node);
+            int count = Math.min(segment.getInt(offset), maxM0);
+            for (int i = 0; i < count; i++) {
+                into[i] = segment.getInt(offset + (i + 1) * Integer.BYTES);
+            }
+            return count;
+        }
+        int[] links = upperLinks.get(upperKey(node, level));
+        if (links == null) {
+            return 0;
+        }
+        System.arraycopy(links, 0, into, 0, links.length);
+        return links.length;
+    }
+
+    private void setLinks(int node, int level, int[] neighbors, int count) {
+        if (level == 0) {
+            ByteBuffer segment = links0.segment(node);
+            int offset = links0.offset(node);
+            // 先写邻居再写个数，并发读取的一方最多看到新旧混合的有效节点
+            for (int i = 0; i < count; i++) {
+                segment.putInt(offset + (i + 1) * Integer.BYTES, neighbors[i]);
+            }
+            segment.putInt(offset, count);
+        } else {
+            upperLinks.put(upperKey(node, level), Arrays.copyOf(neighbors, count));
+        }
+    }
+
+    private static long upperKey(int node, int level) {
+        return (long) node << 5 | level;
+    }
+
+    private static long pack(int level, int node) {
+        return (long) level << 32 | node;
+    }
+
+    private static int maxLevel(long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    private static int entryNode(long entry) {
+        return (int) entry;
+    }
+
+    private float[] normalize(float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected dimension " + dimension + " but got " + vector.length);
+        }
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        float[] normalized = new float[dimension];
+        if (norm == 0) {
+            return normalized;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < dimension; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+
+    private boolean load() throws IOException {
+        Path meta = directory.resolve("index.meta");
+        Path upper = directory.resolve("upper.links");
+        if (!Files.exists(meta) || !Files.exists(upper)) {
+            return false;
+        }
+        int storedSize;
+        long storedEntry;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(meta)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != dimension
+                    || in.readInt() != m || in.readInt() != capacity) {
+                return false;
+            }
+            storedSize = in.readInt();
+            storedEntry = in.readLong();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(upper)))) {
+            int entries = in.readInt();
+            for (int i = 0; i < entries; i++) {
+                long key = in.readLong();
+                int[] links = new int[in.readInt()];
+                for (int j = 0; j < links.length; j++) {
+                    links[j] = in.readInt();
+                }
+                upperLinks.put(key, links);
+            }
+        }
+        for (int node = 0; node < storedSize; node++) {
+            tagNodes.computeIfAbsent(readTag(node), t -> new IntList()).add(node);
+        }
+        size = storedSize;
+        entry = storedEntry;
+        return true;
+    }
+
+    private interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static void writeAtomically(Path target, Writer writer) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            writer.write(out);
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private SearchContext acquireContext() {
+        SearchContext context = contexts.poll();
+        return context != null ? context : new SearchContext();
+    }
+
+    private void releaseContext(SearchContext context) {
+        contexts.offer(context);
+    }
+
+    /**
+     * 一次搜索用到的临时数据，用完放回池中复用，搜索过程中不再分配数组
+     */
+    private final class SearchContext {
+
+        final NodeHeap candidates = new NodeHeap(256);
+        final NodeHeap results = new NodeHeap(256);
+        final int[] neighbors = new int[maxM0 + 1];
+        final float[] scratch = new float[dimension];
+        final float[] base = new float[dimension];
+        final float[][] selectedVectors = new float[maxM0 + 1][dimension];
+        /**
+         * 访问标记：visited[node] == 本次的 mark 表示已访问，换一个 mark 就相当于清空
+         */
+        short[] visited = new short[0];
+        short mark;
+
+        short nextMark(int limit) {
+            if (visited.length < limit) {
+                visited = Arrays.copyOf(visited, Math.min(capacity, Math.max(limit, visited.length * 2)));
+            }
+            if (++mark == 0) {
+                Arrays.fill(visited, (short) 0);
+                mark = 1;
+            }
+            return mark;
+        }
+    }
+
+    /**
+     * 只有写线程追加的 int 列表，读线程先读 size 再读数组
+     */
+    private static final class IntList {
+
+        private volatile int[] items = new int[4];
+        private volatile int size;
+
+        void add(int value) {
+            int[] current = items;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+                items = current;
+            }
+            current[size] = value;
+            size = size + 1;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] items() {
+            return items;
+        }
+    }
+
+    /**
+     * 搜索结果
+     */
+    public static final class SearchHit {
+
+        private final long externalId;
+        private final long tag;
+        private final float score;
+
+        SearchHit(long externalId, long tag, float score) {
+            this.externalId = externalId;
+            this.tag = tag;
+            this.score = score;
+        }
+
+        public long getExternalId() {
+            return externalId;
+        }
+
+        public long getTag() {
+            return tag;
+        }
+
+        /**
+         * 余弦相似度，[-1, 1]
+         */
+        public float getScore() {
+            return score;
+        }
+
+        @Override
+        public String toString() {
+            return "SearchHit{" + externalId + ", score=" + score + '}';
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.ai.qa.service.infrastructure.vector;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * 内存映射文件上的定长槽位数组，槽位 i 位于文件偏移 i * slotBytes。
+ * <p>
+ * 文件按容量一次性设置长度 (稀疏文件，未写入的部分不占磁盘)，再按 1GB 左右分段映射，
+ * 分段边界与槽位对齐，因此一个槽位不会跨段。数据在堆外，由操作系统页缓存管理，重启后直接映射即可使用。
+ */
+final class MappedSlots {
+
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+    private final MappedByteBuffer[] segments;
+    private final int slotBytes;
+    private final int slotsPerSegment;
+    private final int capacity;
+
+    MappedSlots(Path file, int slotBytes, int capacity) throws IOException {
+        this.slotBytes = slotBytes;
+        this.capacity = capacity;
+        this.slotsPerSegment = (int) Math.max(1, MAX_SEGMENT_BYTES / slotBytes);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            long length = (long) slotBytes * capacity;
+            if (raf.length() < length) {
+                raf.setLength(length);
+            }
+            // 映射建立后与 channel 的生命周期无关，关闭文件不影响已映射的段
+            FileChannel channel = raf.getChannel();
+            int count = (capacity + slotsPerSegment - 1) / slotsPerSegment;
+            this.segments = new MappedByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                long position = (long) i * slotsPerSegment * slotBytes;
+                long size = Math.min((long) slotsPerSegment * slotBytes, length - position);
+                segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+                segments[i].order(ByteOrder.nativeOrder());
+            }
+        }
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * 槽位所在的段
+     */
+    MappedByteBuffer segment(int slot) {
+        return segments[slot / slotsPerSegment];
+    }
+
+    /**
+     * 槽位在所在段中的字节偏移
+     */
+    int offset(int slot) {
+        return (slot % slotsPerSegment) * slotBytes;
+    }
+
+    /**
+     * 把修改写回磁盘
+     */
+    void force() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    /**
+     * 每个段的 float 视图，槽位 i 的第一个 float 位于 floatViews()[i / slotsPerSegment] 的 offset(i) / 4 处
+     */
+    FloatBuffer[] floatViews() {
+        FloatBuffer[] views = new FloatBuffer[segments.length];
+        for (int i = 0; i < segments.length; i++) {
+            views[i] = segments[i].duplicate().order(ByteOrder.nativeOrder()).asFloatBuffer();
+        }
+        return views;
+    }
+
+    int slotsPerSegment() {
+        return slotsPerSegment;
+    }
+}
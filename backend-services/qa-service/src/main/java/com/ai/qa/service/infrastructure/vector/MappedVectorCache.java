@@ -0,0 +1,207 @@
+package com.ai.qa.service.infrastructure.vector;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 内存映射文件上的定长向量缓存，key 为 128 位哈希。
+ * <p>
+ * 组相联结构：每个 key 只能放在由哈希决定的一组 (4 个槽位) 中，组满时替换最久未访问的槽位，
+ * 因此查找和替换都是常数时间，文件大小固定，不需要额外的索引。进程重启后直接映射即可命中之前的条目。
+ * 每组由一把锁保护 (锁按组号分段)，一次读取只是一段内存拷贝，远小于一次向量化调用的开销。
+ * <p>
+ * 槽位布局：key 高 64 位、key 低 64 位、最近访问序号 (int)、向量校验和 (int)，然后是 dimension 个 float。
+ * key 全为 0 表示空槽位。映射页由操作系统各自写回，进程崩溃时一个槽位可能只写了一部分，
+ * 读取时校验和不符按未命中处理。
+ */
+public class MappedVectorCache implements Closeable {
+
+    private static final int WAYS = 4;
+    private static final int HEADER_BYTES = 24;
+    private static final int LOCK_STRIPES = 256;
+
+    private final int dimension;
+    private final int sets;
+    private final MappedSlots slots;
+    private final FloatBuffer[] vectorViews;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final AtomicInteger clock = new AtomicInteger();
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param directory 文件名包含维度和容量，参数变化后使用新文件
+     */
+    public MappedVectorCache(Path directory, int dimension, int capacity) throws IOException {
+        this.dimension = dimension;
+        this.sets = Math.max(1, capacity / WAYS);
+        Files.createDirectories(directory);
+        Path file = directory.resolve("vectors-" + dimension + "d-" + sets * WAYS + ".bin");
+        this.slots = new MappedSlots(file, HEADER_BYTES + dimension * Float.BYTES, sets * WAYS);
+        this.vectorViews = slots.floatViews();
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        long occupied = 0;
+        for (int slot = 0; slot < sets * WAYS; slot++) {
+            if (!isEmpty(slot)) {
+                occupied++;
+            }
+        }
+        size.set(occupied);
+    }
+
+    /**
+     * @return 命中时返回向量副本，否则返回 null
+     */
+    public float[] get(long hi, long lo) {
+        lo = nonZero(hi, lo);
+        int set = setOf(hi, lo);
+        synchronized (lockOf(set)) {
+            int slot = find(set, hi, lo);
+            if (slot < 0) {
+                return null;
+            }
+            float[] vector = new float[dimension];
+            readVector(slot, vector);
+            if (checksum(vector) != slots.segment(slot).getInt(slots.offset(slot) + 20)) {
+                return null;
+            }
+            touch(slot);
+            return vector;
+        }
+    }
+
+    public void put(long hi, long lo, float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected dimension " + dimension + " but got " + vector.length);
+        }
+        lo = nonZero(hi, lo);
+        int set = setOf(hi, lo);
+        synchronized (lockOf(set)) {
+            int slot = find(set, hi, lo);
+            if (slot < 0) {
+                slot = victim(set);
+                if (isEmpty(slot)) {
+                    size.incrementAndGet();
+                } else {
+                    evictions.incrementAndGet();
+                }
+            }
+            ByteBuffer segment = slots.segment(slot);
+            int offset = slots.offset(slot);
+            segment.putLong(offset, hi);
+            segment.putLong(offset + 8, lo);
+            segment.putInt(offset + 20, checksum(vector));
+            vectorViews[slot / slots.slotsPerSegment()].put(vectorOffset(slot), vector, 0, dimension);
+            touch(slot);
+        }
+    }
+
+    public long size() {
+        return size.get();
+    }
+
+    public long capacity() {
+        return (long) sets * WAYS;
+    }
+
+    public long evictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * 把修改写回磁盘
+     */
+    public void flush() {
+        slots.force();
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    private int find(int set, long hi, long lo) {
+        int first = set * WAYS;
+        for (int slot = first; slot < first + WAYS; slot++) {
+            ByteBuffer segment = slots.segment(slot);
+            int offset = slots.offset(slot);
+            if (segment.getLong(offset) == hi && segment.getLong(offset + 8) == lo) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 组内的空槽位，没有空槽位时取最久未访问的 (访问序号回绕时按差值比较)
+     */
+    private int victim(int set) {
+        int first = set * WAYS;
+        int now = clock.get();
+        int oldest = first;
+        long oldestAge = -1;
+        for (int slot = first; slot < first + WAYS; slot++) {
+            if (isEmpty(slot)) {
+                return slot;
+            }
+            long age = Integer.toUnsignedLong(now - slots.segment(slot).getInt(slots.offset(slot) + 16));
+            if (age > oldestAge) {
+                oldest = slot;
+                oldestAge = age;
+            }
+        }
+        return oldest;
+    }
+
+    private void touch(int slot) {
+        slots.segment(slot).putInt(slots.offset(slot) + 16, clock.incrementAndGet());
+    }
+
+    private boolean isEmpty(int slot) {
+        ByteBuffer segment = slots.segment(slot);
+        int offset = slots.offset(slot);
+        return segment.getLong(offset) == 0 && segment.getLong(offset + 8) == 0;
+    }
+
+    private void readVector(int slot, float[] into) {
+        vectorViews[slot / slots.slotsPerSegment()].get(vectorOffset(slot), into, 0, dimension);
+    }
+
+    /**
+     * 槽位中向量部分在 float 视图中的下标
+     */
+    private int vectorOffset(int slot) {
+        return (slots.offset(slot) + HEADER_BYTES) / Float.BYTES;
+    }
+
+    private int setOf(long hi, long lo) {
+        return (int) Long.remainderUnsigned(hi ^ Long.rotateLeft(lo, 17), sets);
+    }
+
+    private Object lockOf(int set) {
+        return locks[set & (LOCK_STRIPES - 1)];
+    }
+
+    private static int checksum(float[] vector) {
+        int h = 1;
+        for (float v : vector) {
+            h = 31 * h + Float.floatToRawIntBits(v);
+        }
+        return h;
+    }
+
+    /**
+     * 全 0 的 key 留给空槽位
+     */
+    private static long nonZero(long hi, long lo) {
+        return hi == 0 && lo == 0 ? 1 : lo;
+    }
+}
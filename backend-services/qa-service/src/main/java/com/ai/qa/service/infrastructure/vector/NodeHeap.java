@@ -0,0 +1,87 @@
+package com.ai.qa.service.infrastructure.vector;
+
+import java.util.Arrays;
+
+/**
+ * 以 float 距离为键、int 节点号为值的二叉小顶堆，两个并行的基本类型数组，搜索过程中不产生装箱对象。
+ * 需要大顶堆时把距离取反后放入。
+ */
+final class NodeHeap {
+
+    private float[] keys;
+    private int[] nodes;
+    private int size;
+
+    NodeHeap(int initialCapacity) {
+        keys = new float[Math.max(4, initialCapacity)];
+        nodes = new int[keys.length];
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    float topKey() {
+        return keys[0];
+    }
+
+    int topNode() {
+        return nodes[0];
+    }
+
+    void push(float key, int node) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            nodes = Arrays.copyOf(nodes, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] <= key) {
+                break;
+            }
+            keys[i] = keys[parent];
+            nodes[i] = nodes[parent];
+            i = parent;
+        }
+        keys[i] = key;
+        nodes[i] = node;
+    }
+
+    /**
+     * 移除堆顶，返回其节点号
+     */
+    int pop() {
+        int top = nodes[0];
+        int last = --size;
+        if (last > 0) {
+            float key = keys[last];
+            int node = nodes[last];
+            int i = 0;
+            int half = last >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < last && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (key <= keys[child]) {
+                    break;
+                }
+                keys[i] = keys[child];
+                nodes[i] = nodes[child];
+                i = child;
+            }
+            keys[i] = key;
+            nodes[i] = node;
+        }
+        return top;
+    }
+}
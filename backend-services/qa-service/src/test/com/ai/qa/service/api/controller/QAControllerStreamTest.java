@@ -0,0 +1,144 @@
+package com.ai.qa.service.api.controller;
+
+import com.ai.qa.service.api.dto.AskRequest;
+import com.ai.qa.service.application.service.HistorySearchService;
+import com.ai.qa.service.application.service.QAHistoryService;
+import com.ai.qa.service.domain.service.QAService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * /api/qa/ask/stream：QAService 给出的每个文本增量立即编码成一个 UI message stream 事件，
+ * 客户端断开时取消上游，Cache-Control 决定是否使用语义答案缓存
+ */
+public class QAControllerStreamTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final QAService qaService = mock(QAService.class);
+    private final QAController controller = new QAController(qaService, mock(QAHistoryService.class),
+            mock(HistorySearchService.class), objectMapper);
+
+    @Test
+    public void deltasAreForwardedAsTheyArrive() {
+        Sinks.Many<String> answer = Sinks.many().unicast().onBackpressureBuffer();
+        when(qaService.streamAnswer("42", "s-1", "hi", true)).thenReturn(answer.asFlux());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // 上游还没有结束时，已经到达的增量就要发给客户端
+        StepVerifier.create(controller.askStream("42", null, ask("s-1", "hi"), response).map(ServerSentEvent::data))
+                .expectNextMatches(data -> type(data).equals("start"))
+                .expectNextMatches(data -> type(data).equals("text-start"))
+                .then(() -> answer.tryEmitNext("Hello"))
+                .assertNext(data -> assertEquals("Hello", delta(data)))
+                .then(() -> answer.tryEmitNext(", world"))
+                .assertNext(data -> assertEquals(", world", delta(data)))
+                .then(answer::tryEmitComplete)
+                .expectNextMatches(data -> type(data).equals("text-end"))
+                .expectNextMatches(data -> type(data).equals("finish"))
+                .expectNext("[DONE]")
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(UIMessageStream.VERSION, response.getHeader(UIMessageStream.HEADER));
+        assertEquals("no", response.getHeader("X-Accel-Buffering"));
+    }
+
+    @Test
+    public void clientDisconnectCancelsTheAnswer() throws InterruptedException {
+        CountDownLatch cancelled = new CountDownLatch(1);
+        when(qaService.streamAnswer("42", "s-2", "hi", true)).thenReturn(Flux.interval(Duration.ofMillis(10))
+                .map(i -> "token-" + i)
+                .doOnCancel(cancelled::countDown));
+
+        controller.askStream("42", null, ask("s-2", "hi"), new MockHttpServletResponse())
+                .map(ServerSentEvent::data)
+                .filter(data -> type(data).equals("text-delta"))
+                .take(3)
+                .blockLast(Duration.ofSeconds(5));
+
+        assertTrue(cancelled.await(5, TimeUnit.SECONDS), "answer was not cancelled");
+    }
+
+    @Test
+    public void failureIsReportedAsAnErrorEvent() {
+        when(qaService.streamAnswer("42", "s-3", "hi", true))
+                .thenReturn(Flux.concat(Flux.just("partial"), Flux.error(new IllegalStateException("model down"))));
+
+        List<String> types = controller.askStream("42", null, ask("s-3", "hi"), new MockHttpServletResponse())
+                .map(ServerSentEvent::data)
+                .filter(data -> data.startsWith("{"))
+                .map(QAControllerStreamTest::type)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+        assertEquals(List.of("start", "text-start", "text-delta", "error"), types);
+    }
+
+    @Test
+    public void cacheControlBypassesTheAnswerCache() {
+        when(qaService.streamAnswer(anyString(), anyString(), anyString(), anyBoolean())).thenReturn(Flux.empty());
+
+        controller.askStream("42", "No-Cache", ask("s-4", "hi"), new MockHttpServletResponse()).blockLast();
+        verify(qaService).streamAnswer("42", "s-4", "hi", false);
+        controller.askStream("42", "no-store, max-age=0", ask("s-5", "hi"), new MockHttpServletResponse()).blockLast();
+        verify(qaService).streamAnswer("42", "s-5", "hi", false);
+        controller.askStream("42", "max-age=0", ask("s-6", "hi"), new MockHttpServletResponse()).blockLast();
+        verify(qaService).streamAnswer("42", "s-6", "hi", true);
+    }
+
+    @Test
+    public void blankQuestionIsRejected() {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> controller.askStream("42", null, ask("s-7", "  "), new MockHttpServletResponse()));
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+        verifyNoInteractions(qaService);
+    }
+
+    private static AskRequest ask(String sessionId, String question) {
+        AskRequest request = new AskRequest();
+        request.setSessionId(sessionId);
+        request.setQuestion(question);
+        return request;
+    }
+
+    private static String type(String data) {
+        return json(data).path("type").asText();
+    }
+
+    private static String delta(String data) {
+        JsonNode node = json(data);
+        assertEquals("text-delta", node.path("type").asText());
+        return node.path("delta").asText();
+    }
+
+    private static JsonNode json(String data) {
+        try {
+            return objectMapper.readTree(data);
+        } catch (Exception e) {
+            throw new AssertionError("not json: " + data, e);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.ai.qa.service.application.service;
+
+import com.ai.qa.service.api.dto.HistorySearchHitDTO;
+import com.ai.qa.service.domain.model.QAHistory;
+import com.ai.qa.service.domain.repo.QAHistoryRepo;
+import com.ai.qa.service.infrastructure.search.FullTextIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HistorySearchServiceTest {
+
+    private final QAHistoryRepo repo = mock(QAHistoryRepo.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private FullTextIndex index;
+    private HistorySearchService service;
+
+    @BeforeEach
+    public void open(@TempDir Path dir) throws IOException {
+        index = new FullTextIndex(dir, 100, 8, 1 << 20, 16);
+        service = new HistorySearchService(index, repo, registry, Duration.ofMillis(100));
+    }
+
+    @AfterEach
+    public void close() {
+        index.close();
+    }
+
+    @Test
+    public void returnsOwnHitsWithSnippets() {
+        saved("1", "42", "redis 缓存怎么淘汰", "可以配置 maxmemory-policy，常用 allkeys-lru");
+        saved("2", "42", "kafka 消费者组", "同一组内的消费者分摊分区");
+        saved("3", "7", "redis 集群", "至少三个主节点");
+
+        List<HistorySearchHitDTO> hits = service.search("42", "redis", 10).getItems();
+        assertEquals(List.of("1"), ids(hits));
+        HistorySearchHitDTO hit = hits.get(0);
+        assertEquals("s-1", hit.getSessionId());
+        assertEquals("redis 缓存怎么淘汰", hit.getQuestionPreview());
+        assertEquals("可以配置 maxmemory-policy，常用 allkeys-lru", hit.getSnippet());
+        assertTrue(hit.getScore() > 0);
+        assertTrue(service.search("8", "redis", 10).getItems().isEmpty());
+        assertEquals(2, registry.get("qa.search.latency").timer().count());
+    }
+
+    @Test
+    public void skipsDeletedAndForeignHistories() {
+        saved("1", "42", "redis 持久化", "RDB 和 AOF");
+        saved("2", "42", "redis 哨兵", "自动故障转移");
+        // 索引里的文档已经被删除，或者 id 对应的问答不属于该用户
+        when(repo.findHistoryById("1")).thenReturn(Optional.empty());
+        when(repo.findHistoryById("2")).thenReturn(Optional.of(
+                QAHistory.restore("2", "7", "s-9", "redis 哨兵", "自动故障转移", LocalDateTime.now())));
+
+        assertTrue(service.search("42", "redis", 10).getItems().isEmpty());
+    }
+
+    @Test
+    public void limitIsClamped() {
+        for (int i = 1; i <= HistorySearchService.MAX_LIMIT + 10; i++) {
+            saved(String.valueOf(i), "42", "redis 问题 " + i, "回答 " + i);
+        }
+        assertEquals(HistorySearchService.MAX_LIMIT, service.search("42", "redis", 1000).getItems().size());
+        assertEquals(1, service.search("42", "redis", 0).getItems().size());
+    }
+
+    @Test
+    public void snippetStartsNearTheFirstMatch() {
+        String text = "0123456789".repeat(5) + "redis" + "abcdefghij".repeat(10);
+        String snippet = HistorySearchService.snippet(text, List.of("kafka", "redis"));
+        assertTrue(snippet.startsWith("…01234567890123456789redis"), snippet);
+        assertTrue(snippet.endsWith("…"), snippet);
+        assertEquals(80 + 2, snippet.length());
+
+        assertEquals("short answer", HistorySearchService.snippet("short answer", List.of("none")));
+        assertNull(HistorySearchService.snippet(null, List.of("redis")));
+        // 不在代理对中间截断
+        String emoji = "a" + "😀".repeat(60);
+        String cut = HistorySearchService.snippet(emoji, List.of());
+        assertTrue(cut.endsWith("😀…"), cut);
+    }
+
+    private void saved(String id, String userId, String question, String answer) {
+        QAHistory history = QAHistory.restore(id, userId, "s-1", question, answer, LocalDateTime.now());
+        index.add(Long.parseLong(id), Long.parseLong(userId), question + "\n" + answer);
+        when(repo.findHistoryById(id)).thenReturn(Optional.of(history));
+    }
+
+    private static List<String> ids(List<HistorySearchHitDTO> hits) {
+        return hits.stream().map(HistorySearchHitDTO::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,70 @@
+package com.ai.qa.service.application.service;
+
+import com.ai.qa.service.api.dto.HistoryPageDTO;
+import com.ai.qa.service.api.dto.QAHistorySummaryDTO;
+import com.ai.qa.service.domain.model.HistoryCursor;
+import com.ai.qa.service.domain.model.QAHistorySummary;
+import com.ai.qa.service.domain.repo.QAHistoryRepo;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class QAHistoryServiceTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    private final QAHistoryRepo repo = mock(QAHistoryRepo.class);
+    private final QAHistoryService service = new QAHistoryService(repo);
+
+    @Test
+    public void fullPageCarriesTheCursorOfItsLastItem() {
+        HistoryCursor before = new HistoryCursor(T0.plusDays(1), 100);
+        // 多取的一条只用来判断是否还有下一页
+        when(repo.findUserSummaries("42", before, 3)).thenReturn(summaries(3));
+
+        HistoryPageDTO page = service.recentPage("42", before, 2);
+        assertEquals(List.of("1", "2"), ids(page));
+        assertEquals(new HistoryCursor(T0.plusSeconds(2), 2).encode(), page.getNextCursor());
+    }
+
+    @Test
+    public void lastPageHasNoCursor() {
+        when(repo.findSessionSummaries("42", "s-1", null, 21)).thenReturn(summaries(2));
+
+        HistoryPageDTO page = service.sessionPage("42", "s-1", null, 20);
+        assertEquals(List.of("1", "2"), ids(page));
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void pageSizeIsClamped() {
+        when(repo.findUserSummaries("42", null, QAHistoryService.MAX_PAGE_SIZE + 1)).thenReturn(List.of());
+        when(repo.findUserSummaries("42", null, 2)).thenReturn(List.of());
+
+        assertEquals(0, service.recentPage("42", null, 10_000).getItems().size());
+        assertEquals(0, service.recentPage("42", null, -1).getItems().size());
+        verify(repo).findUserSummaries("42", null, QAHistoryService.MAX_PAGE_SIZE + 1);
+        verify(repo).findUserSummaries("42", null, 2);
+    }
+
+    private static List<QAHistorySummary> summaries(int count) {
+        List<QAHistorySummary> summaries = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            summaries.add(new QAHistorySummary(String.valueOf(i), "s-1", "question " + i, T0.plusSeconds(i)));
+        }
+        return summaries;
+    }
+
+    private static List<String> ids(HistoryPageDTO page) {
+        return page.getItems().stream().map(QAHistorySummaryDTO::getId).collect(Collectors.toList());
+    }
+}
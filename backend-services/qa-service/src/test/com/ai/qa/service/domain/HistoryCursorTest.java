@@ -0,0 +1,45 @@
+package com.ai.qa.service.domain;
+
+import com.ai.qa.service.domain.model.HistoryCursor;
+import com.ai.qa.service.domain.model.QAHistory;
+import com.ai.qa.service.domain.model.QAHistorySummary;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HistoryCursorTest {
+
+    @Test
+    public void encodeDecodeRoundTrip() {
+        HistoryCursor cursor = new HistoryCursor(LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_000_000), 42L);
+        HistoryCursor decoded = HistoryCursor.decode(cursor.encode());
+        assertEquals(cursor.getTimestamp(), decoded.getTimestamp());
+        assertEquals(42L, decoded.getId());
+        assertNull(HistoryCursor.decode(""));
+        assertNull(HistoryCursor.decode(null));
+    }
+
+    @Test
+    public void invalidCursorIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> HistoryCursor.decode("not a cursor!"));
+        assertThrows(IllegalArgumentException.class, () -> HistoryCursor.decode("bm8tc2VwYXJhdG9y"));
+    }
+
+    @Test
+    public void orderedByTimeThenId() {
+        LocalDateTime now = LocalDateTime.now();
+        assertTrue(new HistoryCursor(now, 9).compareTo(new HistoryCursor(now.plusNanos(1000), 1)) < 0);
+        assertTrue(new HistoryCursor(now, 2).compareTo(new HistoryCursor(now, 1)) > 0);
+    }
+
+    @Test
+    public void summaryPreviewIsTruncated() {
+        QAHistory history = QAHistory.restore("1", "1", "s", "x".repeat(500), "a", LocalDateTime.now());
+        assertEquals(QAHistorySummary.PREVIEW_LENGTH, QAHistorySummary.of(history).getQuestionPreview().length());
+    }
+}
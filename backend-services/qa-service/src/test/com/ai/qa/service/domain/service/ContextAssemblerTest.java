@@ -0,0 +1,95 @@
+package com.ai.qa.service.domain.service;
+
+import com.ai.qa.service.domain.model.ConversationState;
+import com.ai.qa.service.domain.model.HistoryCursor;
+import com.ai.qa.service.domain.model.QAHistory;
+import com.ai.qa.service.domain.model.QARAG;
+import com.ai.qa.service.infrastructure.llm.ChatMessage;
+import com.ai.qa.service.infrastructure.llm.TokenCounter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ContextAssemblerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    public void everythingFitsInOrder() {
+        ConversationState state = new ConversationState("earlier summary",
+                new HistoryCursor(LocalDateTime.now().minusHours(1), 1), turns(2, "short answer"));
+        QARAG rag = new QARAG(List.of(new QARAG.Passage("9", "related q", "related a", 0.9f)));
+
+        List<ChatMessage> messages = new ContextAssembler(registry, 6000).assemble("system", rag, state, "next?");
+
+        assertEquals(List.of("system", "system", "system", "user", "assistant", "user", "assistant", "user"),
+                roles(messages));
+        assertTrue(messages.get(1).getContent().contains("related q"));
+        assertTrue(messages.get(2).getContent().contains("earlier summary"));
+        assertEquals(List.of("q0", "q1", "next?"), questions(messages));
+        assertEquals(0, registry.get("qa.context.dropped").tag("part", "turn").counter().count());
+    }
+
+    @Test
+    public void budgetDropsOldestTurnsFirst() {
+        String longAnswer = "这是一个比较长的回答。".repeat(30);
+        int turnCost = 2 * TokenCounter.MESSAGE_OVERHEAD + TokenCounter.count("q0") + TokenCounter.count(longAnswer);
+        ConversationState state = new ConversationState("summary", new HistoryCursor(LocalDateTime.now(), 1),
+                turns(6, longAnswer));
+        // 固定部分和摘要之外只够放 2 轮
+        int budget = 3 * TokenCounter.MESSAGE_OVERHEAD + 10 + 2 * turnCost + turnCost / 2;
+
+        List<ChatMessage> messages = new ContextAssembler(registry, budget).assemble("system", QARAG.empty(), state,
+                "next?");
+
+        assertEquals(List.of("q4", "q5", "next?"), questions(messages));
+        assertTrue(messages.get(1).getContent().contains("summary"));
+        assertTrue(tokens(messages) <= budget, tokens(messages) + " > " + budget);
+        assertEquals(4, registry.get("qa.context.dropped").tag("part", "turn").counter().count());
+    }
+
+    @Test
+    public void latestTurnComesBeforeSummaryAndRetrieval() {
+        String answer = "answer ".repeat(200);
+        ConversationState state = new ConversationState("summary ".repeat(100),
+                new HistoryCursor(LocalDateTime.now(), 1), turns(1, answer));
+        QARAG rag = new QARAG(List.of(new QARAG.Passage("9", "related", "x ".repeat(300), 0.9f)));
+        int budget = 3 * TokenCounter.MESSAGE_OVERHEAD + 10
+                + 2 * TokenCounter.MESSAGE_OVERHEAD + TokenCounter.count("q0") + TokenCounter.count(answer);
+
+        List<ChatMessage> messages = new ContextAssembler(registry, budget).assemble("system", rag, state, "next?");
+
+        assertEquals(List.of("system", "user", "assistant", "user"), roles(messages));
+        assertEquals(1, registry.get("qa.context.dropped").tag("part", "summary").counter().count());
+        assertEquals(1, registry.get("qa.context.dropped").tag("part", "rag").counter().count());
+    }
+
+    private static List<QAHistory> turns(int count, String answer) {
+        List<QAHistory> turns = new ArrayList<>();
+        LocalDateTime start = LocalDateTime.now().minusMinutes(count);
+        for (int i = 0; i < count; i++) {
+            turns.add(QAHistory.restore(String.valueOf(i + 10), "1", "s-1", "q" + i, answer, start.plusMinutes(i)));
+        }
+        return turns;
+    }
+
+    private static List<String> roles(List<ChatMessage> messages) {
+        return messages.stream().map(ChatMessage::getRole).collect(Collectors.toList());
+    }
+
+    private static List<String> questions(List<ChatMessage> messages) {
+        return messages.stream().filter(message -> "user".equals(message.getRole()))
+                .map(ChatMessage::getContent).collect(Collectors.toList());
+    }
+
+    private static int tokens(List<ChatMessage> messages) {
+        return messages.stream().mapToInt(TokenCounter::count).sum();
+    }
+}
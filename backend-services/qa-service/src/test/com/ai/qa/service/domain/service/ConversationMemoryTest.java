@@ -0,0 +1,242 @@
+package com.ai.qa.service.domain.service;
+
+import com.ai.qa.service.domain.model.ConversationState;
+import com.ai.qa.service.domain.model.ConversationSummary;
+import com.ai.qa.service.domain.model.HistoryCursor;
+import com.ai.qa.service.domain.model.QAHistory;
+import com.ai.qa.service.domain.model.QAHistorySummary;
+import com.ai.qa.service.domain.model.QARAG;
+import com.ai.qa.service.domain.repo.ConversationSummaryRepo;
+import com.ai.qa.service.domain.repo.QAHistoryRepo;
+import com.ai.qa.service.infrastructure.llm.ChatMessage;
+import com.ai.qa.service.infrastructure.llm.ConversationSummarizer;
+import com.ai.qa.service.infrastructure.llm.TokenCounter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConversationMemoryTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final ListRepo history = new ListRepo();
+    private final Map<String, ConversationSummary> summaries = new ConcurrentHashMap<>();
+    private final List<List<String>> summarized = new CopyOnWriteArrayList<>();
+    private final LocalDateTime start = LocalDateTime.now().minusDays(1);
+
+    @AfterEach
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void olderTurnsAreFoldedIntoSummary() {
+        ConversationMemory memory = memory(this::summarize);
+        memory.load("1", "s-1");
+        for (int i = 0; i < 12; i++) {
+            memory.append(history.add(i));
+            awaitIdle();
+        }
+
+        ConversationState state = memory.load("1", "s-1");
+        // 每攒够 2 + 3 轮合并 3 轮
+        assertEquals(List.of(List.of("q0", "q1", "q2"), List.of("q3", "q4", "q5"), List.of("q6", "q7", "q8")),
+                summarized);
+        assertEquals("summary of q8", state.getSummary());
+        assertEquals(List.of("q9", "q10", "q11"), questions(state.getRecentTurns()));
+        assertEquals(HistoryCursor.of(history.turns.get(8)).compareTo(summaries.get("s-1").getThrough()), 0);
+    }
+
+    @Test
+    public void reloadReadsOnlySummaryAndLatestTurns() {
+        for (int i = 0; i < 1000; i++) {
+            history.add(i);
+        }
+        summaries.put("s-1", new ConversationSummary("s-1", "1", "summary of q989",
+                HistoryCursor.of(history.turns.get(989))));
+
+        ConversationState state = memory(this::summarize).load("1", "s-1");
+
+        assertEquals("summary of q989", state.getSummary());
+        assertEquals(List.of("q995", "q996", "q997", "q998", "q999"), questions(state.getRecentTurns()));
+        assertEquals(5, history.rowsRead.get(), "reads must not depend on session length");
+    }
+
+    @Test
+    public void failingSummarizerKeepsStateBounded() {
+        ConversationMemory memory = memory((previous, turns, maxTokens) -> {
+            throw new IllegalStateException("model unavailable");
+        });
+        memory.load("1", "s-1");
+        for (int i = 0; i < 30; i++) {
+            memory.append(history.add(i));
+            awaitIdle();
+        }
+        ConversationState state = memory.load("1", "s-1");
+        assertFalse(state.hasSummary());
+        assertEquals(2 + 2 * 3, state.getRecentTurns().size());
+        assertEquals("q29", state.getRecentTurns().get(state.getRecentTurns().size() - 1).getQuestion());
+        assertTrue(registry.get("qa.context.fold").tag("outcome", "error").counter().count() > 0);
+        assertTrue(registry.get("qa.context.turns.dropped").counter().count() > 0);
+    }
+
+    @Test
+    public void promptSizeDoesNotGrowWithSession() {
+        ConversationMemory memory = memory(this::summarize);
+        ContextAssembler assembler = new ContextAssembler(registry, 2000);
+        memory.load("1", "s-1");
+        int largest = 0;
+        for (int i = 0; i < 200; i++) {
+            List<ChatMessage> prompt = assembler.assemble("system", QARAG.empty(), memory.load("1", "s-1"), "question");
+            largest = Math.max(largest, prompt.stream().mapToInt(TokenCounter::count).sum());
+            memory.append(history.add(i));
+            awaitIdle();
+        }
+        assertTrue(largest <= 2000, "prompt grew to " + largest + " tokens");
+        assertTrue(memory.load("1", "s-1").getRecentTurns().size() <= 2 + 3);
+    }
+
+    @Test
+    public void sessionsAreSeparatedByUser() {
+        ConversationMemory memory = memory(this::summarize);
+        for (int i = 0; i < 3; i++) {
+            history.add(i);
+        }
+        summaries.put("s-1", new ConversationSummary("s-1", "1", "summary of q0",
+                HistoryCursor.of(history.turns.get(0))));
+        assertEquals(List.of("q1", "q2"), questions(memory.load("1", "s-1").getRecentTurns()));
+
+        // 另一个用户使用同一个会话 id：看不到用户 1 的问答和摘要
+        ConversationState other = memory.load("2", "s-1");
+        assertFalse(other.hasSummary());
+        assertTrue(other.getRecentTurns().isEmpty());
+
+        // 其回答只进入自己的状态；攒够轮数也不覆盖用户 1 的摘要
+        for (int i = 3; i < 12; i++) {
+            memory.append(history.add(i, "2"));
+            awaitIdle();
+        }
+        assertTrue(summarized.isEmpty(), summarized.toString());
+        assertEquals("1", summaries.get("s-1").getUserId());
+        assertEquals(List.of("q1", "q2"), questions(memory.load("1", "s-1").getRecentTurns()));
+        assertEquals("q11", memory.load("2", "s-1").getRecentTurns().get(2 + 2 * 3 - 1).getQuestion());
+    }
+
+    private ConversationMemory memory(ConversationSummarizer summarizer) {
+        ConversationSummaryRepo summaryRepo = new ConversationSummaryRepo() {
+            @Override
+            public Optional<ConversationSummary> findBySession(String sessionId) {
+                return Optional.ofNullable(summaries.get(sessionId));
+            }
+
+            @Override
+            public void save(ConversationSummary summary) {
+                summaries.put(summary.getSessionId(), summary);
+            }
+        };
+        return new ConversationMemory(history, summaryRepo, summarizer, executor, registry, 2, 3, 100, 100,
+                Duration.ofMinutes(1));
+    }
+
+    private String summarize(String previous, List<QAHistory> turns, int maxTokens) {
+        summarized.add(questions(turns));
+        return "summary of " + turns.get(turns.size() - 1).getQuestion();
+    }
+
+    /**
+     * 等待已提交的合并完成 (单线程执行器)
+     */
+    private void awaitIdle() {
+        try {
+            executor.submit(() -> true).get(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<String> questions(List<QAHistory> turns) {
+        return turns.stream().map(QAHistory::getQuestion).collect(Collectors.toList());
+    }
+
+    /**
+     * 一个会话的问答，记录读取的行数
+     */
+    private class ListRepo implements QAHistoryRepo {
+
+        final List<QAHistory> turns = new CopyOnWriteArrayList<>();
+        final AtomicInteger rowsRead = new AtomicInteger();
+
+        QAHistory add(int i) {
+            return add(i, "1");
+        }
+
+        QAHistory add(int i, String userId) {
+            QAHistory turn = QAHistory.restore(String.valueOf(i + 1), userId, "s-1", "q" + i, "a" + i,
+                    start.plusSeconds(i));
+            turns.add(turn);
+            return turn;
+        }
+
+        @Override
+        public void save(QAHistory history) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Optional<QAHistory> findHistoryById(String id) {
+            return Optional.empty();
+        }
+
+        @Override
+        public List<QAHistory> findHistoryBySession(String sessionId) {
+            rowsRead.addAndGet(turns.size());
+            return new ArrayList<>(turns);
+        }
+
+        @Override
+        public List<QAHistory> findRecentTurns(String userId, String sessionId, HistoryCursor after, int limit) {
+            List<QAHistory> matching = turns.stream()
+                    .filter(turn -> userId.equals(turn.getUserId()))
+                    .filter(turn -> after == null || HistoryCursor.of(turn).compareTo(after) > 0)
+                    .collect(Collectors.toList());
+            List<QAHistory> latest = new ArrayList<>(matching.subList(Math.max(0, matching.size() - limit),
+                    matching.size()));
+            rowsRead.addAndGet(latest.size());
+            return latest;
+        }
+
+        @Override
+        public List<QAHistorySummary> findSessionSummaries(String userId, String sessionId, HistoryCursor after,
+                                                           int limit) {
+            return List.of();
+        }
+
+        @Override
+        public List<QAHistorySummary> findUserSummaries(String userId, HistoryCursor before, int limit) {
+            return List.of();
+        }
+
+        @Override
+        public void exportSession(String userId, String sessionId, Consumer<QAHistory> consumer) {
+        }
+    }
+}
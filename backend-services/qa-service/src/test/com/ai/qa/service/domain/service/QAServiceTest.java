@@ -0,0 +1,154 @@
+package com.ai.qa.service.domain.service;
+
+import com.ai.qa.service.domain.model.ConversationState;
+import com.ai.qa.service.domain.model.QARAG;
+import com.ai.qa.service.domain.model.QAHistory;
+import com.ai.qa.service.domain.model.QuestionContext;
+import com.ai.qa.service.domain.repo.QAHistoryRepo;
+import com.ai.qa.service.infrastructure.llm.ChatCompletionClient;
+import com.ai.qa.service.infrastructure.llm.ChatMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 流式回答：增量不等完整回答、回答结束后异步保存并加入索引和缓存、中断的回答不保存、语义答案缓存命中时不调用模型
+ */
+public class QAServiceTest {
+
+    private final QuestionContextLoader contextLoader = mock(QuestionContextLoader.class);
+    private final ContextAssembler contextAssembler = mock(ContextAssembler.class);
+    private final ConversationMemory conversationMemory = mock(ConversationMemory.class);
+    private final ChatCompletionClient chatClient = mock(ChatCompletionClient.class);
+    private final QAHistoryRepo historyRepo = mock(QAHistoryRepo.class);
+    private final RetrievalService retrievalService = mock(RetrievalService.class);
+    private final SemanticAnswerCache answerCache = mock(SemanticAnswerCache.class);
+
+    private final QAService service = new QAService(contextLoader, contextAssembler, conversationMemory, chatClient,
+            historyRepo, retrievalService, answerCache, "system");
+
+    private final List<ChatMessage> prompt = List.of(ChatMessage.system("system"), ChatMessage.user("hi"));
+
+    @BeforeEach
+    public void context() {
+        QuestionContext context = new QuestionContext("userid:42", ConversationState.empty(), QARAG.empty(),
+                EnumSet.noneOf(QuestionContext.Branch.class));
+        when(contextLoader.load(anyString(), anyString(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(context));
+        when(contextAssembler.assemble(eq("system"), any(), any(), eq("hi"))).thenReturn(prompt);
+        when(answerCache.isEnabled()).thenReturn(true);
+        when(answerCache.lookup("42", "hi")).thenReturn(Optional.empty());
+    }
+
+    @Test
+    public void generatedAnswerIsStreamedThenSaved() {
+        Sinks.Many<String> deltas = Sinks.many().unicast().onBackpressureBuffer();
+        when(chatClient.stream(prompt)).thenReturn(deltas.asFlux());
+
+        StepVerifier.create(service.streamAnswer("42", "s-1", "hi", true))
+                .then(() -> deltas.tryEmitNext("Hello"))
+                .expectNext("Hello")
+                .then(() -> verify(historyRepo, never()).save(any()))
+                .then(() -> {
+                    deltas.tryEmitNext(", world!");
+                    deltas.tryEmitComplete();
+                })
+                .expectNext(", world!")
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        ArgumentCaptor<QAHistory> saved = ArgumentCaptor.forClass(QAHistory.class);
+        verify(historyRepo, timeout(5000)).save(saved.capture());
+        QAHistory history = saved.getValue();
+        assertEquals("42", history.getUserId());
+        assertEquals("s-1", history.getSessionId());
+        assertEquals("hi", history.getQuestion());
+        assertEquals("Hello, world!", history.getAnswer());
+        verify(conversationMemory, timeout(5000)).append(history);
+        verify(retrievalService, timeout(5000)).index(history);
+        verify(answerCache, timeout(5000)).put(history);
+        verify(answerCache).recordGeneration(any());
+    }
+
+    @Test
+    public void cancelledAnswerIsNotSaved() throws InterruptedException {
+        CountDownLatch cancelled = new CountDownLatch(1);
+        when(chatClient.stream(prompt)).thenReturn(Flux.interval(Duration.ofMillis(10))
+                .map(i -> "token-" + i)
+                .doOnCancel(cancelled::countDown));
+
+        service.streamAnswer("42", "s-2", "hi", true).take(3).blockLast(Duration.ofSeconds(5));
+
+        assertTrue(cancelled.await(5, TimeUnit.SECONDS), "generation was not cancelled");
+        verify(historyRepo, after(200).never()).save(any());
+    }
+
+    @Test
+    public void cachedAnswerSkipsTheModel() {
+        QAHistory hit = QAHistory.restore("7", "42", "s-0", "hi", "cached answer", null);
+        when(answerCache.lookup("42", "hi")).thenReturn(Optional.of(hit));
+
+        StepVerifier.create(service.streamAnswer("42", "s-3", "hi", true))
+                .expectNext("cached answer")
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        verify(chatClient, never()).stream(anyList());
+        ArgumentCaptor<QAHistory> saved = ArgumentCaptor.forClass(QAHistory.class);
+        verify(historyRepo, timeout(5000)).save(saved.capture());
+        assertEquals("s-3", saved.getValue().getSessionId());
+        assertEquals("cached answer", saved.getValue().getAnswer());
+        // 缓存命中的回答已经在索引中
+        verify(retrievalService, after(200).never()).index(any());
+        verify(answerCache, never()).put(any());
+    }
+
+    @Test
+    public void bypassingTheCacheAlwaysGenerates() {
+        when(chatClient.stream(prompt)).thenReturn(Flux.just("fresh"));
+
+        StepVerifier.create(service.streamAnswer("42", "s-4", "hi", false))
+                .expectNext("fresh")
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        verify(answerCache).recordBypass();
+        verify(answerCache, never()).lookup(anyString(), anyString());
+        verify(answerCache, timeout(5000)).put(any());
+    }
+
+    @Test
+    public void cacheFailureFallsBackToGeneration() {
+        when(answerCache.lookup("42", "hi")).thenThrow(new IllegalStateException("index unavailable"));
+        when(chatClient.stream(prompt)).thenReturn(Flux.just("fresh"));
+
+        StepVerifier.create(service.streamAnswer("42", "s-5", "hi", true))
+                .expectNext("fresh")
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+    }
+}
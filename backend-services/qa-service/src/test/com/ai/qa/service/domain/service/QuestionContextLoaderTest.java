@@ -0,0 +1,266 @@
+package com.ai.qa.service.domain.service;
+
+import com.ai.qa.service.domain.model.ConversationSummary;
+import com.ai.qa.service.domain.model.HistoryCursor;
+import com.ai.qa.service.domain.model.QAHistory;
+import com.ai.qa.service.domain.model.QAHistorySummary;
+import com.ai.qa.service.domain.model.QuestionContext;
+import com.ai.qa.service.domain.model.QuestionContext.Branch;
+import com.ai.qa.service.domain.repo.ConversationSummaryRepo;
+import com.ai.qa.service.domain.repo.QAHistoryRepo;
+import com.ai.qa.service.infrastructure.feign.UserClient;
+import com.ai.qa.service.infrastructure.llm.EmbeddingModel;
+import com.ai.qa.service.infrastructure.vector.HnswIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QuestionContextLoaderTest {
+
+    private static final Duration BRANCH_LATENCY = Duration.ofMillis(300);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final CountDownLatch slowBranchInterrupted = new CountDownLatch(1);
+    private HnswIndex index;
+
+    @BeforeEach
+    public void open(@TempDir Path dir) throws IOException {
+        index = new HnswIndex(dir, 4, 8, 32, 100);
+        index.add(1, 42, new float[]{1, 0, 0, 0});
+    }
+
+    @AfterEach
+    public void close() {
+        executor.shutdownNow();
+        index.close();
+    }
+
+    @Test
+    public void branchesRunInParallel() {
+        QuestionContextLoader loader = loader(executor, BRANCH_LATENCY, Duration.ofSeconds(2));
+
+        long start = System.nanoTime();
+        QuestionContext context = loader.load("42", "s-1", "hi").join();
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // 串行需要 3 * 300ms
+        assertTrue(elapsed < 2 * BRANCH_LATENCY.toMillis(), "took " + elapsed + " ms");
+        assertEquals("user-42", context.getUser());
+        // 最近 2 轮加上待合并的 2 轮
+        assertEquals(List.of("q6", "q7", "q8", "q9"),
+                context.getHistory().stream().map(QAHistory::getQuestion).toList());
+        assertEquals(1, context.getRag().getPassages().size());
+        assertTrue(context.getDegraded().isEmpty());
+    }
+
+    @Test
+    public void slowBranchIsCancelledAndSkipped() throws InterruptedException {
+        // 会话历史分支的截止时间短于其耗时
+        QuestionContextLoader loader = new QuestionContextLoader(userClient(Duration.ZERO),
+                memory(new SlowRepo(Duration.ofSeconds(5))), retrieval(Duration.ZERO), executor, registry,
+                Duration.ofSeconds(2), Duration.ofMillis(100), Duration.ofSeconds(2));
+
+        long start = System.nanoTime();
+        QuestionContext context = loader.load("42", "s-1", "hi").join();
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsed < 1000, "took " + elapsed + " ms");
+        assertEquals(Set.of(Branch.HISTORY), context.getDegraded());
+        assertTrue(context.getHistory().isEmpty());
+        assertEquals("user-42", context.getUser());
+        assertFalse(context.getRag().isEmpty());
+        assertTrue(slowBranchInterrupted.await(2, TimeUnit.SECONDS), "timed out branch should be interrupted");
+        assertEquals(1, registry.get("qa.pipeline.branch").tag("branch", "history").tag("outcome", "timeout")
+                .timer().count());
+    }
+
+    @Test
+    public void failedOrRejectedBranchesDegrade() {
+        UserClient failing = new UserClient() {
+            @Override
+            public String getUserById(Long userId) {
+                throw new IllegalStateException("user-service unavailable");
+            }
+
+            @Override
+            public Map<Long, String> getUsersByIds(Collection<Long> ids) {
+                throw new IllegalStateException("user-service unavailable");
+            }
+        };
+        QuestionContextLoader loader = new QuestionContextLoader(failing, memory(new SlowRepo(Duration.ZERO)),
+                retrieval(Duration.ZERO), executor, registry,
+                Duration.ofSeconds(1), Duration.ofSeconds(1), Duration.ofSeconds(1));
+        QuestionContext context = loader.load("42", "s-1", "hi").join();
+        assertEquals(Set.of(Branch.USER), context.getDegraded());
+        assertNull(context.getUser());
+
+        // 只有一个线程且没有队列：第一个分支占住线程，其余分支被拒绝
+        ThreadPoolExecutor single = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new SynchronousQueue<>());
+        try {
+            QuestionContext partial = loader(single, BRANCH_LATENCY, Duration.ofSeconds(2)).load("42", "s-1", "hi").join();
+            assertEquals(Set.of(Branch.HISTORY, Branch.RETRIEVAL), partial.getDegraded());
+            assertEquals("user-42", partial.getUser());
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    @Test
+    public void missingInputsSkipBranches() {
+        QuestionContext context = loader(executor, Duration.ZERO, Duration.ofSeconds(1)).load("42", null, null).join();
+        assertEquals("user-42", context.getUser());
+        assertTrue(context.getHistory().isEmpty());
+        assertTrue(context.getRag().isEmpty());
+        assertTrue(context.getDegraded().isEmpty());
+    }
+
+    private QuestionContextLoader loader(ExecutorService executor, Duration latency, Duration timeout) {
+        return new QuestionContextLoader(userClient(latency), memory(new SlowRepo(latency)), retrieval(latency),
+                executor, registry, timeout, timeout, timeout);
+    }
+
+    /**
+     * 保留最近 2 轮原文，多出 2 轮时合并进摘要
+     */
+    private ConversationMemory memory(QAHistoryRepo repo) {
+        ConversationSummaryRepo summaries = new ConversationSummaryRepo() {
+            @Override
+            public Optional<ConversationSummary> findBySession(String sessionId) {
+                return Optional.empty();
+            }
+
+            @Override
+            public void save(ConversationSummary summary) {
+            }
+        };
+        return new ConversationMemory(repo, summaries, (previous, turns, maxTokens) -> "summary", executor, registry,
+                2, 2, 100, 100, Duration.ofMinutes(1));
+    }
+
+    private UserClient userClient(Duration latency) {
+        return new UserClient() {
+            @Override
+            public String getUserById(Long userId) {
+                sleep(latency);
+                return "user-" + userId;
+            }
+
+            @Override
+            public Map<Long, String> getUsersByIds(Collection<Long> ids) {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private RetrievalService retrieval(Duration latency) {
+        EmbeddingModel embedding = new EmbeddingModel() {
+            @Override
+            public String modelId() {
+                return "slow";
+            }
+
+            @Override
+            public int dimension() {
+                return 4;
+            }
+
+            @Override
+            public List<float[]> embed(List<String> texts) {
+                sleep(latency);
+                List<float[]> vectors = new ArrayList<>();
+                texts.forEach(text -> vectors.add(new float[]{1, 0, 0, 0}));
+                return vectors;
+            }
+        };
+        return new RetrievalService(embedding, index, new SlowRepo(Duration.ZERO), "user", 3, 16, 0.5f);
+    }
+
+    private void sleep(Duration latency) {
+        try {
+            Thread.sleep(latency.toMillis());
+        } catch (InterruptedException e) {
+            slowBranchInterrupted.countDown();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 每个会话有 10 轮问答
+     */
+    private class SlowRepo implements QAHistoryRepo {
+
+        private final Duration latency;
+
+        SlowRepo(Duration latency) {
+            this.latency = latency;
+        }
+
+        @Override
+        public void save(QAHistory history) {
+        }
+
+        @Override
+        public Optional<QAHistory> findHistoryById(String id) {
+            return Optional.of(QAHistory.restore(id, "42", "s-0", "q", "a", LocalDateTime.now()));
+        }
+
+        @Override
+        public List<QAHistory> findHistoryBySession(String sessionId) {
+            sleep(latency);
+            List<QAHistory> history = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                history.add(QAHistory.restore(String.valueOf(i), "42", sessionId, "q" + i, "a" + i,
+                        LocalDateTime.now().minusMinutes(10 - i)));
+            }
+            return history;
+        }
+
+        @Override
+        public List<QAHistory> findRecentTurns(String userId, String sessionId, HistoryCursor after, int limit) {
+            List<QAHistory> history = findHistoryBySession(sessionId);
+            return history.subList(Math.max(0, history.size() - limit), history.size());
+        }
+
+        @Override
+        public List<QAHistorySummary> findSessionSummaries(String userId, String sessionId, HistoryCursor after,
+                                                           int limit) {
+            return List.of();
+        }
+
+        @Override
+        public List<QAHistorySummary> findUserSummaries(String userId, HistoryCursor before, int limit) {
+            return List.of();
+        }
+
+        @Override
+        public void exportSession(String userId, String sessionId, Consumer<QAHistory> consumer) {
+        }
+    }
+}
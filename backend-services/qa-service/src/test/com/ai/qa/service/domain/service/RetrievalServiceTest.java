@@ -0,0 +1,143 @@
+package com.ai.qa.service.domain.service;
+
+import com.ai.qa.service.domain.model.QAHistory;
+import com.ai.qa.service.domain.model.QARAG;
+import com.ai.qa.service.domain.repo.QAHistoryRepo;
+import com.ai.qa.service.infrastructure.llm.EmbeddingModel;
+import com.ai.qa.service.infrastructure.vector.HnswIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+public class RetrievalServiceTest {
+
+    private final QAHistoryRepo repo = mock(QAHistoryRepo.class);
+    private HnswIndex index;
+
+    @BeforeEach
+    public void open(@TempDir Path dir) throws IOException {
+        index = new HnswIndex(dir, 4, 8, 32, 100);
+    }
+
+    @AfterEach
+    public void close() {
+        index.close();
+    }
+
+    @Test
+    public void emptyIndexSkipsEmbedding() {
+        EmbeddingModel embedding = mock(EmbeddingModel.class);
+        RetrievalService service = new RetrievalService(embedding, index, repo, "user", 3, 16, 0.75f);
+        assertTrue(service.retrieve("42", "如何重置密码").isEmpty());
+        verifyNoInteractions(embedding, repo);
+    }
+
+    @Test
+    public void userScopeOnlySearchesOwnHistory() {
+        RetrievalService service = service("user");
+        service.index(saved("1", "42", "如何重置密码"));
+        service.index(saved("2", "7", "忘记密码怎么办"));
+        service.index(saved("3", "42", "如何修改昵称"));
+
+        QARAG rag = service.retrieve("42", "密码忘了");
+        assertEquals(List.of("1"), ids(rag));
+        assertEquals("如何重置密码", rag.getPassages().get(0).getQuestion());
+        assertEquals(List.of("2"), ids(service.retrieve("7", "密码忘了")));
+        assertTrue(service.retrieve("8", "密码忘了").isEmpty());
+    }
+
+    @Test
+    public void globalScopeSearchesAllUsers() {
+        RetrievalService service = service("global");
+        service.index(saved("1", "42", "如何重置密码"));
+        service.index(saved("2", "7", "忘记密码怎么办"));
+
+        assertEquals(List.of("1", "2"), ids(service.retrieve("8", "密码忘了")).stream().sorted()
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void lowScoresAndMissingHistoriesAreDropped() {
+        RetrievalService service = service("user");
+        service.index(saved("1", "42", "如何重置密码"));
+        service.index(saved("2", "42", "如何修改昵称"));
+        assertEquals(List.of("1"), ids(service.retrieve("42", "密码")));
+        // 与两条问答的相似度分别是 0.6 和 0，都低于 min-score
+        assertTrue(service.retrieve("42", "密码和昵称").isEmpty());
+
+        // 索引中有、但已经被删除的问答
+        when(repo.findHistoryById("1")).thenReturn(Optional.empty());
+        assertTrue(service.retrieve("42", "密码").isEmpty());
+    }
+
+    @Test
+    public void unsavedHistoryCannotBeIndexed() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service("user").index(QAHistory.createNew("42", "s-1", "如何重置密码", "answer")));
+    }
+
+    private RetrievalService service(String scope) {
+        return new RetrievalService(new KeywordEmbedding(), index, repo, scope, 3, 16, 0.75f);
+    }
+
+    private QAHistory saved(String id, String userId, String question) {
+        QAHistory history = QAHistory.restore(id, userId, "s-1", question, "answer " + id, LocalDateTime.now());
+        when(repo.findHistoryById(id)).thenReturn(Optional.of(history));
+        return history;
+    }
+
+    private static List<String> ids(QARAG rag) {
+        return rag.getPassages().stream().map(QARAG.Passage::getHistoryId).collect(Collectors.toList());
+    }
+
+    /**
+     * 按关键词给出单位向量：提到密码的方向相同，提到昵称的与之正交，两者都提到时与密码的相似度为 0.6
+     */
+    private static class KeywordEmbedding implements EmbeddingModel {
+
+        @Override
+        public String modelId() {
+            return "keyword";
+        }
+
+        @Override
+        public int dimension() {
+            return 4;
+        }
+
+        @Override
+        public List<float[]> embed(List<String> texts) {
+            List<float[]> vectors = new ArrayList<>();
+            for (String text : texts) {
+                boolean password = text.contains("密码");
+                boolean nickname = text.contains("昵称");
+                if (password && nickname) {
+                    vectors.add(new float[]{0.6f, 0.8f, 0, 0});
+                } else if (password) {
+                    vectors.add(new float[]{1, 0, 0, 0});
+                } else if (nickname) {
+                    vectors.add(new float[]{0, 0, 1, 0});
+                } else {
+                    vectors.add(new float[]{0, 1, 0, 0});
+                }
+            }
+            return vectors;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.ai.qa.service.domain.service;
+
+import com.ai.qa.service.domain.model.HistoryCursor;
+import com.ai.qa.service.domain.model.QAHistory;
+import com.ai.qa.service.domain.model.QAHistorySummary;
+import com.ai.qa.service.domain.repo.QAHistoryRepo;
+import com.ai.qa.service.infrastructure.llm.EmbeddingModel;
+import com.ai.qa.service.infrastructure.vector.HnswIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SemanticAnswerCacheTest {
+
+    /**
+     * 测试用的向量：同义的问题方向几乎相同，不同的问题正交
+     */
+    private static final Map<String, float[]> VECTORS = Map.of(
+            "如何重置密码", new float[]{1, 0, 0, 0},
+            "怎么重置密码？", new float[]{0.99f, 0.1f, 0, 0},
+            "如何修改昵称", new float[]{0, 0, 1, 0});
+
+    private final Map<String, QAHistory> histories = new ConcurrentHashMap<>();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private HnswIndex index;
+
+    @BeforeEach
+    public void open(@TempDir Path dir) throws IOException {
+        index = new HnswIndex(dir, 4, 8, 32, 100);
+    }
+
+    @AfterEach
+    public void close() {
+        index.close();
+    }
+
+    @Test
+    public void paraphraseHitsAndUnrelatedQuestionMisses() {
+        SemanticAnswerCache cache = cache("user", Duration.ofDays(1));
+        cache.put(saved("1", "42", "如何重置密码", LocalDateTime.now()));
+
+        Optional<QAHistory> hit = cache.lookup("42", "怎么重置密码？");
+        assertTrue(hit.isPresent());
+        assertEquals("1", hit.get().getId());
+        assertFalse(cache.lookup("42", "如何修改昵称").isPresent());
+
+        assertEquals(1, registry.get("qa.answer.cache.requests").tag("result", "hit").counter().count());
+        assertEquals(1, registry.get("qa.answer.cache.requests").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    public void userScopeDoesNotShareAnswers() {
+        cache("user", Duration.ofDays(1)).put(saved("1", "42", "如何重置密码", LocalDateTime.now()));
+
+        assertFalse(cache("user", Duration.ofDays(1)).lookup("7", "如何重置密码").isPresent());
+        assertTrue(cache("global", Duration.ofDays(1)).lookup("7", "如何重置密码").isPresent());
+    }
+
+    @Test
+    public void expiredAnswerIsSkipped() {
+        SemanticAnswerCache cache = cache("user", Duration.ofHours(1));
+        cache.put(saved("1", "42", "如何重置密码", LocalDateTime.now().minusHours(2)));
+        assertFalse(cache.lookup("42", "如何重置密码").isPresent());
+
+        // 较新的同一个问题仍然可以命中
+        cache.put(saved("2", "42", "怎么重置密码？", LocalDateTime.now()));
+        assertEquals("2", cache.lookup("42", "如何重置密码").map(QAHistory::getId).orElse(null));
+    }
+
+    @Test
+    public void invalidatedAnswersAreSkipped() throws InterruptedException {
+        SemanticAnswerCache cache = cache("user", Duration.ofDays(1));
+        cache.put(saved("1", "42", "如何重置密码", LocalDateTime.now()));
+        cache.put(saved("2", "42", "怎么重置密码？", LocalDateTime.now()));
+
+        cache.invalidate("1");
+        assertEquals("2", cache.lookup("42", "如何重置密码").map(QAHistory::getId).orElse(null));
+
+        Thread.sleep(5);
+        cache.invalidateUser("42");
+        assertFalse(cache.lookup("42", "如何重置密码").isPresent());
+
+        Thread.sleep(5);
+        cache.put(saved("3", "42", "如何重置密码", LocalDateTime.now()));
+        assertEquals("3", cache.lookup("42", "如何重置密码").map(QAHistory::getId).orElse(null));
+    }
+
+    @Test
+    public void disabledCacheNeverHits() {
+        SemanticAnswerCache cache = new SemanticAnswerCache(new TableEmbedding(), index, new MapRepo(), registry,
+                false, "user", 0.95f, Duration.ofDays(1), 16);
+        cache.put(saved("1", "42", "如何重置密码", LocalDateTime.now()));
+
+        assertEquals(0, index.size());
+        assertFalse(cache.lookup("42", "如何重置密码").isPresent());
+    }
+
+    private SemanticAnswerCache cache(String scope, Duration ttl) {
+        return new SemanticAnswerCache(new TableEmbedding(), index, new MapRepo(), registry,
+                true, scope, 0.95f, ttl, 16);
+    }
+
+    private QAHistory saved(String id, String userId, String question, LocalDateTime timestamp) {
+        QAHistory history = QAHistory.restore(id, userId, "s-1", question, "answer " + id, timestamp);
+        histories.put(id, history);
+        return history;
+    }
+
+    private static class TableEmbedding implements EmbeddingModel {
+
+        @Override
+        public String modelId() {
+            return "table";
+        }
+
+        @Override
+        public int dimension() {
+            return 4;
+        }
+
+        @Override
+        public List<float[]> embed(List<String> texts) {
+            List<float[]> vectors = new ArrayList<>();
+            for (String text : texts) {
+                vectors.add(VECTORS.get(text).clone());
+            }
+            return vectors;
+        }
+    }
+
+    private class MapRepo implements QAHistoryRepo {
+
+        @Override
+        public void save(QAHistory history) {
+            histories.put(history.getId(), history);
+        }
+
+        @Override
+        public Optional<QAHistory> findHistoryById(String id) {
+            return Optional.ofNullable(histories.get(id));
+        }
+
+        @Override
+        public List<QAHistory> findHistoryBySession(String sessionId) {
+            return List.of();
+        }
+
+        @Override
+        public List<QAHistory> findRecentTurns(String userId, String sessionId, HistoryCursor after, int limit) {
+            return List.of();
+        }
+
+        @Override
+        public List<QAHistorySummary> findSessionSummaries(String userId, String sessionId, HistoryCursor after,
+                                                           int limit) {
+            return List.of();
+        }
+
+        @Override
+        public List<QAHistorySummary> findUserSummaries(String userId, HistoryCursor before, int limit) {
+            return List.of();
+        }
+
+        @Override
+        public void exportSession(String userId, String sessionId, Consumer<QAHistory> consumer) {
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.ai.qa.service.infrastructure.batch;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MicroBatcherTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    public void resultsAreFannedBackInOrder() throws Exception {
+        StubProvider provider = new StubProvider(Duration.ofMillis(20), 1);
+        try (MicroBatcher<String, String> batcher = new MicroBatcher<>("test", provider::call, 8,
+                Duration.ofMillis(50), 100, 1, registry)) {
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                futures.add(batcher.submit("q" + i));
+            }
+            for (int i = 0; i < 20; i++) {
+                assertEquals("embedded:q" + i, futures.get(i).get(5, TimeUnit.SECONDS));
+            }
+        }
+        // 20 个请求不超过 8 个一批
+        assertEquals(3, provider.calls.get());
+        assertEquals(3, registry.get("qa.batch.size").tag("name", "test").summary().count());
+        assertEquals(20, registry.get("qa.batch.size").tag("name", "test").summary().totalAmount());
+    }
+
+    @Test
+    public void failedBatchFailsEveryCaller() {
+        Function<List<String>, List<String>> failing = items -> {
+            throw new IllegalStateException("provider down");
+        };
+        try (MicroBatcher<String, String> batcher = new MicroBatcher<>("test", failing, 8, Duration.ofMillis(20),
+                100, 1, registry)) {
+            CompletableFuture<String> a = batcher.submit("a");
+            CompletableFuture<String> b = batcher.submit("b");
+
+            ExecutionException error = assertThrows(ExecutionException.class, () -> a.get(5, TimeUnit.SECONDS));
+            assertEquals("provider down", error.getCause().getMessage());
+            assertThrows(ExecutionException.class, () -> b.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, registry.get("qa.batch.failures").tag("name", "test").counter().count());
+    }
+
+    @Test
+    public void fullQueueRejectsInsteadOfBlocking() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Function<List<String>, List<String>> blocked = items -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return items;
+        };
+        try (MicroBatcher<String, String> batcher = new MicroBatcher<>("test", blocked, 1, Duration.ZERO, 2, 1,
+                registry)) {
+            List<CompletableFuture<String>> accepted = new ArrayList<>();
+            CompletableFuture<String> rejected = null;
+            // 一个在途，收集线程手里一个，队列里两个，之后的请求被拒绝
+            for (int i = 0; i < 10 && rejected == null; i++) {
+                CompletableFuture<String> future = batcher.submit("q" + i);
+                if (future.isCompletedExceptionally()) {
+                    rejected = future;
+                } else {
+                    accepted.add(future);
+                }
+                Thread.sleep(20);
+            }
+            assertTrue(rejected != null, "queue should have been full");
+            CompletableFuture<String> failed = rejected;
+            ExecutionException error = assertThrows(ExecutionException.class, failed::get);
+            assertInstanceOf(RejectedExecutionException.class, error.getCause());
+
+            release.countDown();
+            for (CompletableFuture<String> future : accepted) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+        }
+        assertTrue(registry.get("qa.batch.rejected").tag("name", "test").counter().count() >= 1);
+    }
+
+    /**
+     * 模型服务每次调用耗时固定、并发受限 (与批量大小无关)，对比逐个调用与批量调用的吞吐
+     */
+    @Test
+    public void batchingIncreasesThroughputAgainstStubProvider() throws Exception {
+        int callers = 32;
+        int requestsPerCaller = 10;
+
+        StubProvider direct = new StubProvider(Duration.ofMillis(10), 4);
+        long directNanos = run(callers, requestsPerCaller,
+                text -> CompletableFuture.completedFuture(direct.call(List.of(text)).get(0)));
+
+        StubProvider batched = new StubProvider(Duration.ofMillis(10), 4);
+        long batchedNanos;
+        try (MicroBatcher<String, String> batcher = new MicroBatcher<>("throughput", batched::call, 64,
+                Duration.ofMillis(2), 1024, 4, registry)) {
+            batchedNanos = run(callers, requestsPerCaller, batcher::submit);
+        }
+
+        int requests = callers * requestsPerCaller;
+        System.out.printf("direct: %d calls, %.0f req/s; batched: %d calls, %.0f req/s, mean batch %.1f%n",
+                direct.calls.get(), requests * 1e9 / directNanos,
+                batched.calls.get(), requests * 1e9 / batchedNanos,
+                registry.get("qa.batch.size").tag("name", "throughput").summary().mean());
+        assertEquals(requests, direct.calls.get());
+        assertTrue(batched.calls.get() <= requests / 4, "batched calls: " + batched.calls.get());
+        assertTrue(batchedNanos < directNanos, "batching should not be slower than direct calls");
+    }
+
+    private static long run(int callers, int requestsPerCaller, Function<String, CompletableFuture<String>> call)
+            throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int c = 0; c < callers; c++) {
+                int caller = c;
+                tasks.add(pool.submit(() -> {
+                    for (int r = 0; r < requestsPerCaller; r++) {
+                        String text = caller + "-" + r;
+                        assertEquals("embedded:" + text, call.apply(text).get(10, TimeUnit.SECONDS));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get(30, TimeUnit.SECONDS);
+            }
+            return System.nanoTime() - start;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * 本地的假模型服务：每次调用耗时 latency，同时最多 concurrency 个调用
+     */
+    private static class StubProvider {
+
+        final AtomicInteger calls = new AtomicInteger();
+        private final Duration latency;
+        private final Semaphore permits;
+
+        StubProvider(Duration latency, int concurrency) {
+            this.latency = latency;
+            this.permits = new Semaphore(concurrency);
+        }
+
+        List<String> call(List<String> items) {
+            permits.acquireUninterruptibly();
+            try {
+                calls.incrementAndGet();
+                Thread.sleep(latency.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                permits.release();
+            }
+            List<String> results = new ArrayList<>(items.size());
+            for (String item : items) {
+                results.add("embedded:" + item);
+            }
+            return results;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.ai.qa.service.infrastructure.config;
+
+import com.ai.qa.service.domain.repo.QAHistoryRepo;
+import com.ai.qa.service.infrastructure.persistence.archive.JpaHistoryArchive;
+import com.ai.qa.service.infrastructure.persistence.repositories.QAHistoryRepoImpl;
+import com.ai.qa.service.infrastructure.persistence.repositories.SearchIndexingQAHistoryRepo;
+import com.ai.qa.service.infrastructure.persistence.repositories.WriteBehindQAHistoryRepo;
+import com.ai.qa.service.infrastructure.search.FullTextIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.config.ScheduledTaskHolder;
+import org.springframework.scheduling.support.ScheduledMethodRunnable;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 问答历史仓储的装配：写后模式下回放溢出文件的定时任务必须注册，关闭写后模式时不创建写后仓储
+ */
+public class QAHistoryPersistenceConfigTest {
+
+    @TempDir
+    Path dir;
+
+    private ApplicationContextRunner runner() {
+        // 与应用一样用 Spring Boot 的类型转换解析 "50ms" 这样的时长
+        return new ApplicationContextRunner()
+                .withInitializer(context -> context.getBeanFactory()
+                        .setConversionService(ApplicationConversionService.getSharedInstance()))
+                .withUserConfiguration(Scheduling.class, QAHistoryPersistenceConfig.class)
+                .withBean(QAHistoryRepoImpl.class, () -> mock(QAHistoryRepoImpl.class))
+                .withBean(JpaHistoryArchive.class, () -> mock(JpaHistoryArchive.class))
+                .withBean(FullTextIndex.class, () -> mock(FullTextIndex.class))
+                .withBean(JdbcTemplate.class, () -> mock(JdbcTemplate.class))
+                .withBean(TransactionTemplate.class, () -> mock(TransactionTemplate.class))
+                .withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+                .withPropertyValues("qa.history.write-behind.node-id=1",
+                        "qa.history.write-behind.spill-file=" + dir.resolve("qa-history.spill"));
+    }
+
+    @Test
+    public void spillReplayIsScheduled() {
+        runner().run(context -> {
+            assertInstanceOf(SearchIndexingQAHistoryRepo.class, context.getBean(QAHistoryRepo.class));
+            WriteBehindQAHistoryRepo writeBehind = context.getBean(WriteBehindQAHistoryRepo.class);
+            assertTrue(context.getBean(ScheduledTaskHolder.class).getScheduledTasks().stream()
+                    .map(task -> task.getTask().getRunnable())
+                    .filter(ScheduledMethodRunnable.class::isInstance)
+                    .map(ScheduledMethodRunnable.class::cast)
+                    .anyMatch(runnable -> runnable.getTarget() == writeBehind
+                            && runnable.getMethod().getName().equals("replaySpill")),
+                    "spill replay is not scheduled");
+        });
+    }
+
+    @Test
+    public void writeBehindCanBeDisabled() {
+        runner().withPropertyValues("qa.history.write-behind.enabled=false").run(context -> {
+            assertInstanceOf(SearchIndexingQAHistoryRepo.class, context.getBean(QAHistoryRepo.class));
+            assertFalse(context.containsBean("writeBehindQAHistoryRepo"));
+        });
+    }
+
+    @Configuration
+    @EnableScheduling
+    static class Scheduling {
+    }
+}
@@ -0,0 +1,169 @@
+package com.ai.qa.service.infrastructure.feign;
+
+import com.ai.qa.service.infrastructure.hedge.Hedger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HedgedUserClientTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    /**
+     * 两个实例，其中一个每 10 次请求有一次很慢；不对冲时 p99 就是慢请求的耗时
+     */
+    @Test
+    public void hedgingCutsTailLatencyOfSlowInstance() {
+        StubInstance healthy = new StubInstance(Duration.ofMillis(2), Duration.ofMillis(2));
+        StubInstance flaky = new StubInstance(Duration.ofMillis(2), Duration.ofMillis(300));
+        UserClient fallback = failingFallback();
+
+        long[] direct = measure(new RoundRobin(List.of(flaky, healthy)), 200);
+
+        long[] hedged;
+        try (Hedger hedger = new Hedger("user", 8, 0.9, Duration.ofMillis(5), Duration.ofMillis(50), 0.2, 10,
+                Duration.ofSeconds(2), registry)) {
+            hedged = measure(new HedgedUserClient(() -> List.of(flaky, healthy), fallback, hedger), 200);
+        }
+        long directP99 = percentile(direct, 0.99);
+        long hedgedP99 = percentile(hedged, 0.99);
+        System.out.println("p99 direct: " + directP99 + "ms, hedged: " + hedgedP99 + "ms, hedges: "
+                + registry.get("qa.hedge.issued").tag("name", "user").counter().count());
+        assertTrue(directP99 >= 250, "direct p99 " + directP99);
+        assertTrue(hedgedP99 < 150, "hedged p99 " + hedgedP99);
+        assertTrue(registry.get("qa.hedge.won").tag("name", "user").counter().count() > 0);
+    }
+
+    @Test
+    public void hedgeGoesToAnotherInstance() {
+        StubInstance slow = new StubInstance(Duration.ofMillis(500), Duration.ofMillis(500));
+        StubInstance fast = new StubInstance(Duration.ZERO, Duration.ZERO);
+        try (Hedger hedger = new Hedger("user", 8, 0.95, Duration.ofMillis(1), Duration.ofMillis(20), 0.05, 10,
+                Duration.ofSeconds(2), registry)) {
+            HedgedUserClient client = new HedgedUserClient(() -> List.of(slow, fast), failingFallback(), hedger);
+            // 第一次轮询到 slow，对冲发往 fast
+            assertEquals(Map.of(1L, "user-1", 2L, "user-2"), client.getUsersByIds(List.of(1L, 2L)));
+        }
+        assertEquals(1, slow.calls.get());
+        assertEquals(1, fast.calls.get());
+    }
+
+    @Test
+    public void singleInstanceIsNotHedged() {
+        StubInstance only = new StubInstance(Duration.ofMillis(50), Duration.ofMillis(50));
+        try (Hedger hedger = new Hedger("user", 8, 0.95, Duration.ofMillis(1), Duration.ofMillis(5), 0.05, 10,
+                Duration.ofSeconds(2), registry)) {
+            HedgedUserClient client = new HedgedUserClient(() -> List.of(only), failingFallback(), hedger);
+            assertEquals("user-7", client.getUserById(7L));
+        }
+        assertEquals(1, only.calls.get());
+        assertEquals(0, registry.get("qa.hedge.issued").tag("name", "user").counter().count());
+    }
+
+    @Test
+    public void noInstancesUsesFallback() {
+        StubInstance loadBalanced = new StubInstance(Duration.ZERO, Duration.ZERO);
+        try (Hedger hedger = new Hedger("user", 8, 0.95, Duration.ofMillis(1), Duration.ofMillis(5), 0.05, 10,
+                Duration.ofSeconds(2), registry)) {
+            HedgedUserClient client = new HedgedUserClient(List::of, loadBalanced, hedger);
+            assertEquals("user-7", client.getUserById(7L));
+        }
+        assertEquals(1, loadBalanced.calls.get());
+    }
+
+    private static long[] measure(UserClient client, int requests) {
+        long[] millis = new long[requests];
+        for (int i = 0; i < requests; i++) {
+            long start = System.nanoTime();
+            assertEquals("user-" + i, client.getUserById((long) i));
+            millis[i] = (System.nanoTime() - start) / 1_000_000;
+        }
+        return millis;
+    }
+
+    private static long percentile(long[] values, double p) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) Math.min(sorted.length - 1, Math.floor(p * sorted.length))];
+    }
+
+    private static UserClient failingFallback() {
+        return new StubInstance(Duration.ZERO, Duration.ZERO) {
+            @Override
+            public String getUserById(Long userId) {
+                throw new AssertionError("fallback should not be used");
+            }
+        };
+    }
+
+    /**
+     * 本地的 user-service 实例：每 10 次请求中有一次耗时 slowLatency，其余为 latency
+     */
+    private static class StubInstance implements UserClient {
+
+        final AtomicInteger calls = new AtomicInteger();
+        private final Duration latency;
+        private final Duration slowLatency;
+
+        StubInstance(Duration latency, Duration slowLatency) {
+            this.latency = latency;
+            this.slowLatency = slowLatency;
+        }
+
+        @Override
+        public String getUserById(Long userId) {
+            respond();
+            return "user-" + userId;
+        }
+
+        @Override
+        public Map<Long, String> getUsersByIds(Collection<Long> ids) {
+            respond();
+            Map<Long, String> users = new HashMap<>();
+            ids.forEach(id -> users.put(id, "user-" + id));
+            return users;
+        }
+
+        private void respond() {
+            Duration delay = calls.incrementAndGet() % 10 == 0 ? slowLatency : latency;
+            try {
+                Thread.sleep(delay.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 不对冲的轮询，与负载均衡的客户端相同
+     */
+    private static class RoundRobin implements UserClient {
+
+        private final List<UserClient> instances;
+        private final AtomicInteger next = new AtomicInteger();
+
+        RoundRobin(List<UserClient> instances) {
+            this.instances = instances;
+        }
+
+        @Override
+        public String getUserById(Long userId) {
+            return instances.get(Math.floorMod(next.getAndIncrement(), instances.size())).getUserById(userId);
+        }
+
+        @Override
+        public Map<Long, String> getUsersByIds(Collection<Long> ids) {
+            return instances.get(Math.floorMod(next.getAndIncrement(), instances.size())).getUsersByIds(ids);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.ai.qa.service.infrastructure.feign;
+
+import com.ai.qa.service.infrastructure.events.LoopbackUserChangeTransport;
+import com.ai.qa.service.infrastructure.events.UserChangedEvent;
+import com.google.common.base.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class UserNearCacheTest {
+
+    private final Map<Long, String> nicknames = new ConcurrentHashMap<>(Map.of(1L, "alice"));
+    private final AtomicInteger remoteCalls = new AtomicInteger();
+    private final LoopbackUserChangeTransport transport = new LoopbackUserChangeTransport();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final FakeTicker ticker = new FakeTicker();
+
+    private Runnable duringLoad = () -> {
+    };
+
+    private final UserClient remote = new UserClient() {
+        @Override
+        public String getUserById(Long userId) {
+            remoteCalls.incrementAndGet();
+            String nickname = nicknames.get(userId);
+            duringLoad.run();
+            return nickname;
+        }
+
+        @Override
+        public Map<Long, String> getUsersByIds(Collection<Long> ids) {
+            remoteCalls.incrementAndGet();
+            Map<Long, String> found = new HashMap<>();
+            ids.forEach(id -> {
+                if (nicknames.containsKey(id)) {
+                    found.put(id, nicknames.get(id));
+                }
+            });
+            return found;
+        }
+    };
+
+    private final UserNearCache cache = new UserNearCache(remote, transport, 100, Duration.ofMinutes(10), registry,
+            ticker);
+
+    @Test
+    public void repeatedLookupsAreServedLocally() {
+        assertEquals("alice", cache.getUserById(1L));
+        ticker.advance(Duration.ofSeconds(3));
+        assertEquals("alice", cache.getUserById(1L));
+
+        assertEquals(1, remoteCalls.get());
+        assertEquals(1, registry.get("qa.user.cache.requests").tag("result", "hit").counter().count());
+        assertEquals(1, registry.get("qa.user.cache.requests").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    public void changeEventEvictsEntry() {
+        assertEquals("alice", cache.getUserById(1L));
+
+        nicknames.put(1L, "alice2");
+        transport.publish(event(1L));
+
+        assertEquals("alice2", cache.getUserById(1L));
+        assertEquals(2, remoteCalls.get());
+        assertEquals(1, registry.get("qa.user.cache.invalidation.lag").timer().count());
+    }
+
+    @Test
+    public void changeDuringLoadIsNotServedLater() {
+        // 加载读到旧值之后、写入缓存之前收到变更事件
+        duringLoad = () -> {
+            duringLoad = () -> {
+            };
+            nicknames.put(1L, "alice2");
+            ticker.advance(Duration.ofMillis(1));
+            transport.publish(event(1L));
+        };
+        assertEquals("alice", cache.getUserById(1L));
+
+        assertEquals("alice2", cache.getUserById(1L));
+        assertEquals(1, registry.get("qa.user.cache.requests").tag("result", "stale").counter().count());
+        assertEquals("alice2", cache.getUserById(1L));
+        assertEquals(2, remoteCalls.get());
+    }
+
+    @Test
+    public void entriesExpireAfterTtl() {
+        cache.getUserById(1L);
+        ticker.advance(Duration.ofMinutes(11));
+        cache.getUserById(1L);
+
+        assertEquals(2, remoteCalls.get());
+    }
+
+    @Test
+    public void unknownUserIsNotCached() {
+        assertNull(cache.getUserById(2L));
+        nicknames.put(2L, "bob");
+
+        assertEquals("bob", cache.getUserById(2L));
+    }
+
+    @Test
+    public void batchLookupFetchesOnlyMisses() {
+        nicknames.put(2L, "bob");
+        cache.getUserById(1L);
+        remoteCalls.set(0);
+
+        Map<Long, String> users = cache.getUsersByIds(List.of(1L, 2L, 3L, 2L));
+        assertEquals(Map.of(1L, "alice", 2L, "bob"), users);
+        assertEquals(1, remoteCalls.get());
+
+        // 批量查到的用户也进入缓存
+        assertEquals("bob", cache.getUserById(2L));
+        assertEquals(1, remoteCalls.get());
+    }
+
+    private static UserChangedEvent event(Long userId) {
+        UserChangedEvent event = new UserChangedEvent();
+        event.setUserId(userId);
+        event.setChangedAt(System.currentTimeMillis());
+        return event;
+    }
+
+    private static class FakeTicker extends Ticker {
+
+        private final AtomicLong nanos = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+
+        void advance(Duration duration) {
+            nanos.addAndGet(duration.toNanos());
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.ai.qa.service.infrastructure.feign;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UserRequestCollapserTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final StubUserService remote = new StubUserService();
+
+    @Test
+    public void concurrentLookupsShareOneBatchCall() throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(20);
+        try (UserRequestCollapser collapser = new UserRequestCollapser(remote, 100, Duration.ofMillis(50), 100, 1,
+                Duration.ofSeconds(5), registry)) {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                long userId = i % 10;
+                results.add(callers.submit(() -> {
+                    start.await();
+                    return collapser.getUserById(userId);
+                }));
+            }
+            start.countDown();
+            for (int i = 0; i < 20; i++) {
+                assertEquals("user-" + (i % 10), results.get(i).get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        // 窗口内的 20 次查询合并成一次，重复的ID只查一次
+        assertEquals(1, remote.batches.size());
+        assertEquals(10, remote.batches.get(0).size());
+        assertTrue(remote.singles.isEmpty());
+    }
+
+    @Test
+    public void idsMissingFromBatchMatchSingleLookup() {
+        // 单个查询对任何ID都有结果，批量接口只返回数据库里存在的用户
+        remote.notInDatabase.add(7L);
+        try (UserRequestCollapser collapser = new UserRequestCollapser(remote, 100, Duration.ofMillis(1), 100, 1,
+                Duration.ofSeconds(5), registry)) {
+            assertEquals("user-7", collapser.getUserById(7L));
+            assertEquals(Map.of(1L, "user-1", 7L, "user-7"), collapser.getUsersByIds(List.of(1L, 7L, 1L)));
+        }
+        assertEquals(List.of(7L, 7L), remote.singles);
+    }
+
+    @Test
+    public void unknownUserIsNull() {
+        try (UserRequestCollapser collapser = new UserRequestCollapser(remote, 100, Duration.ofMillis(1), 100, 1,
+                Duration.ofSeconds(5), registry)) {
+            assertNull(collapser.getUserById(StubUserService.UNKNOWN));
+        }
+    }
+
+    @Test
+    public void failedBatchFailsCaller() {
+        remote.failure = new IllegalStateException("user-service unavailable");
+        try (UserRequestCollapser collapser = new UserRequestCollapser(remote, 100, Duration.ofMillis(1), 100, 1,
+                Duration.ofSeconds(5), registry)) {
+            IllegalStateException error = assertThrows(IllegalStateException.class, () -> collapser.getUserById(1L));
+            assertEquals("user-service unavailable", error.getMessage());
+        }
+    }
+
+    @Test
+    public void slowBatchTimesOut() {
+        remote.latency = Duration.ofMillis(500);
+        try (UserRequestCollapser collapser = new UserRequestCollapser(remote, 100, Duration.ofMillis(1), 100, 1,
+                Duration.ofMillis(50), registry)) {
+            IllegalStateException error = assertThrows(IllegalStateException.class, () -> collapser.getUserById(1L));
+            assertTrue(error.getMessage().contains("did not complete"));
+        }
+    }
+
+    @Test
+    public void batchSizeIsBoundedByServerLimit() {
+        assertThrows(IllegalArgumentException.class, () -> new UserRequestCollapser(remote,
+                UserRequestCollapser.MAX_BATCH_SIZE + 1, Duration.ofMillis(1), 100, 1, Duration.ofSeconds(1), registry));
+    }
+
+    private static class StubUserService implements UserClient {
+
+        static final long UNKNOWN = -1L;
+
+        final List<Collection<Long>> batches = new CopyOnWriteArrayList<>();
+        final List<Long> singles = new CopyOnWriteArrayList<>();
+        final Set<Long> notInDatabase = ConcurrentHashMap.newKeySet();
+        volatile RuntimeException failure;
+        volatile Duration latency = Duration.ZERO;
+
+        @Override
+        public String getUserById(Long userId) {
+            singles.add(userId);
+            return userId == UNKNOWN ? null : "user-" + userId;
+        }
+
+        @Override
+        public Map<Long, String> getUsersByIds(Collection<Long> ids) {
+            batches.add(List.copyOf(ids));
+            try {
+                Thread.sleep(latency.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            Map<Long, String> users = new HashMap<>();
+            for (Long id : ids) {
+                if (id != UNKNOWN && !notInDatabase.contains(id)) {
+                    users.put(id, "user-" + id);
+                }
+            }
+            return users;
+        }
+    }
+}
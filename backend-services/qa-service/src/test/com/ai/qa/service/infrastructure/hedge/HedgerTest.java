@@ -0,0 +1,137 @@
+package com.ai.qa.service.infrastructure.hedge;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HedgerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    public void fastCallIsNotHedged() {
+        AtomicInteger hedges = new AtomicInteger();
+        try (Hedger hedger = hedger(0.05, 10, Duration.ofSeconds(2))) {
+            assertEquals("a", hedger.call(() -> "a", () -> {
+                hedges.incrementAndGet();
+                return "b";
+            }));
+        }
+        assertEquals(0, hedges.get());
+        assertEquals(0, count("qa.hedge.issued"));
+    }
+
+    @Test
+    public void slowCallIsHedgedAndHedgeWins() {
+        try (Hedger hedger = hedger(0.05, 10, Duration.ofSeconds(2))) {
+            assertEquals("hedge", hedger.call(slow("primary", 1000), () -> "hedge"));
+        }
+        assertEquals(1, count("qa.hedge.issued"));
+        assertEquals(1, count("qa.hedge.won"));
+    }
+
+    @Test
+    public void failureBeforeDelayIsNotRetried() {
+        AtomicInteger hedges = new AtomicInteger();
+        try (Hedger hedger = hedger(0.05, 10, Duration.ofSeconds(2))) {
+            IllegalStateException error = assertThrows(IllegalStateException.class, () -> hedger.call(() -> {
+                throw new IllegalStateException("boom");
+            }, () -> {
+                hedges.incrementAndGet();
+                return "b";
+            }));
+            assertEquals("boom", error.getMessage());
+        }
+        assertEquals(0, hedges.get());
+    }
+
+    @Test
+    public void slowPrimaryFailingAfterHedgeStillReturnsHedgeResult() {
+        try (Hedger hedger = hedger(0.05, 10, Duration.ofSeconds(2))) {
+            Supplier<String> slowFailure = () -> {
+                sleep(100);
+                throw new IllegalStateException("primary down");
+            };
+            assertEquals("hedge", hedger.call(slowFailure, slow("hedge", 200)));
+        }
+    }
+
+    @Test
+    public void bothAttemptsFailingReportsPrimaryError() {
+        try (Hedger hedger = hedger(0.05, 10, Duration.ofSeconds(2))) {
+            IllegalStateException error = assertThrows(IllegalStateException.class, () -> hedger.call(() -> {
+                sleep(100);
+                throw new IllegalStateException("primary down");
+            }, () -> {
+                throw new IllegalStateException("hedge down");
+            }));
+            assertEquals("primary down", error.getMessage());
+        }
+    }
+
+    @Test
+    public void budgetLimitsHedges() {
+        // 没有持续的存入，只有 burst 个令牌
+        try (Hedger hedger = hedger(0, 2, Duration.ofSeconds(2))) {
+            for (int i = 0; i < 4; i++) {
+                hedger.call(slow("primary", 60), () -> "hedge");
+            }
+        }
+        assertEquals(2, count("qa.hedge.issued"));
+        assertEquals(2, registry.get("qa.hedge.skipped").tag("name", "test").tag("reason", "budget").counter().count());
+    }
+
+    @Test
+    public void timeoutBoundsTheWait() {
+        try (Hedger hedger = hedger(0.05, 10, Duration.ofMillis(100))) {
+            IllegalStateException error = assertThrows(IllegalStateException.class,
+                    () -> hedger.call(slow("primary", 1000), slow("hedge", 1000)));
+            assertTrue(error.getMessage().contains("did not complete"));
+        }
+    }
+
+    @Test
+    public void delayFollowsObservedPercentile() {
+        try (Hedger hedger = new Hedger("test", 8, 0.9, Duration.ofMillis(1), Duration.ofSeconds(1), 0.05, 10,
+                Duration.ofSeconds(2), registry)) {
+            assertEquals(Duration.ofSeconds(1), hedger.currentDelay());
+            for (int i = 0; i < 64; i++) {
+                hedger.call(slow("x", 5), null);
+            }
+            long delayMillis = hedger.currentDelay().toMillis();
+            assertTrue(delayMillis >= 5 && delayMillis < 100, "delay " + delayMillis + "ms");
+        }
+    }
+
+    private Hedger hedger(double budget, int burst, Duration timeout) {
+        // 样本不足时对冲延迟为 maxDelay
+        return new Hedger("test", 8, 0.95, Duration.ofMillis(1), Duration.ofMillis(20), budget, burst, timeout,
+                registry);
+    }
+
+    private double count(String name) {
+        return registry.get(name).tag("name", "test").counter().count();
+    }
+
+    private static Supplier<String> slow(String value, long millis) {
+        return () -> {
+            sleep(millis);
+            return value;
+        };
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
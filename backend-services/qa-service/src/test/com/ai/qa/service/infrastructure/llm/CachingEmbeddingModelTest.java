@@ -0,0 +1,107 @@
+package com.ai.qa.service.infrastructure.llm;
+
+import com.ai.qa.service.infrastructure.vector.MappedVectorCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CachingEmbeddingModelTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void normalizedTextIsEmbeddedOnce() throws IOException {
+        CountingModel delegate = new CountingModel();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        try (MappedVectorCache disk = new MappedVectorCache(dir, CountingModel.DIMENSION, 1024)) {
+            CachingEmbeddingModel model = new CachingEmbeddingModel(delegate, disk, 1 << 20, registry);
+
+            float[] first = model.embed("什么是 RAG？");
+            float[] second = model.embed("  什么是   rag?  ");
+
+            assertArrayEquals(first, second);
+            assertEquals(List.of(List.of("什么是 RAG？")), delegate.calls);
+            assertEquals(1, registry.get("qa.embedding.cache.requests").tag("result", "miss").counter().count());
+            assertEquals(1, registry.get("qa.embedding.cache.requests").tag("result", "memory").counter().count());
+        }
+    }
+
+    @Test
+    public void batchSendsOnlyDistinctMisses() throws IOException {
+        CountingModel delegate = new CountingModel();
+        try (MappedVectorCache disk = new MappedVectorCache(dir, CountingModel.DIMENSION, 1024)) {
+            CachingEmbeddingModel model = new CachingEmbeddingModel(delegate, disk, 1 << 20, new SimpleMeterRegistry());
+            model.embed("a");
+
+            List<float[]> vectors = model.embed(List.of("b", "a", "c", "b"));
+
+            assertEquals(List.of(List.of("a"), List.of("b", "c")), delegate.calls);
+            assertEquals(4, vectors.size());
+            assertArrayEquals(CountingModel.vectorOf("b"), vectors.get(0));
+            assertArrayEquals(CountingModel.vectorOf("a"), vectors.get(1));
+            assertArrayEquals(CountingModel.vectorOf("c"), vectors.get(2));
+            assertArrayEquals(vectors.get(0), vectors.get(3));
+        }
+    }
+
+    @Test
+    public void diskTierSurvivesRestart() throws IOException {
+        CountingModel delegate = new CountingModel();
+        try (MappedVectorCache disk = new MappedVectorCache(dir, CountingModel.DIMENSION, 1024)) {
+            new CachingEmbeddingModel(delegate, disk, 1 << 20, new SimpleMeterRegistry()).embed("hello");
+        }
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        try (MappedVectorCache disk = new MappedVectorCache(dir, CountingModel.DIMENSION, 1024)) {
+            CachingEmbeddingModel model = new CachingEmbeddingModel(delegate, disk, 1 << 20, registry);
+
+            assertArrayEquals(CountingModel.vectorOf("hello"), model.embed("Hello"));
+            assertEquals(1, delegate.calls.size());
+            assertEquals(1, registry.get("qa.embedding.cache.requests").tag("result", "disk").counter().count());
+        }
+    }
+
+    /**
+     * 记录每次调用的文本，向量由文本内容确定
+     */
+    private static class CountingModel implements EmbeddingModel {
+
+        static final int DIMENSION = 4;
+
+        final List<List<String>> calls = new ArrayList<>();
+
+        static float[] vectorOf(String text) {
+            String normalized = CachingEmbeddingModel.normalize(text);
+            return new float[]{normalized.length(), normalized.hashCode(), normalized.charAt(0), 1};
+        }
+
+        @Override
+        public String modelId() {
+            return "counting/" + DIMENSION;
+        }
+
+        @Override
+        public int dimension() {
+            return DIMENSION;
+        }
+
+        @Override
+        public List<float[]> embed(List<String> texts) {
+            calls.add(List.copyOf(texts));
+            List<float[]> vectors = new ArrayList<>();
+            for (String text : texts) {
+                vectors.add(vectorOf(text));
+            }
+            return vectors;
+        }
+    }
+}
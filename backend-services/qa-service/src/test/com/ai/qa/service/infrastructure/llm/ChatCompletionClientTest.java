@@ -0,0 +1,123 @@
+package com.ai.qa.service.infrastructure.llm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 用本地的假模型服务 (OpenAI 兼容的流式接口) 验证增量解析、提前输出和取消
+ */
+public class ChatCompletionClientTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * gated: 立即输出第一个增量，其余增量要等测试打开闸门后才生成
+     */
+    private static final Sinks.Empty<Void> gate = Sinks.empty();
+    private static final AtomicBoolean generationFinished = new AtomicBoolean();
+    private static final CountDownLatch generationCancelled = new CountDownLatch(1);
+    private static final AtomicReference<String> lastRequest = new AtomicReference<>();
+
+    private static final DisposableServer provider = HttpServer.create()
+            .host("127.0.0.1")
+            .port(0)
+            .route(routes -> routes
+                    .post("/gated/chat/completions", (request, response) -> response
+                            .header("Content-Type", "text/event-stream")
+                            .sendString(request.receive().aggregate().asString()
+                                    .doOnNext(lastRequest::set)
+                                    .thenMany(Flux.concat(
+                                            Mono.just("data: {\"choices\":[{\"index\":0,\"delta\":{\"role\":\"assistant\"}}]}\n\n"),
+                                            Mono.just(chunk("Hello")),
+                                            gate.asMono().then(Mono.just(chunk(", world"))),
+                                            Mono.just(chunk("!")),
+                                            Mono.fromCallable(() -> {
+                                                generationFinished.set(true);
+                                                return "data: [DONE]\n\n";
+                                            }),
+                                            // [DONE] 之后的内容被忽略
+                                            Mono.just(chunk("ignored"))))))
+                    // 不停地生成，记录是否被取消
+                    .post("/endless/chat/completions", (request, response) -> response
+                            .header("Content-Type", "text/event-stream")
+                            .sendString(Flux.interval(Duration.ZERO, Duration.ofMillis(50))
+                                    .map(i -> chunk("token-" + i))
+                                    .doOnCancel(generationCancelled::countDown)))
+                    .post("/malformed/chat/completions", (request, response) -> response
+                            .header("Content-Type", "text/event-stream")
+                            .sendString(Mono.just("data: {not json\n\n"))))
+            .bindNow();
+
+    @AfterAll
+    public static void stopProvider() {
+        provider.disposeNow();
+    }
+
+    @Test
+    public void firstDeltaArrivesBeforeAnswerIsGenerated() throws Exception {
+        StepVerifier.create(client("gated").stream(List.of(ChatMessage.system("system"), ChatMessage.user("hi"))))
+                .assertNext(delta -> {
+                    assertEquals("Hello", delta);
+                    assertFalse(generationFinished.get(), "first delta should not wait for the full answer");
+                })
+                .then(gate::tryEmitEmpty)
+                .expectNext(", world", "!")
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+
+        assertTrue(generationFinished.get());
+        var body = objectMapper.readTree(lastRequest.get());
+        assertEquals("fake-model", body.path("model").asText());
+        assertTrue(body.path("stream").asBoolean());
+        assertEquals("hi", body.path("messages").path(1).path("content").asText());
+    }
+
+    @Test
+    public void cancellingStopsGeneration() throws InterruptedException {
+        client("endless").stream(List.of(ChatMessage.user("hi")))
+                .take(3)
+                .blockLast(Duration.ofSeconds(5));
+
+        assertTrue(generationCancelled.await(5, TimeUnit.SECONDS), "generation was not cancelled");
+    }
+
+    @Test
+    public void malformedChunkFailsTheStream() {
+        StepVerifier.create(client("malformed").stream(List.of(ChatMessage.user("hi"))))
+                .expectError(IllegalStateException.class)
+                .verify(Duration.ofSeconds(5));
+    }
+
+    private static ChatCompletionClient client(String path) {
+        return new ChatCompletionClient(WebClient.builder(), objectMapper,
+                "http://127.0.0.1:" + provider.port() + "/" + path, "", "fake-model", Duration.ofSeconds(5));
+    }
+
+    private static String chunk(String content) {
+        try {
+            return "data: {\"choices\":[{\"index\":0,\"delta\":{\"content\":"
+                    + objectMapper.writeValueAsString(content) + "}}]}\n\n";
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
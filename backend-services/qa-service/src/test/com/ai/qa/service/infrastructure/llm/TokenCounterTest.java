@@ -0,0 +1,39 @@
+package com.ai.qa.service.infrastructure.llm;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TokenCounterTest {
+
+    @Test
+    public void estimatesCommonText() {
+        assertEquals(0, TokenCounter.count(""));
+        assertEquals(0, TokenCounter.count((String) null));
+        // hello / world / , / !
+        assertEquals(4, TokenCounter.count("hello, world!"));
+        assertEquals(6, TokenCounter.count("你好，世界！"));
+        assertEquals(2, TokenCounter.count("123456"));
+        assertTrue(TokenCounter.count("internationalization") >= 4);
+    }
+
+    @Test
+    public void truncateRespectsBudget() {
+        String text = "Spring Boot 的自动配置会根据 classpath 中的依赖创建 Bean。".repeat(50);
+        String truncated = TokenCounter.truncate(text, 100);
+        assertTrue(TokenCounter.count(truncated) <= 100);
+        assertTrue(TokenCounter.count(truncated) >= 95, "should use most of the budget");
+        assertTrue(text.startsWith(truncated));
+        assertEquals("short", TokenCounter.truncate("short", 100));
+    }
+
+    @Test
+    public void truncateDoesNotSplitSurrogatePairs() {
+        String text = "a😀😀😀😀";
+        for (int budget = 0; budget < 6; budget++) {
+            String truncated = TokenCounter.truncate(text, budget);
+            assertTrue(truncated.isEmpty() || !Character.isHighSurrogate(truncated.charAt(truncated.length() - 1)));
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.ai.qa.service.infrastructure.persistence.archive;
+
+import com.ai.qa.service.domain.model.QAHistory;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ArchiveBlockCodecTest {
+
+    private static final String[] TOPICS = {"Spring Boot", "MySQL 索引", "JVM 垃圾回收", "Redis 缓存", "Kafka"};
+
+    @Test
+    public void roundTripPreservesEveryField() {
+        List<QAHistory> rows = List.of(
+                QAHistory.restore("7205759403792793600", "42", "s-1", "什么是 keyset 分页？", "按 (时间, id) 定位……",
+                        LocalDateTime.of(2024, 3, 1, 8, 30, 15, 123_456_000)),
+                QAHistory.restore("7205759403792793601", null, null, "", null,
+                        LocalDateTime.of(1999, 12, 31, 23, 59, 59, 999_999_000)),
+                QAHistory.restore("15", "42", "s-1", "emoji 😀", "a".repeat(70_000),
+                        LocalDateTime.of(2024, 3, 1, 8, 30, 15, 123_456_000)));
+        byte[] dictionary = DictionaryTrainer.train(samples(200, new Random(1)), 4096);
+
+        List<QAHistory> restored = ArchiveBlockCodec.deserialize(ArchiveBlockCodec.decompress(
+                ArchiveBlockCodec.compress(ArchiveBlockCodec.serialize(rows), dictionary),
+                ArchiveBlockCodec.serialize(rows).length, dictionary));
+
+        assertEquals(rows.size(), restored.size());
+        for (int i = 0; i < rows.size(); i++) {
+            QAHistory expected = rows.get(i);
+            QAHistory actual = restored.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getUserId(), actual.getUserId());
+            assertEquals(expected.getSessionId(), actual.getSessionId());
+            assertEquals(expected.getQuestion(), actual.getQuestion());
+            assertEquals(expected.getAnswer(), actual.getAnswer());
+            assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        }
+        assertNull(restored.get(1).getUserId());
+    }
+
+    @Test
+    public void trainedDictionaryImprovesSmallBlocks() {
+        Random random = new Random(3);
+        byte[] dictionary = DictionaryTrainer.train(samples(2000, random), DictionaryTrainer.MAX_DICTIONARY_SIZE);
+        assertTrue(dictionary.length > 1024 && dictionary.length <= DictionaryTrainer.MAX_DICTIONARY_SIZE,
+                "dictionary size " + dictionary.length);
+
+        long raw = 0;
+        long plain = 0;
+        long trained = 0;
+        for (int block = 0; block < 50; block++) {
+            List<QAHistory> rows = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                rows.add(QAHistory.restore(String.valueOf(block * 8 + i), "1", "s-" + block, question(random),
+                        answer(random), LocalDateTime.of(2024, 1, 1, 0, 0).plusSeconds(i)));
+            }
+            byte[] bytes = ArchiveBlockCodec.serialize(rows);
+            raw += bytes.length;
+            plain += ArchiveBlockCodec.compress(bytes, new byte[0]).length;
+            trained += ArchiveBlockCodec.compress(bytes, dictionary).length;
+        }
+        assertTrue(trained < plain * 0.8, "plain " + plain + ", with dictionary " + trained);
+        assertTrue(raw > trained * 3, "raw " + raw + ", with dictionary " + trained);
+    }
+
+    @Test
+    public void dictionaryIsEmptyWithoutSharedContent() {
+        Random random = new Random(5);
+        List<byte[]> samples = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            byte[] bytes = new byte[200];
+            random.nextBytes(bytes);
+            samples.add(bytes);
+        }
+        assertEquals(0, DictionaryTrainer.train(samples, 4096).length);
+        assertEquals(0, DictionaryTrainer.train(List.of(), 4096).length);
+    }
+
+    @Test
+    public void decodingRequiresTheSameDictionary() {
+        byte[] dictionary = DictionaryTrainer.train(samples(200, new Random(9)), 4096);
+        byte[] raw = ArchiveBlockCodec.serialize(List.of(
+                QAHistory.restore("1", "1", "s", "q", "a", LocalDateTime.of(2024, 1, 1, 0, 0))));
+        byte[] compressed = ArchiveBlockCodec.compress(raw, dictionary);
+        assertThrows(IllegalStateException.class,
+                () -> ArchiveBlockCodec.decompress(compressed, raw.length, new byte[0]));
+    }
+
+    private static List<byte[]> samples(int count, Random random) {
+        List<byte[]> samples = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            samples.add(question(random).getBytes(StandardCharsets.UTF_8));
+            samples.add(answer(random).getBytes(StandardCharsets.UTF_8));
+        }
+        return samples;
+    }
+
+    private static String question(Random random) {
+        return "请问在生产环境中使用 " + TOPICS[random.nextInt(TOPICS.length)] + " 时，第 " + random.nextInt(1000)
+                + " 号服务应该如何配置？";
+    }
+
+    /**
+     * 模型回答的常见格式：固定的开头、分点说明、结尾提示，中间夹着随机的数值
+     */
+    private static String answer(Random random) {
+        String topic = TOPICS[random.nextInt(TOPICS.length)];
+        return "根据您的问题，关于 " + topic + " 的配置建议如下：\n\n"
+                + "1. **检查当前配置**：确认参数 timeout=" + random.nextInt(10_000) + "ms 是否合理。\n"
+                + "2. **监控关键指标**：重点关注延迟、吞吐量和错误率，建议设置告警阈值为 "
+                + random.nextInt(100) + "%。\n"
+                + "3. **逐步调整**：每次只修改一个参数，观察效果后再继续。\n\n"
+                + "如果问题仍然存在，请提供更多日志信息，我可以进一步帮您分析。";
+    }
+}
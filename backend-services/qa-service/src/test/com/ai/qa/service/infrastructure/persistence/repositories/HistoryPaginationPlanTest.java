@@ -0,0 +1,228 @@
+package com.ai.qa.service.infrastructure.persistence.repositories;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分页用到的表结构和索引检查：用 H2 的 EXPLAIN ANALYZE 确认 init.sql 中的复合索引能支撑 keyset 分页，
+ * 深处的一页也只扫描一页左右的行；OFFSET 分页要先扫过前面所有的行。
+ * <p>
+ * 这里执行的是手写的 SQL，不是 {@link JpaQAHistoryRepository} 生成的查询；它们只是模仿那些查询的
+ * WHERE 条件和排序，仓储的 JPQL 改动不会让这里失败。
+ * 与原查询的差别：H2 只有在 ORDER BY 以索引的等值列开头时才按索引顺序读取并在 LIMIT 处停止，
+ * 所以正序查询的 ORDER BY 多了 session_id (在 session_id = ? 的条件下结果相同)；H2 不能倒序读取索引，
+ * 倒序查询只在游标本身限定了扫描范围时断言扫描行数。
+ */
+public class HistoryPaginationPlanTest {
+
+    private static final int PAGE_SIZE = 20;
+    private static final int PAGES = 2000;
+    private static final int ROWS = PAGE_SIZE * PAGES + PAGE_SIZE;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private static final String COLUMNS = "SELECT id, session_id, SUBSTRING(question, 1, 100), create_time"
+            + " FROM qa_history ";
+    /**
+     * 对应 findSessionSummaries / findSessionSummariesAfter 的条件，ORDER BY 多了 session_id
+     */
+    private static final String SESSION_FIRST_PAGE = COLUMNS + "WHERE session_id = ? AND user_id = ?"
+            + " ORDER BY session_id, create_time, id LIMIT ?";
+    private static final String SESSION_KEYSET = COLUMNS + "WHERE session_id = ? AND user_id = ?"
+            + " AND create_time >= ? AND (create_time > ? OR id > ?) ORDER BY session_id, create_time, id LIMIT ?";
+    private static final String SESSION_OFFSET = COLUMNS + "WHERE session_id = ? AND user_id = ?"
+            + " ORDER BY session_id, create_time, id LIMIT ? OFFSET ?";
+    /**
+     * 对应 findUserSummaries / findUserSummariesBefore 的条件
+     */
+    private static final String USER_KEYSET = COLUMNS + "WHERE user_id = ? AND create_time <= ?"
+            + " AND (create_time < ? OR id < ?) ORDER BY create_time DESC, id DESC LIMIT ?";
+    private static final String USER_OFFSET = COLUMNS + "WHERE user_id = ?"
+            + " ORDER BY create_time DESC, id DESC LIMIT ? OFFSET ?";
+
+    private static final Pattern SCAN_COUNT = Pattern.compile("scanCount: (\\d+)");
+
+    private static Connection connection;
+
+    @BeforeAll
+    public static void createTable() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:history;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE qa_history (id BIGINT PRIMARY KEY, user_id BIGINT NOT NULL,"
+                    + " session_id VARCHAR(64), question VARCHAR(2000) NOT NULL, answer CLOB,"
+                    + " create_time TIMESTAMP NOT NULL)");
+            statement.execute("CREATE INDEX idx_session_time_id ON qa_history (session_id, create_time, id)");
+            statement.execute("CREATE INDEX idx_user_time_id ON qa_history (user_id, create_time, id)");
+        }
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO qa_history VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < ROWS; i++) {
+                insert.setLong(1, i + 1);
+                insert.setLong(2, 1);
+                insert.setString(3, "s-1");
+                insert.setString(4, "question " + i);
+                insert.setString(5, "answer " + i);
+                // 每两条时间相同，覆盖游标中时间相等、按 id 区分的情况
+                insert.setTimestamp(6, Timestamp.valueOf(time(i + 1)));
+                insert.addBatch();
+                if (i % 1000 == 999) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE");
+        }
+    }
+
+    @AfterAll
+    public static void close() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Test
+    public void sessionKeysetScansOnePageAtAnyDepth() throws SQLException {
+        String first = explain(SESSION_FIRST_PAGE, "s-1", 1L, PAGE_SIZE);
+        assertTrue(first.contains("IDX_SESSION_TIME_ID") && first.contains("index sorted"), first);
+        assertEquals(PAGE_SIZE, scanCount(first), first);
+
+        for (int page : new int[]{1, PAGES / 2, PAGES}) {
+            // 第 page 页的游标：前一页最后一条
+            long cursorId = (long) PAGE_SIZE * page;
+            LocalDateTime cursorTime = time(cursorId);
+            assertEquals(offset(SESSION_OFFSET, (long) PAGE_SIZE * page, "s-1", 1L),
+                    ids(SESSION_KEYSET, "s-1", 1L, cursorTime, cursorTime, cursorId, PAGE_SIZE));
+
+            String plan = explain(SESSION_KEYSET, "s-1", 1L, cursorTime, cursorTime, cursorId, PAGE_SIZE);
+            // 按 (session_id, create_time) 定位到游标，顺序读取，不排序
+            String index = indexCondition(plan, "IDX_SESSION_TIME_ID");
+            assertTrue(index.contains("SESSION_ID = ") && index.contains("CREATE_TIME >= "), plan);
+            assertTrue(plan.contains("index sorted"), plan);
+            // 多出的只有与游标时间相同的两行
+            assertTrue(scanCount(plan) <= PAGE_SIZE + 2, plan);
+        }
+
+        String offset = explain(SESSION_OFFSET, "s-1", 1L, PAGE_SIZE, (long) PAGE_SIZE * PAGES);
+        assertTrue(scanCount(offset) >= PAGE_SIZE * PAGES, offset);
+    }
+
+    @Test
+    public void userKeysetSeeksOnUserTimeIndex() throws SQLException {
+        // 最新在前的第 PAGES 页 (最旧的一页)
+        long cursorId = PAGE_SIZE + 1;
+        LocalDateTime cursorTime = time(cursorId);
+        List<Long> deepPage = ids(USER_KEYSET, 1L, cursorTime, cursorTime, cursorId, PAGE_SIZE);
+        assertEquals(offset(USER_OFFSET, (long) PAGE_SIZE * PAGES, 1L), deepPage);
+        assertEquals(cursorId - 1, (long) deepPage.get(0));
+
+        String plan = explain(USER_KEYSET, 1L, cursorTime, cursorTime, cursorId, PAGE_SIZE);
+        // 游标作为 (user_id, create_time, id) 索引上的范围条件，而不是读出后再过滤
+        String index = indexCondition(plan, "IDX_USER_TIME_ID");
+        assertTrue(index.contains("USER_ID = ") && index.contains("CREATE_TIME <= "), plan);
+        // 范围内只有这一页、与游标时间相同的两行，以及确认范围结束时多读的一行
+        assertTrue(scanCount(plan) <= PAGE_SIZE + 3, plan);
+
+        String offset = explain(USER_OFFSET, 1L, PAGE_SIZE, (long) PAGE_SIZE * PAGES);
+        assertTrue(offset.contains("IDX_USER_TIME_ID"), offset);
+        assertTrue(scanCount(offset) >= PAGE_SIZE * PAGES, offset);
+    }
+
+    @Test
+    public void walkingWithCursorsVisitsEveryRowOnce() throws SQLException {
+        List<Long> seen = new ArrayList<>(ids(SESSION_FIRST_PAGE, "s-1", 1L, PAGE_SIZE));
+        for (int page = 1; page < 50; page++) {
+            long lastId = seen.get(seen.size() - 1);
+            seen.addAll(ids(SESSION_KEYSET, "s-1", 1L, time(lastId), time(lastId), lastId, PAGE_SIZE));
+        }
+        for (int i = 0; i < seen.size(); i++) {
+            assertEquals(i + 1L, (long) seen.get(i));
+        }
+    }
+
+    /**
+     * id 为 id 的行的 create_time
+     */
+    private static LocalDateTime time(long id) {
+        return START.plusSeconds((id - 1) / 2);
+    }
+
+    private static List<Long> offset(String sql, long offset, Object... filters) throws SQLException {
+        Object[] params = new Object[filters.length + 2];
+        System.arraycopy(filters, 0, params, 0, filters.length);
+        params[filters.length] = PAGE_SIZE;
+        params[filters.length + 1] = offset;
+        return ids(sql, params);
+    }
+
+    private static List<Long> ids(String sql, Object... params) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (PreparedStatement query = prepare(sql, params); ResultSet rows = query.executeQuery()) {
+            while (rows.next()) {
+                ids.add(rows.getLong(1));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * 执行查询并返回带实际扫描行数的执行计划
+     */
+    private static String explain(String sql, Object... params) throws SQLException {
+        try (PreparedStatement query = prepare("EXPLAIN ANALYZE " + sql, params);
+             ResultSet rows = query.executeQuery()) {
+            assertTrue(rows.next());
+            return rows.getString(1);
+        }
+    }
+
+    /**
+     * 计划中索引注释里的条件，即在索引上定位的范围
+     */
+    private static String indexCondition(String plan, String index) {
+        Matcher matcher = Pattern.compile("/\\* PUBLIC\\." + index + ": (.*?)\\*/", Pattern.DOTALL).matcher(plan);
+        assertTrue(matcher.find(), plan);
+        return matcher.group(1);
+    }
+
+    private static int scanCount(String plan) {
+        Matcher matcher = SCAN_COUNT.matcher(plan);
+        assertTrue(matcher.find(), plan);
+        return Integer.parseInt(matcher.group(1));
+    }
+
+    private static PreparedStatement prepare(String sql, Object... params) throws SQLException {
+        PreparedStatement query = connection.prepareStatement(sql);
+        for (int i = 0; i < params.length; i++) {
+            Object param = params[i];
+            if (param instanceof LocalDateTime) {
+                query.setTimestamp(i + 1, Timestamp.valueOf((LocalDateTime) param));
+            } else {
+                query.setObject(i + 1, param);
+            }
+        }
+        return query;
+    }
+}
@@ -0,0 +1,255 @@
+package com.ai.qa.service.infrastructure.persistence.repositories;
+
+import com.ai.qa.service.domain.model.HistoryCursor;
+import com.ai.qa.service.domain.model.QAHistory;
+import com.ai.qa.service.domain.model.QAHistorySummary;
+import com.ai.qa.service.domain.repo.QAHistoryRepo;
+import com.ai.qa.service.infrastructure.persistence.archive.HistoryArchive;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TieredQAHistoryRepoTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private final MemoryRepo hot = new MemoryRepo();
+    private final MemoryArchive archive = new MemoryArchive();
+    /**
+     * 所有行都在一处，作为合并结果的参照
+     */
+    private final MemoryRepo all = new MemoryRepo();
+    private TieredQAHistoryRepo repo;
+
+    /**
+     * 两个用户三个会话共 120 行；较旧的 80 行大部分已归档，但边界附近两边交错，部分时间相同
+     */
+    @BeforeEach
+    public void setUp() {
+        Random random = new Random(7);
+        for (int i = 0; i < 120; i++) {
+            String user = i % 5 == 0 ? "2" : "1";
+            String session = "2".equals(user) ? "s-3" : (i % 2 == 0 ? "s-1" : "s-2");
+            QAHistory row = QAHistory.restore(String.valueOf(1000 - i), user, session, "q" + i, "a" + i,
+                    START.plusMinutes(i / 2));
+            boolean archived = i < 70 || (i < 90 && random.nextBoolean());
+            (archived ? archive.rows : hot.rows).put(Long.valueOf(row.getId()), row);
+            all.rows.put(Long.valueOf(row.getId()), row);
+        }
+        repo = new TieredQAHistoryRepo(hot, archive);
+    }
+
+    @Test
+    public void findByIdFallsThroughToTheArchive() {
+        String archivedId = archive.rows.keySet().iterator().next().toString();
+        String hotId = hot.rows.keySet().iterator().next().toString();
+        assertEquals(archivedId, repo.findHistoryById(archivedId).orElseThrow().getId());
+        assertEquals(hotId, repo.findHistoryById(hotId).orElseThrow().getId());
+        assertTrue(repo.findHistoryById("1").isEmpty());
+    }
+
+    @Test
+    public void sessionReadsMergeBothTiers() {
+        for (String session : List.of("s-1", "s-2", "s-3")) {
+            assertEquals(ids(all.findHistoryBySession(session)), ids(repo.findHistoryBySession(session)));
+            String user = "s-3".equals(session) ? "2" : "1";
+            for (int limit : new int[]{1, 5, 30, 100}) {
+                assertEquals(ids(all.findRecentTurns(user, session, null, limit)),
+                        ids(repo.findRecentTurns(user, session, null, limit)), session + " limit " + limit);
+            }
+        }
+        HistoryCursor after = HistoryCursor.of(all.findHistoryBySession("s-1").get(20));
+        assertEquals(ids(all.findRecentTurns("1", "s-1", after, 50)),
+                ids(repo.findRecentTurns("1", "s-1", after, 50)));
+    }
+
+    @Test
+    public void recentTurnsOnlyIncludeTheCallersRows() {
+        // 其他用户在同一个会话 id 下的问答，热表和归档各一条
+        hot.rows.put(2000L, QAHistory.restore("2000", "2", "s-1", "foreign hot", "a", START.plusDays(1)));
+        archive.rows.put(2001L, QAHistory.restore("2001", "2", "s-1", "foreign archived", "a", START));
+        List<String> turns = ids(repo.findRecentTurns("1", "s-1", null, 100));
+        assertFalse(turns.contains("2000") || turns.contains("2001"), turns.toString());
+        assertEquals(List.of("2001", "2000"), ids(repo.findRecentTurns("2", "s-1", null, 100)));
+    }
+
+    @Test
+    public void recentTurnsSkipArchiveWhenHotPageIsNewer() {
+        archive.returned = 0;
+        repo.findRecentTurns("1", "s-1", null, 3);
+        assertEquals(0, archive.returned);
+    }
+
+    @Test
+    public void sessionPagesMatchSingleTable() {
+        assertEquals(walkSession(all, "1", "s-1", 7), walkSession(repo, "1", "s-1", 7));
+        assertEquals(walkSession(all, "1", "s-2", 1), walkSession(repo, "1", "s-2", 1));
+        // 其他用户的会话读不到
+        assertEquals(List.of(), walkSession(repo, "2", "s-1", 10));
+    }
+
+    @Test
+    public void userPagesMatchSingleTable() {
+        for (int limit : new int[]{1, 6, 25}) {
+            List<String> expected = walkUser(all, "1", limit);
+            assertEquals(96, expected.size());
+            assertEquals(expected, walkUser(repo, "1", limit), "limit " + limit);
+        }
+    }
+
+    @Test
+    public void exportInterleavesArchivedRows() {
+        List<String> exported = new ArrayList<>();
+        repo.exportSession("1", "s-1", row -> exported.add(row.getId()));
+        List<String> expected = new ArrayList<>();
+        all.exportSession("1", "s-1", row -> expected.add(row.getId()));
+        assertEquals(expected, exported);
+    }
+
+    private static List<String> walkSession(QAHistoryRepo source, String user, String session, int limit) {
+        List<String> ids = new ArrayList<>();
+        HistoryCursor after = null;
+        while (true) {
+            List<QAHistorySummary> page = source.findSessionSummaries(user, session, after, limit);
+            page.forEach(summary -> ids.add(summary.getId()));
+            if (page.size() < limit) {
+                return ids;
+            }
+            after = page.get(page.size() - 1).cursor();
+        }
+    }
+
+    private static List<String> walkUser(QAHistoryRepo source, String user, int limit) {
+        List<String> ids = new ArrayList<>();
+        HistoryCursor before = null;
+        while (true) {
+            List<QAHistorySummary> page = source.findUserSummaries(user, before, limit);
+            page.forEach(summary -> ids.add(summary.getId()));
+            if (page.size() < limit) {
+                return ids;
+            }
+            before = page.get(page.size() - 1).cursor();
+        }
+    }
+
+    private static List<String> ids(List<QAHistory> rows) {
+        return rows.stream().map(QAHistory::getId).collect(Collectors.toList());
+    }
+
+    private static boolean within(QAHistory row, HistoryCursor after, HistoryCursor before) {
+        HistoryCursor cursor = HistoryCursor.of(row);
+        return (after == null || cursor.compareTo(after) > 0) && (before == null || cursor.compareTo(before) < 0);
+    }
+
+    private static class MemoryArchive implements HistoryArchive {
+
+        final Map<Long, QAHistory> rows = new TreeMap<>();
+        int returned;
+
+        @Override
+        public Optional<QAHistory> findById(String id) {
+            return Optional.ofNullable(rows.get(Long.valueOf(id)));
+        }
+
+        @Override
+        public List<QAHistory> findBySession(String sessionId, HistoryCursor after, HistoryCursor before) {
+            List<QAHistory> result = rows.values().stream()
+                    .filter(row -> sessionId.equals(row.getSessionId()) && within(row, after, before))
+                    .sorted(Comparator.comparing(HistoryCursor::of))
+                    .collect(Collectors.toList());
+            returned += result.size();
+            return result;
+        }
+
+        @Override
+        public List<QAHistory> findByUser(String userId, HistoryCursor after, HistoryCursor before, int limit) {
+            List<QAHistory> result = rows.values().stream()
+                    .filter(row -> userId.equals(row.getUserId()) && within(row, after, before))
+                    .sorted(Comparator.comparing(HistoryCursor::of).reversed())
+                    .limit(limit)
+                    .collect(Collectors.toList());
+            returned += result.size();
+            return result;
+        }
+    }
+
+    private static class MemoryRepo implements QAHistoryRepo {
+
+        final Map<Long, QAHistory> rows = new TreeMap<>();
+
+        @Override
+        public void save(QAHistory history) {
+            rows.put(Long.valueOf(history.getId()), history);
+        }
+
+        @Override
+        public Optional<QAHistory> findHistoryById(String id) {
+            return Optional.ofNullable(rows.get(Long.valueOf(id)));
+        }
+
+        @Override
+        public List<QAHistory> findHistoryBySession(String sessionId) {
+            return rows.values().stream()
+                    .filter(history -> sessionId.equals(history.getSessionId()))
+                    .sorted(Comparator.comparing(HistoryCursor::of))
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public List<QAHistory> findRecentTurns(String userId, String sessionId, HistoryCursor after, int limit) {
+            List<QAHistory> turns = findHistoryBySession(sessionId).stream()
+                    .filter(history -> userId.equals(history.getUserId()))
+                    .filter(history -> after == null || HistoryCursor.of(history).compareTo(after) > 0)
+                    .collect(Collectors.toList());
+            return new ArrayList<>(turns.subList(Math.max(0, turns.size() - limit), turns.size()));
+        }
+
+        @Override
+        public List<QAHistorySummary> findSessionSummaries(String userId, String sessionId, HistoryCursor after,
+                                                           int limit) {
+            return ofUser(userId)
+                    .filter(summary -> sessionId.equals(summary.getSessionId()))
+                    .filter(summary -> after == null || summary.cursor().compareTo(after) > 0)
+                    .sorted(Comparator.comparing(QAHistorySummary::cursor))
+                    .limit(limit)
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public List<QAHistorySummary> findUserSummaries(String userId, HistoryCursor before, int limit) {
+            return ofUser(userId)
+                    .filter(summary -> before == null || summary.cursor().compareTo(before) < 0)
+                    .sorted(Comparator.comparing(QAHistorySummary::cursor).reversed())
+                    .limit(limit)
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public void exportSession(String userId, String sessionId, Consumer<QAHistory> consumer) {
+            findHistoryBySession(sessionId).stream()
+                    .filter(history -> userId.equals(history.getUserId()))
+                    .forEach(consumer);
+        }
+
+        private Stream<QAHistorySummary> ofUser(String userId) {
+            return rows.values().stream()
+                    .filter(history -> userId.equals(history.getUserId()))
+                    .map(QAHistorySummary::of);
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package com.ai.qa.service.infrastructure.persistence.repositories;
+
+import com.ai.qa.service.domain.model.HistoryCursor;
+import com.ai.qa.service.domain.model.QAHistory;
+import com.ai.qa.service.domain.model.QAHistorySummary;
+import com.ai.qa.service.domain.repo.QAHistoryRepo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.TransientDataAccessResourceException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WriteBehindQAHistoryRepoTest {
+
+    @TempDir
+    Path dir;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final InMemoryDatabase database = new InMemoryDatabase();
+    private WriteBehindQAHistoryRepo repo;
+
+    @AfterEach
+    public void close() {
+        if (repo != null) {
+            repo.close();
+        }
+    }
+
+    @Test
+    public void savesAreBatched() throws Exception {
+        repo = repo(Duration.ofMillis(50));
+        for (int i = 0; i < 100; i++) {
+            repo.save(QAHistory.createNew("1", "s-1", "q" + i, "a" + i));
+        }
+        repo.close();
+        assertEquals(100, database.rows.size());
+        assertTrue(database.batches.get() <= 5, "batches: " + database.batches.get());
+    }
+
+    @Test
+    public void pendingWritesAreVisibleToTheSameSession() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        database.beforeInsert = () -> await(release);
+        repo = repo(Duration.ofMillis(1));
+        QAHistory older = QAHistory.restore("1", "1", "s-1", "old", "a", LocalDateTime.now().minusMinutes(1));
+        database.rows.put(1L, older);
+
+        QAHistory saved = QAHistory.createNew("1", "s-1", "new", "a");
+        repo.save(saved);
+        assertNotNull(saved.getId());
+
+        // 数据库写入被阻塞，记录只在叠加视图中
+        assertEquals(List.of("old", "new"), questions(repo.findHistoryBySession("s-1")));
+        assertEquals("new", repo.findHistoryById(saved.getId()).map(QAHistory::getQuestion).orElse(null));
+        assertTrue(repo.findHistoryBySession("s-2").isEmpty());
+
+        release.countDown();
+        repo.close();
+        assertEquals(List.of("old", "new"), questions(repo.findHistoryBySession("s-1")));
+        assertEquals(0, registry.get("qa.history.write.pending").gauge().value());
+    }
+
+    @Test
+    public void pendingWritesAreMergedIntoPages() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        database.beforeInsert = () -> await(release);
+        repo = repo(Duration.ofMillis(1));
+        LocalDateTime start = LocalDateTime.now().minusHours(1);
+        for (int i = 0; i < 3; i++) {
+            database.rows.put((long) i + 1, QAHistory.restore(String.valueOf(i + 1), "1", "s-1", "old" + i, "a",
+                    start.plusMinutes(i)));
+        }
+        database.rows.put(10L, QAHistory.restore("10", "2", "s-1", "other user", "a", start));
+        repo.save(QAHistory.createNew("1", "s-1", "new0", "a"));
+        repo.save(QAHistory.createNew("1", "s-1", "new1", "a"));
+
+        // 每页两条，依次翻完：不重复、不遗漏，未写入的记录在最后
+        List<String> walked = new ArrayList<>();
+        HistoryCursor after = null;
+        List<QAHistorySummary> page;
+        do {
+            page = repo.findSessionSummaries("1", "s-1", after, 2);
+            page.forEach(summary -> walked.add(summary.getQuestionPreview()));
+            after = page.isEmpty() ? null : page.get(page.size() - 1).cursor();
+        } while (page.size() == 2);
+        assertEquals(List.of("old0", "old1", "old2", "new0", "new1"), walked);
+
+        List<QAHistorySummary> recent = repo.findUserSummaries("1", null, 3);
+        assertEquals(List.of("new1", "new0", "old2"), previews(recent));
+        assertEquals(List.of("old1", "old0"), previews(repo.findUserSummaries("1", recent.get(2).cursor(), 3)));
+
+        assertEquals(List.of("old2", "new0", "new1"), questions(repo.findRecentTurns("1", "s-1", null, 3)));
+        assertEquals(List.of("other user"), questions(repo.findRecentTurns("2", "s-1", null, 3)));
+
+        List<String> exported = new ArrayList<>();
+        repo.exportSession("1", "s-1", history -> exported.add(history.getQuestion()));
+        assertEquals(List.of("old0", "old1", "old2", "new0", "new1"), exported);
+
+        release.countDown();
+        repo.close();
+        assertEquals(List.of("new1", "new0", "old2"), previews(repo.findUserSummaries("1", null, 3)));
+    }
+
+    @Test
+    public void unavailableDatabaseSpillsAndReplays() throws Exception {
+        database.available = false;
+        repo = repo(Duration.ofMillis(1));
+        for (int i = 0; i < 10; i++) {
+            repo.save(QAHistory.createNew("1", "s-1", "q" + i, "a"));
+        }
+        repo.close();
+        assertTrue(database.rows.isEmpty());
+        assertEquals(10, registry.get("qa.history.write.spill").gauge().value());
+
+        database.available = true;
+        repo.replaySpill();
+        assertEquals(10, database.rows.size());
+        assertEquals(0, registry.get("qa.history.write.spill").gauge().value());
+    }
+
+    @Test
+    public void spillSurvivesRestart() throws Exception {
+        database.available = false;
+        repo = repo(Duration.ofMillis(1));
+        repo.save(QAHistory.createNew("1", "s-1", "q", "a"));
+        repo.close();
+
+        database.available = true;
+        repo = repo(Duration.ofMillis(1));
+        repo.replaySpill();
+        assertEquals(List.of("q"), questions(new ArrayList<>(database.rows.values())));
+    }
+
+    @Test
+    public void replayTreatsDuplicatesAsWritten() throws Exception {
+        HistorySpillFile spill = new HistorySpillFile(dir.resolve("history.spill"));
+        QAHistory written = QAHistory.restore("7", "1", "s-1", "q7", "a", LocalDateTime.now());
+        QAHistory notYet = QAHistory.restore("8", "1", "s-1", "q8", "a", LocalDateTime.now());
+        spill.append(List.of(written, notYet));
+        database.rows.put(7L, written);
+
+        repo = repo(Duration.ofMillis(1));
+        repo.replaySpill();
+        assertEquals(Set.of(7L, 8L), database.rows.keySet());
+        assertEquals(0, spill.readAll().size());
+    }
+
+    @Test
+    public void invalidRecordIsDroppedOthersAreWritten() throws Exception {
+        repo = repo(Duration.ofMillis(50));
+        repo.save(QAHistory.createNew("1", "s-1", "ok-1", "a"));
+        repo.save(QAHistory.createNew("1", "s-1", InMemoryDatabase.INVALID, "a"));
+        repo.save(QAHistory.createNew("1", "s-1", "ok-2", "a"));
+        repo.close();
+        assertEquals(Set.of("ok-1", "ok-2"), new HashSet<>(questions(new ArrayList<>(database.rows.values()))));
+        assertEquals(1, registry.get("qa.history.write.dropped").counter().count());
+    }
+
+    @Test
+    public void savesAfterCloseAreWrittenSynchronously() {
+        repo = repo(Duration.ofMillis(1));
+        repo.close();
+        repo.save(QAHistory.createNew("1", "s-1", "late", "a"));
+        assertEquals(1, database.rows.size());
+        assertEquals(1, registry.get("qa.history.write.sync").counter().count());
+    }
+
+    @Test
+    public void truncatedSpillRecordIsIgnored() throws IOException {
+        Path file = dir.resolve("torn.spill");
+        HistorySpillFile spill = new HistorySpillFile(file);
+        spill.append(List.of(QAHistory.restore("1", null, null, "q1", "a", LocalDateTime.now()),
+                QAHistory.restore("2", "1", "s", "q2", "x".repeat(100_000), LocalDateTime.now())));
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 10));
+
+        List<QAHistory> records = new HistorySpillFile(file).readAll();
+        assertEquals(1, records.size());
+        assertEquals("q1", records.get(0).getQuestion());
+    }
+
+    @Test
+    public void generatedIdsAreUniqueAndIncreasing() {
+        HistoryIdGenerator generator = new HistoryIdGenerator(3);
+        long previous = 0;
+        for (int i = 0; i < 100_000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            previous = id;
+        }
+        assertFalse(new HistoryIdGenerator(5).nextId() == new HistoryIdGenerator(6).nextId());
+    }
+
+    private WriteBehindQAHistoryRepo repo(Duration maxDelay) {
+        try {
+            return new WriteBehindQAHistoryRepo(database, database, new HistoryIdGenerator(1),
+                    new HistorySpillFile(dir.resolve("history.spill")), 50, maxDelay, 1000, Duration.ofMinutes(1),
+                    registry);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<String> questions(List<QAHistory> histories) {
+        return histories.stream().map(QAHistory::getQuestion).collect(Collectors.toList());
+    }
+
+    private static List<String> previews(List<QAHistorySummary> summaries) {
+        return summaries.stream().map(QAHistorySummary::getQuestionPreview).collect(Collectors.toList());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 批量写入和读取共用的内存数据库；整批写入是原子的
+     */
+    private static class InMemoryDatabase implements QAHistoryRepo, QAHistoryBatchWriter {
+
+        static final String INVALID = "violates constraint";
+
+        final Map<Long, QAHistory> rows = new ConcurrentHashMap<>();
+        final AtomicInteger batches = new AtomicInteger();
+        volatile boolean available = true;
+        volatile Runnable beforeInsert = () -> {
+        };
+
+        @Override
+        public synchronized void insertAll(List<QAHistory> histories) {
+            beforeInsert.run();
+            if (!available) {
+                throw new TransientDataAccessResourceException("connection refused");
+            }
+            for (QAHistory history : histories) {
+                if (rows.containsKey(Long.valueOf(history.getId()))) {
+                    throw new DuplicateKeyException("Duplicate entry " + history.getId());
+                }
+                if (INVALID.equals(history.getQuestion())) {
+                    throw new DataIntegrityViolationException("Column 'question' is invalid");
+                }
+            }
+            histories.forEach(history -> rows.put(Long.valueOf(history.getId()), history));
+            batches.incrementAndGet();
+        }
+
+        @Override
+        public void save(QAHistory history) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Optional<QAHistory> findHistoryById(String id) {
+            return Optional.ofNullable(rows.get(Long.valueOf(id)));
+        }
+
+        @Override
+        public List<QAHistory> findHistoryBySession(String sessionId) {
+            return rows.values().stream()
+                    .filter(history -> sessionId.equals(history.getSessionId()))
+                    .sorted(Comparator.comparing(QAHistory::getTimestamp))
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public List<QAHistory> findRecentTurns(String userId, String sessionId, HistoryCursor after, int limit) {
+            List<QAHistory> turns = findHistoryBySession(sessionId).stream()
+                    .filter(history -> userId.equals(history.getUserId()))
+                    .filter(history -> after == null || HistoryCursor.of(history).compareTo(after) > 0)
+                    .collect(Collectors.toList());
+            return new ArrayList<>(turns.subList(Math.max(0, turns.size() - limit), turns.size()));
+        }
+
+        @Override
+        public List<QAHistorySummary> findSessionSummaries(String userId, String sessionId, HistoryCursor after,
+                                                           int limit) {
+            return ofUser(userId)
+                    .filter(summary -> sessionId.equals(summary.getSessionId()))
+                    .filter(summary -> after == null || summary.cursor().compareTo(after) > 0)
+                    .sorted(Comparator.comparing(QAHistorySummary::cursor))
+                    .limit(limit)
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public List<QAHistorySummary> findUserSummaries(String userId, HistoryCursor before, int limit) {
+            return ofUser(userId)
+                    .filter(summary -> before == null || summary.cursor().compareTo(before) < 0)
+                    .sorted(Comparator.comparing(QAHistorySummary::cursor).reversed())
+                    .limit(limit)
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public void exportSession(String userId, String sessionId, Consumer<QAHistory> consumer) {
+            findHistoryBySession(sessionId).stream()
+                    .filter(history -> userId.equals(history.getUserId()))
+                    .forEach(consumer);
+        }
+
+        private Stream<QAHistorySummary> ofUser(String userId) {
+            return rows.values().stream()
+                    .filter(history -> userId.equals(history.getUserId()))
+                    .map(QAHistorySummary::of);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.ai.qa.service.infrastructure.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FullTextIndexTest {
+
+    private static final String[] WORDS = {"spring", "boot", "mysql", "index", "redis", "cache", "kafka", "consumer",
+            "producer", "jvm", "gc", "thread", "pool", "lock", "query", "plan", "join", "docker", "kubernetes", "pod",
+            "配置", "索引", "缓存", "线程", "事务", "分页", "消息", "集群"};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void ranksByBm25WithinUser() throws IOException {
+        try (FullTextIndex index = new FullTextIndex(dir, 100, 8, 1 << 20, 16)) {
+            index.add(1, 7, "how to configure redis cache eviction");
+            index.add(2, 7, "redis redis redis cluster failover");
+            index.add(3, 7, "mysql index and query plan");
+            index.add(4, 8, "redis redis redis redis redis");
+
+            List<FullTextIndex.SearchHit> hits = index.search(7, "redis", 10);
+            assertEquals(List.of(2L, 1L), docs(hits));
+            assertTrue(hits.get(0).getScore() > hits.get(1).getScore());
+            // 包含全部查询词的文档排在前面
+            assertEquals(3L, index.search(7, "redis query plan", 10).get(0).getDoc());
+            // 其他用户的文档不可见
+            assertEquals(List.of(4L), docs(index.search(8, "redis", 10)));
+            assertTrue(index.search(9, "redis", 10).isEmpty());
+            assertTrue(index.search(7, "nothing", 10).isEmpty());
+            assertEquals(1, index.search(7, "redis", 1).size());
+        }
+    }
+
+    @Test
+    public void prefixAndCjkQueries() throws IOException {
+        try (FullTextIndex index = new FullTextIndex(dir, 100, 8, 1 << 20, 16)) {
+            index.add(1, 1, "Kafka consumer group rebalancing");
+            index.add(2, 1, "kafka consumers lag");
+            index.add(3, 1, "Spring Boot 配置文件怎么拆分");
+            index.add(4, 1, "MySQL 联合索引的最左前缀");
+
+            assertEquals(List.of(1L, 2L), sorted(index.search(1, "consum*", 10)));
+            assertTrue(index.search(1, "consum", 10).isEmpty());
+            assertEquals(List.of(3L), docs(index.search(1, "配置", 10)));
+            assertEquals(List.of(3L), docs(index.search(1, "配置文件", 10)));
+            assertEquals(List.of(4L), docs(index.search(1, "索", 10)));
+            assertEquals(List.of(3L), docs(index.search(1, "SPRING", 10)));
+        }
+    }
+
+    @Test
+    public void flushedSegmentsSurviveReopen() throws IOException {
+        try (FullTextIndex index = new FullTextIndex(dir, 100, 8, 1 << 20, 16)) {
+            index.add(1, 1, "jvm gc tuning");
+            index.flush();
+            index.add(2, 1, "jvm thread dump");
+            assertEquals(1, index.segmentCount());
+            assertEquals(1, index.bufferedDocs());
+        }
+        // 留下的临时文件和清单之外的段在打开时删除
+        Files.write(dir.resolve("seg-0000000099.fts.tmp"), new byte[]{1, 2, 3});
+        Files.write(dir.resolve("seg-0000000100.fts"), new byte[]{1, 2, 3});
+        try (FullTextIndex index = new FullTextIndex(dir, 100, 8, 1 << 20, 16)) {
+            assertEquals(List.of(1L, 2L), sorted(index.search(1, "jvm", 10)));
+            assertEquals(0, index.bufferedDocs());
+            assertFalse(Files.exists(dir.resolve("seg-0000000099.fts.tmp")));
+            assertFalse(Files.exists(dir.resolve("seg-0000000100.fts")));
+        }
+    }
+
+    @Test
+    public void mergingKeepsResults() throws IOException {
+        Random random = new Random(1);
+        try (FullTextIndex index = new FullTextIndex(dir, 1_000_000, 4, 1 << 30, 16)) {
+            for (int i = 0; i < 2000; i++) {
+                index.add(i, i % 5, sentence(random, 12));
+                if (i % 100 == 99) {
+                    index.flush();
+                }
+            }
+            index.mergeSegments();
+            List<String> queries = List.of("redis cache", "kafka consum*", "索引", "线程 pool", "j*");
+            List<List<FullTextIndex.SearchHit>> before = new ArrayList<>();
+            for (String query : queries) {
+                before.add(index.search(3, query, 20));
+            }
+            index.add(5000, 3, "zookeeper");
+            index.flush();
+            index.mergeSegments();
+            assertTrue(index.segmentCount() <= 4, "segments " + index.segmentCount());
+            for (int q = 0; q < queries.size(); q++) {
+                List<FullTextIndex.SearchHit> after = index.search(3, queries.get(q), 20);
+                assertEquals(docs(before.get(q)), docs(after), queries.get(q));
+            }
+            assertEquals(List.of(5000L), docs(index.search(3, "zookeeper", 10)));
+        }
+        try (FullTextIndex index = new FullTextIndex(dir, 1_000_000, 4, 1 << 30, 16)) {
+            assertEquals(List.of(5000L), docs(index.search(3, "zookeeper", 10)));
+            assertEquals(400, index.search(2, "spring boot mysql index redis cache kafka consumer producer jvm gc "
+                    + "thread pool lock query plan join docker kubernetes pod 配置 索引 缓存 线程 事务 分页 消息 集群",
+                    1000).size());
+        }
+    }
+
+    @Test
+    public void searchLatency() throws IOException {
+        Random random = new Random(2);
+        try (FullTextIndex index = new FullTextIndex(dir, 20_000, 8, 1 << 30, 64)) {
+            for (int i = 0; i < 100_000; i++) {
+                index.add(i, i % 20, sentence(random, 30));
+            }
+            index.flush();
+            for (int i = 100_000; i < 105_000; i++) {
+                index.add(i, i % 20, sentence(random, 30));
+            }
+
+            int queries = 500;
+            long[] micros = new long[queries];
+            for (int q = 0; q < queries; q++) {
+                String query = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)];
+                if (q % 4 == 0) {
+                    query = query.substring(0, 2) + "*";
+                }
+                long start = System.nanoTime();
+                index.search(random.nextInt(20), query, 10);
+                micros[q] = (System.nanoTime() - start) / 1_000;
+            }
+            Arrays.sort(micros);
+            long p99 = micros[queries * 99 / 100];
+            System.out.println("full-text search p50: " + micros[queries / 2] + "us, p99: " + p99 + "us, segments: "
+                    + index.segmentCount());
+            // 每个用户约 5000 篇文档，p99 远低于 100ms 的目标；留足余量避免在慢机器上误报
+            assertTrue(p99 < 100_000, "p99 " + p99 + "us");
+        }
+    }
+
+    private static String sentence(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        return text.toString();
+    }
+
+    private static List<Long> docs(List<FullTextIndex.SearchHit> hits) {
+        return hits.stream().map(FullTextIndex.SearchHit::getDoc).collect(Collectors.toList());
+    }
+
+    private static List<Long> sorted(List<FullTextIndex.SearchHit> hits) {
+        return docs(hits).stream().sorted().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,40 @@
+package com.ai.qa.service.infrastructure.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TextAnalyzerTest {
+
+    @Test
+    public void splitsWordsAndCjkBigrams() {
+        assertEquals(List.of("spring", "boot", "3", "配置", "置文", "文件"),
+                TextAnalyzer.terms("Spring-Boot 3 配置文件"));
+        assertEquals(List.of("jvm", "调", "优"), TextAnalyzer.terms("JVM 调，优"));
+        // 全角字母和数字规范化为半角
+        assertEquals(List.of("redis", "6379"), TextAnalyzer.terms("ＲＥＤＩＳ　６３７９"));
+        assertEquals(List.of(), TextAnalyzer.terms("😀 !!"));
+    }
+
+    @Test
+    public void longTermsAreTruncated() {
+        String term = TextAnalyzer.terms("a".repeat(200)).get(0);
+        assertEquals(TextAnalyzer.MAX_TERM_LENGTH, term.length());
+    }
+
+    @Test
+    public void queryMarksPrefixTerms() {
+        List<TextAnalyzer.QueryTerm> terms = TextAnalyzer.query("kafka consum* 库");
+        assertEquals(3, terms.size());
+        assertFalse(terms.get(0).isPrefix());
+        assertEquals("consum", terms.get(1).getTerm());
+        assertTrue(terms.get(1).isPrefix());
+        // 单个汉字按前缀匹配二元组
+        assertTrue(terms.get(2).isPrefix());
+        assertTrue(TextAnalyzer.query("  * ").isEmpty());
+    }
+}
@@ -0,0 +1,55 @@
+package com.ai.qa.service.infrastructure.suggest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QuestionCounterTest {
+
+    @Test
+    public void countsNormalizedQuestionsAcrossUsers() {
+        QuestionCounter counter = new QuestionCounter(2, 1000);
+        counter.add("Redis  持久化  ", 1L);
+        counter.add("redis 持久化", 2L);
+        counter.add("REDIS 持久化", 2L);
+        // 只有一个用户反复问的问题不推荐给别人
+        for (int i = 0; i < 10; i++) {
+            counter.add("我的订单 12345 为什么没发货", 7L);
+        }
+        counter.add("JVM 调优", 1L);
+        counter.add("jvm 调优", 3L);
+        counter.add("   ", 1L);
+
+        List<SuggestionTrie.Suggestion> top = counter.top(2, 10);
+        assertEquals(List.of("Redis 持久化", "JVM 调优"), texts(top));
+        assertEquals(3, top.get(0).getWeight());
+        assertEquals(List.of("Redis 持久化"), texts(counter.top(3, 10)));
+        assertEquals(List.of("Redis 持久化"), texts(counter.top(2, 1)));
+        assertEquals(3, counter.distinct());
+    }
+
+    @Test
+    public void pruningKeepsFrequentQuestions() {
+        QuestionCounter counter = new QuestionCounter(1, 100);
+        for (int i = 0; i < 10_000; i++) {
+            counter.add("question " + i, (long) i);
+            if (i % 10 == 0) {
+                counter.add("hot", (long) i);
+                counter.add("hot", (long) i + 1);
+            }
+        }
+        assertTrue(counter.distinct() <= 100, "distinct " + counter.distinct());
+        assertTrue(counter.pruned() > 0);
+        List<SuggestionTrie.Suggestion> top = counter.top(1, 1);
+        assertEquals("hot", top.get(0).getText());
+        assertEquals(2000, top.get(0).getWeight());
+    }
+
+    private static List<String> texts(List<SuggestionTrie.Suggestion> suggestions) {
+        return suggestions.stream().map(SuggestionTrie.Suggestion::getText).collect(Collectors.toList());
+    }
+}
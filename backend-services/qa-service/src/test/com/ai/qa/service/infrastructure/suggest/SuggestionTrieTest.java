@@ -0,0 +1,130 @@
+package com.ai.qa.service.infrastructure.suggest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SuggestionTrieTest {
+
+    private static final String[] WORDS = {"spring", "boot", "mysql", "索引", "redis", "缓存", "kafka", "怎么", "配置",
+            "jvm", "gc", "线程池", "如何", "优化", "what", "is", "docker", "k8s", "部署"};
+
+    @Test
+    public void completesByWeight() {
+        SuggestionTrie trie = SuggestionTrie.build(List.of(
+                new SuggestionTrie.Suggestion("Spring Boot 怎么配置多数据源", 30),
+                new SuggestionTrie.Suggestion("Spring Boot 启动慢", 50),
+                new SuggestionTrie.Suggestion("Spring Cloud Gateway 限流", 10),
+                new SuggestionTrie.Suggestion("Redis 持久化", 80),
+                new SuggestionTrie.Suggestion("spring", 5)), 3);
+
+        assertEquals(List.of("Spring Boot 启动慢", "Spring Boot 怎么配置多数据源", "Spring Cloud Gateway 限流"),
+                trie.suggest("spr", 10));
+        // 前缀停在边的中间、大小写和全角不影响匹配
+        assertEquals(List.of("Spring Boot 启动慢", "Spring Boot 怎么配置多数据源"), trie.suggest("ＳＰＲＩＮＧ  b", 10));
+        assertEquals(List.of("Spring Boot 启动慢"), trie.suggest("spring boot 启", 10));
+        assertEquals(List.of("Redis 持久化", "Spring Boot 启动慢"), trie.suggest("", 2));
+        assertEquals(List.of("Spring Boot 启动慢"), trie.suggest("spring", 1));
+        // 末尾的空格表示词已经打完
+        assertEquals(List.of("Spring Boot 启动慢", "Spring Boot 怎么配置多数据源", "Spring Cloud Gateway 限流"),
+                trie.suggest("spring ", 10));
+        assertTrue(trie.suggest("springx", 10).isEmpty());
+        assertTrue(trie.suggest("spring boot 启动快", 10).isEmpty());
+        assertTrue(trie.suggest("kafka", 10).isEmpty());
+        assertEquals(5, trie.size());
+    }
+
+    @Test
+    public void duplicatesKeepTheHeaviestSpelling() {
+        SuggestionTrie trie = SuggestionTrie.build(List.of(
+                new SuggestionTrie.Suggestion("什么是 JVM", 3),
+                new SuggestionTrie.Suggestion("什么是  jvm ", 9),
+                new SuggestionTrie.Suggestion("   ", 100)), 5);
+        assertEquals(1, trie.size());
+        assertEquals(List.of("什么是  jvm "), trie.suggest("什么", 5));
+        assertTrue(SuggestionTrie.EMPTY.suggest("a", 5).isEmpty());
+    }
+
+    @Test
+    public void matchesBruteForce() {
+        Random random = new Random(1);
+        List<SuggestionTrie.Suggestion> suggestions = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            suggestions.add(new SuggestionTrie.Suggestion(sentence(random), random.nextInt(1000)));
+        }
+        int k = 8;
+        SuggestionTrie trie = SuggestionTrie.build(suggestions, k);
+        List<SuggestionTrie.Suggestion> distinct = dedupe(suggestions);
+        for (int q = 0; q < 500; q++) {
+            String text = SuggestionTrie.normalize(distinct.get(random.nextInt(distinct.size())).getText(), true);
+            String prefix = text.substring(0, 1 + random.nextInt(Math.min(text.length(), 12)));
+            List<String> expected = distinct.stream()
+                    .filter(s -> SuggestionTrie.normalize(s.getText(), true).startsWith(prefix))
+                    .sorted(Comparator.comparingLong(SuggestionTrie.Suggestion::getWeight).reversed()
+                            .thenComparing(SuggestionTrie.Suggestion::getText))
+                    .limit(k)
+                    .map(SuggestionTrie.Suggestion::getText)
+                    .collect(Collectors.toList());
+            assertEquals(expected, trie.suggest(prefix, k), prefix);
+        }
+        assertTrue(trie.nodeCount() < 2 * trie.size() + 1, "nodes " + trie.nodeCount());
+    }
+
+    @Test
+    public void lookupLatency() {
+        Random random = new Random(2);
+        List<SuggestionTrie.Suggestion> suggestions = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            suggestions.add(new SuggestionTrie.Suggestion(sentence(random), random.nextInt(100_000)));
+        }
+        SuggestionTrie trie = SuggestionTrie.build(suggestions, 10);
+        String[] prefixes = new String[1000];
+        for (int i = 0; i < prefixes.length; i++) {
+            String text = suggestions.get(random.nextInt(suggestions.size())).getText();
+            prefixes[i] = text.substring(0, 1 + random.nextInt(text.length()));
+        }
+        for (String prefix : prefixes) {
+            trie.suggest(prefix, 10);
+        }
+        long[] nanos = new long[prefixes.length];
+        for (int i = 0; i < prefixes.length; i++) {
+            long start = System.nanoTime();
+            trie.suggest(prefixes[i], 10);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        long p99 = nanos[nanos.length * 99 / 100];
+        System.out.println("suggest p50: " + nanos[nanos.length / 2] / 1000 + "us, p99: " + p99 / 1000 + "us, "
+                + trie.size() + " entries, " + trie.nodeCount() + " nodes");
+        assertTrue(p99 < 1_000_000, "p99 " + p99 + "ns");
+    }
+
+    private static String sentence(Random random) {
+        int words = 2 + random.nextInt(5);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    /**
+     * 与 build 相同的去重规则：规范化后相同的只保留权重最高的
+     */
+    private static List<SuggestionTrie.Suggestion> dedupe(List<SuggestionTrie.Suggestion> suggestions) {
+        return new ArrayList<>(suggestions.stream().collect(Collectors.toMap(
+                s -> SuggestionTrie.normalize(s.getText(), true), s -> s,
+                (a, b) -> b.getWeight() > a.getWeight() ? b : a)).values());
+    }
+}
@@ -0,0 +1,196 @@
+package com.ai.qa.service.infrastructure.vector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HnswIndexTest {
+
+    private static final int DIMENSION = 32;
+    private static final int COUNT = 5000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void recallAgainstExactSearch() throws IOException {
+        float[][] data = clustered(COUNT, new Random(1));
+        try (HnswIndex index = new HnswIndex(dir, DIMENSION, 16, 100, COUNT)) {
+            for (int i = 0; i < COUNT; i++) {
+                index.add(i, i % 10, data[i]);
+            }
+
+            Random random = new Random(2);
+            int k = 10;
+            double recall = 0;
+            double filteredRecall = 0;
+            int queries = 100;
+            for (int q = 0; q < queries; q++) {
+                float[] query = data[random.nextInt(COUNT)].clone();
+                query[0] += 0.1f;
+                recall += overlap(index.search(query, k, 64, HnswIndex.ANY_TAG), exact(data, query, k, HnswIndex.ANY_TAG));
+                filteredRecall += overlap(index.search(query, k, 64, 3), exact(data, query, k, 3));
+            }
+            assertTrue(recall / queries >= 0.95, "recall " + recall / queries);
+            assertTrue(filteredRecall / queries >= 0.95, "filtered recall " + filteredRecall / queries);
+        }
+    }
+
+    @Test
+    public void resultsAreSortedAndFiltered() throws IOException {
+        float[][] data = clustered(1000, new Random(3));
+        try (HnswIndex index = new HnswIndex(dir, DIMENSION, 8, 50, 1000)) {
+            for (int i = 0; i < data.length; i++) {
+                index.add(1000 + i, i % 2, data[i]);
+            }
+            List<HnswIndex.SearchHit> hits = index.search(data[10], 5, 32, 0);
+            assertEquals(5, hits.size());
+            assertEquals(1010, hits.get(0).getExternalId());
+            assertEquals(1.0, hits.get(0).getScore(), 1e-5);
+            for (int i = 0; i < hits.size(); i++) {
+                assertEquals(0, hits.get(i).getTag());
+                if (i > 0) {
+                    assertTrue(hits.get(i - 1).getScore() >= hits.get(i).getScore());
+                }
+            }
+            assertTrue(index.search(data[10], 5, 32, 7).isEmpty());
+        }
+    }
+
+    @Test
+    public void reopensFromDiskWithoutReindexing() throws IOException {
+        float[][] data = clustered(2000, new Random(4));
+        try (HnswIndex index = new HnswIndex(dir, DIMENSION, 16, 100, 2000)) {
+            for (int i = 0; i < data.length; i++) {
+                index.add(i, 0, data[i]);
+            }
+        }
+
+        try (HnswIndex reopened = new HnswIndex(dir, DIMENSION, 16, 100, 2000)) {
+            assertTrue(reopened.isRestored());
+            assertEquals(2000, reopened.size());
+            for (int i = 0; i < data.length; i += 97) {
+                assertEquals(i, reopened.search(data[i], 1, 32, HnswIndex.ANY_TAG).get(0).getExternalId());
+            }
+        }
+
+        // 参数变化时从空索引开始
+        try (HnswIndex changed = new HnswIndex(dir, DIMENSION, 8, 100, 2000)) {
+            assertFalse(changed.isRestored());
+            assertEquals(0, changed.size());
+        }
+    }
+
+    @Test
+    public void searchesRunConcurrentlyWithInserts() throws Exception {
+        float[][] data = clustered(COUNT, new Random(5));
+        try (HnswIndex index = new HnswIndex(dir, DIMENSION, 16, 64, COUNT)) {
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            AtomicInteger searches = new AtomicInteger();
+            CountDownLatch done = new CountDownLatch(1);
+            Thread[] readers = new Thread[4];
+            for (int t = 0; t < readers.length; t++) {
+                Random random = new Random(t);
+                readers[t] = new Thread(() -> {
+                    try {
+                        while (done.getCount() > 0) {
+                            int published = index.size();
+                            List<HnswIndex.SearchHit> hits = index.search(data[random.nextInt(COUNT)], 5, 32,
+                                    HnswIndex.ANY_TAG);
+                            for (HnswIndex.SearchHit hit : hits) {
+                                // 只会返回已经插入的向量
+                                assertTrue(hit.getExternalId() < Math.max(published, index.size()));
+                            }
+                            searches.incrementAndGet();
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                });
+                readers[t].start();
+            }
+            for (int i = 0; i < COUNT; i++) {
+                index.add(i, 0, data[i]);
+            }
+            done.countDown();
+            for (Thread reader : readers) {
+                reader.join();
+            }
+            assertNull(failure.get());
+            assertTrue(searches.get() > 0);
+            assertEquals(COUNT, index.size());
+        }
+    }
+
+    private static float[][] clustered(int count, Random random) {
+        float[][] centers = new float[50][DIMENSION];
+        for (float[] center : centers) {
+            for (int i = 0; i < DIMENSION; i++) {
+                center[i] = (float) random.nextGaussian();
+            }
+        }
+        float[][] data = new float[count][DIMENSION];
+        for (float[] vector : data) {
+            float[] center = centers[random.nextInt(centers.length)];
+            for (int i = 0; i < DIMENSION; i++) {
+                vector[i] = center[i] + (float) random.nextGaussian() * 0.5f;
+            }
+        }
+        return data;
+    }
+
+    private static Set<Long> exact(float[][] data, float[] query, int k, long tag) {
+        Integer[] ids = new Integer[data.length];
+        double[] scores = new double[data.length];
+        for (int i = 0; i < data.length; i++) {
+            ids[i] = i;
+            scores[i] = cosine(query, data[i]);
+        }
+        Arrays.sort(ids, (a, b) -> Double.compare(scores[b], scores[a]));
+        Set<Long> top = new HashSet<>();
+        for (Integer id : ids) {
+            if (tag == HnswIndex.ANY_TAG || id % 10 == tag) {
+                top.add((long) id);
+                if (top.size() == k) {
+                    break;
+                }
+            }
+        }
+        return top;
+    }
+
+    private static double overlap(List<HnswIndex.SearchHit> hits, Set<Long> truth) {
+        int found = 0;
+        for (HnswIndex.SearchHit hit : hits) {
+            if (truth.contains(hit.getExternalId())) {
+                found++;
+            }
+        }
+        return found / (double) truth.size();
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0, na = 0, nb = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            na += a[i] * a[i];
+            nb += b[i] * b[i];
+        }
+        return dot / Math.sqrt(na * nb);
+    }
+}
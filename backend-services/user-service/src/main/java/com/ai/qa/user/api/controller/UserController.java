@@ -11,6 +11,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /***
  * 为什么user-service必须也要自己做安全限制？
  * 1。零信任网络 (Zero Trust Network)：在微服务架构中，你必须假设内部网络是不安全的。不能因为一个请求来自API Gateway就完全信任它。万一有其他内部服务被攻破，它可能会伪造请求直接调用user-service，绕过Gateway。如果user-service没有自己的安全防线，它就会被完全暴露。
@@ -64,6 +68,25 @@ public class UserController {
     @GetMapping("/{userId}")
     public String getUserById(@PathVariable("userId") Long userId) {
         System.out.println("测试userid");
-        return "userid:"+userId;
+        return describe(userId);
+    }
+
+    /**
+     * 批量查询用户信息，供其他服务一次获取多个用户 (例如展示问答历史)，避免逐个调用
+     *
+     * @param ids 用户ID，可以写成 ids=1,2,3 或 ids=1&ids=2
+     * @return 用户ID -> 用户信息 (与单个查询的格式相同)，不存在的用户不在结果中
+     */
+    @GetMapping("/batch")
+    public Map<Long, String> getUsersByIds(@RequestParam("ids") List<Long> ids) {
+        Map<Long, String> users = new LinkedHashMap<>();
+        for (User user : userApplicationService.getUsers(ids)) {
+            users.put(user.getId(), describe(user.getId()));
+        }
+        return users;
+    }
+
+    private static String describe(Long userId) {
+        return "userid:" + userId;
     }
 }
@@ -4,23 +4,38 @@ package com.ai.qa.user.application.service;
 
 import com.ai.qa.user.api.exception.BusinessException;
 import com.ai.qa.user.api.exception.ErrorCode;
+import com.ai.qa.user.domain.event.UserChangedEvent;
 import com.ai.qa.user.domain.model.User;
 import com.ai.qa.user.domain.repositories.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import jakarta.persistence.EntityNotFoundException;
 
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
 
 @Service
 public class UserApplicationService {
 
+    /**
+     * 批量查询一次最多的用户数
+     */
+    public static final int MAX_BATCH_SIZE = 200;
+
     private final UserRepository userRepository;
 
+    private final ApplicationEventPublisher eventPublisher;
+
     @Autowired
-    public UserApplicationService(UserRepository userRepository) {
+    public UserApplicationService(UserRepository userRepository, ApplicationEventPublisher eventPublisher) {
         // 注意：这里注入的是我们在领域层定义的接口，而不是具体的实现
         this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -40,6 +55,24 @@ public class UserApplicationService {
         user.changeNickname(newNickname);
 
         // 3. 将变更后的聚合根交由仓库进行持久化
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+
+        // 4. 通知缓存了用户信息的服务 (事务提交后才真正发出)
+        eventPublisher.publishEvent(new UserChangedEvent(userId, System.currentTimeMillis()));
+        return saved;
+    }
+
+    /**
+     * 批量查询用户，一次数据库查询完成
+     * @param ids 用户ID，重复的ID只查询一次
+     * @return 找到的用户
+     */
+    @Transactional(readOnly = true)
+    public List<User> getUsers(Collection<Long> ids) {
+        Set<Long> distinct = new LinkedHashSet<>(ids);
+        if (distinct.size() > MAX_BATCH_SIZE) {
+            throw new BusinessException(ErrorCode.BAD_REQUEST, "一次最多查询" + MAX_BATCH_SIZE + "个用户");
+        }
+        return userRepository.findAllById(distinct);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,29 @@
+package com.ai.qa.user.domain.event;
+
+/**
+ * 用户资料发生变化 (例如修改了昵称)，其他服务据此清除缓存的用户信息
+ */
+public class UserChangedEvent {
+
+    private Long userId;
+    private long changedAt;
+
+    // 反序列化需要一个无参构造函数
+    protected UserChangedEvent() {}
+
+    /**
+     * @param changedAt 变更时间 (毫秒时间戳)
+     */
+    public UserChangedEvent(Long userId, long changedAt) {
+        this.userId = userId;
+        this.changedAt = changedAt;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public long getChangedAt() {
+        return changedAt;
+    }
+}
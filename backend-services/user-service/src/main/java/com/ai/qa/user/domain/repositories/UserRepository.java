@@ -2,6 +2,7 @@ package com.ai.qa.user.domain.repositories;
 
 import com.ai.qa.user.domain.model.User;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository {
@@ -13,6 +14,13 @@ public interface UserRepository {
      */
     Optional<User> findById(Long id);
 
+    /**
+     * 一次查询多个用户聚合，不存在的ID不出现在结果中
+     * @param ids 用户ID
+     * @return 找到的用户，顺序不保证与参数一致
+     */
+    List<User> findAllById(Iterable<Long> ids);
+
     /**
      * 保存用户聚合（用于创建或更新）
      * @param user 用户聚合
@@ -0,0 +1,53 @@
+package com.ai.qa.user.infrastructure.config;
+
+import com.ai.qa.user.infrastructure.events.HttpBroadcastUserChangeTransport;
+import com.ai.qa.user.infrastructure.events.LoopbackUserChangeTransport;
+import com.ai.qa.user.infrastructure.events.UserChangeTransport;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class UserEventsConfig {
+
+    /**
+     * 用户变更事件的传输方式：http (默认) 通过注册中心广播给订阅服务的每个实例；loopback 只在进程内传递
+     */
+    @Bean
+    public UserChangeTransport userChangeTransport(@Value("${user.events.transport:http}") String transport,
+                                                   @Value("${user.events.subscribers:qa-service}") List<String> subscribers,
+                                                   @Value("${user.events.path:/internal/events/user-changed}") String path,
+                                                   @Value("${user.events.timeout:2s}") Duration timeout,
+                                                   DiscoveryClient discoveryClient,
+                                                   RestTemplateBuilder restTemplateBuilder,
+                                                   ExecutorService userEventsExecutor) {
+        if ("loopback".equalsIgnoreCase(transport)) {
+            return new LoopbackUserChangeTransport();
+        }
+        return new HttpBroadcastUserChangeTransport(discoveryClient,
+                restTemplateBuilder.setConnectTimeout(timeout).setReadTimeout(timeout).build(),
+                userEventsExecutor, subscribers, path);
+    }
+
+    /**
+     * 发送事件的后台线程，队列满时丢弃最旧的任务 (订阅方缓存有过期时间兜底)
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService userEventsExecutor() {
+        return new ThreadPoolExecutor(2, 2, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(1000),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "user-events");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.DiscardOldestPolicy());
+    }
+}
@@ -0,0 +1,59 @@
+package com.ai.qa.user.infrastructure.events;
+
+import com.ai.qa.user.domain.event.UserChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 通过注册中心找到订阅服务的所有实例，逐个 POST 事件。
+ * <p>
+ * 每个实例都有自己的近端缓存，所以是广播而不是负载均衡调用；发送在后台线程进行，不延长修改昵称的请求。
+ * 某个实例暂时不可达时只记录日志，它的缓存条目会在过期时间到达后自然失效。
+ */
+public class HttpBroadcastUserChangeTransport implements UserChangeTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(HttpBroadcastUserChangeTransport.class);
+
+    private final DiscoveryClient discoveryClient;
+    private final RestTemplate restTemplate;
+    private final ExecutorService executor;
+    private final List<String> subscribers;
+    private final String path;
+
+    /**
+     * @param subscribers 订阅方在注册中心的服务名
+     * @param path        订阅方接收事件的接口路径
+     */
+    public HttpBroadcastUserChangeTransport(DiscoveryClient discoveryClient, RestTemplate restTemplate,
+                                            ExecutorService executor, List<String> subscribers, String path) {
+        this.discoveryClient = discoveryClient;
+        this.restTemplate = restTemplate;
+        this.executor = executor;
+        this.subscribers = subscribers;
+        this.path = path;
+    }
+
+    @Override
+    public void publish(UserChangedEvent event) {
+        for (String service : subscribers) {
+            for (ServiceInstance instance : discoveryClient.getInstances(service)) {
+                executor.execute(() -> send(instance, event));
+            }
+        }
+    }
+
+    private void send(ServiceInstance instance, UserChangedEvent event) {
+        try {
+            restTemplate.postForEntity(instance.getUri().resolve(path), event, Void.class);
+        } catch (Exception e) {
+            log.warn("Failed to deliver user-changed event for user {} to {}: {}",
+                    event.getUserId(), instance.getUri(), e.getMessage());
+        }
+    }
+}
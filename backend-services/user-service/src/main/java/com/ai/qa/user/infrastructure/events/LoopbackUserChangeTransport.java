@@ -0,0 +1,26 @@
+package com.ai.qa.user.infrastructure.events;
+
+import com.ai.qa.user.domain.event.UserChangedEvent;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 进程内传输：事件直接交给同一进程中注册的监听器，用于测试和单体部署
+ */
+public class LoopbackUserChangeTransport implements UserChangeTransport {
+
+    private final List<Consumer<UserChangedEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    public void subscribe(Consumer<UserChangedEvent> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void publish(UserChangedEvent event) {
+        for (Consumer<UserChangedEvent> listener : listeners) {
+            listener.accept(event);
+        }
+    }
+}
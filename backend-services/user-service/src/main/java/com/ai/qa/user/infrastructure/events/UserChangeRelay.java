@@ -0,0 +1,24 @@
+package com.ai.qa.user.infrastructure.events;
+
+import com.ai.qa.user.domain.event.UserChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * 把应用内发布的用户变更事件转发给 {@link UserChangeTransport}。
+ * 在事务提交之后才发送，订阅方收到事件后重新读取到的一定是新数据。
+ */
+@Component
+public class UserChangeRelay {
+
+    private final UserChangeTransport transport;
+
+    public UserChangeRelay(UserChangeTransport transport) {
+        this.transport = transport;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        transport.publish(event);
+    }
+}
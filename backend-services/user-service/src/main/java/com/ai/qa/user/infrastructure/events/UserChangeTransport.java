@@ -0,0 +1,14 @@
+package com.ai.qa.user.infrastructure.events;
+
+import com.ai.qa.user.domain.event.UserChangedEvent;
+
+/**
+ * 把用户变更事件送达订阅方 (qa-service 等) 的传输方式，通过 user.events.transport 选择实现
+ */
+public interface UserChangeTransport {
+
+    /**
+     * 发送失败只记录日志，不影响业务操作；订阅方的缓存有过期时间兜底
+     */
+    void publish(UserChangedEvent event);
+}
@@ -25,12 +25,72 @@ DROP TABLE IF EXISTS `qa_history`;
 CREATE TABLE `qa_history` (
   `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '主键ID',
   `user_id` BIGINT NOT NULL COMMENT '用户ID',
+  `session_id` VARCHAR(64) DEFAULT NULL COMMENT '会话ID',
   `question` TEXT NOT NULL COMMENT '用户提出的问题',
   `answer` LONGTEXT COMMENT 'AI返回的回答',
-  `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `create_time` DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) COMMENT '创建时间 (微秒精度，与服务端生成的时间一致)',
   PRIMARY KEY (`id`),
-  KEY `idx_user_id` (`user_id`)
+  KEY `idx_session_time_id` (`session_id`, `create_time`, `id`),
+  KEY `idx_user_time_id` (`user_id`, `create_time`, `id`),
+  KEY `idx_create_time` (`create_time`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='问答历史表';
 
+-- 已有数据库升级 (idx_user_time_id 以 user_id 开头，取代原来的 idx_user_id):
+-- ALTER TABLE `qa_history` ADD KEY `idx_session_time_id` (`session_id`, `create_time`, `id`),
+--   ADD KEY `idx_user_time_id` (`user_id`, `create_time`, `id`), DROP KEY `idx_user_id`;
+-- ALTER TABLE `qa_history` MODIFY `create_time` DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6);
+-- ALTER TABLE `qa_history` ADD KEY `idx_create_time` (`create_time`);
+
+-- ----------------------------
+-- 问答历史归档 (qa_history_archive_*)：超过保留期的问答由 qa-service 定期移出 qa_history，
+-- 同一会话的若干轮压缩成一块；ref 表记录每个问答ID所在的块，dict 表存放压缩字典
+-- ----------------------------
+DROP TABLE IF EXISTS `qa_history_archive_block`;
+CREATE TABLE `qa_history_archive_block` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `session_id` VARCHAR(64) DEFAULT NULL COMMENT '会话ID',
+  `user_id` BIGINT DEFAULT NULL COMMENT '用户ID',
+  `first_time` DATETIME(6) NOT NULL COMMENT '块中最早一轮问答的创建时间',
+  `last_time` DATETIME(6) NOT NULL COMMENT '块中最晚一轮问答的创建时间',
+  `row_count` INT NOT NULL COMMENT '问答轮数',
+  `dictionary_id` BIGINT DEFAULT NULL COMMENT '压缩字典ID，为空表示没有使用字典',
+  `raw_bytes` INT NOT NULL COMMENT '压缩前字节数',
+  `compressed_bytes` INT NOT NULL COMMENT '压缩后字节数',
+  `payload` MEDIUMBLOB NOT NULL COMMENT '压缩后的问答',
+  PRIMARY KEY (`id`),
+  KEY `idx_archive_session_time` (`session_id`, `first_time`),
+  KEY `idx_archive_user_time` (`user_id`, `last_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='问答历史归档块';
+
+DROP TABLE IF EXISTS `qa_history_archive_ref`;
+CREATE TABLE `qa_history_archive_ref` (
+  `history_id` BIGINT NOT NULL COMMENT '问答ID',
+  `block_id` BIGINT NOT NULL COMMENT '所在的归档块ID',
+  PRIMARY KEY (`history_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='已归档问答所在的块';
+
+DROP TABLE IF EXISTS `qa_history_archive_dict`;
+CREATE TABLE `qa_history_archive_dict` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `dictionary` BLOB NOT NULL COMMENT 'DEFLATE 预置字典',
+  `sample_count` INT NOT NULL COMMENT '训练样本数',
+  `create_time` DATETIME DEFAULT NULL COMMENT '训练时间',
+  PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='问答历史归档压缩字典';
+
+-- ----------------------------
+-- 会话摘要表 (qa_session_summary)：较早问答的滚动摘要，through_time/through_id 之前 (含) 的问答已合并进摘要
+-- ----------------------------
+DROP TABLE IF EXISTS `qa_session_summary`;
+CREATE TABLE `qa_session_summary` (
+  `session_id` VARCHAR(64) NOT NULL COMMENT '会话ID',
+  `user_id` BIGINT DEFAULT NULL COMMENT '用户ID',
+  `summary` TEXT COMMENT '摘要',
+  `through_time` DATETIME(6) NOT NULL COMMENT '摘要覆盖到的最后一轮问答的创建时间',
+  `through_id` BIGINT NOT NULL COMMENT '摘要覆盖到的最后一轮问答的ID',
+  `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (`session_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='会话摘要表';
+
 -- 插入一些测试数据 (可选)
 INSERT INTO `user` (`username`, `password`) VALUES ('testuser', '$2a$10$abcdefghijklmnopqrstuv'); -- 密码是加密的，请通过注册接口创建用户
\ No newline at end of file
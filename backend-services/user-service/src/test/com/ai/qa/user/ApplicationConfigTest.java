@@ -0,0 +1,41 @@
+package com.ai.qa.user;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * application.yml 能被解析，且各个配置项落在预期的路径下 (不启动应用，不需要数据库和注册中心)
+ */
+public class ApplicationConfigTest {
+
+    @Test
+    public void applicationYamlBindsExpectedProperties() throws IOException {
+        List<PropertySource<?>> sources = new YamlPropertySourceLoader()
+                .load("application", new ClassPathResource("application.yml"));
+        StandardEnvironment environment = new StandardEnvironment();
+        sources.forEach(source -> environment.getPropertySources().addLast(source));
+        Binder binder = Binder.get(environment);
+
+        assertEquals("user-service", environment.getProperty("spring.application.name"));
+        assertTrue(binder.bind("spring.jpa.show-sql", Boolean.class).get());
+        assertEquals("update", environment.getProperty("spring.jpa.hibernate.ddl-auto"));
+
+        // 事件配置是顶层的 user.events，不能挂到 spring.jpa 下面
+        assertEquals("http", environment.getProperty("user.events.transport"));
+        assertEquals(List.of("qa-service"), binder.bind("user.events.subscribers", Bindable.listOf(String.class)).get());
+        assertEquals("/internal/events/user-changed", environment.getProperty("user.events.path"));
+        assertEquals(Duration.ofSeconds(2), binder.bind("user.events.timeout", Duration.class).get());
+    }
+}